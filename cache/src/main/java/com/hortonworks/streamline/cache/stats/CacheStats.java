@@ -19,4 +19,30 @@ package com.hortonworks.streamline.cache.stats;
  * Created by hlouro on 8/6/15.
  */
 public interface CacheStats {
+    /**
+     * @return the number of lookups that found a cached value
+     */
+    long hitCount();
+
+    /**
+     * @return the number of lookups that did not find a cached value
+     */
+    long missCount();
+
+    /**
+     * @return the number of cached values removed because they were invalidated
+     */
+    long invalidationCount();
+
+    default long requestCount() {
+        return hitCount() + missCount();
+    }
+
+    /**
+     * @return the ratio of lookups that found a cached value, 1.0 if there was no lookup
+     */
+    default double hitRate() {
+        long requestCount = requestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount() / requestCount;
+    }
 }
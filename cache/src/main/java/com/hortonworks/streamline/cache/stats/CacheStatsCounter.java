@@ -0,0 +1,63 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.cache.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CacheStats} updated by the cache as it is used, and safe to update from several threads.
+ */
+public class CacheStatsCounter implements CacheStats {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    public void recordInvalidations(int count) {
+        invalidationCount.add(count);
+    }
+
+    @Override
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long invalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount() +
+                ", missCount=" + missCount() +
+                ", invalidationCount=" + invalidationCount() +
+                '}';
+    }
+}
@@ -21,13 +21,28 @@ import com.hortonworks.streamline.cache.AbstractCache;
 import com.hortonworks.streamline.cache.Cache;
 import com.hortonworks.streamline.cache.view.config.ExpiryPolicy;
 import com.lambdaworks.redis.RedisConnection;
+import com.lambdaworks.redis.ScriptOutputType;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public abstract class RedisAbstractCache<K, V> extends AbstractCache<K, V> implements Cache<K, V> {
     public static final String REDIS_MAX_MEMORY = "maxmemory";
     public static final String REDIS_MAX_MEMORY_POLICY = "maxmemory-policy";
     public static final String REDIS_MAX_MEMORY_POLICY_ALL_KEYS_LRU = "allkeys-lru";
+    /**
+     * Maximum number of keys or fields sent in a single multi-key command, so that very large key sets neither build
+     * huge requests nor block the Redis server for too long
+     */
+    public static final int MAX_KEYS_PER_COMMAND = 1000;
+
+    // Sets every key of the batch with its value and the same TTL in a single round trip
+    private static final String SET_EX_ALL_SCRIPT =
+            "for i, key in ipairs(KEYS) do redis.call('SET', key, ARGV[i], 'EX', %d) end return #KEYS";
 
     protected final RedisConnection<K, V> redisConnection;
 
@@ -42,24 +57,63 @@ public abstract class RedisAbstractCache<K, V> extends AbstractCache<K, V> imple
     }
 
     protected void setMaxSize() {
-        if (expiryPolicy.isSize()) {
+        if (expiryPolicy != null && expiryPolicy.isSize()) {
             redisConnection.configSet(REDIS_MAX_MEMORY, String.valueOf(expiryPolicy.getSize().getBytes()));
             redisConnection.configSet(REDIS_MAX_MEMORY_POLICY, REDIS_MAX_MEMORY_POLICY_ALL_KEYS_LRU);
         }
     }
 
-    // TODO
+    protected boolean isTtl() {
+        return expiryPolicy != null && expiryPolicy.isTtl();
+    }
+
     protected void setExpiryPolicy(K key) {
-        if (expiryPolicy.isTtl()) {
+        if (isTtl()) {
             redisConnection.expire(key, expiryPolicy.getTtl().getTtlSeconds());
         }
     }
 
-    protected void setExpiryPolicy(Collection<? extends K> keys) {
-        if (expiryPolicy.isTtl()) {
-            for (K key : keys) {
-                redisConnection.expire(key, expiryPolicy.getTtl().getTtlSeconds());
+    /**
+     * Sets the entries of the batch as string values expiring after the TTL of the {@link ExpiryPolicy}. A script sets
+     * all of them in one round trip, where MSET followed by one EXPIRE per key would take one round trip per key.
+     */
+    @SuppressWarnings("unchecked")
+    protected void setExWithExpiryPolicy(Map<? extends K, ? extends V> batch) {
+        final K[] keys = (K[]) new Object[batch.size()];
+        final V[] vals = (V[]) new Object[batch.size()];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : batch.entrySet()) {
+            keys[i] = entry.getKey();
+            vals[i++] = entry.getValue();
+        }
+        // the TTL is part of the script rather than an argument, which would have to be encoded by the value codec
+        redisConnection.eval(String.format(SET_EX_ALL_SCRIPT, expiryPolicy.getTtl().getTtlSeconds()),
+                ScriptOutputType.INTEGER, keys, vals);
+    }
+
+    protected static <T> List<List<T>> partition(Collection<? extends T> keys) {
+        final List<List<T>> batches = new ArrayList<>((keys.size() + MAX_KEYS_PER_COMMAND - 1) / MAX_KEYS_PER_COMMAND);
+        final Iterator<? extends T> it = keys.iterator();
+        while (it.hasNext()) {
+            final List<T> batch = new ArrayList<>(Math.min(MAX_KEYS_PER_COMMAND, keys.size()));
+            while (it.hasNext() && batch.size() < MAX_KEYS_PER_COMMAND) {
+                batch.add(it.next());
+            }
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    protected static <K, V> List<Map<K, V>> partition(Map<? extends K, ? extends V> entries) {
+        final List<Map<K, V>> batches = new ArrayList<>();
+        Map<K, V> batch = null;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            if (batch == null || batch.size() == MAX_KEYS_PER_COMMAND) {
+                batch = new LinkedHashMap<>();
+                batches.add(batch);
             }
+            batch.put(entry.getKey(), entry.getValue());
         }
+        return batches;
     }
-}
\ No newline at end of file
+}
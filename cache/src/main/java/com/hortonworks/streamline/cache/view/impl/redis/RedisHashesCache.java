@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings("unchecked")
@@ -49,11 +50,24 @@ public class RedisHashesCache<K, V> extends RedisAbstractCache<K, V> implements
         return redisConnection.hget(key, field);
     }
 
+    /**
+     * Fetches only the requested fields with HMGET, in batches of at most {@link #MAX_KEYS_PER_COMMAND} fields,
+     * rather than transferring the whole hash
+     */
     @Override
     public Map<K, V> getAll(Collection<? extends K> fields) {
-        Map<K, V> present = redisConnection.hgetall(key);
-        present.entrySet().retainAll(fields);
-        LOG.debug("Entries existing in cache [{}]. Keys non existing in cache: [{}]", present, fields.removeAll(present.keySet()));
+        final Map<K, V> present = new HashMap<>();
+        for (List<K> batch : RedisAbstractCache.<K>partition(fields)) {
+            final List<V> vals = redisConnection.hmget(key, batch.toArray((K[]) new Object[batch.size()]));
+            for (int i = 0; i < vals.size(); i++) { // values come in order from Redis
+                final V val = vals.get(i);
+                if (val != null) {
+                    present.put(batch.get(i), val);
+                }
+            }
+        }
+        LOG.debug("Entries existing in cache [{}]. Number of fields non existing in cache: [{}]",
+                present, fields.size() - present.size());
         return present;
     }
 
@@ -65,7 +79,12 @@ public class RedisHashesCache<K, V> extends RedisAbstractCache<K, V> implements
 
     @Override
     public void putAll(Map<? extends K, ? extends V> entries) {
-        redisConnection.hmset(key, new HashMap<>(entries));
+        for (Map<K, V> batch : RedisAbstractCache.<K, V>partition(entries)) {
+            redisConnection.hmset(key, batch);
+        }
+        if (!entries.isEmpty()) {
+            setExpiryPolicy(key);   // the TTL applies to the hash as a whole
+        }
     }
 
     @Override
@@ -75,7 +94,9 @@ public class RedisHashesCache<K, V> extends RedisAbstractCache<K, V> implements
 
     @Override
     public void removeAll(Collection<? extends K> fields) {
-        redisConnection.del(fields.toArray(((K[]) new Object[fields.size()])));
+        for (List<K> batch : RedisAbstractCache.<K>partition(fields)) {
+            redisConnection.hdel(key, batch.toArray((K[]) new Object[batch.size()]));
+        }
     }
 
     @Override
@@ -46,26 +46,31 @@ public class RedisStringsCache<K, V> extends RedisAbstractCache<K, V> implements
         return redisConnection.get(key);
     }
 
+    /**
+     * Fetches the keys with MGET, in batches of at most {@link #MAX_KEYS_PER_COMMAND} keys
+     */
     @Override
     @SuppressWarnings("unchecked")
     public Map<K, V> getAll(Collection<? extends K> keys) {
-        final K[] ks = keys.toArray(((K[]) new Object[keys.size()]));
-        final List<V> vals = redisConnection.mget(ks);
         final HashMap<K, V> present = new HashMap<>();
-
-        if (ks.length != vals.size()) {
-            LOG.error("Number of keys [{}] does not match unexpected number of values [{}]. Returning empty map");
-        } else {
+        for (List<K> batch : RedisAbstractCache.<K>partition(keys)) {
+            final List<V> vals = redisConnection.mget(batch.toArray((K[]) new Object[batch.size()]));
+            if (batch.size() != vals.size()) {
+                LOG.error("Number of keys [{}] does not match unexpected number of values [{}]. Skipping batch",
+                        batch.size(), vals.size());
+                continue;
+            }
             for (int i = 0; i < vals.size(); i++) { // values come in order from Redis
                 final V val = vals.get(i);
                 if (val != null) {
-                    present.put(ks[i], val);
+                    present.put(batch.get(i), val);
                 } else {
-                    LOG.debug("Key [{}] has null value. Skipping", ks[i]);
+                    LOG.debug("Key [{}] has null value. Skipping", batch.get(i));
                 }
             }
         }
-        LOG.debug("Entries existing in cache [{}]. Keys non existing in cache: [{}]", present, keys.removeAll(present.keySet()));
+        LOG.debug("Entries existing in cache [{}]. Number of keys non existing in cache: [{}]",
+                present, keys.size() - present.size());
         return present;
     }
 
@@ -77,7 +82,13 @@ public class RedisStringsCache<K, V> extends RedisAbstractCache<K, V> implements
 
     @Override
     public void putAll(Map<? extends K, ? extends V> entries) {
-        redisConnection.mset(new HashMap<>(entries));
+        for (Map<K, V> batch : RedisAbstractCache.<K, V>partition(entries)) {
+            if (isTtl()) {
+                setExWithExpiryPolicy(batch);
+            } else {
+                redisConnection.mset(batch);
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -89,7 +100,9 @@ public class RedisStringsCache<K, V> extends RedisAbstractCache<K, V> implements
     @SuppressWarnings("unchecked")
     @Override
     public void removeAll(Collection<? extends K> keys) {
-        redisConnection.del(keys.toArray(((K[]) new Object[keys.size()])));
+        for (List<K> batch : RedisAbstractCache.<K>partition(keys)) {
+            redisConnection.del(batch.toArray((K[]) new Object[batch.size()]));
+        }
     }
 
     @Override
@@ -0,0 +1,138 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.cache.view.impl.redis;
+
+import com.hortonworks.streamline.cache.view.config.ExpiryPolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.hortonworks.streamline.cache.view.impl.redis.RedisAbstractCache.MAX_KEYS_PER_COMMAND;
+
+public class RedisCachesTest {
+    private static final Logger LOG = LoggerFactory.getLogger(RedisCachesTest.class);
+    private static final String HASH_KEY = "hash";
+    private static final int NUM_ENTRIES = 2 * MAX_KEYS_PER_COMMAND + 500;
+
+    private RedisStandIn redis;
+    private ExpiryPolicy ttlPolicy;
+
+    @Before
+    public void setUp() {
+        redis = new RedisStandIn();
+        ttlPolicy = new ExpiryPolicy(null, 0, null);
+        ttlPolicy.setTtl(ttlPolicy.new Ttl(1, TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void testHashesGetAllFetchesOnlyRequestedFields() {
+        RedisHashesCache<String, String> cache = new RedisHashesCache<>(redis.connect(), HASH_KEY);
+        cache.putAll(entries(NUM_ENTRIES));
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            fields.add("key" + i);
+        }
+        fields.add("missing");
+
+        redis.resetCounters();
+        Map<String, String> present = cache.getAll(fields);
+        long bytes = redis.getBytesTransferred();
+        Assert.assertEquals(entries(10), present);
+        Assert.assertEquals(1, redis.getRoundTrips());
+
+        redis.resetCounters();
+        redis.connect().hgetall(HASH_KEY);
+        LOG.info("Bytes transferred reading {} fields of a hash of {} fields: HMGET [{}], HGETALL [{}]",
+                fields.size(), NUM_ENTRIES, bytes, redis.getBytesTransferred());
+        Assert.assertTrue(bytes * 100 < redis.getBytesTransferred());
+    }
+
+    @Test
+    public void testHashesBatches() {
+        RedisHashesCache<String, String> cache = new RedisHashesCache<>(redis.connect(), HASH_KEY, ttlPolicy);
+        Map<String, String> entries = entries(NUM_ENTRIES);
+
+        cache.putAll(entries);
+        // three HMSET and one EXPIRE
+        Assert.assertEquals(4, redis.getRoundTrips());
+        Assert.assertEquals(entries, redis.getHashes().get(HASH_KEY));
+        Assert.assertEquals(Long.valueOf(60), redis.getTtls().get(HASH_KEY));
+
+        redis.resetCounters();
+        Assert.assertEquals(entries, cache.getAll(entries.keySet()));
+        Assert.assertEquals(3, redis.getRoundTrips());
+
+        redis.resetCounters();
+        cache.removeAll(new ArrayList<>(entries.keySet()).subList(0, NUM_ENTRIES - 1));
+        Assert.assertEquals(3, redis.getRoundTrips());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testStringsBatches() {
+        RedisStringsCache<String, String> cache = new RedisStringsCache<>(redis.connect());
+        Map<String, String> entries = entries(NUM_ENTRIES);
+
+        cache.putAll(entries);
+        Assert.assertEquals(3, redis.getRoundTrips());
+        Assert.assertEquals(entries, redis.getStrings());
+        Assert.assertTrue(redis.getTtls().isEmpty());
+
+        redis.resetCounters();
+        Map<String, String> present = cache.getAll(entries.keySet());
+        LOG.info("Round trips [{}] and bytes transferred [{}] reading {} keys", redis.getRoundTrips(),
+                redis.getBytesTransferred(), NUM_ENTRIES);
+        Assert.assertEquals(entries, present);
+        Assert.assertEquals(3, redis.getRoundTrips());
+
+        redis.resetCounters();
+        cache.removeAll(entries.keySet());
+        Assert.assertEquals(3, redis.getRoundTrips());
+        Assert.assertTrue(redis.getStrings().isEmpty());
+    }
+
+    @Test
+    public void testStringsPutAllWithTtl() {
+        RedisStringsCache<String, String> cache = new RedisStringsCache<>(redis.connect(), ttlPolicy);
+        Map<String, String> entries = entries(NUM_ENTRIES);
+
+        cache.putAll(entries);
+        // one round trip per batch rather than one EXPIRE per key
+        Assert.assertEquals(3, redis.getRoundTrips());
+        Assert.assertEquals(entries, redis.getStrings());
+        Assert.assertEquals(NUM_ENTRIES, redis.getTtls().size());
+        for (Long ttl : redis.getTtls().values()) {
+            Assert.assertEquals(Long.valueOf(60), ttl);
+        }
+    }
+
+    private static Map<String, String> entries(int count) {
+        Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            entries.put("key" + i, "value" + i);
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,205 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.cache.view.impl.redis;
+
+import com.lambdaworks.redis.RedisConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In memory stand-in for a Redis server behind a {@link RedisConnection} of strings. It implements the commands used
+ * by the Redis caches and counts the round trips and the bytes each command and its reply take in the Redis protocol.
+ */
+class RedisStandIn implements InvocationHandler {
+    private static final Pattern EX_PATTERN = Pattern.compile("'EX', (\\d+)");
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final Map<String, Long> ttls = new HashMap<>();
+    private int roundTrips;
+    private long bytesSent;
+    private long bytesReceived;
+
+    @SuppressWarnings("unchecked")
+    RedisConnection<String, String> connect() {
+        return (RedisConnection<String, String>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+        final List<Object> command = new ArrayList<>();
+        command.add(method.getName());
+        for (Object arg : args) {
+            if (arg instanceof Object[]) {
+                command.addAll(Arrays.asList((Object[]) arg));
+            } else if (arg instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) arg).entrySet()) {
+                    command.add(entry.getKey());
+                    command.add(entry.getValue());
+                }
+            } else {
+                command.add(arg);
+            }
+        }
+        final Object reply = execute(method.getName(), args);
+        roundTrips++;
+        bytesSent += size(command);
+        bytesReceived += size(reply);
+        return reply;
+    }
+
+    private Object execute(String command, Object[] args) {
+        switch (command) {
+            case "hget":
+                return hash(args[0]).get(args[1]);
+            case "hgetall":
+                return new HashMap<>(hash(args[0]));
+            case "hmget": {
+                final List<String> vals = new ArrayList<>();
+                for (Object field : (Object[]) args[1]) {
+                    vals.add(hash(args[0]).get(field));
+                }
+                return vals;
+            }
+            case "hset":
+                return hash(args[0]).put((String) args[1], (String) args[2]) == null;
+            case "hmset":
+                hash(args[0]).putAll((Map<String, String>) args[1]);
+                return "OK";
+            case "hdel": {
+                long removed = 0;
+                for (Object field : (Object[]) args[1]) {
+                    removed += hash(args[0]).remove(field) != null ? 1 : 0;
+                }
+                return removed;
+            }
+            case "hlen":
+                return (long) hash(args[0]).size();
+            case "get":
+                return strings.get(args[0]);
+            case "mget": {
+                final List<String> vals = new ArrayList<>();
+                for (Object key : (Object[]) args[0]) {
+                    vals.add(strings.get(key));
+                }
+                return vals;
+            }
+            case "set":
+                strings.put((String) args[0], (String) args[1]);
+                return "OK";
+            case "mset":
+                strings.putAll((Map<String, String>) args[0]);
+                return "OK";
+            case "del": {
+                long removed = 0;
+                for (Object key : (Object[]) args[0]) {
+                    ttls.remove(key);
+                    removed += strings.remove(key) != null || hashes.remove(key) != null ? 1 : 0;
+                }
+                return removed;
+            }
+            case "expire":
+                ttls.put((String) args[0], (Long) args[1]);
+                return true;
+            case "eval": {
+                // only the script setting the keys with a TTL is supported
+                final Matcher matcher = EX_PATTERN.matcher((String) args[0]);
+                if (!matcher.find()) {
+                    throw new UnsupportedOperationException("Unsupported script " + args[0]);
+                }
+                final Object[] keys = (Object[]) args[2];
+                final Object[] vals = (Object[]) args[3];
+                for (int i = 0; i < keys.length; i++) {
+                    strings.put((String) keys[i], (String) vals[i]);
+                    ttls.put((String) keys[i], Long.valueOf(matcher.group(1)));
+                }
+                return (long) keys.length;
+            }
+            default:
+                throw new UnsupportedOperationException("Unsupported command " + command);
+        }
+    }
+
+    private Map<String, String> hash(Object key) {
+        return hashes.computeIfAbsent((String) key, k -> new HashMap<>());
+    }
+
+    // size of the value in the Redis serialization protocol
+    private static long size(Object value) {
+        if (value == null) {
+            return "$-1\r\n".length();
+        } else if (value instanceof Collection) {
+            long size = ("*" + ((Collection<?>) value).size() + "\r\n").length();
+            for (Object element : (Collection<?>) value) {
+                size += size(element);
+            }
+            return size;
+        } else if (value instanceof Map) {
+            final List<Object> elements = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                elements.add(entry.getKey());
+                elements.add(entry.getValue());
+            }
+            return size(elements);
+        } else {
+            final int length = value.toString().getBytes(StandardCharsets.UTF_8).length;
+            return ("$" + length + "\r\n").length() + length + 2;
+        }
+    }
+
+    Map<String, String> getStrings() {
+        return strings;
+    }
+
+    Map<String, Map<String, String>> getHashes() {
+        return hashes;
+    }
+
+    Map<String, Long> getTtls() {
+        return ttls;
+    }
+
+    int getRoundTrips() {
+        return roundTrips;
+    }
+
+    long getBytesTransferred() {
+        return bytesSent + bytesReceived;
+    }
+
+    void resetCounters() {
+        roundTrips = 0;
+        bytesSent = 0;
+        bytesReceived = 0;
+    }
+}
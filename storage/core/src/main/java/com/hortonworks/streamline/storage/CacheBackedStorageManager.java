@@ -16,7 +16,9 @@
 package com.hortonworks.streamline.storage;
 
 import com.hortonworks.streamline.cache.Cache;
+import com.hortonworks.streamline.cache.stats.CacheStats;
 import com.hortonworks.streamline.common.QueryParam;
+import com.hortonworks.streamline.storage.cache.QueryCache;
 import com.hortonworks.streamline.storage.cache.impl.GuavaCache;
 import com.hortonworks.streamline.storage.cache.writer.StorageWriter;
 import com.hortonworks.streamline.storage.exception.StorageException;
@@ -24,8 +26,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Created by hlouro on 8/7/15.
@@ -37,14 +41,25 @@ public class CacheBackedStorageManager implements StorageManager {
     private final StorageWriter writer;
     private final Cache<StorableKey, Storable> cache;
     private final StorageManager dao;
+    private final QueryCache queryCache;
 
     public CacheBackedStorageManager(Cache<StorableKey, Storable> cache, StorageWriter storageWriter) {
+        this(cache, storageWriter, null);
+    }
+
+    /**
+     * @param queryCache cache of the results of {@code find} and {@code list}, or null to always query the storage
+     *                   layer. It must only be given with a writer that writes to the storage layer before returning,
+     *                   since the queries are invalidated once the writer returns.
+     */
+    public CacheBackedStorageManager(Cache<StorableKey, Storable> cache, StorageWriter storageWriter, QueryCache queryCache) {
         if (cache == null || storageWriter == null) {
             throw new IllegalArgumentException("Cache and storage writer objects must not be null");
         }
         this.cache = cache;
         this.dao = ((GuavaCache)cache).getDao();
         this.writer = storageWriter;
+        this.queryCache = queryCache;
     }
 
     @Override
@@ -55,7 +70,11 @@ public class CacheBackedStorageManager implements StorageManager {
     //TODO: Exception handling in add, remove, addOrUpdate, ...
     @Override
     public void add(Storable storable) throws StorageException {
-        writer.add(storable);
+        try {
+            writer.add(storable);
+        } finally {
+            invalidateQueries(storable.getNameSpace());
+        }
         if (storable.isCacheable()) {
             cache.put(storable.getStorableKey(), storable);
         }
@@ -63,7 +82,12 @@ public class CacheBackedStorageManager implements StorageManager {
 
     @Override
     public <T extends Storable> T remove(StorableKey key) throws StorageException {
-        Storable storable = (Storable) writer.remove(key);
+        Storable storable;
+        try {
+            storable = (Storable) writer.remove(key);
+        } finally {
+            invalidateQueries(key.getNameSpace());
+        }
         if (storable != null && storable.isCacheable()) {
             Storable cachedStorable = cache.get(key);
             if (!storable.equals(cachedStorable)) {
@@ -78,7 +102,11 @@ public class CacheBackedStorageManager implements StorageManager {
 
     @Override
     public void addOrUpdate(Storable storable) throws StorageException {
-        writer.addOrUpdate(storable);
+        try {
+            writer.addOrUpdate(storable);
+        } finally {
+            invalidateQueries(storable.getNameSpace());
+        }
         if (storable.isCacheable()) {
             cache.put(storable.getStorableKey(), storable);
         }
@@ -86,12 +114,68 @@ public class CacheBackedStorageManager implements StorageManager {
 
     @Override
     public void update(Storable storable) {
-        writer.update(storable);
+        try {
+            writer.update(storable);
+        } finally {
+            invalidateQueries(storable.getNameSpace());
+        }
         if (storable.isCacheable()) {
             cache.put(storable.getStorableKey(), storable);
         }
     }
 
+    @Override
+    public void addAll(Collection<? extends Storable> storables) throws StorageException {
+        try {
+            writer.addAll(storables);
+        } finally {
+            invalidateQueries(storables.stream().map(Storable::getNameSpace));
+        }
+        cache.putAll(cacheableEntries(storables));
+    }
+
+    @Override
+    public void addOrUpdateAll(Collection<? extends Storable> storables) throws StorageException {
+        try {
+            writer.addOrUpdateAll(storables);
+        } finally {
+            invalidateQueries(storables.stream().map(Storable::getNameSpace));
+        }
+        cache.putAll(cacheableEntries(storables));
+    }
+
+    @Override
+    public void removeAll(Collection<StorableKey> keys) throws StorageException {
+        try {
+            writer.removeAll(keys);
+        } finally {
+            invalidateQueries(keys.stream().map(StorableKey::getNameSpace));
+        }
+        cache.removeAll(keys);
+    }
+
+    private void invalidateQueries(Stream<String> namespaces) {
+        if (queryCache != null) {
+            namespaces.distinct().forEach(queryCache::invalidate);
+        }
+    }
+
+    private void invalidateQueries(String namespace) {
+        if (queryCache != null) {
+            queryCache.invalidate(namespace);
+        }
+    }
+
+    private Map<StorableKey, Storable> cacheableEntries(Collection<? extends Storable> storables) {
+        Map<StorableKey, Storable> entries = new LinkedHashMap<>();
+        for (Storable storable : storables) {
+            if (storable.isCacheable()) {
+                entries.put(storable.getStorableKey(), storable);
+            }
+        }
+        return entries;
+    }
+
     @Override
     public <T extends Storable> T get(StorableKey key) throws StorageException {
         Storable storable = cache.get(key);
@@ -104,20 +188,34 @@ public class CacheBackedStorageManager implements StorageManager {
 
     @Override
     public <T extends Storable> Collection<T> find(String namespace, List<QueryParam> queryParams) throws StorageException {
-        //Adding workaround methods that calls dao until we figure out what needs to be in caching so the topologies can work.
-        return dao.find(namespace, queryParams);
-
+        if (queryCache == null) {
+            return dao.find(namespace, queryParams);
+        }
+        return queryCache.get(namespace, queryParams, () -> dao.<T>find(namespace, queryParams));
     }
 
     @Override
     public <T extends Storable> Collection<T> list(String namespace) throws StorageException {
-        return dao.list(namespace);
+        if (queryCache == null) {
+            return dao.list(namespace);
+        }
+        return queryCache.get(namespace, null, () -> dao.<T>list(namespace));
+    }
+
+    /**
+     * @return the statistics of the cache of the results of {@code find} and {@code list}, null if they are not cached
+     */
+    public CacheStats getQueryCacheStats() {
+        return queryCache != null ? queryCache.stats() : null;
     }
 
     @Override
     public void cleanup() throws StorageException {
 //        writer.removeAll();       // TODO:
         cache.clear();
+        if (queryCache != null) {
+            queryCache.clear();
+        }
     }
 
     @Override
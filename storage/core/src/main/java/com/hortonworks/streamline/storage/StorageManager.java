@@ -18,6 +18,7 @@ package com.hortonworks.streamline.storage;
 import com.hortonworks.streamline.common.QueryParam;
 import com.hortonworks.streamline.storage.exception.StorageException;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -75,6 +76,66 @@ public interface StorageManager {
      */
     void update(Storable storable);
 
+    /**
+     * Adds all the given storables as {@link #add(Storable)} does. Implementations may write them with fewer round trips
+     * to the storage layer than adding them one by one.
+     *
+     * @param storables the storables to add
+     * @throws StorageException
+     */
+    default void addAll(Collection<? extends Storable> storables) throws StorageException {
+        for (Storable storable : storables) {
+            add(storable);
+        }
+    }
+
+    /**
+     * Adds or updates all the given storables as {@link #addOrUpdate(Storable)} does. Implementations may write them
+     * with fewer round trips to the storage layer than adding or updating them one by one.
+     *
+     * @param storables the storables to add or update
+     * @throws StorageException
+     */
+    default void addOrUpdateAll(Collection<? extends Storable> storables) throws StorageException {
+        for (Storable storable : storables) {
+            addOrUpdate(storable);
+        }
+    }
+
+    /**
+     * Removes the {@link Storable} objects identified by the given keys. The keys that do not exist are ignored.
+     * Unlike {@link #remove(StorableKey)}, the removed objects are not returned so that implementations need not read
+     * them before removing them.
+     *
+     * @param keys keys of the {@link Storable} objects to remove
+     * @throws StorageException
+     */
+    default void removeAll(Collection<StorableKey> keys) throws StorageException {
+        for (StorableKey key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Removes the {@link Storable} objects of the namespace that match the query params, as returned by
+     * {@link #find(String, List)}.
+     *
+     * @param namespace
+     * @param queryParams
+     * @return the removed objects
+     * @throws StorageException
+     */
+    default <T extends Storable> Collection<T> removeAll(String namespace, List<QueryParam> queryParams)
+            throws StorageException {
+        Collection<T> removed = new ArrayList<>(this.<T>find(namespace, queryParams));
+        List<StorableKey> keys = new ArrayList<>(removed.size());
+        for (T storable : removed) {
+            keys.add(storable.getStorableKey());
+        }
+        removeAll(keys);
+        return removed;
+    }
+
     /**
      * Gets the storable entity by using {@code Storable.getPrimaryKey()} as lookup key, return null if no storable entity with
      * the supplied key is found.
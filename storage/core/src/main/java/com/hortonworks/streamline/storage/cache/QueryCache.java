@@ -0,0 +1,183 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hortonworks.streamline.cache.stats.CacheStats;
+import com.hortonworks.streamline.cache.stats.CacheStatsCounter;
+import com.hortonworks.streamline.common.QueryParam;
+import com.hortonworks.streamline.storage.Storable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the results of the {@code find} and {@code list} queries of a namespace until a storable of the namespace
+ * is written, or until they expire. The results holding storables that are not cacheable are not memoized.
+ * <p>
+ * The callers get copies of the cached storables, made with {@code toMap} and {@code fromMap} as the storage layer
+ * does, so they can modify them. The results whose storables can't be copied are not memoized.
+ * </p>
+ * <p>
+ * Each namespace has a version which is incremented when its queries are invalidated. A query result loaded while the
+ * namespace is written is not cached, since it was read at a version that is no longer current.
+ * </p>
+ */
+public class QueryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryCache.class);
+
+    private final Cache<QueryKey, List<Storable>> results;
+    private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final CacheStatsCounter stats = new CacheStatsCounter();
+
+    /**
+     * @param maxSize maximum number of cached query results
+     */
+    public QueryCache(long maxSize) {
+        results = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * @param maxSize maximum number of cached query results
+     * @param expiryInSecs seconds after which a cached query result expires, so that the writes made by other
+     *                     instances sharing the storage are read
+     */
+    public QueryCache(long maxSize, long expiryInSecs) {
+        results = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(expiryInSecs, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Returns the cached result of the query if any, else the result of the loader, which is cached unless the
+     * namespace was invalidated meanwhile or it holds storables that are not cacheable.
+     *
+     * @param queryParams the query params of {@code find}, null or empty for {@code list}
+     */
+    public <T extends Storable> Collection<T> get(String namespace, List<QueryParam> queryParams,
+                                                  Supplier<Collection<T>> loader) {
+        QueryKey key = new QueryKey(namespace, queryParams);
+        List<Storable> cached = results.getIfPresent(key);
+        if (cached != null) {
+            stats.recordHit();
+            return (Collection<T>) copy(cached);
+        }
+        stats.recordMiss();
+
+        AtomicLong version = getVersion(namespace);
+        long loadedVersion = version.get();
+        Collection<T> result = loader.get();
+        for (Storable storable : result) {
+            if (!storable.isCacheable()) {
+                return result;
+            }
+        }
+        List<Storable> copies;
+        try {
+            copies = copy(result);
+        } catch (RuntimeException e) {
+            LOG.debug("Not caching the result of the query on namespace [{}], its storables can't be copied", namespace, e);
+            return result;
+        }
+        synchronized (version) {
+            if (version.get() == loadedVersion) {
+                results.put(key, Collections.unmodifiableList(copies));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the cached query results of the namespace.
+     */
+    public void invalidate(String namespace) {
+        AtomicLong version = getVersion(namespace);
+        synchronized (version) {
+            version.incrementAndGet();
+            int invalidated = 0;
+            for (Iterator<QueryKey> it = results.asMap().keySet().iterator(); it.hasNext(); ) {
+                if (it.next().namespace.equals(namespace)) {
+                    it.remove();
+                    invalidated++;
+                }
+            }
+            stats.recordInvalidations(invalidated);
+        }
+    }
+
+    public void clear() {
+        for (String namespace : versions.keySet()) {
+            invalidate(namespace);
+        }
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    private static List<Storable> copy(Collection<? extends Storable> storables) {
+        List<Storable> res = new ArrayList<>(storables.size());
+        for (Storable storable : storables) {
+            Storable copy;
+            try {
+                copy = storable.getClass().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            res.add(copy.fromMap(storable.toMap()));
+        }
+        return res;
+    }
+
+    private AtomicLong getVersion(String namespace) {
+        return versions.computeIfAbsent(namespace, ns -> new AtomicLong());
+    }
+
+    private static final class QueryKey {
+        private final String namespace;
+        private final List<QueryParam> queryParams;
+
+        QueryKey(String namespace, List<QueryParam> queryParams) {
+            this.namespace = namespace;
+            // find without query params lists the namespace
+            this.queryParams = queryParams == null || queryParams.isEmpty()
+                    ? Collections.<QueryParam>emptyList() : new ArrayList<>(queryParams);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            QueryKey that = (QueryKey) o;
+            return namespace.equals(that.namespace) && queryParams.equals(that.queryParams);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(namespace, queryParams);
+        }
+    }
+}
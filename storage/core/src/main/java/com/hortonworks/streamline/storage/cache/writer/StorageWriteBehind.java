@@ -19,6 +19,7 @@ import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.StorableKey;
 import com.hortonworks.streamline.storage.StorageManager;
 
+import java.util.Collection;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -56,4 +57,19 @@ public class StorageWriteBehind implements StorageWriter {
     public Object remove(StorableKey key) {
         return executorService.submit(() -> dao.remove(key));
     }
+
+    @Override
+    public void addAll(Collection<? extends Storable> storables) {
+        executorService.submit(() -> dao.addAll(storables));
+    }
+
+    @Override
+    public void addOrUpdateAll(Collection<? extends Storable> storables) {
+        executorService.submit(() -> dao.addOrUpdateAll(storables));
+    }
+
+    @Override
+    public void removeAll(Collection<StorableKey> keys) {
+        executorService.submit(() -> dao.removeAll(keys));
+    }
 }
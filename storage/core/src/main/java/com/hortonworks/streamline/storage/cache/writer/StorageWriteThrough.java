@@ -19,6 +19,8 @@ import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.StorableKey;
 import com.hortonworks.streamline.storage.StorageManager;
 
+import java.util.Collection;
+
 /**
  * Created by hlouro on 8/7/15.
  */
@@ -45,4 +47,19 @@ public class StorageWriteThrough implements StorageWriter {
     public Object remove(StorableKey key) {
         return dao.remove(key);
     }
+
+    @Override
+    public void addAll(Collection<? extends Storable> storables) {
+        dao.addAll(storables);
+    }
+
+    @Override
+    public void addOrUpdateAll(Collection<? extends Storable> storables) {
+        dao.addOrUpdateAll(storables);
+    }
+
+    @Override
+    public void removeAll(Collection<StorableKey> keys) {
+        dao.removeAll(keys);
+    }
 }
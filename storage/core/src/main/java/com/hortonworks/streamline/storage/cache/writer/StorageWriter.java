@@ -18,6 +18,8 @@ package com.hortonworks.streamline.storage.cache.writer;
 import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.StorableKey;
 
+import java.util.Collection;
+
 /**
  * Created by hlouro on 8/7/15.
  */
@@ -29,4 +31,10 @@ public interface StorageWriter {
     void update(Storable storable);
 
     Object remove(StorableKey key);
+
+    void addAll(Collection<? extends Storable> storables);
+
+    void addOrUpdateAll(Collection<? extends Storable> storables);
+
+    void removeAll(Collection<StorableKey> keys);
 }
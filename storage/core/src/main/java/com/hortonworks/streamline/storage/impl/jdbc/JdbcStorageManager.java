@@ -91,6 +91,24 @@ public class JdbcStorageManager implements StorageManager {
         }
     }
 
+    @Override
+    public void addAll(Collection<? extends Storable> storables) throws StorageException {
+        log.debug("Adding [{}] storables", storables.size());
+        queryExecutor.insertAll(storables);
+    }
+
+    @Override
+    public void addOrUpdateAll(Collection<? extends Storable> storables) throws StorageException {
+        log.debug("Adding or updating [{}] storables", storables.size());
+        queryExecutor.insertOrUpdateAll(storables);
+    }
+
+    @Override
+    public void removeAll(Collection<StorableKey> keys) throws StorageException {
+        log.debug("Removing [{}] storable keys", keys.size());
+        queryExecutor.deleteAll(keys);
+    }
+
     @Override
     public <T extends Storable> T get(StorableKey key) throws StorageException {
         log.debug("Searching entry for storable key [{}]", key);
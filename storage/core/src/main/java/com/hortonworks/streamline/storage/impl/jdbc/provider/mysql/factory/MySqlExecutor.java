@@ -25,7 +25,9 @@ import com.hortonworks.streamline.storage.impl.jdbc.config.ExecutionConfig;
 import com.hortonworks.streamline.storage.impl.jdbc.connection.ConnectionBuilder;
 import com.hortonworks.streamline.storage.impl.jdbc.connection.HikariCPConnectionBuilder;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MySqlInsertUpdateDuplicate;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MySqlMultiRowInsertUpdateDuplicate;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MysqlInsertQuery;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MysqlMultiRowInsertQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MysqlSelectQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query.MysqlUpdateQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.factory.AbstractQueryExecutor;
@@ -47,6 +49,8 @@ import java.util.Properties;
  * https://dev.mysql.com/doc/connector-j/5.1/en/connector-j-usagenotes-last-insert-id.html
  *
  * If the value of id is null, we let MySQL issue new ID and get the new ID. If the value of id is not null, we just use that value.
+ *
+ * The storables written together whose id is not null are written with multi-row statements, the others one by one.
  */
 public class MySqlExecutor extends AbstractQueryExecutor {
 
@@ -80,6 +84,16 @@ public class MySqlExecutor extends AbstractQueryExecutor {
         insertOrUpdateWithUniqueId(storable, new MySqlInsertUpdateDuplicate(storable));
     }
 
+    @Override
+    public void insertAll(Collection<? extends Storable> storables) {
+        executeMultiRowUpdates(storables, false, MysqlMultiRowInsertQuery::new, this::insert);
+    }
+
+    @Override
+    public void insertOrUpdateAll(Collection<? extends Storable> storables) {
+        executeMultiRowUpdates(storables, true, MySqlMultiRowInsertUpdateDuplicate::new, this::insertOrUpdate);
+    }
+
     @Override
     public int update(Storable storable) {
         return executeUpdate(new MysqlUpdateQuery(storable));
@@ -0,0 +1,37 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.query;
+
+import com.hortonworks.streamline.storage.Storable;
+
+import java.util.List;
+
+public class MySqlMultiRowInsertUpdateDuplicate extends MysqlMultiRowInsertQuery {
+
+    public MySqlMultiRowInsertUpdateDuplicate(List<? extends Storable> storables) {
+        super(storables);
+    }
+
+    // unlike MySqlInsertUpdateDuplicate, the updated values refer to the values of each row instead of being bound again
+    // "INSERT INTO DB.TABLE (id, name, age) VALUES(1, "A", 19),(2, "B", 20) ON DUPLICATE KEY UPDATE id=VALUES(id), ..."
+    @Override
+    protected String createParameterizedSql() {
+        String sql = super.createParameterizedSql()
+                + " ON DUPLICATE KEY UPDATE " + join(getColumnNames(columns, "`%1$s` = VALUES(`%1$s`)"), ", ");
+        log.debug(sql);
+        return sql;
+    }
+}
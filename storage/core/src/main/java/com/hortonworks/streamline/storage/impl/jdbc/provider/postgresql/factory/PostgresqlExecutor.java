@@ -10,6 +10,8 @@ import com.hortonworks.streamline.storage.impl.jdbc.connection.HikariCPConnectio
 import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlDeleteQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlInsertQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlInsertUpdateDuplicate;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlMultiRowInsertQuery;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlMultiRowInsertUpdateDuplicate;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlSelectQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query.PostgresqlUpdateQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.factory.AbstractQueryExecutor;
@@ -31,6 +33,8 @@ import java.util.Properties;
  * SERIAL feature
  *
  * If the value of id is null, we let Postgres issue new ID and get the new ID. If the value of id is not null, we just use that value.
+ *
+ * The storables written together whose id is not null are written with multi-row statements, the others one by one.
  */
 public class PostgresqlExecutor extends AbstractQueryExecutor {
 
@@ -64,6 +68,16 @@ public class PostgresqlExecutor extends AbstractQueryExecutor {
         insertOrUpdateWithUniqueId(storable, new PostgresqlInsertUpdateDuplicate(storable));
     }
 
+    @Override
+    public void insertAll(Collection<? extends Storable> storables) {
+        executeMultiRowUpdates(storables, false, PostgresqlMultiRowInsertQuery::new, this::insert);
+    }
+
+    @Override
+    public void insertOrUpdateAll(Collection<? extends Storable> storables) {
+        executeMultiRowUpdates(storables, true, PostgresqlMultiRowInsertUpdateDuplicate::new, this::insertOrUpdate);
+    }
+
     @Override
     public int update(Storable storable) {
         return executeUpdate(new PostgresqlUpdateQuery(storable));
@@ -80,8 +94,8 @@ public class PostgresqlExecutor extends AbstractQueryExecutor {
     }
 
     @Override
-    public void delete(StorableKey storableKey) {
-        executeUpdate(new PostgresqlDeleteQuery(storableKey));
+    protected SqlQuery createDeleteQuery(StorableKey storableKey) {
+        return new PostgresqlDeleteQuery(storableKey);
     }
 
     @Override
@@ -0,0 +1,53 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query;
+
+import com.hortonworks.streamline.storage.Storable;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.AbstractStorablesSqlQuery;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PostgresqlMultiRowInsertQuery extends AbstractStorablesSqlQuery {
+
+    public PostgresqlMultiRowInsertQuery(List<? extends Storable> storables) {
+        super(storables);
+        // as in PostgresqlInsertQuery, the id column is left to the database when the storables have no id
+        if (getStorableId(storables.get(0)) == null) {
+            columns = columns.stream()
+                    .filter(f -> !f.getName().equalsIgnoreCase("id"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    protected String createParameterizedSql() {
+        String sql = "INSERT INTO \"" + tableName + "\" ("
+                + join(getColumnNames(columns, "\"%s\""), ", ")
+                + ") VALUES" + getRowsBindVariables(columns.size());
+        log.debug(sql);
+        return sql;
+    }
+
+    private static Long getStorableId(Storable storable) {
+        try {
+            return storable.getId();
+        } catch (UnsupportedOperationException ex) {
+            // ignore
+        }
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.impl.jdbc.provider.postgresql.query;
+
+import com.hortonworks.streamline.storage.Storable;
+
+import java.util.List;
+
+public class PostgresqlMultiRowInsertUpdateDuplicate extends PostgresqlMultiRowInsertQuery {
+
+    public PostgresqlMultiRowInsertUpdateDuplicate(List<? extends Storable> storables) {
+        super(storables);
+    }
+
+    // the updated values refer to the values of each row proposed for insertion instead of being bound again
+    // "INSERT INTO DB.TABLE (name, age) VALUES("A", 19),("B", 20) ON CONFLICT ... DO UPDATE SET name=EXCLUDED.name, ..."
+    @Override
+    protected String createParameterizedSql() {
+        String sql = super.createParameterizedSql()
+                + " ON CONFLICT ON CONSTRAINT " + tableName + "_pkey"
+                + " DO UPDATE SET " + join(getColumnNames(columns, "\"%1$s\" = EXCLUDED.\"%1$s\""), ", ");
+        log.debug(sql);
+        return sql;
+    }
+}
@@ -19,6 +19,8 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.Lists;
+import com.hortonworks.streamline.storage.PrimaryKey;
 import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.StorableFactory;
 import com.hortonworks.streamline.storage.StorableKey;
@@ -45,16 +47,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  *
  */
 public abstract class AbstractQueryExecutor implements QueryExecutor {
+    /** Maximum number of rows written by one multi-row statement, or of statements sent in one batch */
+    protected static final int MAX_ROWS_PER_STATEMENT = 500;
 
     protected final ExecutionConfig config;
     protected final int queryTimeoutSecs;
@@ -78,7 +85,20 @@ public abstract class AbstractQueryExecutor implements QueryExecutor {
 
     @Override
     public void delete(StorableKey storableKey) {
-        executeUpdate(new SqlDeleteQuery(storableKey));
+        executeUpdate(createDeleteQuery(storableKey));
+    }
+
+    @Override
+    public void deleteAll(Collection<StorableKey> storableKeys) {
+        List<SqlQuery> deleteQueries = new ArrayList<>(storableKeys.size());
+        for (StorableKey storableKey : storableKeys) {
+            deleteQueries.add(createDeleteQuery(storableKey));
+        }
+        executeBatches(deleteQueries);
+    }
+
+    protected SqlQuery createDeleteQuery(StorableKey storableKey) {
+        return new SqlDeleteQuery(storableKey);
     }
 
     @Override
@@ -190,6 +210,63 @@ public abstract class AbstractQueryExecutor implements QueryExecutor {
         return getQueryExecution(sqlBuilder).executeQuery(namespace);
     }
 
+    /**
+     * Executes the queries as JDBC batches of at most {@link #MAX_ROWS_PER_STATEMENT} statements, one batch of
+     * statements for each distinct parametrized sql.
+     */
+    protected void executeBatches(List<? extends SqlQuery> sqlQueries) {
+        Map<String, List<SqlQuery>> queriesBySql = new LinkedHashMap<>();
+        for (SqlQuery sqlQuery : sqlQueries) {
+            queriesBySql.computeIfAbsent(sqlQuery.getParametrizedSql(), sql -> new ArrayList<>()).add(sqlQuery);
+        }
+        for (List<SqlQuery> queries : queriesBySql.values()) {
+            for (List<SqlQuery> batch : Lists.partition(queries, MAX_ROWS_PER_STATEMENT)) {
+                getQueryExecution(batch.get(0)).executeBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * Writes the storables of each namespace with multi-row statements of at most {@link #MAX_ROWS_PER_STATEMENT} rows.
+     * The storables whose id is generated by the database are written one by one with {@code singleRowUpdate}, which
+     * sets their generated id.
+     *
+     * @param upsert whether the rows update the existing rows with the same primary key, in which case only the last
+     *               storable given for a primary key is written since a statement can not update a row twice
+     */
+    protected void executeMultiRowUpdates(Collection<? extends Storable> storables, boolean upsert,
+                                          Function<List<Storable>, SqlQuery> multiRowQuery,
+                                          Consumer<Storable> singleRowUpdate) {
+        Map<String, List<Storable>> rowsByNamespace = new LinkedHashMap<>();
+        for (Storable storable : storables) {
+            if (hasGeneratedId(storable)) {
+                singleRowUpdate.accept(storable);
+            } else {
+                rowsByNamespace.computeIfAbsent(storable.getNameSpace(), namespace -> new ArrayList<>()).add(storable);
+            }
+        }
+        for (List<Storable> rows : rowsByNamespace.values()) {
+            if (upsert) {
+                Map<PrimaryKey, Storable> lastRows = new LinkedHashMap<>();
+                for (Storable row : rows) {
+                    lastRows.put(row.getPrimaryKey(), row);
+                }
+                rows = new ArrayList<>(lastRows.values());
+            }
+            for (List<Storable> statementRows : Lists.partition(rows, MAX_ROWS_PER_STATEMENT)) {
+                executeUpdate(multiRowQuery.apply(statementRows));
+            }
+        }
+    }
+
+    private static boolean hasGeneratedId(Storable storable) {
+        try {
+            return storable.getId() == null;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
     protected QueryExecution getQueryExecution(SqlQuery sqlQuery) {
         return new QueryExecution(sqlQuery);
     }
@@ -231,6 +308,25 @@ public abstract class AbstractQueryExecutor implements QueryExecutor {
             }
         }
 
+        int[] executeBatch(List<? extends SqlQuery> sqlQueries) {
+            try {
+                PreparedStatementBuilder preparedStatementBuilder = getPreparedStatementBuilder(false);
+                PreparedStatement pstmt = null;
+                for (SqlQuery sqlQuery : sqlQueries) {
+                    pstmt = preparedStatementBuilder.getPreparedStatement(sqlQuery);
+                    pstmt.addBatch();
+                }
+                return pstmt != null ? pstmt.executeBatch() : new int[0];
+            } catch (SQLException | ExecutionException e) {
+                throw new StorageException(e);
+            } finally {
+                // Close every opened connection if not using cache. If using cache, cache expiry manages connections
+                if (!isCacheEnabled()) {
+                    closeConn();
+                }
+            }
+        }
+
         Long executeUpdateWithReturningGeneratedKey() {
             try {
                 PreparedStatement pstmt = getPreparedStatementWithSetReturningGeneratedKey();
@@ -259,28 +355,22 @@ public abstract class AbstractQueryExecutor implements QueryExecutor {
         // ====== private helper methods ======
 
         private PreparedStatement getPreparedStatement() throws ExecutionException, SQLException {
-            PreparedStatementBuilder preparedStatementBuilder = null;
-
-            if (isCacheEnabled()) {
-                preparedStatementBuilder = cache.get(sqlBuilder, new PreparedStatementBuilderCallable(sqlBuilder, false));
-            } else {
-                connection = getConnection();
-                log.debug("sqlBuilder {}", sqlBuilder.toString());
-                preparedStatementBuilder = PreparedStatementBuilder.of(connection, config, sqlBuilder);
-            }
-            return preparedStatementBuilder.getPreparedStatement(sqlBuilder);
+            return getPreparedStatementBuilder(false).getPreparedStatement(sqlBuilder);
         }
 
         private PreparedStatement getPreparedStatementWithSetReturningGeneratedKey() throws ExecutionException, SQLException {
-            PreparedStatementBuilder preparedStatementBuilder = null;
+            return getPreparedStatementBuilder(true).getPreparedStatement(sqlBuilder);
+        }
 
+        private PreparedStatementBuilder getPreparedStatementBuilder(boolean returnGeneratedKeys) throws ExecutionException, SQLException {
             if (isCacheEnabled()) {
-                preparedStatementBuilder = cache.get(sqlBuilder, new PreparedStatementBuilderCallable(sqlBuilder, true));
-            } else {
-                connection = getConnection();
-                preparedStatementBuilder = PreparedStatementBuilder.supportReturnGeneratedKeys(connection, config, sqlBuilder);
+                return cache.get(sqlBuilder, new PreparedStatementBuilderCallable(sqlBuilder, returnGeneratedKeys));
             }
-            return preparedStatementBuilder.getPreparedStatement(sqlBuilder);
+            connection = getConnection();
+            log.debug("sqlBuilder {}", sqlBuilder.toString());
+            return returnGeneratedKeys
+                    ? PreparedStatementBuilder.supportReturnGeneratedKeys(connection, config, sqlBuilder)
+                    : PreparedStatementBuilder.of(connection, config, sqlBuilder);
         }
 
         /** This callable is instantiated and called the first time every key:val entry is inserted into the cache */
@@ -57,6 +57,33 @@ public interface QueryExecutor {
      */
     void delete(StorableKey storableKey);
 
+    /**
+     * Inserts all the specified {@link Storable}s in storage
+     */
+    default void insertAll(Collection<? extends Storable> storables) {
+        for (Storable storable : storables) {
+            insert(storable);
+        }
+    }
+
+    /**
+     * Inserts or updates all the specified {@link Storable}s in storage
+     */
+    default void insertOrUpdateAll(Collection<? extends Storable> storables) {
+        for (Storable storable : storables) {
+            insertOrUpdate(storable);
+        }
+    }
+
+    /**
+     * Deletes all the specified {@link StorableKey}s from storage
+     */
+    default void deleteAll(Collection<StorableKey> storableKeys) {
+        for (StorableKey storableKey : storableKeys) {
+            delete(storableKey);
+        }
+    }
+
     /**
      * @return all entries in the given namespace
      */
@@ -0,0 +1,60 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query;
+
+import com.hortonworks.streamline.storage.Storable;
+
+import java.util.List;
+
+/**
+ * Query writing several storables of the same namespace with one statement. The columns of the storables are bound in
+ * turn, in the order of the storables.
+ */
+public abstract class AbstractStorablesSqlQuery extends AbstractSqlQuery {
+    private final List<? extends Storable> storables;
+
+    public AbstractStorablesSqlQuery(List<? extends Storable> storables) {
+        if (storables.isEmpty()) {
+            throw new IllegalArgumentException("At least one storable is required");
+        }
+        this.storables = storables;
+        Storable storable = storables.get(0);
+        tableName = storable.getNameSpace();
+        columns = storable.getSchema().getFields();
+    }
+
+    public List<? extends Storable> getStorables() {
+        return storables;
+    }
+
+    /**
+     * @return the bind variables of all the rows, as in {@code (?,?),(?,?)} for two rows of two columns
+     */
+    protected String getRowsBindVariables(int numColumns) {
+        return getBindVariables("(" + getBindVariables("?,", numColumns) + "),", storables.size());
+    }
+
+    // the queries writing the same number of rows to the same columns share their sql, and their cached statement
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && storables.size() == ((AbstractStorablesSqlQuery) o).storables.size();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + storables.size();
+    }
+}
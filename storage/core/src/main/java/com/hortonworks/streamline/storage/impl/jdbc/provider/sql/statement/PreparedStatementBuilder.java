@@ -18,11 +18,13 @@
 package com.hortonworks.streamline.storage.impl.jdbc.provider.sql.statement;
 
 import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.exception.MalformedQueryException;
 import com.hortonworks.streamline.storage.impl.jdbc.config.ExecutionConfig;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.AbstractStorableKeyQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.AbstractStorableSqlQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.AbstractStorableUpdateQuery;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.AbstractStorablesSqlQuery;
 import com.hortonworks.streamline.storage.impl.jdbc.provider.sql.query.SqlQuery;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -168,6 +170,8 @@ public class PreparedStatementBuilder {
             setStorableKeyPreparedStatement(sqlBuilder);
         } else if (sqlBuilder instanceof AbstractStorableSqlQuery) {
             setStorablePreparedStatement(sqlBuilder);
+        } else if (sqlBuilder instanceof AbstractStorablesSqlQuery) {
+            setStorablesPreparedStatement((AbstractStorablesSqlQuery) sqlBuilder);
         }
         log.debug("Successfully prepared statement [{}]", preparedStatement);
         return preparedStatement;
@@ -213,6 +217,20 @@ public class PreparedStatementBuilder {
         }
     }
 
+    private void setStorablesPreparedStatement(AbstractStorablesSqlQuery storablesQuery) throws SQLException {
+        final List<Schema.Field> columns = storablesQuery.getColumns();
+        final int len = columns.size();
+        int index = 1;
+
+        for (Storable storable : storablesQuery.getStorables()) {
+            final Map columnsToValues = storable.toMap();
+            for (int j = 0; j < len; j++) {
+                Schema.Field column = columns.get(j);
+                setPreparedStatementParams(preparedStatement, column.getType(), index++, columnsToValues.get(column.getName()));
+            }
+        }
+    }
+
     public Connection getConnection() {
         return connection;
     }
@@ -32,6 +32,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -57,12 +59,34 @@ public class InMemoryStorageManager implements StorageManager {
         if (existing == null) {
             addOrUpdate(storable);
         } else if (!existing.equals(storable)) {
-            throw new AlreadyExistsException("Another instance with same id = " + storable.getPrimaryKey()
-                    + " exists with different value in namespace " + storable.getNameSpace()
-                    + " Consider using addOrUpdate method if you always want to overwrite.");
+            throw alreadyExists(storable);
         }
     }
 
+    /**
+     * Checks all the storables before adding any of them, so that none is added if one of them conflicts with an
+     * existing storable or with another storable of the collection.
+     */
+    @Override
+    public void addAll(Collection<? extends Storable> storables) throws AlreadyExistsException {
+        Map<StorableKey, Storable> added = new HashMap<>();
+        for (Storable storable : storables) {
+            StorableKey key = storable.getStorableKey();
+            Storable existing = added.containsKey(key) ? added.get(key) : get(key);
+            if (existing != null && !existing.equals(storable)) {
+                throw alreadyExists(storable);
+            }
+            added.put(key, storable);
+        }
+        addOrUpdateAll(storables);
+    }
+
+    private AlreadyExistsException alreadyExists(Storable storable) {
+        return new AlreadyExistsException("Another instance with same id = " + storable.getPrimaryKey()
+                + " exists with different value in namespace " + storable.getNameSpace()
+                + " Consider using addOrUpdate method if you always want to overwrite.");
+    }
+
     @Override
     public <T extends Storable> T remove(StorableKey key) throws StorageException {
         if (storageMap.containsKey(key.getNameSpace())) {
@@ -71,15 +95,58 @@ public class InMemoryStorageManager implements StorageManager {
         return null;
     }
 
+    @Override
+    public void removeAll(Collection<StorableKey> keys) throws StorageException {
+        for (StorableKey key : keys) {
+            Map<PrimaryKey, Storable> storableMap = storageMap.get(key.getNameSpace());
+            if (storableMap != null) {
+                storableMap.remove(key.getPrimaryKey());
+            }
+        }
+    }
+
+    @Override
+    public <T extends Storable> Collection<T> removeAll(String namespace, List<QueryParam> queryParams) throws StorageException {
+        Collection<T> removed = new ArrayList<>();
+        Map<PrimaryKey, Storable> storableMap = storageMap.get(namespace);
+        if (storableMap != null) {
+            Class<?> clazz = nameSpaceClassMap.get(namespace);
+            for (Iterator<Storable> it = storableMap.values().iterator(); it.hasNext(); ) {
+                Storable val = it.next();
+                if (queryParams == null || matches(val, queryParams, clazz)) {
+                    removed.add((T) val);
+                    it.remove();
+                }
+            }
+        }
+        return removed;
+    }
+
     @Override
     public void addOrUpdate(Storable storable) {
+        getStorableMap(storable).put(storable.getPrimaryKey(), storable);
+    }
+
+    @Override
+    public void addOrUpdateAll(Collection<? extends Storable> storables) {
+        String namespace = null;
+        Map<PrimaryKey, Storable> storableMap = null;
+        for (Storable storable : storables) {
+            if (!storable.getNameSpace().equals(namespace)) {
+                namespace = storable.getNameSpace();
+                storableMap = getStorableMap(storable);
+            }
+            storableMap.put(storable.getPrimaryKey(), storable);
+        }
+    }
+
+    private Map<PrimaryKey, Storable> getStorableMap(Storable storable) {
         String namespace = storable.getNameSpace();
-        PrimaryKey id = storable.getPrimaryKey();
         if (!storageMap.containsKey(namespace)) {
             storageMap.putIfAbsent(namespace, new ConcurrentHashMap<PrimaryKey, Storable>());
             nameSpaceClassMap.putIfAbsent(namespace, storable.getClass());
         }
-        storageMap.get(namespace).put(id, storable);
+        return storageMap.get(namespace);
     }
 
     @Override
@@ -83,6 +83,18 @@ public abstract class AbstractStoreManagerTest {
         }
     }
 
+    @Test
+    public void testBulk_AllStorableEntities_NoExceptions() {
+        for (StorableTest test : storableTests) {
+            try {
+                test.init();
+                test.testBulk();
+            } finally {
+                test.close();
+            }
+        }
+    }
+
     // UnequalExistingStorable => Storable that has the same StorableKey but does NOT verify .equals()
     //@Test(expected = StorageException.class)
     public void testAdd_UnequalExistingStorable_Storage_Exception() {
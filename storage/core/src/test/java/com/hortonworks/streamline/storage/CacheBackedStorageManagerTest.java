@@ -0,0 +1,178 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage;
+
+import com.google.common.cache.CacheBuilder;
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.common.QueryParam;
+import com.hortonworks.streamline.storage.cache.QueryCache;
+import com.hortonworks.streamline.storage.cache.impl.GuavaCache;
+import com.hortonworks.streamline.storage.cache.writer.StorageWriteThrough;
+import com.hortonworks.streamline.storage.catalog.AbstractStorable;
+import com.hortonworks.streamline.storage.impl.memory.InMemoryStorageManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public class CacheBackedStorageManagerTest {
+    private StorageManager dao;
+    private CacheBackedStorageManager storageManager;
+
+    @Before
+    public void setUp() {
+        dao = new InMemoryStorageManager();
+        storageManager = new CacheBackedStorageManager(new GuavaCache(dao, CacheBuilder.newBuilder()),
+                new StorageWriteThrough(dao), new QueryCache(100));
+    }
+
+    @Test
+    public void testList_WriteInNamespace_Invalidated() {
+        Item item1 = new Item("items", 1L, "a");
+        storageManager.add(item1);
+        Assert.assertEquals(Collections.singleton(item1), new HashSet<>(storageManager.list("items")));
+
+        // written without the storage manager, so the cached result is returned
+        Item item2 = new Item("items", 2L, "b");
+        dao.add(item2);
+        Assert.assertEquals(Collections.singleton(item1), new HashSet<>(storageManager.list("items")));
+
+        Item item3 = new Item("items", 3L, "c");
+        storageManager.add(item3);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(item1, item2, item3)), new HashSet<>(storageManager.list("items")));
+        Assert.assertEquals(1, storageManager.getQueryCacheStats().hitCount());
+        Assert.assertEquals(2, storageManager.getQueryCacheStats().missCount());
+    }
+
+    @Test
+    public void testFind_WriteInOtherNamespace_NotInvalidated() {
+        Item item1 = new Item("items", 1L, "a");
+        storageManager.add(item1);
+        List<QueryParam> queryParams = Collections.singletonList(new QueryParam("name", "a"));
+        Assert.assertEquals(Collections.singletonList(item1), storageManager.find("items", queryParams));
+
+        storageManager.addOrUpdateAll(Collections.singletonList(new Item("others", 1L, "a")));
+        Assert.assertEquals(Collections.singletonList(item1), storageManager.find("items", queryParams));
+        Assert.assertEquals(1, storageManager.getQueryCacheStats().hitCount());
+
+        storageManager.remove(item1.getStorableKey());
+        Assert.assertTrue(storageManager.find("items", queryParams).isEmpty());
+        Assert.assertEquals(1, storageManager.getQueryCacheStats().invalidationCount());
+    }
+
+    @Test
+    public void testList_ModifiedResult_CacheUnchanged() {
+        Item item1 = new Item("items", 1L, "a");
+        storageManager.add(item1);
+        storageManager.list("items").clear();
+        Assert.assertEquals(Collections.singletonList(item1), storageManager.list("items"));
+    }
+
+    @Test
+    public void testList_ModifiedStorable_CacheUnchanged() {
+        Item item1 = new Item("items", 1L, "a");
+        storageManager.add(item1);
+        ((Item) storageManager.list("items").iterator().next()).setName("b");
+        ((Item) storageManager.list("items").iterator().next()).setName("c");
+        Assert.assertEquals(Collections.singletonList(new Item("items", 1L, "a")), storageManager.list("items"));
+        Assert.assertEquals(2, storageManager.getQueryCacheStats().hitCount());
+    }
+
+    @Test
+    public void testList_Expired_Reloaded() {
+        storageManager = new CacheBackedStorageManager(new GuavaCache(dao, CacheBuilder.newBuilder()),
+                new StorageWriteThrough(dao), new QueryCache(100, 0));
+        storageManager.add(new Item("items", 1L, "a"));
+        storageManager.list("items");
+        // written by another instance sharing the storage
+        Item item2 = new Item("items", 2L, "b");
+        dao.add(item2);
+        Assert.assertEquals(2, storageManager.list("items").size());
+        Assert.assertEquals(0, storageManager.getQueryCacheStats().hitCount());
+    }
+
+    public static class Item extends AbstractStorable {
+        private String namespace;
+        private Long id;
+        private String name;
+
+        public Item() {
+        }
+
+        Item(String namespace, Long id, String name) {
+            this.namespace = namespace;
+            this.id = id;
+            this.name = name;
+        }
+
+        @Override
+        public String getNameSpace() {
+            return namespace;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public void setNamespace(String namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public PrimaryKey getPrimaryKey() {
+            Map<Schema.Field, Object> fieldObjectMap = new HashMap<>();
+            fieldObjectMap.put(new Schema.Field("id", Schema.Type.LONG), id);
+            return new PrimaryKey(fieldObjectMap);
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Item item = (Item) o;
+            return namespace.equals(item.namespace) && id.equals(item.id) && name.equals(item.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+}
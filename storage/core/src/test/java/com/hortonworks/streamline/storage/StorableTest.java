@@ -20,7 +20,9 @@ import com.hortonworks.registries.common.Schema;
 import org.junit.Assert;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -93,6 +95,42 @@ public class StorableTest {
         Assert.assertTrue(found.contains(storable3));
     }
 
+    /**
+     * Tests the bulk operations with the same items as {@link #test()}.
+     */
+    public void testBulk() {
+        final Storable storable1 = storableList.get(0);
+        final Storable storable2 = storableList.get(1);
+        final Storable storable3 = storableList.get(2);
+        final Storable storable4 = storableList.get(3);
+        String namespace = storable1.getNameSpace();
+
+        //test addAll by inserting the first and the 3rd items
+        getStorageManager().addAll(Arrays.asList(storable1, storable3));
+        Assert.assertEquals(storable1, getStorageManager().get(storable1.getStorableKey()));
+        Assert.assertEquals(storable3, getStorageManager().get(storable3.getStorableKey()));
+
+        //test addOrUpdateAll by updating the first item with the second item and inserting the 4th item
+        getStorageManager().addOrUpdateAll(Arrays.asList(storable2, storable4));
+        Assert.assertEquals(storable2, getStorageManager().get(storable2.getStorableKey()));
+        Assert.assertEquals(storable4, getStorageManager().get(storable4.getStorableKey()));
+
+        //test removeAll by key by removing the 4th item
+        getStorageManager().removeAll(Collections.singletonList(storable4.getStorableKey()));
+        Assert.assertNull(getStorageManager().get(storable4.getStorableKey()));
+        final Set<Storable> expected = new HashSet<Storable>() {{
+            add(storable2);
+            add(storable3);
+        }};
+        Assert.assertEquals(expected, new HashSet<Storable>(getStorageManager().list(namespace)));
+
+        //test removeAll with query parameters(filter) matching only the item storable3
+        final Collection<Storable> removed = getStorageManager().removeAll(namespace, buildQueryParamsForPrimaryKey(storable3));
+        Assert.assertEquals(1, removed.size());
+        Assert.assertTrue(removed.contains(storable3));
+        Assert.assertEquals(Collections.singleton(storable2), new HashSet<Storable>(getStorageManager().list(namespace)));
+    }
+
     public void close() {
         getStorageManager().cleanup();
     }
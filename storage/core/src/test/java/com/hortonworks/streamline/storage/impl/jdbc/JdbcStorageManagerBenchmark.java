@@ -0,0 +1,197 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.storage.impl.jdbc;
+
+import com.google.common.cache.CacheBuilder;
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.storage.PrimaryKey;
+import com.hortonworks.streamline.storage.Storable;
+import com.hortonworks.streamline.storage.StorableKey;
+import com.hortonworks.streamline.storage.StorageManager;
+import com.hortonworks.streamline.storage.catalog.AbstractStorable;
+import com.hortonworks.streamline.storage.impl.jdbc.config.ExecutionConfig;
+import com.hortonworks.streamline.storage.impl.jdbc.config.HikariBasicConfig;
+import com.hortonworks.streamline.storage.impl.jdbc.connection.HikariCPConnectionBuilder;
+import com.hortonworks.streamline.storage.impl.jdbc.provider.mysql.factory.MySqlExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows per millisecond written to and removed from an in memory H2 database, one row at a time or with
+ * the bulk operations of {@link StorageManager}, with or without the cache of prepared statements.
+ * <p>
+ * Writing rows one at a time takes one statement per row, and removing them takes a select and a delete statement
+ * per row. The bulk operations take one multi-row statement to write the rows and one batch of delete statements to
+ * remove them.
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.storage.impl.jdbc.JdbcStorageManagerBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JdbcStorageManagerBenchmark {
+    private static final int ROWS_PER_INVOCATION = 100;
+
+    @Param({"single", "bulk"})
+    private String operations;
+
+    @Param({"false", "true"})
+    private boolean statementCache;
+
+    private HikariCPConnectionBuilder connectionBuilder;
+    private StorageManager storageManager;
+    private List<BenchmarkRow> rows;
+    private List<StorableKey> keys;
+    private long nextCounter;
+
+    @Setup
+    public void setup() throws Exception {
+        connectionBuilder = new HikariCPConnectionBuilder(HikariBasicConfig.getH2HikariConfig());
+        execute("CREATE TABLE IF NOT EXISTS " + BenchmarkRow.NAMESPACE
+                + " (id BIGINT NOT NULL, name VARCHAR(255) NOT NULL, counter BIGINT, PRIMARY KEY (id))");
+        CacheBuilder cacheBuilder = statementCache ? CacheBuilder.newBuilder().maximumSize(8) : null;
+        storageManager = new JdbcStorageManager(new MySqlExecutor(new ExecutionConfig(-1), connectionBuilder, cacheBuilder));
+        storageManager.registerStorables(Collections.<Class<? extends Storable>>singletonList(BenchmarkRow.class));
+
+        rows = new ArrayList<>(ROWS_PER_INVOCATION);
+        keys = new ArrayList<>(ROWS_PER_INVOCATION);
+        for (long id = 0; id < ROWS_PER_INVOCATION; id++) {
+            BenchmarkRow row = new BenchmarkRow();
+            row.setId(id);
+            row.setName("row-" + id);
+            rows.add(row);
+            keys.add(row.getStorableKey());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        storageManager.cleanup();
+        execute("DROP TABLE " + BenchmarkRow.NAMESPACE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void addOrUpdate() {
+        for (BenchmarkRow row : rows) {
+            row.setCounter(nextCounter++);
+        }
+        if ("bulk".equals(operations)) {
+            storageManager.addOrUpdateAll(rows);
+        } else {
+            for (BenchmarkRow row : rows) {
+                storageManager.addOrUpdate(row);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void addAndRemove() {
+        if ("bulk".equals(operations)) {
+            storageManager.addAll(rows);
+            storageManager.removeAll(keys);
+        } else {
+            for (BenchmarkRow row : rows) {
+                storageManager.add(row);
+            }
+            for (StorableKey key : keys) {
+                storageManager.remove(key);
+            }
+        }
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Connection connection = connectionBuilder.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    public static class BenchmarkRow extends AbstractStorable {
+        public static final String NAMESPACE = "benchmark_row";
+
+        private Long id;
+        private String name;
+        private Long counter;
+
+        @Override
+        public String getNameSpace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public PrimaryKey getPrimaryKey() {
+            Map<Schema.Field, Object> fieldObjectMap = new HashMap<>();
+            fieldObjectMap.put(new Schema.Field("id", Schema.Type.LONG), id);
+            return new PrimaryKey(fieldObjectMap);
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getCounter() {
+            return counter;
+        }
+
+        public void setCounter(Long counter) {
+            this.counter = counter;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JdbcStorageManagerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.common;
+
+import com.google.common.collect.ImmutableList;
+import com.hortonworks.streamline.common.Schema;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable mapping of field names to slot positions used by {@link SchemaIndexedStreamlineEvent}.
+ * <p>
+ * Layouts are interned, so all the events having the same fields (typically the events of one stream)
+ * share a single instance and only carry their values.
+ * </p>
+ */
+public final class EventFieldLayout implements Serializable {
+    private static final ConcurrentMap<List<String>, EventFieldLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private final ImmutableList<String> fieldNames;
+    // rebuilt on first access when the layout was deserialized without readResolve, e.g. by the Kryo field serializer
+    private transient volatile Map<String, Integer> slots;
+
+    private EventFieldLayout(ImmutableList<String> fieldNames) {
+        this.fieldNames = fieldNames;
+        this.slots = buildSlots(fieldNames);
+    }
+
+    /**
+     * Returns the layout for the top level fields of the given schema, in the order they are declared.
+     */
+    public static EventFieldLayout of(Schema schema) {
+        Objects.requireNonNull(schema, "schema is null");
+        List<String> names = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+            names.add(field.getName());
+        }
+        return of(names);
+    }
+
+    /**
+     * Returns the layout for the given field names, slot i being assigned to the i-th field name.
+     */
+    public static EventFieldLayout of(List<String> fieldNames) {
+        Objects.requireNonNull(fieldNames, "fieldNames is null");
+        EventFieldLayout layout = LAYOUTS.get(fieldNames);
+        if (layout == null) {
+            ImmutableList<String> names = ImmutableList.copyOf(fieldNames);
+            EventFieldLayout existing = LAYOUTS.putIfAbsent(names, layout = new EventFieldLayout(names));
+            if (existing != null) {
+                layout = existing;
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the slot of the given field or -1 if the field is not part of this layout.
+     */
+    public int indexOf(Object fieldName) {
+        Map<String, Integer> slots = this.slots;
+        if (slots == null) {
+            this.slots = slots = buildSlots(fieldNames);
+        }
+        Integer slot = slots.get(fieldName);
+        return slot != null ? slot : -1;
+    }
+
+    public String fieldName(int slot) {
+        return fieldNames.get(slot);
+    }
+
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public int size() {
+        return fieldNames.size();
+    }
+
+    private static Map<String, Integer> buildSlots(List<String> fieldNames) {
+        Map<String, Integer> slots = new HashMap<>(fieldNames.size() * 2);
+        for (int i = 0; i < fieldNames.size(); i++) {
+            if (slots.put(fieldNames.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate field name " + fieldNames.get(i) + " in " + fieldNames);
+            }
+        }
+        return slots;
+    }
+
+    // keeps the layouts interned across serialization
+    private Object readResolve() throws ObjectStreamException {
+        return of(fieldNames);
+    }
+
+    @Override
+    public String toString() {
+        return "EventFieldLayout{" +
+                "fieldNames=" + fieldNames +
+                '}';
+    }
+}
@@ -0,0 +1,480 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.common;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A {@link StreamlineEvent} that keeps its values in a flat array indexed by a shared {@link EventFieldLayout}.
+ * <p>
+ * Unlike {@link StreamlineEventImpl} the field names are not stored per event and deriving a new event via
+ * {@link #addFieldsAndValues(Map)} or {@link #addHeaders(Map)} does not copy the whole event. The values array,
+ * the header and the fields that are not part of the layout (the overlay) are immutable and shared between an
+ * event and the events derived from it and are copied only when they are changed. The id is generated only
+ * when it is first asked for.
+ * </p>
+ * <p>
+ * Null values are treated as absent fields.
+ * </p>
+ */
+public final class SchemaIndexedStreamlineEvent extends AbstractMap<String, Object> implements StreamlineEvent {
+    private final EventFieldLayout layout;
+    private final Object[] values;
+    private final Map<String, Object> overlay;
+    private final int size;
+    private final Map<String, Object> header;
+    private final String sourceStream;
+    private final String dataSourceId;
+    private final EventId id;
+    private Map<String, Object> auxiliaryFieldsAndValues;
+
+    private SchemaIndexedStreamlineEvent(EventFieldLayout layout, Object[] values, Map<String, Object> overlay,
+                                         Map<String, Object> header, String sourceStream, String dataSourceId,
+                                         EventId id, Map<String, Object> auxiliaryFieldsAndValues) {
+        this.layout = layout;
+        this.values = values;
+        this.overlay = overlay;
+        this.header = header;
+        this.sourceStream = sourceStream;
+        this.dataSourceId = dataSourceId;
+        this.id = id;
+        this.auxiliaryFieldsAndValues = auxiliaryFieldsAndValues;
+        int count = overlay.size();
+        for (Object value : values) {
+            if (value != null) {
+                ++count;
+            }
+        }
+        this.size = count;
+    }
+
+    /*
+     * Creates a copy of 'other' but with the given values, overlay and header.
+     */
+    private SchemaIndexedStreamlineEvent(SchemaIndexedStreamlineEvent other, Object[] values,
+                                         Map<String, Object> overlay, Map<String, Object> header) {
+        this(other.layout, values, overlay, header, other.sourceStream, other.dataSourceId, other.id,
+                other.auxiliaryFieldsAndValues);
+    }
+
+    public static class Builder {
+        private final EventFieldLayout layout;
+        private Object[] values;
+        private Map<String, Object> overlay;
+        private Map<String, Object> header;
+        private Map<String, Object> auxiliaryFieldsAndValues;
+        private String sourceStream = DEFAULT_SOURCE_STREAM;
+        private String dataSourceId = "";
+        private String id;
+
+        private Builder(EventFieldLayout layout) {
+            this.layout = Objects.requireNonNull(layout, "layout is null");
+            this.values = new Object[layout.size()];
+        }
+
+        public Builder header(Map<String, Object> header) {
+            this.header = header;
+            return this;
+        }
+
+        public Builder auxiliaryFieldsAndValues(Map<String, Object> auxiliaryFieldsAndValues) {
+            this.auxiliaryFieldsAndValues = auxiliaryFieldsAndValues;
+            return this;
+        }
+
+        public Builder sourceStream(String sourceStream) {
+            this.sourceStream = sourceStream;
+            return this;
+        }
+
+        public Builder dataSourceId(String dataSourceId) {
+            this.dataSourceId = dataSourceId;
+            return this;
+        }
+
+        /**
+         * Sets the id of the event, if not set a random UUID is generated when the id is first accessed.
+         */
+        public Builder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * Sets the value of the field at the given slot of the layout.
+         */
+        public Builder put(int slot, Object value) {
+            checkNotBuilt();
+            values[slot] = value;
+            return this;
+        }
+
+        public Builder put(String key, Object value) {
+            checkNotBuilt();
+            int slot = layout.indexOf(key);
+            if (slot >= 0) {
+                values[slot] = value;
+            } else if (value != null) {
+                if (overlay == null) {
+                    overlay = new HashMap<>();
+                }
+                overlay.put(key, value);
+            } else if (overlay != null) {
+                overlay.remove(key);
+            }
+            return this;
+        }
+
+        public Builder putAll(Map<String, Object> fieldsAndValues) {
+            for (Map.Entry<String, Object> entry : fieldsAndValues.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public SchemaIndexedStreamlineEvent build() {
+            checkNotBuilt();
+            SchemaIndexedStreamlineEvent event = new SchemaIndexedStreamlineEvent(
+                    layout,
+                    values,
+                    overlay != null ? overlay : Collections.emptyMap(),
+                    immutableCopy(header),
+                    sourceStream,
+                    dataSourceId,
+                    new EventId(id),
+                    immutableCopy(auxiliaryFieldsAndValues));
+            // the values are handed over to the event without a copy, so the builder can't be used anymore
+            values = null;
+            overlay = null;
+            return event;
+        }
+
+        private void checkNotBuilt() {
+            if (values == null) {
+                throw new IllegalStateException("Event is already built");
+            }
+        }
+    }
+
+    /**
+     * Returns a builder for an event whose fields are laid out according to the given layout. Fields that
+     * are not part of the layout can still be added and are kept aside of the indexed values.
+     */
+    public static SchemaIndexedStreamlineEvent.Builder builder(EventFieldLayout layout) {
+        return new SchemaIndexedStreamlineEvent.Builder(layout);
+    }
+
+    public EventFieldLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the value at the given slot of the layout or null if the field is absent.
+     */
+    public Object get(int slot) {
+        return values[slot];
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = layout.indexOf(key);
+        return slot >= 0 ? values[slot] : overlay.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> getAuxiliaryFieldsAndValues() {
+        return auxiliaryFieldsAndValues;
+    }
+
+    @Override
+    public void addAuxiliaryFieldAndValue(String field, Object value) {
+        Map<String, Object> aux = new HashMap<>(auxiliaryFieldsAndValues);
+        aux.put(field, value);
+        auxiliaryFieldsAndValues = Collections.unmodifiableMap(aux);
+    }
+
+    @Override
+    public Map<String, Object> getHeader() {
+        return header;
+    }
+
+    @Override
+    public String getId() {
+        return id.get();
+    }
+
+    @Override
+    public String getDataSourceId() {
+        return dataSourceId != null ? dataSourceId : StreamlineEventImpl.dataSourceIdFromHeader(header);
+    }
+
+    @Override
+    public String getSourceStream() {
+        return sourceStream;
+    }
+
+    /**
+     * Returns a new Streamline event with the given fieldsAndValues added to the existing fieldsAndValues.
+     * Only the parts of this event that are changed are copied.
+     *
+     * @param fieldsAndValues the map of fieldsAndValues to add
+     * @return the new StreamlineEvent
+     */
+    @Override
+    public StreamlineEvent addFieldsAndValues(Map<String, Object> fieldsAndValues) {
+        Objects.requireNonNull(fieldsAndValues, "keyValues is null");
+        Object[] newValues = values;
+        Map<String, Object> newOverlay = overlay;
+        for (Map.Entry<String, Object> entry : fieldsAndValues.entrySet()) {
+            int slot = layout.indexOf(entry.getKey());
+            if (slot >= 0) {
+                if (newValues == values) {
+                    newValues = values.clone();
+                }
+                newValues[slot] = entry.getValue();
+            } else {
+                if (newOverlay == overlay) {
+                    newOverlay = new HashMap<>(overlay);
+                }
+                if (entry.getValue() != null) {
+                    newOverlay.put(entry.getKey(), entry.getValue());
+                } else {
+                    newOverlay.remove(entry.getKey());
+                }
+            }
+        }
+        return new SchemaIndexedStreamlineEvent(this, newValues, newOverlay, header);
+    }
+
+    @Override
+    public StreamlineEvent addFieldAndValue(String key, Object value) {
+        return addFieldsAndValues(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Returns a new Streamline event with the given headers added to the existing headers.
+     * The values of this event are shared with the new event.
+     *
+     * @param headers the map of fieldsAndValues to add or overwrite
+     * @return the new StreamlineEvent
+     */
+    @Override
+    public StreamlineEvent addHeaders(Map<String, Object> headers) {
+        Map<String, Object> newHeader = new HashMap<>(header);
+        newHeader.putAll(headers);
+        return new SchemaIndexedStreamlineEvent(this, values, overlay, Collections.unmodifiableMap(newHeader));
+    }
+
+    /**
+     * Returns a copy of this event with the given source stream, sharing all the values of this event.
+     */
+    public SchemaIndexedStreamlineEvent withSourceStream(String sourceStream) {
+        return new SchemaIndexedStreamlineEvent(layout, values, overlay, header, sourceStream, dataSourceId, id,
+                auxiliaryFieldsAndValues);
+    }
+
+    /**
+     * Returns a copy of this event with the given data source id, sharing all the values of this event.
+     */
+    public SchemaIndexedStreamlineEvent withDataSourceId(String dataSourceId) {
+        return new SchemaIndexedStreamlineEvent(layout, values, overlay, header, sourceStream, dataSourceId, id,
+                auxiliaryFieldsAndValues);
+    }
+
+    @Override
+    public byte[] getBytes() {
+        try {
+            return this.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SchemaIndexedStreamlineEvent that = (SchemaIndexedStreamlineEvent) o;
+
+        return getId().equals(that.getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getId().hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final Object put(String k, Object v) {
+        return StreamlineEvent.super.put(k, v);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final Object remove(Object o) {
+        return StreamlineEvent.super.remove(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void putAll(Map<? extends String, ? extends Object> map) {
+        StreamlineEvent.super.putAll(map);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public final void clear() {
+        StreamlineEvent.super.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaIndexedStreamlineEvent{" +
+                "header=" + header +
+                ", sourceStream='" + sourceStream + '\'' +
+                ", fieldsAndValues=" + super.toString() +
+                ", auxiliaryFieldsAndValues=" + auxiliaryFieldsAndValues +
+                ", dataSourceId='" + dataSourceId + '\'' +
+                ", id='" + getId() + '\'' +
+                '}';
+    }
+
+    private static Map<String, Object> immutableCopy(Map<String, Object> map) {
+        return map == null || map.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new HashMap<>(map));
+    }
+
+    /*
+     * Iterates over the non null values of the layout slots followed by the overlay.
+     */
+    private class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int slot = nextSlot(0);
+        private Iterator<Entry<String, Object>> overlayIterator;
+
+        private int nextSlot(int from) {
+            while (from < values.length && values[from] == null) {
+                ++from;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < values.length || overlayIterator().hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (slot < values.length) {
+                Entry<String, Object> entry = new SimpleImmutableEntry<>(layout.fieldName(slot), values[slot]);
+                slot = nextSlot(slot + 1);
+                return entry;
+            }
+            if (!overlayIterator().hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = overlayIterator.next();
+            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+        }
+
+        private Iterator<Entry<String, Object>> overlayIterator() {
+            if (overlayIterator == null) {
+                overlayIterator = overlay.entrySet().iterator();
+            }
+            return overlayIterator;
+        }
+    }
+
+    /*
+     * Holds the id shared by an event and the events derived from it, generating a random one on first access.
+     */
+    private static final class EventId implements Serializable {
+        private volatile String value;
+
+        EventId(String value) {
+            this.value = value;
+        }
+
+        String get() {
+            String result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        value = result = UUID.randomUUID().toString();
+                    }
+                }
+            }
+            return result;
+        }
+
+        // fix the id before it leaves this JVM so that all the copies of the event agree on it
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            get();
+            out.defaultWriteObject();
+        }
+    }
+}
@@ -235,17 +235,22 @@ public final class StreamlineEventImpl extends ForwardingMap<String, Object> imp
 
     @Override
     public String getDataSourceId() {
-        String res = dataSourceId;
-        if (res == null) {
-            Object dataSourceIds = header.get("dataSourceIds");
-            if (dataSourceIds instanceof List) {
-                res = Joiner.on(",").join(Collections2.filter((List) dataSourceIds, new Predicate() {
-                    @Override
-                    public boolean apply(Object input) {
-                        return input != null;
-                    }
-                }));
-            }
+        return dataSourceId != null ? dataSourceId : dataSourceIdFromHeader(header);
+    }
+
+    /*
+     * Joins the non null "dataSourceIds" in the header, used when the event itself does not carry a data source id.
+     */
+    static String dataSourceIdFromHeader(Map<String, Object> header) {
+        String res = null;
+        Object dataSourceIds = header.get("dataSourceIds");
+        if (dataSourceIds instanceof List) {
+            res = Joiner.on(",").join(Collections2.filter((List) dataSourceIds, new Predicate() {
+                @Override
+                public boolean apply(Object input) {
+                    return input != null;
+                }
+            }));
         }
         return res;
     }
@@ -63,4 +63,25 @@ public interface ISerializer extends Serializable {
      * @param msg bolt message
      */
     void writeProcessorMsg(ProcessorMsg msg) throws IOException;
+
+    /**
+     * This method sends a batch of Process messages to a non-JVM process
+     *
+     * @param msgs bolt messages
+     */
+    default void writeProcessorMsgs(List<ProcessorMsg> msgs) throws IOException {
+        for (ProcessorMsg msg : msgs) {
+            writeProcessorMsg(msg);
+        }
+    }
+
+    /**
+     * Whether the shell messages received from the non-JVM process carry the id of the processor message they answer,
+     * so that several processor messages can be in flight.
+     *
+     * @return true if the protocol is pipelined
+     */
+    default boolean isPipelined() {
+        return false;
+    }
 }
@@ -0,0 +1,263 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.common.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the values exchanged with the multilang processes in the MessagePack format.
+ * <p>
+ * Only the types needed to represent the JSON values are supported: nil, booleans, integers, floats, strings, binary,
+ * arrays and maps. As with JSON, the keys of the decoded maps are strings, the integers are decoded as Integer when they
+ * fit and as Long otherwise. The values of the other types are encoded as their string representation.
+ * </p>
+ */
+final class MessagePackCodec {
+
+    private MessagePackCodec() {
+    }
+
+    static void pack(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(0xc0);
+        } else if (value instanceof String) {
+            packString((String) value, out);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            packLong(((Number) value).longValue(), out);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(0xcb);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? 0xc3 : 0xc2);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            packHeader(map.size(), 0x80, 0xde, out);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                pack(entry.getKey(), out);
+                pack(entry.getValue(), out);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            packHeader(collection.size(), 0x90, 0xdc, out);
+            for (Object element : collection) {
+                pack(element, out);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            if (bytes.length < 1 << 8) {
+                out.writeByte(0xc4);
+                out.writeByte(bytes.length);
+            } else if (bytes.length < 1 << 16) {
+                out.writeByte(0xc5);
+                out.writeShort(bytes.length);
+            } else {
+                out.writeByte(0xc6);
+                out.writeInt(bytes.length);
+            }
+            out.write(bytes);
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            packHeader(length, 0x90, 0xdc, out);
+            for (int i = 0; i < length; i++) {
+                pack(Array.get(value, i), out);
+            }
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            packLong(((BigInteger) value).longValue(), out);
+        } else if (value instanceof Enum) {
+            packString(((Enum<?>) value).name(), out);
+        } else {
+            packString(value.toString(), out);
+        }
+    }
+
+    private static void packString(String value, DataOutput out) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            out.writeByte(0xa0 | bytes.length);
+        } else if (bytes.length < 1 << 8) {
+            out.writeByte(0xd9);
+            out.writeByte(bytes.length);
+        } else if (bytes.length < 1 << 16) {
+            out.writeByte(0xda);
+            out.writeShort(bytes.length);
+        } else {
+            out.writeByte(0xdb);
+            out.writeInt(bytes.length);
+        }
+        out.write(bytes);
+    }
+
+    private static void packLong(long value, DataOutput out) throws IOException {
+        if (value >= -32 && value < 128) {
+            out.writeByte((int) value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            out.writeByte(0xd0);
+            out.writeByte((int) value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            out.writeByte(0xd1);
+            out.writeShort((int) value);
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            out.writeByte(0xd2);
+            out.writeInt((int) value);
+        } else {
+            out.writeByte(0xd3);
+            out.writeLong(value);
+        }
+    }
+
+    // fix format for up to 15 elements, 16 or 32 bits length otherwise
+    private static void packHeader(int size, int fixType, int type16, DataOutput out) throws IOException {
+        if (size < 16) {
+            out.writeByte(fixType | size);
+        } else if (size < 1 << 16) {
+            out.writeByte(type16);
+            out.writeShort(size);
+        } else {
+            out.writeByte(type16 + 1);
+            out.writeInt(size);
+        }
+    }
+
+    static Object unpack(ByteBuffer in) throws IOException {
+        try {
+            return doUnpack(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated MessagePack value", e);
+        }
+    }
+
+    private static Object doUnpack(ByteBuffer in) throws IOException {
+        int type = in.get() & 0xff;
+        if (type < 0x80) {
+            return type;
+        } else if (type >= 0xe0) {
+            return type - 0x100;
+        } else if (type < 0x90) {
+            return unpackMap(type & 0x0f, in);
+        } else if (type < 0xa0) {
+            return unpackArray(type & 0x0f, in);
+        } else if (type < 0xc0) {
+            return unpackString(type & 0x1f, in);
+        }
+        switch (type) {
+            case 0xc0:
+                return null;
+            case 0xc2:
+                return Boolean.FALSE;
+            case 0xc3:
+                return Boolean.TRUE;
+            case 0xc4:
+                return unpackBytes(in.get() & 0xff, in);
+            case 0xc5:
+                return unpackBytes(in.getShort() & 0xffff, in);
+            case 0xc6:
+                return unpackBytes(in.getInt(), in);
+            case 0xca:
+                return (double) in.getFloat();
+            case 0xcb:
+                return in.getDouble();
+            case 0xcc:
+                return in.get() & 0xff;
+            case 0xcd:
+                return in.getShort() & 0xffff;
+            case 0xce:
+                return toNumber(in.getInt() & 0xffffffffL);
+            case 0xcf:
+                long unsigned = in.getLong();
+                return unsigned >= 0 ? toNumber(unsigned) : new BigInteger(Long.toUnsignedString(unsigned));
+            case 0xd0:
+                return (int) in.get();
+            case 0xd1:
+                return (int) in.getShort();
+            case 0xd2:
+                return in.getInt();
+            case 0xd3:
+                return toNumber(in.getLong());
+            case 0xd9:
+                return unpackString(in.get() & 0xff, in);
+            case 0xda:
+                return unpackString(in.getShort() & 0xffff, in);
+            case 0xdb:
+                return unpackString(in.getInt(), in);
+            case 0xdc:
+                return unpackArray(in.getShort() & 0xffff, in);
+            case 0xdd:
+                return unpackArray(in.getInt(), in);
+            case 0xde:
+                return unpackMap(in.getShort() & 0xffff, in);
+            case 0xdf:
+                return unpackMap(in.getInt(), in);
+            default:
+                throw new IOException("Unsupported MessagePack type 0x" + Integer.toHexString(type));
+        }
+    }
+
+    private static Number toNumber(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Number) (int) value : (Number) value;
+    }
+
+    private static String unpackString(int length, ByteBuffer in) {
+        checkLength(length, in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte[] unpackBytes(int length, ByteBuffer in) {
+        checkLength(length, in);
+        byte[] value = new byte[length];
+        in.get(value);
+        return value;
+    }
+
+    private static List<Object> unpackArray(int size, ByteBuffer in) throws IOException {
+        checkLength(size, in);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(doUnpack(in));
+        }
+        return list;
+    }
+
+    private static Map<String, Object> unpackMap(int size, ByteBuffer in) throws IOException {
+        checkLength(size, in);
+        Map<String, Object> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            Object key = doUnpack(in);
+            map.put(key instanceof String ? (String) key : String.valueOf(key), doUnpack(in));
+        }
+        return map;
+    }
+
+    // every element takes at least one byte, so a valid length can't exceed the remaining bytes
+    private static void checkLength(int length, ByteBuffer in) {
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+    }
+}
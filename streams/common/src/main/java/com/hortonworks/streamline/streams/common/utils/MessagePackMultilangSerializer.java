@@ -0,0 +1,196 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.common.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exchanges length prefixed MessagePack frames with the multilang process.
+ * <p>
+ * Each frame is a 4 bytes big endian length followed by one MessagePack value. After the connect handshake, the frames
+ * sent to the process are arrays of processor messages and the process answers each frame with one frame holding the
+ * shell messages of all the events of the batch, in order. Each shell message carries the id of the event it answers,
+ * so several batches can be in flight.
+ * </p>
+ * <p>
+ * The connect message is sent as a JSON value since the process may not have a MessagePack library. The frames hold
+ * JSON values for the rest of the exchange if the process answers the connect message with a JSON value, which is
+ * recognized by its first byte.
+ * </p>
+ */
+public class MessagePackMultilangSerializer implements ISerializer {
+    private static final long serialVersionUID = -4181722212532101571L;
+
+    private transient DataOutputStream processIn;
+    private transient DataInputStream processOut;
+    private transient ByteArrayOutputStream frame;
+    private transient DataOutputStream frameOut;
+    private transient Iterator<Object> shellMsgs;
+    private transient boolean jsonFrames;
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void initialize(OutputStream processIn, InputStream processOut) {
+        this.processIn = new DataOutputStream(new BufferedOutputStream(processIn));
+        this.processOut = new DataInputStream(new BufferedInputStream(processOut));
+        frame = new ByteArrayOutputStream();
+        frameOut = new DataOutputStream(frame);
+        shellMsgs = Collections.emptyIterator();
+    }
+
+    @Override
+    public Long connect(Map<String, Object> conf, ShellContext context, List<String> outputStreams)
+            throws IOException, NoOutputException {
+        Map<String, Object> shellContext = new HashMap<>();
+        shellContext.put("codeDir", context.getCodeDir());
+        shellContext.put("pidDir", context.getPidDir());
+        shellContext.put("componentId", context.getComponentId());
+        Map<String, Object> connectMsg = new HashMap<>();
+        connectMsg.put("pidDir", context.getPidDir());
+        connectMsg.put("conf", conf);
+        connectMsg.put("outputStreams", outputStreams);
+        connectMsg.put("context", shellContext);
+        frame.write(objectMapper.writeValueAsBytes(connectMsg));
+        flushFrame();
+
+        byte[] bytes = readFrame();
+        jsonFrames = isJson(bytes);
+        Object msg = decode(bytes);
+        if (!(msg instanceof Map) || !(((Map) msg).get("pid") instanceof Number)) {
+            throw new IOException("Invalid connect response: " + msg);
+        }
+        return ((Number) ((Map) msg).get("pid")).longValue();
+    }
+
+    @Override
+    public void writeProcessorMsg(ProcessorMsg msg) throws IOException {
+        writeProcessorMsgs(Collections.singletonList(msg));
+    }
+
+    @Override
+    public void writeProcessorMsgs(List<ProcessorMsg> msgs) throws IOException {
+        List<Map<String, Object>> processorMsgs = new ArrayList<>(msgs.size());
+        for (ProcessorMsg msg : msgs) {
+            Map<String, Object> processorMsg = new LinkedHashMap<>();
+            processorMsg.put("id", msg.getId());
+            processorMsg.put("sourceId", msg.getSourceId());
+            processorMsg.put("sourceStream", msg.getSourceStream());
+            processorMsg.put("fieldsAndValues", msg.getFieldsAndValues());
+            processorMsgs.add(processorMsg);
+        }
+        if (jsonFrames) {
+            frame.write(objectMapper.writeValueAsBytes(processorMsgs));
+        } else {
+            MessagePackCodec.pack(processorMsgs, frameOut);
+        }
+        flushFrame();
+    }
+
+    @Override
+    public ShellMsg readShellMsg() throws IOException, NoOutputException {
+        while (!shellMsgs.hasNext()) {
+            Object msgs = decode(readFrame());
+            if (!(msgs instanceof List)) {
+                throw new IOException("Expected an array of shell messages, got: " + msgs);
+            }
+            shellMsgs = ((List<Object>) msgs).iterator();
+        }
+        Object msg = shellMsgs.next();
+        if (!(msg instanceof Map)) {
+            throw new IOException("Expected a shell message, got: " + msg);
+        }
+        return toShellMsg((Map<String, Object>) msg);
+    }
+
+    @Override
+    public boolean isPipelined() {
+        return true;
+    }
+
+    private ShellMsg toShellMsg(Map<String, Object> msg) {
+        ShellMsg shellMsg = new ShellMsg();
+        shellMsg.setCommand((String) msg.get("command"));
+        Object id = msg.get("id");
+        shellMsg.setId(id != null ? id.toString() : null);
+        Object text = msg.get("msg");
+        shellMsg.setMsg(text != null ? text.toString() : null);
+        shellMsg.setOutputStream((String) msg.get("outputStream"));
+        Object event = msg.get("streamlineEvent");
+        if (event instanceof Map) {
+            Map<String, Object> eventMap = (Map<String, Object>) event;
+            ShellMsg.ShellEvent shellEvent = new ShellMsg.ShellEvent();
+            shellEvent.setFieldsAndValues((Map<String, Object>) eventMap.get("fieldsAndValues"));
+            shellEvent.setId(eventMap.get("id"));
+            shellEvent.setSourceId((String) eventMap.get("sourceId"));
+            shellEvent.setSourceStream((String) eventMap.get("sourceStream"));
+            shellMsg.setStreamlineEvent(shellEvent);
+        }
+        return shellMsg;
+    }
+
+    private void flushFrame() throws IOException {
+        try {
+            processIn.writeInt(frame.size());
+            frame.writeTo(processIn);
+            processIn.flush();
+        } finally {
+            frame.reset();
+        }
+    }
+
+    private byte[] readFrame() throws IOException, NoOutputException {
+        byte[] bytes;
+        try {
+            int length = processOut.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            bytes = new byte[length];
+            processOut.readFully(bytes);
+        } catch (EOFException e) {
+            throw new NoOutputException("Pipe to subprocess seems to be broken!", e);
+        }
+        return bytes;
+    }
+
+    // a MessagePack frame holds a map or an array, a JSON frame an object or an array
+    private static boolean isJson(byte[] bytes) {
+        return bytes.length > 0 && (bytes[0] == '{' || bytes[0] == '[');
+    }
+
+    private Object decode(byte[] bytes) throws IOException {
+        return isJson(bytes) ? objectMapper.readValue(bytes, Object.class) : MessagePackCodec.unpack(ByteBuffer.wrap(bytes));
+    }
+}
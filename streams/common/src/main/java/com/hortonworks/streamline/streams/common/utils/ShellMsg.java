@@ -28,6 +28,7 @@ import java.util.Map;
 public class ShellMsg {
 
     private String command;
+    private String id;
     private String msg;
     String  outputStream;
     ShellEvent streamlineEvent;
@@ -59,6 +60,17 @@ public class ShellMsg {
         this.command = command;
     }
 
+    /**
+     * @return the id of the processor message this message answers, only set by the pipelined protocols
+     */
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getMsg() {
         return msg;
     }
@@ -71,6 +83,7 @@ public class ShellMsg {
     public String toString() {
         return "ShellMsg{" +
                 "command='" + command + '\'' +
+                ", id='" + id + '\'' +
                 ", msg='" + msg + '\'' +
                 ", outputStream='" + outputStream + '\'' +
                 ", streamlineEvent=" + streamlineEvent +
@@ -125,6 +125,15 @@ public class ShellProcess implements Serializable {
         logErrorStream();
     }
 
+    public void writeProcessorMsgs(List<ProcessorMsg> msgs) throws IOException {
+        serializer.writeProcessorMsgs(msgs);
+        logErrorStream();
+    }
+
+    public boolean isPipelined() {
+        return serializer.isPipelined();
+    }
+
     public void logErrorStream() {
         String error = getErrorsString();
         if (!error.isEmpty())
@@ -0,0 +1,172 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.hortonworks.streamline.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaIndexedStreamlineEventTest {
+    private static final Schema SCHEMA = Schema.of(Schema.Field.of("a", Schema.Type.STRING),
+            Schema.Field.of("b", Schema.Type.INTEGER), Schema.Field.of("c", Schema.Type.LONG));
+
+    @Test
+    public void testLayoutIsInterned() throws Exception {
+        EventFieldLayout layout = EventFieldLayout.of(SCHEMA);
+        assertSame(layout, EventFieldLayout.of(Arrays.asList("a", "b", "c")));
+        assertEquals(1, layout.indexOf("b"));
+        assertEquals(-1, layout.indexOf("d"));
+        assertSame(layout, roundTrip(layout));
+    }
+
+    @Test
+    public void testLayoutWithoutReadResolve() throws Exception {
+        // serializers like Kryo's field serializer leave the transient slots unset
+        EventFieldLayout layout = EventFieldLayout.of(Arrays.asList("x", "y"));
+        Field slots = EventFieldLayout.class.getDeclaredField("slots");
+        slots.setAccessible(true);
+        slots.set(layout, null);
+        assertEquals(1, layout.indexOf("y"));
+        assertEquals(-1, layout.indexOf("z"));
+    }
+
+    @Test
+    public void testGetFieldsAndValues() throws Exception {
+        StreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").put("c", 3L).put("d", "dval").dataSourceId("1").build();
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("a", "aval");
+        expected.put("c", 3L);
+        expected.put("d", "dval");
+        assertEquals(expected, event);
+        assertEquals(expected, new HashMap<>(event));
+        assertEquals(3, event.size());
+        assertFalse(event.containsKey("b"));
+        assertNull(event.get("b"));
+        assertEquals("1", event.getDataSourceId());
+        assertEquals(StreamlineEvent.DEFAULT_SOURCE_STREAM, event.getSourceStream());
+    }
+
+    @Test
+    public void testAddFieldsAndValues() throws Exception {
+        SchemaIndexedStreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").put("b", 1).build();
+
+        StreamlineEvent event2 = event.addFieldsAndValues(ImmutableMap.of("b", 2, "d", "dval"));
+        assertEquals(ImmutableMap.of("a", "aval", "b", 2, "d", "dval"), event2);
+        // the original event is left untouched
+        assertEquals(ImmutableMap.of("a", "aval", "b", 1), event);
+        assertEquals(event.getId(), event2.getId());
+
+        StreamlineEvent event3 = event2.addHeaders(ImmutableMap.of("h", "hval"));
+        assertEquals("hval", event3.getHeader().get("h"));
+        assertTrue(event2.getHeader().isEmpty());
+        assertEquals(event2, event3);
+    }
+
+    @Test
+    public void testLazyId() throws Exception {
+        SchemaIndexedStreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").build();
+        StreamlineEvent derived = event.addFieldAndValue("b", 1).addHeaders(ImmutableMap.of("h", "hval"));
+        SchemaIndexedStreamlineEvent other = event.withSourceStream("stream");
+
+        // derived events share the id generated on first access
+        assertNotNull(UUID.fromString(derived.getId()));
+        assertEquals(derived.getId(), event.getId());
+        assertEquals(event.getId(), other.getId());
+        assertEquals("stream", other.getSourceStream());
+
+        SchemaIndexedStreamlineEvent withId = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .id("1").build();
+        assertEquals("1", withId.getId());
+    }
+
+    @Test
+    public void testAuxiliaryFieldsAreNotShared() throws Exception {
+        SchemaIndexedStreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").build();
+        StreamlineEvent derived = event.addFieldAndValue("b", 1);
+        derived.addAuxiliaryFieldAndValue("x", "xval");
+        assertEquals("xval", derived.getAuxiliaryFieldsAndValues().get("x"));
+        assertTrue(event.getAuxiliaryFieldsAndValues().isEmpty());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        SchemaIndexedStreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").put("d", "dval").header(ImmutableMap.of("h", "hval")).build();
+        SchemaIndexedStreamlineEvent copy = roundTrip(event);
+        assertEquals(event, copy);
+        assertEquals(ImmutableMap.of("a", "aval", "d", "dval"), copy);
+        assertEquals(event.getHeader(), copy.getHeader());
+        assertSame(event.getLayout(), copy.getLayout());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBuilderNotReusable() throws Exception {
+        SchemaIndexedStreamlineEvent.Builder builder = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA));
+        builder.put("a", "aval").build();
+        builder.put("a", "aval2");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPut() throws Exception {
+        SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA)).put("a", "aval").build().put("b", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemoveIterator() throws Exception {
+        StreamlineEvent event = SchemaIndexedStreamlineEvent.builder(EventFieldLayout.of(SCHEMA))
+                .put("a", "aval").build();
+        Iterator<Map.Entry<String, Object>> it = event.entrySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T obj) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(obj);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.hortonworks.streamline.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link StreamlineEventImpl} and {@link SchemaIndexedStreamlineEvent} on a typical
+ * source -> rule -> projection -> sink chain: build the event, read the fields used by a condition,
+ * add a field and a header and project a subset of the fields.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.common.StreamlineEventBenchmark},
+ * adding {@code -prof gc} to the jmh options shows the allocation rate of each variant.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamlineEventBenchmark {
+    private static final int NUM_FIELDS = 20;
+    private static final Map<String, Object> HEADERS = ImmutableMap.of("rule", "speeding");
+
+    private String[] fieldNames;
+    private Object[] values;
+    private String[] projection;
+    private EventFieldLayout layout;
+    private EventFieldLayout projectionLayout;
+
+    @Setup
+    public void setup() {
+        List<Schema.Field> fields = new ArrayList<>();
+        fieldNames = new String[NUM_FIELDS];
+        values = new Object[NUM_FIELDS];
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            fieldNames[i] = "field" + i;
+            values[i] = (long) i;
+            fields.add(Schema.Field.of(fieldNames[i], Schema.Type.LONG));
+        }
+        projection = new String[]{fieldNames[0], fieldNames[5], fieldNames[10], "speeding"};
+        layout = EventFieldLayout.of(Schema.of(fields));
+        List<String> projectionFields = new ArrayList<>();
+        for (String field : projection) {
+            projectionFields.add(field);
+        }
+        projectionLayout = EventFieldLayout.of(projectionFields);
+    }
+
+    @Benchmark
+    public void streamlineEventImpl(Blackhole blackhole) {
+        StreamlineEventImpl.Builder builder = StreamlineEventImpl.builder();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            builder.put(fieldNames[i], values[i]);
+        }
+        StreamlineEvent event = builder.dataSourceId("1").build();
+        blackhole.consume(((Long) event.get(fieldNames[3])) > 2 && ((Long) event.get(fieldNames[7])) < 100);
+        StreamlineEvent result = event.addFieldAndValue("speeding", true).addHeaders(HEADERS);
+        StreamlineEventImpl.Builder projected = StreamlineEventImpl.builder();
+        for (String field : projection) {
+            projected.put(field, result.get(field));
+        }
+        blackhole.consume(projected.dataSourceId(result.getDataSourceId()).build());
+    }
+
+    @Benchmark
+    public void schemaIndexedStreamlineEvent(Blackhole blackhole) {
+        SchemaIndexedStreamlineEvent.Builder builder = SchemaIndexedStreamlineEvent.builder(layout);
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            builder.put(i, values[i]);
+        }
+        StreamlineEvent event = builder.dataSourceId("1").build();
+        blackhole.consume(((Long) event.get(fieldNames[3])) > 2 && ((Long) event.get(fieldNames[7])) < 100);
+        StreamlineEvent result = event.addFieldAndValue("speeding", true).addHeaders(HEADERS);
+        SchemaIndexedStreamlineEvent.Builder projected = SchemaIndexedStreamlineEvent.builder(projectionLayout);
+        for (int i = 0; i < projection.length; i++) {
+            projected.put(i, result.get(projection[i]));
+        }
+        blackhole.consume(projected.dataSourceId(result.getDataSourceId()).build());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(StreamlineEventBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.common.utils;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MessagePackCodecTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("lat", 41.5);
+        nested.put("tags", Arrays.asList("a", null, true));
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("fixint", 7);
+        values.put("negative", -20);
+        values.put("int", 100000);
+        values.put("short", (short) -300);
+        values.put("long", 1L << 40);
+        values.put("float", 1.5f);
+        values.put("string", "ünïcode");
+        values.put("longString", StringUtils.repeat("x", 70000));
+        values.put("nested", nested);
+        values.put("largeList", Collections.nCopies(20, 1));
+        values.put("bool", false);
+        values.put("null", null);
+
+        Map<String, Object> expected = new LinkedHashMap<>(values);
+        expected.put("short", -300);
+        expected.put("float", 1.5d);
+        assertEquals(expected, roundTrip(values));
+    }
+
+    @Test
+    public void testBytesAndArrays() throws Exception {
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) roundTrip(new byte[]{1, 2, 3}));
+        assertEquals(Arrays.asList(1, 2), roundTrip(new int[]{1, 2}));
+        // as in JSON, the keys are strings and the values without a MessagePack type are strings
+        Map<Object, Object> map = Collections.<Object, Object>singletonMap(1, new StringBuilder("value"));
+        assertEquals(Collections.singletonMap("1", "value"), roundTrip(map));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedValue() throws Exception {
+        byte[] bytes = pack(Arrays.asList("abc", "def"));
+        MessagePackCodec.unpack(ByteBuffer.wrap(bytes, 0, bytes.length - 1).slice());
+    }
+
+    private static Object roundTrip(Object value) throws IOException {
+        return MessagePackCodec.unpack(ByteBuffer.wrap(pack(value)));
+    }
+
+    private static byte[] pack(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessagePackCodec.pack(value, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
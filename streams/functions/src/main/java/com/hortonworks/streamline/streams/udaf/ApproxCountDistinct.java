@@ -0,0 +1,46 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import com.hortonworks.streamline.streams.rule.MergeableUDAF;
+
+/**
+ * Estimates the number of distinct values of a group in fixed memory, see {@link HyperLogLog}.
+ */
+public class ApproxCountDistinct implements MergeableUDAF<HyperLogLog, Object, Long> {
+    @Override
+    public HyperLogLog init() {
+        return new HyperLogLog();
+    }
+
+    @Override
+    public HyperLogLog add(HyperLogLog aggregate, Object val) {
+        if (val == null) {
+            return aggregate;
+        }
+        return aggregate.add(val);
+    }
+
+    @Override
+    public HyperLogLog merge(HyperLogLog aggregate, HyperLogLog other) {
+        return aggregate.merge(other);
+    }
+
+    @Override
+    public Long result(HyperLogLog aggregate) {
+        return aggregate.cardinality();
+    }
+}
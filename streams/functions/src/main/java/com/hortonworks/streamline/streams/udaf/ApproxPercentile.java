@@ -0,0 +1,56 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import com.hortonworks.streamline.streams.rule.MergeableUDAF2;
+
+/**
+ * Estimates the value at a percentile, between 0 and 1, of a group of values in bounded memory, see {@link TDigest}.
+ */
+public class ApproxPercentile implements MergeableUDAF2<TDigest, Double, Number, Double> {
+    @Override
+    public TDigest init() {
+        return new PercentileDigest();
+    }
+
+    @Override
+    public TDigest add(TDigest aggregate, Double percentile, Number val) {
+        ((PercentileDigest) aggregate).percentile = percentile;
+        if (val == null) {
+            return aggregate;
+        }
+        return aggregate.add(val);
+    }
+
+    @Override
+    public TDigest merge(TDigest aggregate, TDigest other) {
+        if (((PercentileDigest) other).percentile != null) {
+            ((PercentileDigest) aggregate).percentile = ((PercentileDigest) other).percentile;
+        }
+        return aggregate.merge(other);
+    }
+
+    @Override
+    public Double result(TDigest aggregate) {
+        Double percentile = ((PercentileDigest) aggregate).percentile;
+        return percentile != null ? aggregate.quantile(percentile) : null;
+    }
+
+    // remembers the percentile so that the digests can be merged
+    private static class PercentileDigest extends TDigest {
+        private Double percentile;
+    }
+}
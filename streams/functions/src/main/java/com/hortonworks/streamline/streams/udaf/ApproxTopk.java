@@ -0,0 +1,59 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import com.hortonworks.streamline.streams.rule.MergeableUDAF2;
+
+import java.util.List;
+
+/**
+ * Finds the k most frequent values of a group in fixed memory, see {@link SpaceSaving}. The values are counted by a
+ * summary of {@code CAPACITY_FACTOR * k} values, so that the frequent values are found when they are more frequent
+ * than the number of values divided by the capacity.
+ */
+public class ApproxTopk implements MergeableUDAF2<SpaceSaving, Integer, Object, List<Object>> {
+    private static final int CAPACITY_FACTOR = 10;
+
+    @Override
+    public SpaceSaving init() {
+        return new TopkCounters();
+    }
+
+    @Override
+    public SpaceSaving add(SpaceSaving aggregate, Integer k, Object val) {
+        ((TopkCounters) aggregate).k = k;
+        if (k <= 0 || val == null) {
+            return aggregate;
+        }
+        return aggregate.add(val, CAPACITY_FACTOR * k);
+    }
+
+    @Override
+    public SpaceSaving merge(SpaceSaving aggregate, SpaceSaving other) {
+        ((TopkCounters) aggregate).k = Math.max(((TopkCounters) aggregate).k, ((TopkCounters) other).k);
+        return aggregate.merge(other);
+    }
+
+    @Override
+    public List<Object> result(SpaceSaving aggregate) {
+        return aggregate.top(((TopkCounters) aggregate).k);
+    }
+
+    // remembers k so that the summaries can be merged
+    private static class TopkCounters extends SpaceSaving {
+        private int k;
+    }
+}
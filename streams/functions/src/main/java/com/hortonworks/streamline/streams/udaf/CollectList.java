@@ -15,7 +15,8 @@
  **/
 package com.hortonworks.streamline.streams.udaf;
 
-import com.hortonworks.streamline.streams.rule.UDAF;
+import com.hortonworks.streamline.streams.rule.MergeableUDAF;
+import com.hortonworks.streamline.streams.rule.RetractableUDAF;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,7 +24,8 @@ import java.util.List;
 /**
  * Collects elements within a group and returns the list of aggregated objects
  */
-public class CollectList implements UDAF<List<Object>, Object, List<Object>> {
+public class CollectList implements RetractableUDAF<List<Object>, Object, List<Object>>,
+        MergeableUDAF<List<Object>, Object, List<Object>> {
     @Override
     public List<Object> init() {
         return new ArrayList<>();
@@ -35,6 +37,18 @@ public class CollectList implements UDAF<List<Object>, Object, List<Object>> {
         return aggregate;
     }
 
+    @Override
+    public List<Object> retract(List<Object> aggregate, Object val) {
+        aggregate.remove(val);
+        return aggregate;
+    }
+
+    @Override
+    public List<Object> merge(List<Object> aggregate, List<Object> other) {
+        aggregate.addAll(other);
+        return aggregate;
+    }
+
     @Override
     public List<Object> result(List<Object> aggregate) {
         return aggregate;
@@ -0,0 +1,93 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import java.io.Serializable;
+
+/**
+ * Estimates the number of distinct values with the HyperLogLog algorithm of Flajolet et al., in fixed memory.
+ * <p>
+ * The values are hashed to 64 bits and kept in 2^12 registers of one byte, so that the estimates have a standard
+ * error of about 1.6%. The small cardinalities are estimated by linear counting. The registers of two sketches are
+ * merged by their maximum, which gives the sketch of the union of their values.
+ * </p>
+ */
+public class HyperLogLog implements Serializable {
+    private static final int PRECISION = 12;
+    private static final int NUM_REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / NUM_REGISTERS);
+
+    private final byte[] registers = new byte[NUM_REGISTERS];
+
+    HyperLogLog add(Object val) {
+        long hash = hash(val);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        // the position of the first 1 bit after the index bits, bounded by the number of remaining bits
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+        return this;
+    }
+
+    HyperLogLog merge(HyperLogLog other) {
+        for (int i = 0; i < NUM_REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    long cardinality() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                ++zeros;
+            }
+        }
+        double estimate = ALPHA * NUM_REGISTERS * NUM_REGISTERS / sum;
+        if (estimate <= 2.5 * NUM_REGISTERS && zeros > 0) {
+            estimate = NUM_REGISTERS * Math.log((double) NUM_REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    // the integral numbers are hashed by value so that 1 and 1L are the same value, the other values by their string
+    private static long hash(Object val) {
+        long hash;
+        if (val instanceof Long || val instanceof Integer || val instanceof Short || val instanceof Byte) {
+            hash = ((Number) val).longValue();
+        } else {
+            // FNV-1a
+            hash = 0xcbf29ce484222325L;
+            String str = String.valueOf(val);
+            for (int i = 0; i < str.length(); i++) {
+                hash ^= str.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // the finalizer of MurmurHash3, so that each bit of the value affects all the bits of the hash
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
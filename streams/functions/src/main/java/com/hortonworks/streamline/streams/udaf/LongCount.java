@@ -15,9 +15,10 @@
  **/
 package com.hortonworks.streamline.streams.udaf;
 
-import com.hortonworks.streamline.streams.rule.UDAF;
+import com.hortonworks.streamline.streams.rule.MergeableUDAF;
+import com.hortonworks.streamline.streams.rule.RetractableUDAF;
 
-public class LongCount implements UDAF<Long, Object, Long> {
+public class LongCount implements RetractableUDAF<Long, Object, Long>, MergeableUDAF<Long, Object, Long> {
     @Override
     public Long init() {
         return 0L;
@@ -37,6 +38,16 @@ public class LongCount implements UDAF<Long, Object, Long> {
         return aggregate + 1;
     }
 
+    @Override
+    public Long retract(Long aggregate, Object val) {
+        return aggregate - add(0L, val);
+    }
+
+    @Override
+    public Long merge(Long aggregate, Long other) {
+        return aggregate + other;
+    }
+
     @Override
     public Long result(Long aggregate) {
         return aggregate;
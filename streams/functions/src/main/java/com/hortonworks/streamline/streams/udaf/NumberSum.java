@@ -15,9 +15,10 @@
  **/
 package com.hortonworks.streamline.streams.udaf;
 
-import com.hortonworks.streamline.streams.rule.UDAF;
+import com.hortonworks.streamline.streams.rule.MergeableUDAF;
+import com.hortonworks.streamline.streams.rule.RetractableUDAF;
 
-public class NumberSum implements UDAF<Number, Number, Number> {
+public class NumberSum implements RetractableUDAF<Number, Number, Number>, MergeableUDAF<Number, Number, Number> {
     @Override
     public Number init() {
         return 0;
@@ -25,12 +26,8 @@ public class NumberSum implements UDAF<Number, Number, Number> {
 
     @Override
     public Number add(Number aggregate, Number val) {
-        if (val instanceof Byte) {
-            return (byte) (aggregate.byteValue() + val.byteValue());
-        } else if (val instanceof Short) {
-            return (short) (aggregate.shortValue() + val.shortValue());
-        } else if (val instanceof Integer) {
-            return aggregate.intValue() + val.intValue();
+        if (val instanceof Byte || val instanceof Short || val instanceof Integer) {
+            return widen(aggregate.longValue() + val.longValue(), val);
         } else if (val instanceof Long) {
             return aggregate.longValue() + val.longValue();
         } else if (val instanceof Float) {
@@ -41,6 +38,40 @@ public class NumberSum implements UDAF<Number, Number, Number> {
         throw new IllegalArgumentException("Value type " + val.getClass());
     }
 
+    @Override
+    public Number retract(Number aggregate, Number val) {
+        if (val instanceof Byte || val instanceof Short || val instanceof Integer) {
+            return widen(aggregate.longValue() - val.longValue(), val);
+        } else if (val instanceof Long) {
+            return aggregate.longValue() - val.longValue();
+        } else if (val instanceof Float) {
+            return aggregate.floatValue() - val.floatValue();
+        } else if (val instanceof Double) {
+            return aggregate.doubleValue() - val.doubleValue();
+        }
+        throw new IllegalArgumentException("Value type " + val.getClass());
+    }
+
+    /*
+     * The sum has the type of the values, or the narrowest wider type it fits in, so that it does not wrap around and
+     * retracting the values that were added gives back the previous sum.
+     */
+    private static Number widen(long sum, Number val) {
+        if (val instanceof Byte && sum >= Byte.MIN_VALUE && sum <= Byte.MAX_VALUE) {
+            return (byte) sum;
+        } else if (!(val instanceof Integer) && sum >= Short.MIN_VALUE && sum <= Short.MAX_VALUE) {
+            return (short) sum;
+        } else if (sum >= Integer.MIN_VALUE && sum <= Integer.MAX_VALUE) {
+            return (int) sum;
+        }
+        return sum;
+    }
+
+    @Override
+    public Number merge(Number aggregate, Number other) {
+        return add(aggregate, other);
+    }
+
     @Override
     public Number result(Number aggregate) {
         return aggregate;
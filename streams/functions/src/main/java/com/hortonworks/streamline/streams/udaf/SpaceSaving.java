@@ -0,0 +1,248 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the most frequent values with the Space-Saving algorithm of Metwally et al., in fixed memory.
+ * <p>
+ * At most capacity values are counted. A new value replaces the value with the smallest count and takes its count
+ * plus one, so the counts overestimate the frequencies by at most the number of values divided by the capacity, and
+ * the values more frequent than that are always counted. Two summaries are merged as described by Cafaro et al.,
+ * the values missing from a full summary are counted with its smallest count, then the largest counts are kept.
+ * </p>
+ * <p>
+ * The counters are kept in the stream-summary structure of the paper, a list of buckets in increasing order of count
+ * each holding the counters with that count, so that a value is counted and the smallest count is replaced in
+ * constant time.
+ * </p>
+ */
+public class SpaceSaving implements Serializable {
+    private transient Map<Object, Counter> counters = new HashMap<>();
+    // the buckets with the smallest and the largest counts
+    private transient Bucket minBucket;
+    private transient Bucket maxBucket;
+    private int capacity;
+
+    SpaceSaving add(Object val, int capacity) {
+        this.capacity = capacity;
+        Counter counter = counters.get(val);
+        if (counter != null) {
+            increment(counter);
+        } else if (counters.size() < capacity) {
+            counter = new Counter(val);
+            if (minBucket == null || minBucket.count != 1) {
+                linkAfter(new Bucket(1), null);
+            }
+            minBucket.attach(counter);
+            counters.put(val, counter);
+        } else {
+            counter = minBucket.head;
+            counters.remove(counter.value);
+            counter.value = val;
+            counters.put(val, counter);
+            increment(counter);
+        }
+        return this;
+    }
+
+    SpaceSaving merge(SpaceSaving other) {
+        capacity = Math.max(capacity, other.capacity);
+        long minCount = getMinCount();
+        long otherMinCount = other.getMinCount();
+        Map<Object, Long> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter otherCounter = other.counters.get(counter.value);
+            long otherCount = otherCounter != null ? otherCounter.bucket.count : otherMinCount;
+            merged.put(counter.value, counter.bucket.count + otherCount);
+        }
+        for (Counter counter : other.counters.values()) {
+            if (!counters.containsKey(counter.value)) {
+                merged.put(counter.value, counter.bucket.count + minCount);
+            }
+        }
+        List<Map.Entry<Object, Long>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+        clear();
+        for (int i = Math.min(capacity, entries.size()) - 1; i >= 0; i--) {
+            append(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return this;
+    }
+
+    /**
+     * Returns the k values with the largest counts, in decreasing order of count.
+     */
+    List<Object> top(int k) {
+        List<Object> res = new ArrayList<>();
+        for (Bucket bucket = maxBucket; bucket != null; bucket = bucket.prev) {
+            for (Counter counter = bucket.head; counter != null; counter = counter.next) {
+                if (res.size() == k) {
+                    return res;
+                }
+                res.add(counter.value);
+            }
+        }
+        return res;
+    }
+
+    // the smallest count of a full summary, 0 when there is room for the values it did not count
+    private long getMinCount() {
+        if (counters.isEmpty() || counters.size() < capacity) {
+            return 0;
+        }
+        return minBucket.count;
+    }
+
+    // moves the counter to the bucket of the next count, reusing its bucket when it is the only counter in it
+    private void increment(Counter counter) {
+        Bucket bucket = counter.bucket;
+        long count = bucket.count + 1;
+        Bucket next = bucket.next;
+        if (bucket.head == counter && counter.next == null && (next == null || next.count != count)) {
+            bucket.count = count;
+            return;
+        }
+        if (next == null || next.count != count) {
+            next = new Bucket(count);
+            linkAfter(next, bucket);
+        }
+        bucket.detach(counter);
+        if (bucket.head == null) {
+            unlink(bucket);
+        }
+        next.attach(counter);
+    }
+
+    // adds a counter with a count no smaller than the counts of the summary
+    private void append(Object val, long count) {
+        if (maxBucket == null || maxBucket.count != count) {
+            linkAfter(new Bucket(count), maxBucket);
+        }
+        Counter counter = new Counter(val);
+        maxBucket.attach(counter);
+        counters.put(val, counter);
+    }
+
+    private void clear() {
+        counters.clear();
+        minBucket = null;
+        maxBucket = null;
+    }
+
+    // links the bucket after prev, or first when prev is null
+    private void linkAfter(Bucket bucket, Bucket prev) {
+        bucket.prev = prev;
+        bucket.next = prev != null ? prev.next : minBucket;
+        if (bucket.next != null) {
+            bucket.next.prev = bucket;
+        } else {
+            maxBucket = bucket;
+        }
+        if (prev != null) {
+            prev.next = bucket;
+        } else {
+            minBucket = bucket;
+        }
+    }
+
+    private void unlink(Bucket bucket) {
+        if (bucket.prev != null) {
+            bucket.prev.next = bucket.next;
+        } else {
+            minBucket = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        } else {
+            maxBucket = bucket.prev;
+        }
+    }
+
+    // the linked buckets are written as the values and their counts, in increasing order of count
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(counters.size());
+        for (Bucket bucket = minBucket; bucket != null; bucket = bucket.next) {
+            for (Counter counter = bucket.head; counter != null; counter = counter.next) {
+                out.writeObject(counter.value);
+                out.writeLong(bucket.count);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        counters = new HashMap<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Object val = in.readObject();
+            append(val, in.readLong());
+        }
+    }
+
+    private static class Bucket {
+        private long count;
+        private Bucket prev;
+        private Bucket next;
+        private Counter head;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void attach(Counter counter) {
+            counter.bucket = this;
+            counter.prev = null;
+            counter.next = head;
+            if (head != null) {
+                head.prev = counter;
+            }
+            head = counter;
+        }
+
+        private void detach(Counter counter) {
+            if (counter.prev != null) {
+                counter.prev.next = counter.next;
+            } else {
+                head = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.prev = counter.prev;
+            }
+        }
+    }
+
+    private static class Counter {
+        private Object value;
+        private Bucket bucket;
+        private Counter prev;
+        private Counter next;
+
+        private Counter(Object value) {
+            this.value = value;
+        }
+    }
+}
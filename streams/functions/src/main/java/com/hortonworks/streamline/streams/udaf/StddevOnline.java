@@ -15,11 +15,16 @@
  **/
 package com.hortonworks.streamline.streams.udaf;
 
+import java.io.Serializable;
+
 /**
  * Computes online variance and stddev of values using
  * B.P. Welford's algorithm described in Knuth's TAOCP Vol2. p232, 3rd edition.
+ * <p>
+ * It is serializable so that the partial aggregates can be sent to the task merging them.
+ * </p>
  */
-public class StddevOnline {
+public class StddevOnline implements Serializable {
     private int n;
     private double mean;
     private double aggregate;
@@ -32,6 +37,34 @@ public class StddevOnline {
         return this;
     }
 
+    // reverts add, the aggregate is kept non negative to absorb rounding errors
+    StddevOnline retract(Number val) {
+        if (n <= 1) {
+            n = 0;
+            mean = 0;
+            aggregate = 0;
+            return this;
+        }
+        double meanWithoutVal = (n * mean - val.doubleValue()) / (n - 1);
+        aggregate = Math.max(0, aggregate - (val.doubleValue() - mean) * (val.doubleValue() - meanWithoutVal));
+        mean = meanWithoutVal;
+        --n;
+        return this;
+    }
+
+    // merges the values of the other one, using the parallel algorithm of Chan et al.
+    StddevOnline merge(StddevOnline other) {
+        if (other.n == 0) {
+            return this;
+        }
+        double total = (double) n + other.n;
+        double delta = other.mean - mean;
+        aggregate += other.aggregate + delta * delta * n * other.n / total;
+        mean += delta * other.n / total;
+        n += other.n;
+        return this;
+    }
+
     double stddevp() {
         return Math.sqrt(variancep());
     }
@@ -0,0 +1,164 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Estimates the quantiles of values with the merging t-digest of Dunning et al., in bounded memory.
+ * <p>
+ * The values are summarized by centroids, a mean and a weight, whose weight is bounded by
+ * {@code 4 * count * q * (1 - q) / COMPRESSION} at their quantile q. The centroids are small at the tails and the
+ * quantiles near 0 or 1 are estimated more accurately than the median. The new values and the centroids of the merged
+ * digests are buffered, then merged with the centroids in order of their means when the buffer is full, so that a
+ * digest holds a few hundred centroids, growing with the logarithm of the number of values. The buffer is merged
+ * before the digest is serialized.
+ * </p>
+ */
+public class TDigest implements Serializable {
+    private static final double COMPRESSION = 100;
+    private static final int BUFFER_SIZE = 500;
+
+    private double[] means = new double[0];
+    private double[] weights = new double[0];
+    private double count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private transient double[] bufferMeans;
+    private transient double[] bufferWeights;
+    private transient int buffered;
+
+    TDigest add(Number val) {
+        return add(val.doubleValue(), 1);
+    }
+
+    // the centroids of the other digest are added as weighted values, it is left unchanged
+    TDigest merge(TDigest other) {
+        for (int i = 0; i < other.means.length; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.buffered; i++) {
+            add(other.bufferMeans[i], other.bufferWeights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Returns the estimated value at the quantile q, interpolated between the means of the centroids around it, null
+     * if there are no values.
+     */
+    Double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("quantile should be between 0 and 1: " + q);
+        }
+        compress();
+        if (means.length == 0) {
+            return null;
+        } else if (means.length == 1) {
+            return means[0];
+        }
+        double target = q * count;
+        // the weight of the centroids before the center of the current one
+        double center = weights[0] / 2;
+        if (target < center) {
+            return min + (means[0] - min) * target / center;
+        }
+        for (int i = 0; i < means.length - 1; i++) {
+            double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+            if (target < nextCenter) {
+                return means[i] + (means[i + 1] - means[i]) * (target - center) / (nextCenter - center);
+            }
+            center = nextCenter;
+        }
+        double last = means[means.length - 1];
+        double rest = count - center;
+        return rest > 0 ? last + (max - last) * (target - center) / rest : last;
+    }
+
+    private TDigest add(double mean, double weight) {
+        if (bufferMeans == null) {
+            bufferMeans = new double[BUFFER_SIZE];
+            bufferWeights = new double[BUFFER_SIZE];
+        }
+        if (buffered == BUFFER_SIZE) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        ++buffered;
+        count += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+        return this;
+    }
+
+    // merges the buffered values with the centroids, in one pass over both sorted by their means
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = means.length + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        double[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, means.length, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, means.length, buffered);
+        buffered = 0;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> allMeans[i]));
+
+        double[] newMeans = new double[n];
+        double[] newWeights = new double[n];
+        int size = 0;
+        double mean = allMeans[order[0]];
+        double weight = allWeights[order[0]];
+        double weightSoFar = 0;
+        for (int j = 1; j < n; j++) {
+            int i = order[j];
+            double proposed = weight + allWeights[i];
+            double q = (weightSoFar + proposed / 2) / count;
+            if (proposed <= 4 * count * q * (1 - q) / COMPRESSION) {
+                mean += (allMeans[i] - mean) * allWeights[i] / proposed;
+                weight = proposed;
+            } else {
+                newMeans[size] = mean;
+                newWeights[size] = weight;
+                ++size;
+                weightSoFar += weight;
+                mean = allMeans[i];
+                weight = allWeights[i];
+            }
+        }
+        newMeans[size] = mean;
+        newWeights[size] = weight;
+        ++size;
+        means = Arrays.copyOf(newMeans, size);
+        weights = Arrays.copyOf(newWeights, size);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        compress();
+        out.defaultWriteObject();
+    }
+}
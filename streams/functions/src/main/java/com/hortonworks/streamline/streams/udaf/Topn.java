@@ -15,7 +15,7 @@
  **/
 package com.hortonworks.streamline.streams.udaf;
 
-import com.hortonworks.streamline.streams.rule.UDAF2;
+import com.hortonworks.streamline.streams.rule.MergeableUDAF2;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -26,14 +26,15 @@ import java.util.PriorityQueue;
 /**
  * Computes streaming top n values of a group of values
  */
-public class Topn<T extends Comparable<T>> implements UDAF2<PriorityQueue<T>, Integer, T, List<T>> {
+public class Topn<T extends Comparable<T>> implements MergeableUDAF2<PriorityQueue<T>, Integer, T, List<T>> {
     @Override
     public PriorityQueue<T> init() {
-        return new PriorityQueue<>();
+        return new TopnQueue<>();
     }
 
     @Override
     public PriorityQueue<T> add(PriorityQueue<T> aggregate, Integer n, T val) {
+        ((TopnQueue<T>) aggregate).n = n;
         if (n <= 0) {
             return aggregate;
         }
@@ -49,10 +50,24 @@ public class Topn<T extends Comparable<T>> implements UDAF2<PriorityQueue<T>, In
 
     }
 
+    @Override
+    public PriorityQueue<T> merge(PriorityQueue<T> aggregate, PriorityQueue<T> other) {
+        int n = ((TopnQueue<T>) other).n;
+        for (T val : other) {
+            add(aggregate, n, val);
+        }
+        return aggregate;
+    }
+
     @Override
     public List<T> result(PriorityQueue<T> aggregate) {
         List<T> res = new ArrayList<>(aggregate);
         res.sort(Comparator.reverseOrder());
         return res;
     }
+
+    // remembers n so that the queues can be merged
+    private static class TopnQueue<T> extends PriorityQueue<T> {
+        private int n;
+    }
 }
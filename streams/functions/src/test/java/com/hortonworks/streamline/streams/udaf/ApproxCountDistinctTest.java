@@ -0,0 +1,72 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+public class ApproxCountDistinctTest {
+    @Test
+    public void testResult() throws Exception {
+        ApproxCountDistinct countDistinct = new ApproxCountDistinct();
+        HyperLogLog small = countDistinct.init();
+        HyperLogLog large = countDistinct.init();
+        for (int i = 0; i < 100000; i++) {
+            small = countDistinct.add(small, i % 10);
+            large = countDistinct.add(large, "value" + i);
+        }
+        Assert.assertEquals(10L, (long) countDistinct.result(small));
+        Assert.assertEquals(100000, countDistinct.result(large), 100000 * 0.05);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        ApproxCountDistinct countDistinct = new ApproxCountDistinct();
+        HyperLogLog first = countDistinct.init();
+        HyperLogLog second = countDistinct.init();
+        for (int i = 0; i < 20000; i++) {
+            first = countDistinct.add(first, i);
+            // half of the values are in both
+            second = countDistinct.add(second, i + 10000);
+        }
+        long secondCount = countDistinct.result(second);
+        HyperLogLog merged = countDistinct.merge(countDistinct.merge(countDistinct.init(), first), second);
+        Assert.assertEquals(30000, countDistinct.result(merged), 30000 * 0.05);
+        Assert.assertEquals(secondCount, (long) countDistinct.result(second));
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        ApproxCountDistinct countDistinct = new ApproxCountDistinct();
+        HyperLogLog aggregate = countDistinct.init();
+        for (int i = 0; i < 100000; i++) {
+            aggregate = countDistinct.add(aggregate, i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(aggregate);
+        }
+        Assert.assertTrue(bytes.size() < 5000);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals(countDistinct.result(aggregate), countDistinct.result((HyperLogLog) in.readObject()));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+public class ApproxPercentileTest {
+    @Test
+    public void testResult() throws Exception {
+        ApproxPercentile percentile = new ApproxPercentile();
+        TDigest median = percentile.init();
+        TDigest p99 = percentile.init();
+        Assert.assertNull(percentile.result(median));
+        // a shuffled sequence of 0 to 99999
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int val = (int) ((i * 7919L) % 100000);
+            median = percentile.add(median, 0.5, val);
+            p99 = percentile.add(p99, 0.99, val + random.nextDouble());
+        }
+        Assert.assertEquals(50000, percentile.result(median), 100000 * 0.01);
+        Assert.assertEquals(99000, percentile.result(p99), 100000 * 0.001);
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        ApproxPercentile percentile = new ApproxPercentile();
+        TDigest first = percentile.init();
+        TDigest second = percentile.init();
+        for (int i = 0; i < 10000; i++) {
+            first = percentile.add(first, 0.9, i);
+            second = percentile.add(second, 0.9, i + 10000);
+        }
+        double secondResult = percentile.result(second);
+        TDigest merged = percentile.merge(percentile.merge(percentile.init(), first), second);
+        Assert.assertEquals(18000, percentile.result(merged), 20000 * 0.01);
+        Assert.assertEquals(secondResult, percentile.result(second), 0);
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        ApproxPercentile percentile = new ApproxPercentile();
+        TDigest aggregate = percentile.init();
+        for (int i = 0; i < 100000; i++) {
+            aggregate = percentile.add(aggregate, 0.25, i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(aggregate);
+        }
+        // a few hundred centroids instead of the values
+        Assert.assertTrue(bytes.size() < 20000);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals(percentile.result(aggregate), percentile.result((TDigest) in.readObject()), 0);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+public class ApproxTopkTest {
+    @Test
+    public void testResult() throws Exception {
+        ApproxTopk topk = new ApproxTopk();
+        SpaceSaving aggregate = topk.init();
+        // "a" and "b" are frequent among many distinct values
+        for (int i = 0; i < 10000; i++) {
+            aggregate = topk.add(aggregate, 2, i % 5 == 0 ? "a" : i % 5 == 1 ? "b" : "value" + i);
+        }
+        aggregate = topk.add(aggregate, 2, "a");
+        Assert.assertEquals(Arrays.<Object>asList("a", "b"), topk.result(aggregate));
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        ApproxTopk topk = new ApproxTopk();
+        SpaceSaving first = topk.init();
+        SpaceSaving second = topk.init();
+        for (int i = 0; i < 1000; i++) {
+            first = topk.add(first, 2, i % 2 == 0 ? "a" : "first" + i);
+            second = topk.add(second, 2, i % 3 == 0 ? "b" : i % 3 == 1 ? "a" : "second" + i);
+        }
+        Assert.assertEquals(Arrays.<Object>asList("b", "a"), topk.result(second));
+        SpaceSaving merged = topk.merge(topk.merge(topk.init(), first), second);
+        Assert.assertEquals(Arrays.<Object>asList("a", "b"), topk.result(merged));
+        Assert.assertEquals(Arrays.<Object>asList("b", "a"), topk.result(second));
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ApproxTopk topk = new ApproxTopk();
+        SpaceSaving aggregate = topk.init();
+        for (int i = 0; i < 1000; i++) {
+            aggregate = topk.add(aggregate, 2, i % 3 == 0 ? "a" : i % 4 == 0 ? "b" : "value" + i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(aggregate);
+        }
+        SpaceSaving copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (SpaceSaving) in.readObject();
+        }
+        Assert.assertEquals(Arrays.<Object>asList("a", "b"), topk.result(copy));
+        copy = topk.add(copy, 2, "c");
+        Assert.assertEquals(Arrays.<Object>asList("a", "b"), topk.result(copy));
+    }
+}
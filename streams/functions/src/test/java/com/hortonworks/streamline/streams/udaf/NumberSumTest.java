@@ -36,6 +36,20 @@ public class NumberSumTest {
         test(longArr, Long.class);
     }
 
+    @Test
+    public void testAddAndRetract() {
+        NumberSum sum = new NumberSum();
+        Number agg = sum.add(sum.init(), (byte) 100);
+        agg = sum.add(agg, (byte) 100);
+        Assert.assertEquals(200, agg.intValue());
+        agg = sum.retract(agg, (byte) 100);
+        Assert.assertEquals((byte) 100, agg);
+        agg = sum.add(agg, (short) 32000);
+        Assert.assertEquals(32100, agg.intValue());
+        agg = sum.retract(agg, (short) 32000);
+        Assert.assertEquals((short) 100, agg);
+    }
+
     void test(Number[] arr, Class<? extends Number> clazz) {
         NumberSum sum = new NumberSum();
         Number agg = sum.init();
@@ -53,4 +53,28 @@ public class StddevpTest {
         Assert.assertEquals(sqsum / (arr.length - 1), variance.result(varianceAgg), .0001);
     }
 
+    @Test
+    public void testMerge() throws Exception {
+        Variance variance = new Variance();
+        Mean meanObj = new Mean();
+        double arr[] = {1, 2, 2, 3, 3, 4, 5};
+        StddevOnline all = variance.init();
+        StddevOnline first = variance.init();
+        StddevOnline second = variance.init();
+        for (int i = 0; i < arr.length; i++) {
+            all = variance.add(all, arr[i]);
+            if (i < 3) {
+                first = variance.add(first, arr[i]);
+            } else {
+                second = variance.add(second, arr[i]);
+            }
+        }
+        StddevOnline merged = variance.merge(variance.merge(variance.init(), first), second);
+        Assert.assertEquals(variance.result(all), variance.result(merged), .0001);
+        Assert.assertEquals(meanObj.result(all), meanObj.result(merged), .0001);
+        // the merged aggregates are left unchanged
+        Assert.assertEquals(3.75, meanObj.result(second), .0001);
+        Assert.assertEquals(variance.result(merged), variance.result(variance.merge(merged, variance.init())), .0001);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.udaf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+public class TopnTest {
+    @Test
+    public void testMerge() throws Exception {
+        Topn<Integer> topn = new Topn<>();
+        PriorityQueue<Integer> first = topn.init();
+        PriorityQueue<Integer> second = topn.init();
+        first = topn.add(first, 3, 5);
+        second = topn.add(second, 3, 1);
+        second = topn.add(second, 3, 7);
+        second = topn.add(second, 3, 3);
+        second = topn.add(second, 3, 2);
+        PriorityQueue<Integer> merged = topn.merge(topn.merge(topn.init(), first), second);
+        Assert.assertEquals(Arrays.asList(7, 5, 3), topn.result(merged));
+        Assert.assertEquals(Arrays.asList(7, 3, 2), topn.result(second));
+    }
+}
@@ -196,6 +196,8 @@ public final class TopologyLayoutConstants {
             " rule/custom processor can not be from a data source ";
     public static final String ERR_MSG_INVALID_GROUPING_FIELDS = "Link %s  " +
             "has invalid fields for grouping ";
+    public static final String ERR_MSG_UNMERGED_KEY_SPLITTING_GROUPING = "Link %s " +
+            "can not use grouping %s, no component merges the results of a key split across tasks ";
     public static final String ERR_MSG_CP_IMPL_INSTANTIATION = "Error instantiating custom processor implementation class %s ";
     public static final String ERR_MSG_CP_CONFIG_EXCEPTION = "Custom processor %s threw exception while validating the custom config fields.";
     public final static String ZK_ROOT_NODE = "/streamline/kafka-source";
@@ -39,7 +39,21 @@ public class Stream implements Serializable {
         /**
          * Fields grouping
          */
-        FIELDS
+        FIELDS,
+        /**
+         * Fields grouping where each key is balanced between two tasks. Not supported in the topologies yet, none of
+         * the components merges the results of a key computed by several tasks
+         */
+        PARTIAL_KEY,
+        /**
+         * Fields grouping over a consistent hash ring, moving few keys when the number of tasks changes
+         */
+        CONSISTENT_HASH,
+        /**
+         * Fields grouping that splits the hot keys across tasks. Not supported in the topologies yet, none of the
+         * components merges the results of a key computed by several tasks
+         */
+        HOT_KEY_SPLIT
     }
 
     private Stream() {
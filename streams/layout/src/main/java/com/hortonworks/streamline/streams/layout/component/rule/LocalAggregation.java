@@ -0,0 +1,111 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.layout.component.rule;
+
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Expression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The local aggregation of the windowed rules configured with {@link Window#isLocalAggregation()}.
+ * <p>
+ * The events are aggregated by a stage ahead of the windowed rules, in the tasks receiving them from the upstream
+ * components. The stage periodically emits one partial aggregate per rule and group, which the windowed rules merge
+ * instead of aggregating the events, so only the partial aggregates cross the network.
+ * </p>
+ * <p>
+ * A partial aggregate counts as one event of the window and is added to it up to one flush of the stage after the
+ * events it aggregates, so the local aggregation needs a window of durations evaluated on the processing time. The
+ * rules have to be grouped by fields, which the partial aggregates hold under the same names, and their aggregate
+ * functions need a merge method.
+ * </p>
+ */
+public final class LocalAggregation {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalAggregation.class);
+
+    /**
+     * Header of the partial aggregates holding the id of their rule.
+     */
+    public static final String HEADER_RULE_ID = "localAggregationRuleId";
+
+    /**
+     * Header of the partial aggregates holding the accumulators of the aggregate functions of their rule.
+     */
+    public static final String HEADER_PARTIAL_AGGREGATES = "localAggregationPartials";
+
+    private LocalAggregation() {
+    }
+
+    /**
+     * Returns whether the windowed rules, which share the same window, are aggregated locally. None of them is
+     * aggregated locally if one of them can't be.
+     */
+    public static boolean isEnabled(Collection<Rule> rules) {
+        if (rules.isEmpty()) {
+            return false;
+        }
+        Window window = rules.iterator().next().getWindow();
+        if (window == null || !window.isLocalAggregation()) {
+            return false;
+        }
+        if (!(window.getWindowLength() instanceof Window.Duration)
+                || (window.getSlidingInterval() != null && !(window.getSlidingInterval() instanceof Window.Duration))
+                || !StringUtils.isEmpty(window.getTsField())) {
+            LOG.warn("Local aggregation needs a window of durations without timestamp field, ignoring it for {}", window);
+            return false;
+        }
+        for (Rule rule : rules) {
+            if (rule.getGroupBy() != null) {
+                for (Expression expression : rule.getGroupBy().getExpressions()) {
+                    if (!(expression instanceof FieldExpression)) {
+                        LOG.warn("Local aggregation needs rules grouped by fields, ignoring it for {}", rules);
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The input stream of the rule carrying its partial aggregates to the windowed rules.
+     */
+    public static String getPartialAggregateStream(Rule rule) {
+        return Collections.min(rule.getStreams());
+    }
+
+    /**
+     * The names of the fields grouping the events of the rule, in order.
+     */
+    public static List<String> getGroupByFields(Rule rule) {
+        if (rule.getGroupBy() == null) {
+            return Collections.emptyList();
+        }
+        List<String> res = new ArrayList<>();
+        for (Expression expression : rule.getGroupBy().getExpressions()) {
+            res.add(((FieldExpression) expression).getValue().getName());
+        }
+        return res;
+    }
+}
@@ -32,6 +32,7 @@ public class EnrichmentTransform extends Transform {
     public static final long DEFAULT_MAX_CACHE_SIZE = 1000;
     public static final long DEFAULT_ENTRY_EXPIRATION_INTERVAL = 60 * 5 * 1000;
     public static final long DEFAULT_ENTRY_REFRESH_INTERVAL = 60 * 5 * 1000;
+    public static final int DEFAULT_LOOKUP_BATCH_SIZE = 100;
 
     public static final String ENRICHMENTS_FIELD_NAME="__enrichments";
 
@@ -60,6 +61,11 @@ public class EnrichmentTransform extends Transform {
      */
     private long entryRefreshInterval = DEFAULT_ENTRY_REFRESH_INTERVAL;
 
+    /**
+     * maximum number of values missing from the cache which are looked up together, when events are enriched asynchronously.
+     */
+    private int lookupBatchSize = DEFAULT_LOOKUP_BATCH_SIZE;
+
     private EnrichmentTransform() {
         this(null, null, null);
     }
@@ -93,6 +99,13 @@ public class EnrichmentTransform extends Transform {
         this.entryRefreshInterval = timeUnit.convert(refreshInterval, TimeUnit.SECONDS);
     }
 
+    /**
+     * @param lookupBatchSize maximum number of values missing from the cache which are looked up together, when events are enriched asynchronously.
+     */
+    public void withLookupBatchSize(int lookupBatchSize) {
+        this.lookupBatchSize = lookupBatchSize;
+    }
+
     public List<String> getFieldsToBeEnriched() {
         return Collections.unmodifiableList(fieldsToBeEnriched);
     }
@@ -113,6 +126,10 @@ public class EnrichmentTransform extends Transform {
         return entryRefreshInterval;
     }
 
+    public int getLookupBatchSize() {
+        return lookupBatchSize;
+    }
+
     @Override
     public String toString() {
         return "EnrichmentTransform{" +
@@ -121,6 +138,7 @@ public class EnrichmentTransform extends Transform {
                 ", maxCacheSize=" + maxCacheSize +
                 ", entryExpirationInterval=" + entryExpirationInterval +
                 ", entryRefreshInterval=" + entryRefreshInterval +
+                ", lookupBatchSize=" + lookupBatchSize +
                 '}'+super.toString();
     }
 }
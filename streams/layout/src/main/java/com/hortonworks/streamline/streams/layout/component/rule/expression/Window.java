@@ -109,6 +109,10 @@ public class Window implements Serializable {
     private WindowParam slidingInterval;
     private String tsField;
     private int lagMs;
+    // aggregate the sliding window with one partial aggregate per slide
+    private boolean paneAggregation;
+    // pre-aggregate the events in the tasks emitting them, see LocalAggregation
+    private boolean localAggregation;
 
     // for jackson
     private Window() {
@@ -125,6 +129,8 @@ public class Window implements Serializable {
         this.slidingInterval = other.getSlidingInterval();
         this.tsField = other.getTsField();
         this.lagMs = other.getLagMs();
+        this.paneAggregation = other.isPaneAggregation();
+        this.localAggregation = other.isLocalAggregation();
     }
 
     public WindowParam getWindowLength() {
@@ -159,6 +165,22 @@ public class Window implements Serializable {
         this.lagMs = lagMs;
     }
 
+    public boolean isPaneAggregation() {
+        return paneAggregation;
+    }
+
+    public void setPaneAggregation(boolean paneAggregation) {
+        this.paneAggregation = paneAggregation;
+    }
+
+    public boolean isLocalAggregation() {
+        return localAggregation;
+    }
+
+    public void setLocalAggregation(boolean localAggregation) {
+        this.localAggregation = localAggregation;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -167,6 +189,8 @@ public class Window implements Serializable {
         Window window = (Window) o;
 
         if (lagMs != window.lagMs) return false;
+        if (paneAggregation != window.paneAggregation) return false;
+        if (localAggregation != window.localAggregation) return false;
         if (windowLength != null ? !windowLength.equals(window.windowLength) : window.windowLength != null)
             return false;
         if (slidingInterval != null ? !slidingInterval.equals(window.slidingInterval) : window.slidingInterval != null)
@@ -181,6 +205,8 @@ public class Window implements Serializable {
         result = 31 * result + (slidingInterval != null ? slidingInterval.hashCode() : 0);
         result = 31 * result + (tsField != null ? tsField.hashCode() : 0);
         result = 31 * result + lagMs;
+        result = 31 * result + (paneAggregation ? 1 : 0);
+        result = 31 * result + (localAggregation ? 1 : 0);
         return result;
     }
 
@@ -191,6 +217,8 @@ public class Window implements Serializable {
                 ", slidingInterval=" + slidingInterval +
                 ", tsField='" + tsField + '\'' +
                 ", lagMs=" + lagMs +
+                ", paneAggregation=" + paneAggregation +
+                ", localAggregation=" + localAggregation +
                 '}';
     }
 }
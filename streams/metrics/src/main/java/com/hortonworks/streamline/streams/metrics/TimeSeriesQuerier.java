@@ -17,6 +17,7 @@ package com.hortonworks.streamline.streams.metrics;
 
 import com.hortonworks.streamline.streams.exception.ConfigException;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -59,6 +60,54 @@ public interface TimeSeriesQuerier {
      */
     Map<Long, Double> getMetrics(String topologyName, String componentId, String metricName, AggregateFunction aggrFunction, long from, long to);
 
+    /**
+     * Query several metrics to time-series DB. The result of each metric should aggregate all components metrics to one
+     * (meaning topology level).
+     *
+     * @param topologyName  topology name (not ID)
+     * @param metrics       Map of metric name and function to apply while aggregating task level series
+     * @param from          beginning of the time period: timestamp (in milliseconds)
+     * @param to            end of the time period: timestamp (in milliseconds)
+     * @return Map of metric name and Map of data points which are paired to (timestamp, value)
+     * @see #supportsMultiMetricQueries()
+     */
+    default Map<String, Map<Long, Double>> getTopologyLevelMetrics(String topologyName, Map<String, AggregateFunction> metrics,
+                                                                   long from, long to) {
+        Map<String, Map<Long, Double>> ret = new HashMap<>(metrics.size());
+        for (Map.Entry<String, AggregateFunction> metric : metrics.entrySet()) {
+            ret.put(metric.getKey(), getTopologyLevelMetrics(topologyName, metric.getKey(), metric.getValue(), from, to));
+        }
+        return ret;
+    }
+
+    /**
+     * Query several metrics of a component to time-series DB.
+     *
+     * @param topologyName  topology name (not ID)
+     * @param componentId   component id
+     * @param metrics       Map of metric name and function to apply while aggregating task level series
+     * @param from          beginning of the time period: timestamp (in milliseconds)
+     * @param to            end of the time period: timestamp (in milliseconds)
+     * @return Map of metric name and Map of data points which are paired to (timestamp, value)
+     * @see #supportsMultiMetricQueries()
+     */
+    default Map<String, Map<Long, Double>> getMetrics(String topologyName, String componentId, Map<String, AggregateFunction> metrics,
+                                                      long from, long to) {
+        Map<String, Map<Long, Double>> ret = new HashMap<>(metrics.size());
+        for (Map.Entry<String, AggregateFunction> metric : metrics.entrySet()) {
+            ret.put(metric.getKey(), getMetrics(topologyName, componentId, metric.getKey(), metric.getValue(), from, to));
+        }
+        return ret;
+    }
+
+    /**
+     * Whether the multi-metric queries are sent to time-series DB as one request. When they are not, which is the default,
+     * callers had better query the metrics concurrently one by one.
+     */
+    default boolean supportsMultiMetricQueries() {
+        return false;
+    }
+
     /**
      * Query metrics without modification (raw) to time-series DB.
      *
@@ -18,6 +18,7 @@
 
 import sys
 import os
+import struct
 import traceback
 
 try:
@@ -31,9 +32,50 @@ json_decode = lambda x: json.loads(x)
 def obj_dict(obj):
     return obj.__dict__
 
+# The JVM side either sends JSON messages terminated by an "end" line, or length prefixed frames with the
+# MessagePackMultilangSerializer. The protocol is detected from the first byte received: a JSON message starts with
+# '{', the 4 bytes big endian length of a frame starts with 0. The frames hold MessagePack values when the msgpack module
+# is installed and JSON values otherwise, the JVM side then uses the encoding of the pid frame.
+binary = False
+stdin = getattr(sys.stdin, 'buffer', sys.stdin)
+stdout = getattr(sys.stdout, 'buffer', sys.stdout)
+# shell messages of the batch being processed in binary mode, and the id of the current event
+pendingMsgs = []
+currentId = None
+
+try:
+    import msgpack
+    packb = lambda x: msgpack.packb(x, use_bin_type=True, default=obj_dict)
+    unpackb = lambda x: msgpack.unpackb(x, raw=False)
+except ImportError:
+    packb = lambda x: json_encode(x).encode('utf-8')
+    unpackb = lambda x: json_decode(x.decode('utf-8'))
+
+def readFully(length):
+    data = b''
+    while len(data) < length:
+        chunk = stdin.read(length - len(data))
+        if not chunk:
+            raise Exception('Read EOF from stdin')
+        data += chunk
+    return data
+
+def readFrame(length=None):
+    if length is None:
+        length = struct.unpack('>I', readFully(4))[0]
+    data = readFully(length)
+    if data[0:1] in (b'{', b'['):
+        return json_decode(data.decode('utf-8'))
+    return unpackb(data)
+
+def writeFrame(value):
+    data = packb(value)
+    stdout.write(struct.pack('>I', len(data)))
+    stdout.write(data)
+    stdout.flush()
+
 #reads lines and reconstructs newlines appropriately
-def readMsg():
-    msg = ""
+def readMsg(msg=""):
     while True:
         line = sys.stdin.readline()
         if not line:
@@ -48,6 +90,13 @@ def readEvent():
     return StreamlineEvent(cmd["fieldsAndValues"], cmd["id"], cmd["sourceId"], cmd["sourceStream"])
 
 def sendMsgToParent(msg):
+    if binary:
+        if currentId is None:
+            writeFrame(msg)
+        else:
+            msg['id'] = currentId
+            pendingMsgs.append(msg)
+        return
     print(json_encode(msg))
     print("end")
     sys.stdout.flush()
@@ -63,14 +112,22 @@ def sendpid(piddir):
 def emit(stream, fieldsAndValues):
     m = {"command": "emit"}
     m["outputStream"] = stream
-    m["streamlineEvent"] = StreamlineEvent(fieldsAndValues)
+    m["streamlineEvent"] = {"fieldsAndValues": fieldsAndValues} if binary else StreamlineEvent(fieldsAndValues)
     sendMsgToParent(m)
 
 def reportError(msg):
     sendMsgToParent({"command": "error", "msg": msg})
 
 def initComponent():
-    setupInfo = readMsg()
+    global binary
+    first = stdin.read(1)
+    if not first:
+        raise Exception('Read EOF from stdin')
+    binary = first != b'{'
+    if binary:
+        setupInfo = readFrame(struct.unpack('>I', first + readFully(3))[0])
+    else:
+        setupInfo = readMsg(first.decode('utf-8'))
     sendpid(setupInfo['pidDir'])
     return [setupInfo['conf'], setupInfo['context'], setupInfo['outputStreams']]
 
@@ -98,12 +155,29 @@ class Processor(object):
         conf, context, outputStreams = initComponent()
         try:
             self.initialize(conf, context, outputStreams)
+            if binary:
+                self.runBatches()
             while True:
                 event = readEvent()
                 try:
                     self.process(event)
                 except Exception as e:
-                    reportError(traceback.format_exc(e))
+                    reportError(traceback.format_exc())
                 sync()
         except Exception as e:
-                reportError(traceback.format_exc(e))
+                reportError(traceback.format_exc())
+
+    # answers each frame of events with one frame holding the messages of all the events, tagged with their id
+    def runBatches(self):
+        global currentId
+        while True:
+            for cmd in readFrame():
+                currentId = cmd["id"]
+                try:
+                    self.process(StreamlineEvent(cmd["fieldsAndValues"], cmd["id"], cmd["sourceId"], cmd["sourceStream"]))
+                except Exception as e:
+                    reportError(traceback.format_exc())
+                sync()
+            currentId = None
+            writeFrame(pendingMsgs)
+            del pendingMsgs[:]
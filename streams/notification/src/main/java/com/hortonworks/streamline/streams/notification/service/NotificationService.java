@@ -25,6 +25,7 @@ import com.hortonworks.streamline.streams.notification.Notifier;
 import com.hortonworks.streamline.streams.notification.NotifierConfig;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>
@@ -100,6 +101,17 @@ public interface NotificationService {
      */
     Notification updateNotificationStatus(String notificationId, Notification.Status status);
 
+    /**
+     * Returns a future that completes once the notification sent with {@link #notify(String, Notification)}
+     * is durable in the notification store, or right away if it is not pending a write.
+     *
+     * @param notificationId the notification id
+     * @return the future completed once the notification is stored
+     */
+    default CompletableFuture<Void> whenStored(String notificationId) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Any clean up goes here
      */
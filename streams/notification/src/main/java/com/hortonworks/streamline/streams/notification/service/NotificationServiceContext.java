@@ -25,8 +25,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * A wrapper context used by the {@link NotificationService} to track the retry attempts
@@ -62,13 +64,25 @@ public class NotificationServiceContext implements NotificationContext {
         return wrappedContext.getConfig();
     }
 
+    /**
+     * Acks the notification once it is durable in the notification store, or fails it if it could not be stored.
+     */
     @Override
     public void ack(String notificationId) {
-        LOG.debug("Updating status to DELIVERED for notification id {}", notificationId);
-        notificationService.updateNotificationStatus(notificationId, Notification.Status.DELIVERED);
-        notificationMap.remove(notificationId);
-        queueHandler.remove(notificationId);
-        wrappedContext.ack(notificationId);
+        afterStored(notificationId, ex -> {
+            if (ex != null) {
+                LOG.error("Storing notification id {} failed", notificationId, ex);
+                notificationMap.remove(notificationId);
+                queueHandler.remove(notificationId);
+                wrappedContext.fail(notificationId);
+            } else {
+                LOG.debug("Updating status to DELIVERED for notification id {}", notificationId);
+                notificationService.updateNotificationStatus(notificationId, Notification.Status.DELIVERED);
+                notificationMap.remove(notificationId);
+                queueHandler.remove(notificationId);
+                wrappedContext.ack(notificationId);
+            }
+        });
     }
 
     @Override
@@ -76,11 +90,15 @@ public class NotificationServiceContext implements NotificationContext {
         int attempt = currentAttempt(notificationId);
         LOG.info("Attempt [{}] failed. [{}] retries left.", attempt, maxAttempts - attempt);
         if (attempt >= maxAttempts) {
-            LOG.info("Updating status to FAILED for notification id {}", notificationId);
-            notificationService.updateNotificationStatus(notificationId, Notification.Status.FAILED);
-            notificationMap.remove(notificationId);
-            queueHandler.remove(notificationId);
-            wrappedContext.fail(notificationId);
+            afterStored(notificationId, ex -> {
+                if (ex == null) {
+                    LOG.info("Updating status to FAILED for notification id {}", notificationId);
+                    notificationService.updateNotificationStatus(notificationId, Notification.Status.FAILED);
+                }
+                notificationMap.remove(notificationId);
+                queueHandler.remove(notificationId);
+                wrappedContext.fail(notificationId);
+            });
         } else {
             // queue it again
             queueHandler.resubmit(notificationId);
@@ -95,6 +113,25 @@ public class NotificationServiceContext implements NotificationContext {
                 '}';
     }
 
+    /**
+     * Runs the action with the error that occurred storing the notification, or with null once it is stored.
+     * The action runs right away in the calling thread if the notification is already stored.
+     */
+    private void afterStored(String notificationId, Consumer<Throwable> action) {
+        CompletableFuture<Void> stored = notificationService.whenStored(notificationId);
+        if (stored.isDone() && !stored.isCompletedExceptionally()) {
+            action.accept(null);
+        } else {
+            stored.handle((r, ex) -> {
+                action.accept(ex);
+                return null;
+            }).exceptionally(ex -> {
+                LOG.error("Got exception completing notification id {}", notificationId, ex);
+                return null;
+            });
+        }
+    }
+
     private int currentAttempt(String notificationId) {
         AtomicInteger attempt = notificationMap.get(notificationId);
         if (attempt == null) {
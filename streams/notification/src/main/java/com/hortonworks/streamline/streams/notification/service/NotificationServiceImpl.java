@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -49,8 +50,15 @@ public class NotificationServiceImpl implements NotificationService {
 
     private static final String QUEUEHANDLER_THREADS = "queuehandler.threads";
 
+    private static final CompletableFuture<Void> STORED = CompletableFuture.completedFuture(null);
+
     private final ConcurrentHashMap<String, Notifier> notifiers = new ConcurrentHashMap<>();
 
+    /**
+     * The notifications being written to the store. The failed writes are kept until they are looked up.
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> pendingStores = new ConcurrentHashMap<>();
+
     private final NotificationQueueHandler queueHandler;
 
     private final ProxyUtil<Notifier> notifierProxyUtil;
@@ -115,7 +123,11 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public void notify(String notifierName, Notification notification) {
         LOG.debug("Notify notifierName {}, notification {}", notifierName, notification);
-        notificationStore.ifPresent(s -> s.store(notification));
+        notificationStore.ifPresent(s -> {
+            CompletableFuture<Void> stored = s.storeAsync(notification);
+            pendingStores.put(notification.getId(), stored);
+            stored.thenRun(() -> pendingStores.remove(notification.getId(), stored));
+        });
         Notifier notifier = notifiers.get(notifierName);
         if (notifier == null) {
             throw new NoSuchNotifierException("Notifier not found for id " + notification.getNotifierName());
@@ -174,6 +186,16 @@ public class NotificationServiceImpl implements NotificationService {
         return notificationStore.map(s -> s.updateNotificationStatus(notificationId, status)).orElse(null);
     }
 
+    @Override
+    public CompletableFuture<Void> whenStored(String notificationId) {
+        CompletableFuture<Void> stored = pendingStores.get(notificationId);
+        if (stored == null) {
+            return STORED;
+        }
+        stored.whenComplete((r, ex) -> pendingStores.remove(notificationId, stored));
+        return stored;
+    }
+
     @Override
     public void close() {
         queueHandler.shutdown();
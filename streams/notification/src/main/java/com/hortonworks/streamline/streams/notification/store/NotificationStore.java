@@ -22,6 +22,7 @@ import com.hortonworks.streamline.streams.notification.Notification;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>
@@ -45,6 +46,25 @@ public interface NotificationStore {
      */
     void store(Notification notification);
 
+    /**
+     * Store a notification in the notification store asynchronously. The returned future completes
+     * once the notification is durable in the store, so that the notification can be acknowledged
+     * only after it has been stored. By default the notification is stored synchronously.
+     *
+     * @param notification the notification object
+     * @return the future completed once the notification is stored
+     */
+    default CompletableFuture<Void> storeAsync(Notification notification) {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        try {
+            store(notification);
+            stored.complete(null);
+        } catch (RuntimeException ex) {
+            stored.completeExceptionally(ex);
+        }
+        return stored;
+    }
+
     /**
      * Look up a notification object based on notification id.
      *
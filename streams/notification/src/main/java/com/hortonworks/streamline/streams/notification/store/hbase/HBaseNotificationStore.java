@@ -19,6 +19,7 @@ package com.hortonworks.streamline.streams.notification.store.hbase;
 
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.notification.Notification;
+import com.hortonworks.streamline.streams.notification.common.NotificationImpl;
 import com.hortonworks.streamline.streams.notification.store.Criteria;
 import com.hortonworks.streamline.streams.notification.store.NotificationStore;
 import com.hortonworks.streamline.streams.notification.store.NotificationStoreException;
@@ -36,6 +37,8 @@ import com.hortonworks.streamline.streams.notification.store.hbase.mappers.Times
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Get;
@@ -52,14 +55,37 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Notification store implementation with HBase as the underlying storage.
+ * <p>
+ * The mutations are written through a {@link BufferedMutator} per table, which are flushed
+ * every {@link #FLUSH_INTERVAL_MS} milliseconds, once {@link #FLUSH_MAX_NOTIFICATIONS} notifications
+ * are pending or when the write buffer is full. The notifications stored asynchronously are
+ * acknowledged once the flush that made them durable has completed. The status updates go
+ * through the same mutators and are flushed before they return.
+ * </p>
  */
 public class HBaseNotificationStore implements NotificationStore {
 
     private static final Logger LOG = LoggerFactory.getLogger(HBaseNotificationStore.class);
 
+    /**
+     * The max time in milliseconds the notifications stay buffered before being flushed
+     */
+    public static final String FLUSH_INTERVAL_MS = "notification.store.flush.interval.ms";
+    /**
+     * The number of pending notifications that triggers a flush
+     */
+    public static final String FLUSH_MAX_NOTIFICATIONS = "notification.store.flush.max.notifications";
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+    private static final int DEFAULT_FLUSH_MAX_NOTIFICATIONS = 100;
+
     private Configuration configuration;
     private Connection connection;
     /**
@@ -69,6 +95,20 @@ public class HBaseNotificationStore implements NotificationStore {
      */
     private final Map<String, ThreadLocal<Table>> tables = new HashMap<>();
 
+    /**
+     * A map of table name to the thread safe mutators buffering the writes to the table.
+     */
+    private final Map<String, BufferedMutator> mutators = new HashMap<>();
+
+    /**
+     * The notifications stored asynchronously whose mutations are not flushed yet.
+     */
+    private List<CompletableFuture<Void>> pendingStores = new ArrayList<>();
+    private final Object pendingLock = new Object();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flushExecutor;
+    private int flushMaxNotifications;
+
     /**
      * The mapper for converting notifications
      */
@@ -119,6 +159,18 @@ public class HBaseNotificationStore implements NotificationStore {
 
             hBaseScanConfigBuilder = new HBaseScanConfigBuilder();
             hBaseScanConfigBuilder.addMappers(Notification.class, notificationIndexMappers);
+
+            for (String tableName : tables.keySet()) {
+                mutators.put(tableName, connection.getBufferedMutator(new BufferedMutatorParams(TableName.valueOf(tableName))));
+            }
+            flushMaxNotifications = configuration.getInt(FLUSH_MAX_NOTIFICATIONS, DEFAULT_FLUSH_MAX_NOTIFICATIONS);
+            long flushIntervalMs = configuration.getLong(FLUSH_INTERVAL_MS, DEFAULT_FLUSH_INTERVAL_MS);
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "hbase-notification-store-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
@@ -126,28 +178,96 @@ public class HBaseNotificationStore implements NotificationStore {
 
     @Override
     public void store(Notification notification) {
+        CompletableFuture<Void> stored = storeAsync(notification);
+        flushQuietly();
+        try {
+            stored.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new NotificationStoreException("Interrupted storing notification, id: " + notification.getId(), ex);
+        } catch (ExecutionException ex) {
+            throw new NotificationStoreException("Error storing notification, id: " + notification.getId(), ex.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> storeAsync(Notification notification) {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
         try {
             LOG.debug("Storing notification {} in HBase", notification);
-            store(notificationMapper.tableMutations(notification));
-        } catch (IOException ex) {
-            throw new NotificationStoreException("Error storing notification, id: " + notification.getId(), ex);
+            mutate(notificationMapper.tableMutations(notification));
+        } catch (IOException | RuntimeException ex) {
+            stored.completeExceptionally(ex);
+            return stored;
         }
+        // added once the mutations are buffered so that it is only completed by a flush writing them
+        boolean flush;
+        synchronized (pendingLock) {
+            pendingStores.add(stored);
+            flush = pendingStores.size() == flushMaxNotifications;
+        }
+        if (flush) {
+            flushExecutor.execute(this::flushQuietly);
+        }
+        return stored;
     }
 
-    private void store(List<TableMutation> tableMutations) throws IOException {
+    private void mutate(List<TableMutation> tableMutations) throws IOException {
         for (TableMutation tm : tableMutations) {
             LOG.debug("Insert/Update {} row(s), Delete {} row(s) in table {}",
                       tm.updates().size(), tm.deletes().size(), tm.tableName());
-            Table table = tables.get(tm.tableName()).get();
+            BufferedMutator mutator = mutators.get(tm.tableName());
             if (!tm.updates().isEmpty()) {
-                table.put(tm.updates());
+                mutator.mutate(tm.updates());
             }
             if (!tm.deletes().isEmpty()) {
-                table.delete(tm.deletes());
+                mutator.mutate(tm.deletes());
             }
         }
     }
 
+    /**
+     * Flushes the buffered mutations and completes the notifications stored asynchronously until now.
+     * The notifications are completed once the lock is released, so that their callbacks neither block
+     * the notifications being stored nor the other flushes.
+     */
+    private void flush() throws IOException {
+        List<CompletableFuture<Void>> flushed;
+        Exception failure = null;
+        synchronized (flushLock) {
+            synchronized (pendingLock) {
+                flushed = pendingStores;
+                pendingStores = new ArrayList<>();
+            }
+            try {
+                for (BufferedMutator mutator : mutators.values()) {
+                    mutator.flush();
+                }
+            } catch (IOException | RuntimeException ex) {
+                failure = ex;
+            }
+        }
+        if (failure == null) {
+            flushed.forEach(stored -> stored.complete(null));
+            return;
+        }
+        for (CompletableFuture<Void> stored : flushed) {
+            stored.completeExceptionally(failure);
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            LOG.error("Error flushing notifications", ex);
+        }
+    }
+
     @Override
     public Notification getNotification(String notificationId) {
         try {
@@ -163,11 +283,17 @@ public class HBaseNotificationStore implements NotificationStore {
 
     @Override
     public List<Notification> getNotifications(List<String> notificationIds) {
-        List<Notification> notifications = new ArrayList<>();
-        for (String notificationId : notificationIds) {
-            notifications.add(getNotification(notificationId));
+        try {
+            String tableName = notificationMapper.getTableName();
+            LOG.debug("getting notifications with notificationIds {} from table {}", notificationIds, tableName);
+            List<Notification> notifications = new ArrayList<>(notificationIds.size());
+            for (Result result : tables.get(tableName).get().get(gets(notificationIds))) {
+                notifications.add(result.isEmpty() ? null : notificationMapper.entity(result));
+            }
+            return notifications;
+        } catch (IOException ex) {
+            throw new NotificationStoreException("Error getting notification ids: " + notificationIds, ex);
         }
-        return notifications;
     }
 
     @Override
@@ -185,11 +311,17 @@ public class HBaseNotificationStore implements NotificationStore {
 
     @Override
     public List<StreamlineEvent> getEvents(List<String> eventIds) {
-        List<StreamlineEvent> events = new ArrayList<>();
-        for (String eventId : eventIds) {
-            events.add(getEvent(eventId));
+        try {
+            String tableName = eventMapper.getTableName();
+            LOG.debug("getting events with eventIds {} from table {}", eventIds, tableName);
+            List<StreamlineEvent> events = new ArrayList<>(eventIds.size());
+            for (Result result : tables.get(tableName).get().get(gets(eventIds))) {
+                events.add(result.isEmpty() ? null : eventMapper.entity(result));
+            }
+            return events;
+        } catch (IOException ex) {
+            throw new NotificationStoreException("Error getting event ids: " + eventIds, ex);
         }
-        return events;
     }
 
     @Override
@@ -226,6 +358,12 @@ public class HBaseNotificationStore implements NotificationStore {
     @Override
     public void close() {
         try {
+            flushExecutor.shutdown();
+            flush();
+            for (BufferedMutator mutator : mutators.values()) {
+                LOG.debug("Closing mutator {}", mutator);
+                mutator.close();
+            }
             for (ThreadLocal<Table> table : tables.values()) {
                 LOG.debug("Closing table {}", table);
                 table.get().close();
@@ -240,13 +378,27 @@ public class HBaseNotificationStore implements NotificationStore {
     @Override
     public Notification updateNotificationStatus(String notificationId, Notification.Status status) {
         try {
-            store(notificationMapper.status(getNotification(notificationId), status));
-            return getNotification(notificationId);
+            Notification notification = getNotification(notificationId);
+            if (notification == null) {
+                return null;
+            }
+            mutate(notificationMapper.status(notification, status));
+            // durable before returning, a read right after sees the new status
+            flush();
+            return new NotificationImpl.Builder(notification).status(status).build();
         } catch (IOException ex) {
             throw new NotificationStoreException("Error updating status, notification-id: " + notificationId, ex);
         }
     }
 
+    private List<Get> gets(List<String> rowIds) {
+        List<Get> gets = new ArrayList<>(rowIds.size());
+        for (String rowId : rowIds) {
+            gets.add(new Get(rowId.getBytes(StandardCharsets.UTF_8)));
+        }
+        return gets;
+    }
+
     /**
      * Return a {@link ThreadLocal} wrapped HTable
      */
@@ -29,10 +29,11 @@ import mockit.Verifications;
 import mockit.integration.junit4.JMockit;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Get;
-import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
@@ -50,6 +51,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 
@@ -68,6 +71,9 @@ public class HBaseNotificationStoreTest {
     @Mocked
     Table mockHTable;
 
+    @Mocked
+    BufferedMutator mockMutator;
+
     @Mocked
     Result mockResult;
 
@@ -116,9 +122,28 @@ public class HBaseNotificationStoreTest {
 
         new Verifications() {
             {
-                List<Put> puts;
-                mockHTable.put(puts = withCapture()); times = 8;
-                //System.out.println("puts = " + puts);
+                List<? extends Mutation> mutations;
+                mockMutator.mutate(mutations = withCapture()); times = 8;
+                //System.out.println("mutations = " + mutations);
+                mockMutator.flush(); minTimes = 9;
+            }
+        };
+    }
+
+    @Test
+    public void testStoreAsync() throws Exception {
+        CompletableFuture<Void> stored = notificationStore.storeAsync(notification);
+
+        new Verifications() {
+            {
+                mockMutator.mutate(withAny(new ArrayList<Mutation>())); times = 8;
+            }
+        };
+        // completed by the periodic flush
+        stored.get(10, TimeUnit.SECONDS);
+        new Verifications() {
+            {
+                mockMutator.flush(); minTimes = 9;
             }
         };
     }
@@ -152,6 +177,35 @@ public class HBaseNotificationStoreTest {
         };
     }
 
+    @Test
+    public void testGetNotifications() throws Exception {
+        final Map<byte[], byte[]> tsMap = new TreeMap<>(new Bytes.ByteArrayComparator());
+        tsMap.put("1444042473518".getBytes(), "1".getBytes());
+        new Expectations() {
+            {
+                mockHTable.get(withAny(new ArrayList<Get>())); times = 1;
+                result = new Result[]{mockResult};
+                mockResult.getRow(); times = 1;
+                result = "rowid".getBytes(CHARSET);
+                mockResult.getValue("s".getBytes(), "qs".getBytes()); times = 1;
+                result = "DELIVERED".getBytes();
+                mockResult.getFamilyMap("ts".getBytes()); times = 1;
+                result = tsMap;
+            }
+        };
+
+        List<Notification> notifications = notificationStore.getNotifications(Arrays.asList("n123"));
+        assertEquals(1, notifications.size());
+        assertEquals("rowid", notifications.get(0).getId());
+        assertEquals(Notification.Status.DELIVERED, notifications.get(0).getStatus());
+        new Verifications() {
+            {
+                List<Get> gets;
+                mockHTable.get(gets = withCapture()); times = 1;
+                assertEquals(1, gets.size());
+            }
+        };
+    }
 
     @Test
     public void testFindEntities() throws Exception {
@@ -38,6 +38,10 @@ public class JDBCBoltFluxComponent extends AbstractFluxComponent {
     private static final String KEY_JDBC_URL = "jdbcUrl";
     private static final String KEY_USERNAME = "username";
     private static final String KEY_PASSWORD = "password";
+    private static final String KEY_BATCH_SIZE = "batchSize";
+    private static final String KEY_FLUSH_INTERVAL_SECS = "flushIntervalSecs";
+    // lets the mysql driver send a jdbc batch as multi-row inserts
+    private static final String KEY_MYSQL_REWRITE_BATCHED_STATEMENTS = "dataSource.rewriteBatchedStatements";
     private static final String PHOENIX = "phoenix";
     private static final String MYSQL = "mysql";
     private static final String POSTGRESQL = "postgresql";
@@ -65,6 +69,8 @@ public class JDBCBoltFluxComponent extends AbstractFluxComponent {
         withInsertQuery.put(StormTopologyLayoutConstants.YAML_KEY_ARGS, Arrays.asList(queryInfo.getQuery()));
 
         configMethods.add(withInsertQuery);
+        addConfigMethod(configMethods, "withBatchSize", KEY_BATCH_SIZE);
+        addConfigMethod(configMethods, "withFlushIntervalSecs", KEY_FLUSH_INTERVAL_SECS);
         component = createComponent(boltId, boltClassName, null, constructorArgs, configMethods);
         addParallelismToComponent();
     }
@@ -98,19 +104,35 @@ public class JDBCBoltFluxComponent extends AbstractFluxComponent {
         put(configMethods, KEY_JDBC_URL);
         put(configMethods, KEY_USERNAME);
         put(configMethods, KEY_PASSWORD);
+        if (MYSQL.equals(conf.get(KEY_DB_TYPE))) {
+            put(configMethods, KEY_MYSQL_REWRITE_BATCHED_STATEMENTS, "true");
+        }
         String className = "java.util.HashMap";
         addToComponents(createComponent(componentId, className, null, null, configMethods));
         return componentId;
     }
 
     private void put(List<Map<String, Object>> configMethods, String key) {
+        put(configMethods, key, (String) conf.get(key));
+    }
+
+    private void put(List<Map<String, Object>> configMethods, String key, String val) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put(StormTopologyLayoutConstants.YAML_KEY_NAME, "put");
-        String val = (String) conf.get(key);
         map.put(StormTopologyLayoutConstants.YAML_KEY_ARGS, Arrays.asList(key, val));
         configMethods.add(map);
     }
 
+    private void addConfigMethod(List<Map<String, Object>> configMethods, String configMethodName, String key) {
+        Object val = conf.get(key);
+        if (val != null) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put(StormTopologyLayoutConstants.YAML_KEY_NAME, configMethodName);
+            map.put(StormTopologyLayoutConstants.YAML_KEY_ARGS, Collections.singletonList(val));
+            configMethods.add(map);
+        }
+    }
+
     private void add(List<Map<String, Object>> configMethods, String column) {
         Map<String, Object> map = new LinkedHashMap<>();
         map.put(StormTopologyLayoutConstants.YAML_KEY_NAME, "add");
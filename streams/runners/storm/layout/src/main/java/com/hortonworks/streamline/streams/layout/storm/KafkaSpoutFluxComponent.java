@@ -150,7 +150,9 @@ public class KafkaSpoutFluxComponent extends AbstractFluxComponent {
         if(readerSchemaVersion != null && !readerSchemaVersion.isEmpty()) {
             constructorArgs.add(Integer.parseInt(readerSchemaVersion));
         }
-        addToComponents(createComponent(translatorId, translatorClassname, null, constructorArgs, null));
+        List<Map<String, Object>> configMethods = getConfigMethodsYaml(new String[]{"withSchemaIndexedEvents"},
+                new String[]{"schemaIndexedEvents"});
+        addToComponents(createComponent(translatorId, translatorClassname, null, constructorArgs, configMethods));
         return translatorId;
     }
 
@@ -0,0 +1,54 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.layout.storm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates the events of windowed rules partially ahead of their window, see {@link LocalAggregation}.
+ */
+public class LocalAggregationBoltFluxComponent extends AbstractFluxComponent {
+    private final Logger log = LoggerFactory.getLogger(LocalAggregationBoltFluxComponent.class);
+
+    public LocalAggregationBoltFluxComponent() {
+    }
+
+    @Override
+    protected void generateComponent() {
+        RulesProcessor rulesProcessor = (RulesProcessor) conf.get(StormTopologyLayoutConstants.STREAMLINE_COMPONENT_CONF_KEY);
+        String boltId = "localAggregationBolt" + UUID_FOR_COMPONENTS;
+        String boltClassName = "com.hortonworks.streamline.streams.runtime.storm.bolt.rules.LocalAggregationBolt";
+        List<String> boltConstructorArgs = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        String rulesProcessorJson = null;
+        try {
+            rulesProcessorJson = mapper.writeValueAsString(rulesProcessor);
+        } catch (JsonProcessingException e) {
+            log.error("Error creating json config string for RulesProcessor", e);
+        }
+        boltConstructorArgs.add(rulesProcessorJson);
+        component = createComponent(boltId, boltClassName, null, boltConstructorArgs, null);
+        addParallelismToComponent();
+    }
+}
@@ -40,16 +40,27 @@ import java.util.stream.Stream;
   ],
 
 "outputKeys" : [ "userID", "orders:product as product" ,"orderId", "impressionId" ],
-"outputStream" : "joinedStream1"
+"outputStream" : "joinedStream1",
+
+"offHeapBuffer" : { "segmentSizeMb" : 64, "spillDirectory" : "/tmp/joins", "ackOnBuffer" : true },    <-- optional, spillDirectory is optional
+
+"checkpointed" : { "stateDirectory" : "/tmp/join-state" }    <-- optional, stateDirectory is optional
 }
+The off heap buffers ack the tuples as soon as they are buffered, the retained tuples are then lost if a worker dies.
+This has to be accepted explicitly with "ackOnBuffer" : true, the tuples are anchored until they leave the retention
+windows otherwise.
+The checkpointed joins restore their retention windows from the last checkpoint when a worker restarts, their state is
+kept in storm.local.dir unless stateDirectory is set. The retention windows of the checkpointed joins are kept on heap.
  */
 
 public class SLRealtimeJoinBoltFluxComponent extends AbstractFluxComponent {
+    private static final int DEFAULT_SEGMENT_SIZE_MB = 64;
+    private static final String JOIN_BOLT_CLASS_NAME = "com.hortonworks.streamline.streams.runtime.storm.bolt.query.RealtimeJoinBolt";
+    private static final String CHECKPOINTED_JOIN_BOLT_CLASS_NAME = "com.hortonworks.streamline.streams.runtime.storm.bolt.query.CheckpointedJoinBolt";
 
     @Override
     protected void generateComponent()  {
         String boltId        = "rt_joinBolt_" + UUID_FOR_COMPONENTS;
-        String boltClassName = "com.hortonworks.streamline.streams.runtime.storm.bolt.query.RealtimeJoinBolt";
 
         List<String> boltConstructorArgs = new ArrayList<>();
 
@@ -58,7 +69,21 @@ public class SLRealtimeJoinBoltFluxComponent extends AbstractFluxComponent {
 
         List<Map<String, Object>> configMethods = getConfigMethodsYaml(configMethodNames, configValues);
 
-        component = createComponent(boltId, boltClassName, null, boltConstructorArgs, configMethods);
+        Map<String, Object> checkpointConf = (Map<String, Object>) conf.get("checkpointed");
+        if ( checkpointConf!=null ) {
+            // the join bolt is wrapped by the stateful bolt
+            String joinBoltId = "rt_join_" + UUID_FOR_COMPONENTS;
+            addToComponents(createComponent(joinBoltId, JOIN_BOLT_CLASS_NAME, null, boltConstructorArgs, configMethods));
+            List<Object> checkpointedConstructorArgs = new ArrayList<>();
+            checkpointedConstructorArgs.add(getRefYaml(joinBoltId));
+            Object stateDirectory = checkpointConf.get("stateDirectory");
+            List<Map<String, Object>> checkpointedConfigMethods = stateDirectory!=null
+                    ? getConfigMethodsYaml(new String[]{"withLocalState"}, new Object[]{stateDirectory.toString()})
+                    : getConfigMethodsYaml(new String[]{"withLocalState"}, new Object[]{Args.NONE});
+            component = createComponent(boltId, CHECKPOINTED_JOIN_BOLT_CLASS_NAME, null, checkpointedConstructorArgs, checkpointedConfigMethods);
+        } else {
+            component = createComponent(boltId, JOIN_BOLT_CLASS_NAME, null, boltConstructorArgs, configMethods);
+        }
         addParallelismToComponent();
 
     }
@@ -104,6 +129,16 @@ public class SLRealtimeJoinBoltFluxComponent extends AbstractFluxComponent {
             throw new IllegalArgumentException("'outputStream' parameter is required and cannot be null");
         }
 
+        Map<String, Object> offHeapConf = (Map<String, Object>) conf.get("offHeapBuffer");
+        if ( offHeapConf!=null ) {
+            if ( !Boolean.TRUE.equals(offHeapConf.get("ackOnBuffer")) ) {
+                throw new IllegalArgumentException("'offHeapBuffer' acks the tuples as soon as they are buffered, " +
+                        "'ackOnBuffer' must be set to true to accept it");
+            }
+            result.add(offHeapConf.containsKey("spillDirectory") ? "withSpillingBuffer" : "withOffHeapBuffer");
+            result.add("withAckOnBuffer");
+        }
+
         return result.toArray(new String[]{});
     }
 
@@ -153,6 +188,21 @@ public class SLRealtimeJoinBoltFluxComponent extends AbstractFluxComponent {
         String outputStreamName = conf.get("outputStream").toString();
         result.add( new String[]{outputStreamName} );
 
+        // withOffHeapBuffer() or withSpillingBuffer()
+        Map<String, Object> offHeapConf = (Map<String, Object>) conf.get("offHeapBuffer");
+        if ( offHeapConf!=null ) {
+            Integer segmentSizeMb = (Integer) offHeapConf.get("segmentSizeMb");
+            if (segmentSizeMb==null)
+                segmentSizeMb = DEFAULT_SEGMENT_SIZE_MB;
+            Object spillDirectory = offHeapConf.get("spillDirectory");
+            if (spillDirectory!=null)
+                result.add( new Object[]{spillDirectory.toString(), segmentSizeMb} );
+            else
+                result.add( new Object[]{segmentSizeMb} );
+            // withAckOnBuffer()
+            result.add( new Object[]{} );
+        }
+
         return result.toArray(new Object[]{});
     }
 
@@ -33,6 +33,7 @@ import com.hortonworks.streamline.streams.layout.component.TopologyDag;
 import com.hortonworks.streamline.streams.layout.component.TopologyDagVisitor;
 import com.hortonworks.streamline.streams.layout.component.TopologyLayout;
 import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
 import com.hortonworks.streamline.streams.layout.component.rule.Rule;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
 import org.slf4j.Logger;
@@ -42,11 +43,14 @@ import java.nio.file.Path;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.hortonworks.streamline.streams.layout.storm.StormTopologyLayoutConstants.YAML_KEY_ID;
 import static com.hortonworks.streamline.streams.layout.storm.StormTopologyLayoutConstants.YAML_KEY_STREAMS;
@@ -124,9 +128,21 @@ public class StormTopologyFluxGenerator extends TopologyDagVisitor {
                 LOG.debug("Rules processor with window {}", windowedRulesProcessor);
                 keysAndComponents.add(makeEntry(StormTopologyLayoutConstants.YAML_KEY_BOLTS,
                         getYamlComponents(fluxComponentFactory.getFluxComponent(windowedRulesProcessor), windowedRulesProcessor)));
-                // Wire the windowed bolt with the appropriate edges
-                wireWindowedRulesProcessor(windowedRulesProcessor, topologyDag.getEdgesTo(rulesProcessor),
-                        topologyDag.getEdgesFrom(rulesProcessor));
+                if (LocalAggregation.isEnabled(entry.getValue())) {
+                    RulesProcessor localRulesProcessor = new RulesProcessor(windowedRulesProcessor);
+                    localRulesProcessor.setId(windowedRulesProcessor.getId() + ".local");
+                    localRulesProcessor.setName("LocalAggregationRulesProcessor");
+                    LOG.debug("Local aggregation of rules processor with window {}", localRulesProcessor);
+                    keysAndComponents.add(makeEntry(StormTopologyLayoutConstants.YAML_KEY_BOLTS,
+                            getYamlComponents(new LocalAggregationBoltFluxComponent(), localRulesProcessor)));
+                    wireLocalAggregation(localRulesProcessor, windowedRulesProcessor, topologyDag.getEdgesTo(rulesProcessor));
+                    wireWindowedRulesProcessor(windowedRulesProcessor, Collections.<Edge>emptyList(),
+                            topologyDag.getEdgesFrom(rulesProcessor));
+                } else {
+                    // Wire the windowed bolt with the appropriate edges
+                    wireWindowedRulesProcessor(windowedRulesProcessor, topologyDag.getEdgesTo(rulesProcessor),
+                            topologyDag.getEdgesFrom(rulesProcessor));
+                }
                 mayBeUpdateTopologyConfig(entry.getKey());
             }
         }
@@ -205,6 +221,34 @@ public class StormTopologyFluxGenerator extends TopologyDagVisitor {
         }
     }
 
+    /*
+     * The events go to the local aggregation in the same worker when possible, and the partial aggregates go to the
+     * windowed bolt with the groupings of the events, since they hold the same group by fields.
+     */
+    private void wireLocalAggregation(RulesProcessor localRulesProcessor, RulesProcessor windowedRulesProcessor, List<Edge> inEdges) {
+        Set<String> partialAggregateStreams = new HashSet<>();
+        for (Rule rule : localRulesProcessor.getRules()) {
+            partialAggregateStreams.add(LocalAggregation.getPartialAggregateStream(rule));
+        }
+        for (Edge edge : inEdges) {
+            for (StreamGrouping streamGrouping : edge.getStreamGroupings()) {
+                String streamId = streamGrouping.getStream().getId();
+                addEdge(edge.getFrom(),
+                        localRulesProcessor,
+                        streamId,
+                        Stream.Grouping.SHUFFLE,
+                        null);
+                if (partialAggregateStreams.remove(streamId)) {
+                    addEdge(localRulesProcessor,
+                            windowedRulesProcessor,
+                            streamId,
+                            streamGrouping.getGrouping(),
+                            streamGrouping.getFields());
+                }
+            }
+        }
+    }
+
     @Override
     public void visit(Edge edge) {
         if (sourceYamlComponentExists(edge)) {
@@ -257,10 +301,11 @@ public class StormTopologyFluxGenerator extends TopologyDagVisitor {
         LinkFluxComponent fluxComponent = new LinkFluxComponent();
         Map<String, Object> config = new HashMap<>();
         Map<String, Object> grouping = new LinkedHashMap<>();
-        if (Stream.Grouping.FIELDS.equals(groupingType)) {
+        String customGroupingClassName = getCustomGroupingClassName(groupingType);
+        if (customGroupingClassName != null) {
             grouping.put(StormTopologyLayoutConstants.YAML_KEY_TYPE, StormTopologyLayoutConstants.YAML_KEY_CUSTOM_GROUPING);
             Map<Object, Object> customGroupingClass = new HashMap<>();
-            customGroupingClass.put(StormTopologyLayoutConstants.YAML_KEY_CLASS_NAME, StormTopologyLayoutConstants.YAML_KEY_CUSTOM_GROUPING_CLASSNAME);
+            customGroupingClass.put(StormTopologyLayoutConstants.YAML_KEY_CLASS_NAME, customGroupingClassName);
             List<Object> constructorArgs = new ArrayList<>();
             constructorArgs.add(fields);
             customGroupingClass.put(StormTopologyLayoutConstants.YAML_KEY_CONSTRUCTOR_ARGS, constructorArgs);
@@ -279,6 +324,22 @@ public class StormTopologyFluxGenerator extends TopologyDagVisitor {
         keysAndComponents.add(makeEntry(StormTopologyLayoutConstants.YAML_KEY_STREAMS, yamlComponent));
     }
 
+    // the custom grouping implementing the fields based grouping types, null for the other ones. The key splitting
+    // groupings are not supported, none of the components merges the results of a key computed by several tasks
+    private String getCustomGroupingClassName(Stream.Grouping groupingType) {
+        if (groupingType == null) {
+            return null;
+        }
+        switch (groupingType) {
+            case FIELDS:
+                return StormTopologyLayoutConstants.YAML_KEY_CUSTOM_GROUPING_CLASSNAME;
+            case CONSISTENT_HASH:
+                return StormTopologyLayoutConstants.YAML_KEY_CONSISTENT_HASH_GROUPING_CLASSNAME;
+            default:
+                return null;
+        }
+    }
+
     private Map.Entry<String, Map<String, Object>> makeEntry(String key, Map<String, Object> component) {
         return new AbstractMap.SimpleImmutableEntry<>(key, component);
     }
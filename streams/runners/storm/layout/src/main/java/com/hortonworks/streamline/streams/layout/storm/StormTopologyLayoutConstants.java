@@ -66,4 +66,5 @@ public final class StormTopologyLayoutConstants {
     public final static String YAML_KEY_PARALLELISM = "parallelism";
     public final static String YAML_KEY_CUSTOM_GROUPING_CLASS = "customClass";
     public final static String YAML_KEY_CUSTOM_GROUPING_CLASSNAME = "com.hortonworks.streamline.streams.runtime.storm.grouping.FieldsGroupingAsCustomGrouping";
+    public final static String YAML_KEY_CONSISTENT_HASH_GROUPING_CLASSNAME = "com.hortonworks.streamline.streams.runtime.storm.grouping.ConsistentHashGrouping";
 }
@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,6 +41,12 @@ import java.util.Set;
  */
 public class StormTopologyValidator {
     private static final Logger LOG = LoggerFactory.getLogger(StormTopologyValidator.class);
+    // the link types that group the tuples by the values of their grouping fields
+    private static final Set<String> FIELDS_GROUPING_TYPES = new HashSet<>(Arrays.asList("FIELDS", "PARTIAL_KEY",
+            "CONSISTENT_HASH", "HOT_KEY_SPLIT"));
+    // the link types sending the tuples of a key to several tasks, their results would need a merge stage downstream
+    private static final Set<String> KEY_SPLITTING_GROUPING_TYPES = new HashSet<>(Arrays.asList("PARTIAL_KEY",
+            "HOT_KEY_SPLIT"));
     private final Map topologyConfig;
     private final String catalogRootUrl;
     public StormTopologyValidator (Map topologyConfig, String catalogRootUrl) {
@@ -69,6 +76,19 @@ public class StormTopologyValidator {
         // Uncomment this with https://hwxiot.atlassian.net/browse/IOT-126
         //validateRuleProcessorLinks();
         validateCustomProcessorLinks();
+        validateKeySplittingLinks();
+    }
+
+    // none of the components merges the results computed by several tasks for the same key, so a key can't be split
+    private void validateKeySplittingLinks () throws ComponentConfigException {
+        List<Map> links = (List) this.topologyConfig.get(TopologyLayoutConstants.JSON_KEY_LINKS);
+        for (Map link: links) {
+            Object type = link.get(TopologyLayoutConstants.JSON_KEY_TYPE);
+            if (KEY_SPLITTING_GROUPING_TYPES.contains(type)) {
+                throw new ComponentConfigException(String.format(TopologyLayoutConstants.ERR_MSG_UNMERGED_KEY_SPLITTING_GROUPING,
+                        link.get(TopologyLayoutConstants.JSON_KEY_UINAME), type));
+            }
+        }
     }
 
     // if there is a link from a parser processor then the stream id has to
@@ -157,7 +177,7 @@ public class StormTopologyValidator {
                 if (!outputStreams.contains(streamId)) {
                     throw new ComponentConfigException(String.format(TopologyLayoutConstants.ERR_MSG_INVALID_STREAM_ID, link.get(TopologyLayoutConstants.JSON_KEY_UINAME)));
                 }
-                if ("FIELDS".equals(link.get(TopologyLayoutConstants.JSON_KEY_TYPE))) {
+                if (FIELDS_GROUPING_TYPES.contains(link.get(TopologyLayoutConstants.JSON_KEY_TYPE))) {
                     Set<String> outputFields = getTopLevelFieldNamesFromSchema(streamIdToOutput.get(streamId));
                     List<String> groupingFields = (List) linkConfig.get(TopologyLayoutConstants.JSON_KEY_GROUPING_FIELDS);
                     if (!outputFields.containsAll(groupingFields)) {
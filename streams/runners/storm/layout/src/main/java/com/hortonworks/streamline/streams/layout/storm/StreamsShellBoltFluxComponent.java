@@ -31,6 +31,14 @@ import java.util.Map;
 
 public class StreamsShellBoltFluxComponent extends  AbstractFluxComponent {
 
+    private static final String KEY_PROTOCOL = "protocol";
+    private static final String KEY_BATCH_SIZE = "batchSize";
+    private static final String KEY_MAX_PENDING = "maxPending";
+    private static final String KEY_NUM_PROCESSES = "numProcesses";
+    private static final String KEY_ROUTING_KEY_FIELDS = "routingKeyFields";
+    private static final String MSGPACK_PROTOCOL = "msgpack";
+    private static final String MSGPACK_SERIALIZER = "com.hortonworks.streamline.streams.common.utils.MessagePackMultilangSerializer";
+
     protected MultiLangProcessor multiLangProcessor;
 
     public StreamsShellBoltFluxComponent() {
@@ -49,6 +57,26 @@ public class StreamsShellBoltFluxComponent extends  AbstractFluxComponent {
         List<Object> values = new ArrayList<>();
         configMethodNames.add("withOutputStreams");
         values.add(getStreams());
+        if (MSGPACK_PROTOCOL.equals(conf.get(KEY_PROTOCOL))) {
+            configMethodNames.add("withSerializer");
+            values.add(MSGPACK_SERIALIZER);
+        }
+        if (conf.get(KEY_BATCH_SIZE) != null) {
+            configMethodNames.add("withBatchSize");
+            values.add(conf.get(KEY_BATCH_SIZE));
+        }
+        if (conf.get(KEY_MAX_PENDING) != null) {
+            configMethodNames.add("withMaxPending");
+            values.add(conf.get(KEY_MAX_PENDING));
+        }
+        if (conf.get(KEY_NUM_PROCESSES) != null) {
+            configMethodNames.add("withNumProcesses");
+            values.add(conf.get(KEY_NUM_PROCESSES));
+        }
+        if (conf.get(KEY_ROUTING_KEY_FIELDS) != null) {
+            configMethodNames.add("withRoutingKeyFields");
+            values.add(conf.get(KEY_ROUTING_KEY_FIELDS));
+        }
 
         List<Map<String, Object>> configMethods = getConfigMethodsYaml(configMethodNames.toArray(new String[0]), values.toArray());
 
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.snakeyaml.DumperOptions;
 import com.fasterxml.jackson.dataformat.yaml.snakeyaml.Yaml;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -55,6 +56,81 @@ public class SLRealtimeJoinBoltFluxComponentTest {
 
     }
 
+    @Test
+    public void testFluxGen_SpillingBuffer() throws Exception {
+        SLRealtimeJoinBoltFluxComponent me = new SLRealtimeJoinBoltFluxComponent();
+        String json = "{\n" +
+                "\"from\" : {\"stream\": \"orders\", \"hours\" : 1, \"unique\" : false },\n" +
+                "\"joins\" : [\n" +
+                "    { \"type\":\"left\",  \"stream\":\"adImpressions\",  \"hours\":1,  \"unique\":false,\n" +
+                "               \"conditions\" : [ [ \"equal\",  \"adImpressions:userID\",  \"orders:userId\" ] ]\n" +
+                "     }\n" +
+                "  ],\n" +
+                "\"outputKeys\" : [ \"userID\", \"orderId\", \"impressionId\" ],\n" +
+                "\"outputStream\" : \"joinedStream1\",\n" +
+                "\"offHeapBuffer\" : { \"spillDirectory\" : \"/tmp/joins\", \"ackOnBuffer\" : true }\n" +
+                "}";
+
+        List<Map.Entry<String, Map<String, Object>>> map = getYamlComponents(json, me);
+        List<Map<String, Object>> configMethods = (List<Map<String, Object>>) me.getComponent().get(StormTopologyLayoutConstants.YAML_KEY_CONFIG_METHODS);
+        Map<String, Object> bufferMethod = configMethods.get(configMethods.size() - 2);
+        Assert.assertEquals("withSpillingBuffer", bufferMethod.get(StormTopologyLayoutConstants.YAML_KEY_NAME));
+        Assert.assertEquals(Arrays.asList("/tmp/joins", 64), bufferMethod.get(StormTopologyLayoutConstants.YAML_KEY_ARGS));
+        Map<String, Object> lastMethod = configMethods.get(configMethods.size() - 1);
+        Assert.assertEquals("withAckOnBuffer", lastMethod.get(StormTopologyLayoutConstants.YAML_KEY_NAME));
+        Assert.assertEquals(Collections.emptyList(), lastMethod.get(StormTopologyLayoutConstants.YAML_KEY_ARGS));
+        System.out.println(makeYaml(map));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFluxGen_SpillingBuffer_WithoutAckOnBuffer() throws Exception {
+        SLRealtimeJoinBoltFluxComponent me = new SLRealtimeJoinBoltFluxComponent();
+        String json = "{\n" +
+                "\"from\" : {\"stream\": \"orders\", \"hours\" : 1, \"unique\" : false },\n" +
+                "\"joins\" : [\n" +
+                "    { \"type\":\"left\",  \"stream\":\"adImpressions\",  \"hours\":1,  \"unique\":false,\n" +
+                "               \"conditions\" : [ [ \"equal\",  \"adImpressions:userID\",  \"orders:userId\" ] ]\n" +
+                "     }\n" +
+                "  ],\n" +
+                "\"outputKeys\" : [ \"userID\", \"orderId\", \"impressionId\" ],\n" +
+                "\"outputStream\" : \"joinedStream1\",\n" +
+                "\"offHeapBuffer\" : { \"spillDirectory\" : \"/tmp/joins\" }\n" +
+                "}";
+
+        getYamlComponents(json, me);
+    }
+
+    @Test
+    public void testFluxGen_Checkpointed() throws Exception {
+        SLRealtimeJoinBoltFluxComponent me = new SLRealtimeJoinBoltFluxComponent();
+        String json = "{\n" +
+                "\"from\" : {\"stream\": \"orders\", \"minutes\" : 10, \"unique\" : false },\n" +
+                "\"joins\" : [\n" +
+                "    { \"type\":\"inner\",  \"stream\":\"adImpressions\",  \"minutes\":10,  \"unique\":false,\n" +
+                "               \"conditions\" : [ [ \"equal\",  \"adImpressions:userID\",  \"orders:userId\" ] ]\n" +
+                "     }\n" +
+                "  ],\n" +
+                "\"outputKeys\" : [ \"userID\", \"orderId\", \"impressionId\" ],\n" +
+                "\"outputStream\" : \"joinedStream1\",\n" +
+                "\"checkpointed\" : { \"stateDirectory\" : \"/tmp/join-state\" }\n" +
+                "}";
+
+        List<Map.Entry<String, Map<String, Object>>> map = getYamlComponents(json, me);
+        Map<String, Object> bolt = me.getComponent();
+        Assert.assertEquals("com.hortonworks.streamline.streams.runtime.storm.bolt.query.CheckpointedJoinBolt",
+                bolt.get(StormTopologyLayoutConstants.YAML_KEY_CLASS_NAME));
+        Map<String, Object> joinBolt = map.get(map.size() - 2).getValue();
+        Assert.assertEquals("com.hortonworks.streamline.streams.runtime.storm.bolt.query.RealtimeJoinBolt",
+                joinBolt.get(StormTopologyLayoutConstants.YAML_KEY_CLASS_NAME));
+        Assert.assertEquals(Collections.singletonList(Collections.singletonMap(StormTopologyLayoutConstants.YAML_KEY_REF,
+                joinBolt.get(StormTopologyLayoutConstants.YAML_KEY_ID))),
+                bolt.get(StormTopologyLayoutConstants.YAML_KEY_CONSTRUCTOR_ARGS));
+        List<Map<String, Object>> configMethods = (List<Map<String, Object>>) bolt.get(StormTopologyLayoutConstants.YAML_KEY_CONFIG_METHODS);
+        Assert.assertEquals("withLocalState", configMethods.get(0).get(StormTopologyLayoutConstants.YAML_KEY_NAME));
+        Assert.assertEquals(Collections.singletonList("/tmp/join-state"), configMethods.get(0).get(StormTopologyLayoutConstants.YAML_KEY_ARGS));
+        System.out.println(makeYaml(map));
+    }
+
     public static List<Map.Entry<String, Map<String, Object>>> getYamlComponents(String json, FluxComponent fluxComponent) throws IOException {
         Map<String, Object> props = new ObjectMapper().readValue(json, new TypeReference<HashMap<String, Object>>(){});
 
@@ -30,6 +30,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.MediaType;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -111,6 +112,49 @@ public class GraphiteWithStormQuerier extends AbstractTimeSeriesQuerier {
         return formatDataPointsFromGraphiteToMap(dataPoints);
     }
 
+    @Override
+    public Map<String, Map<Long, Double>> getTopologyLevelMetrics(String topologyName, Map<String, AggregateFunction> metrics,
+                                                                  long from, long to) {
+        return getMetrics(topologyName, WILDCARD_ALL_COMPONENTS, metrics, from, to);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * All the metrics are queried in one render request with one target per metric.
+     */
+    @Override
+    public Map<String, Map<Long, Double>> getMetrics(String topologyName, String componentId, Map<String, AggregateFunction> metrics,
+                                                     long from, long to) {
+        Map<String, String> metricNameOfTargets = new HashMap<>(metrics.size());
+        for (Map.Entry<String, AggregateFunction> metric : metrics.entrySet()) {
+            metricNameOfTargets.put(buildMetricName(topologyName, componentId, metric.getKey(), metric.getValue()), metric.getKey());
+        }
+        URI targetUri = composeQueryParameters(metricNameOfTargets.keySet(), from, to);
+
+        log.debug("Calling {} for querying metrics", targetUri.toString());
+
+        List<Map<String, ?>> responseList = JsonClientUtil.getEntity(client.target(targetUri), List.class);
+        Map<String, Map<Long, Double>> ret = new HashMap<>(metrics.size());
+        for (Map<String, ?> metric : responseList) {
+            // the aggregated series is named after its target
+            String metricName = metricNameOfTargets.get((String) metric.get("target"));
+            if (metricName != null) {
+                List<List<Number>> dataPoints = (List<List<Number>>) metric.get("datapoints");
+                ret.put(metricName, formatDataPointsFromGraphiteToMap(dataPoints));
+            }
+        }
+        for (String metricName : metrics.keySet()) {
+            ret.putIfAbsent(metricName, Collections.emptyMap());
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean supportsMultiMetricQueries() {
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -149,6 +193,17 @@ public class GraphiteWithStormQuerier extends AbstractTimeSeriesQuerier {
                 .build();
     }
 
+    private URI composeQueryParameters(Collection<String> targets, long from, long to) {
+        JerseyUriBuilder uriBuilder = new JerseyUriBuilder().uri(renderApiUrl);
+        for (String target : targets) {
+            uriBuilder = uriBuilder.queryParam("target", target);
+        }
+        return uriBuilder.queryParam("format", "json")
+                .queryParam("from", String.valueOf((int) (from / 1000)))
+                .queryParam("until", String.valueOf((int) (to / 1000)))
+                .build();
+    }
+
     private URI composeRawQueryParameters(String metricName, Map<String, String> queryParams, long from, long to) {
         JerseyUriBuilder uriBuilder = new JerseyUriBuilder().uri(renderApiUrl);
         for (Map.Entry<String, String> pair : queryParams.entrySet()) {
@@ -15,6 +15,8 @@
  **/
 package com.hortonworks.streamline.streams.metrics.storm.topology;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.hortonworks.streamline.common.util.ParallelStreamUtil;
 import com.hortonworks.streamline.streams.layout.TopologyLayoutConstants;
 import com.hortonworks.streamline.streams.layout.component.Component;
@@ -25,30 +27,48 @@ import com.hortonworks.streamline.streams.storm.common.StormRestAPIClient;
 import com.hortonworks.streamline.streams.storm.common.StormTopologyUtil;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.stream.Collectors.toMap;
 
 /**
  * Storm implementation of the TopologyTimeSeriesMetrics interface
+ * <p/>
+ * The metrics of a request are queried concurrently, or in one request when the time series querier supports it.
+ * Their results are cached for a short time by metric and by time bucket of the queried period, so that the
+ * successive requests of a dashboard being refreshed do not query the same metrics again.
  */
 public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMetrics {
     private static final int FORK_JOIN_POOL_PARALLELISM = 30;
+    private static final long METRICS_CACHE_MAX_SIZE = 10_000;
+    private static final long METRICS_CACHE_TTL_SECS = 30;
+    // periods whose beginning and end fall in the same buckets share the cached results
+    private static final long METRICS_CACHE_TIME_BUCKET_MS = 10_000;
 
     // shared across the metrics instances
     private static final ForkJoinPool FORK_JOIN_POOL = new ForkJoinPool(FORK_JOIN_POOL_PARALLELISM);
 
     private final StormRestAPIClient client;
+    private final Cache<MetricQueryKey, Map<Long, Double>> metricsCache = CacheBuilder.newBuilder()
+            .maximumSize(METRICS_CACHE_MAX_SIZE)
+            .expireAfterWrite(METRICS_CACHE_TTL_SECS, TimeUnit.SECONDS)
+            .build();
     private TimeSeriesQuerier timeSeriesQuerier;
     private static final StormMappedMetric[] STATS_METRICS = new StormMappedMetric[]{
             StormMappedMetric.inputRecords, StormMappedMetric.outputRecords, StormMappedMetric.ackedRecords,
             StormMappedMetric.failedRecords, StormMappedMetric.processedTime, StormMappedMetric.recordsInWaitQueue
     };
+    private static final StormMappedMetric[] KAFKA_OFFSET_METRICS = new StormMappedMetric[]{
+            StormMappedMetric.logsize, StormMappedMetric.offset, StormMappedMetric.lag
+    };
 
     public StormTopologyTimeSeriesMetricsImpl(StormRestAPIClient client) {
         this.client = client;
@@ -57,6 +77,7 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
     @Override
     public void setTimeSeriesQuerier(TimeSeriesQuerier timeSeriesQuerier) {
         this.timeSeriesQuerier = timeSeriesQuerier;
+        metricsCache.invalidateAll();
     }
 
     @Override
@@ -71,7 +92,8 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
         String stormTopologyName = StormTopologyUtil.findOrGenerateTopologyName(client, topology.getId(), topology.getName(), asUser);
         String stormComponentName = getComponentName(component);
 
-        return queryComponentMetrics(stormTopologyName, stormComponentName, StormMappedMetric.completeLatency, from, to);
+        return queryMetrics(stormTopologyName, stormComponentName, Collections.singletonList(StormMappedMetric.completeLatency),
+                null, from, to).get(StormMappedMetric.completeLatency.name());
     }
 
     @Override
@@ -87,14 +109,7 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
                     topology.getName() + " / source : " + component.getName());
         }
 
-        StormMappedMetric[] metrics = { StormMappedMetric.logsize, StormMappedMetric.offset, StormMappedMetric.lag };
-
-        Map<String, Map<Long, Double>> kafkaOffsets = new HashMap<>();
-        for (StormMappedMetric metric : metrics) {
-            kafkaOffsets.put(metric.name(), queryKafkaMetrics(stormTopologyName, stormComponentName, metric, topicName, from, to));
-        }
-
-        return kafkaOffsets;
+        return queryMetrics(stormTopologyName, stormComponentName, Arrays.asList(KAFKA_OFFSET_METRICS), topicName, from, to);
     }
 
     @Override
@@ -103,11 +118,7 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
 
         String stormTopologyName = StormTopologyUtil.findOrGenerateTopologyName(client, topology.getId(), topology.getName(), asUser);
 
-        Map<String, Map<Long, Double>> stats = ParallelStreamUtil.execute(() ->
-                Arrays.asList(STATS_METRICS)
-                        .parallelStream()
-                        .collect(toMap(m -> m.name(), m -> queryTopologyMetrics(stormTopologyName, m, from, to))),
-                FORK_JOIN_POOL);
+        Map<String, Map<Long, Double>> stats = queryMetrics(stormTopologyName, null, Arrays.asList(STATS_METRICS), null, from, to);
 
         return buildTimeSeriesComponentMetric(topology.getName(), stats);
     }
@@ -119,12 +130,8 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
         String stormTopologyName = StormTopologyUtil.findOrGenerateTopologyName(client, topology.getId(), topology.getName(), asUser);
         String stormComponentName = getComponentName(component);
 
-        Map<String, Map<Long, Double>> componentStats = ParallelStreamUtil.execute(() ->
-                Arrays.asList(STATS_METRICS)
-                        .parallelStream()
-                        .collect(toMap(m -> m.name(),
-                                m -> queryComponentMetrics(stormTopologyName, stormComponentName, m, from, to))),
-                FORK_JOIN_POOL);
+        Map<String, Map<Long, Double>> componentStats = queryMetrics(stormTopologyName, stormComponentName,
+                Arrays.asList(STATS_METRICS), null, from, to);
 
         return buildTimeSeriesComponentMetric(component.getName(), componentStats);
     }
@@ -184,32 +191,113 @@ public class StormTopologyTimeSeriesMetricsImpl implements TopologyTimeSeriesMet
         return kafkaTopicName;
     }
 
-    private Map<Long, Double> queryTopologyMetrics(String stormTopologyName, StormMappedMetric mappedMetric, long from, long to) {
-        Map<Long, Double> metrics = Collections.emptyMap();
-        if (timeSeriesQuerier != null) {
-            metrics = timeSeriesQuerier.getTopologyLevelMetrics(stormTopologyName,
-                    mappedMetric.getStormMetricName(), mappedMetric.getAggregateFunction(), from, to);
+    /**
+     * Queries the metrics missing from the cache, in one request when the time series querier supports it or else
+     * concurrently.
+     *
+     * @param componentId component name in Storm, null for topology level metrics
+     * @param kafkaTopic  topic name formatted in the Kafka offset metric names, null for the other metrics
+     * @return Map of mapped metric name and Map of data points
+     */
+    private Map<String, Map<Long, Double>> queryMetrics(String stormTopologyName, String componentId, List<StormMappedMetric> mappedMetrics,
+                                                        String kafkaTopic, long from, long to) {
+        Map<String, Map<Long, Double>> results = new HashMap<>(mappedMetrics.size());
+        Map<MetricQueryKey, StormMappedMetric> missingMetrics = new HashMap<>();
+        for (StormMappedMetric mappedMetric : mappedMetrics) {
+            String metricName = kafkaTopic == null ? mappedMetric.getStormMetricName() :
+                    String.format(mappedMetric.getStormMetricName(), kafkaTopic);
+            MetricQueryKey key = new MetricQueryKey(stormTopologyName, componentId, metricName,
+                    mappedMetric.getAggregateFunction(), from, to);
+            Map<Long, Double> points = metricsCache.getIfPresent(key);
+            if (points != null) {
+                results.put(mappedMetric.name(), points);
+            } else {
+                missingMetrics.put(key, mappedMetric);
+            }
+        }
+
+        if (!missingMetrics.isEmpty()) {
+            Map<MetricQueryKey, Map<Long, Double>> queried;
+            if (missingMetrics.size() == 1) {
+                MetricQueryKey key = missingMetrics.keySet().iterator().next();
+                queried = Collections.singletonMap(key, query(key, from, to));
+            } else if (timeSeriesQuerier.supportsMultiMetricQueries()) {
+                queried = queryAtOnce(stormTopologyName, componentId, missingMetrics.keySet(), from, to);
+            } else {
+                queried = ParallelStreamUtil.execute(() ->
+                        missingMetrics.keySet()
+                                .parallelStream()
+                                .collect(toMap(k -> k, k -> query(k, from, to))),
+                        FORK_JOIN_POOL);
+            }
+            for (Map.Entry<MetricQueryKey, Map<Long, Double>> entry : queried.entrySet()) {
+                metricsCache.put(entry.getKey(), entry.getValue());
+                results.put(missingMetrics.get(entry.getKey()).name(), entry.getValue());
+            }
         }
-        return new TreeMap<>(metrics);
+        return results;
     }
 
-    private Map<Long, Double> queryComponentMetrics(String stormTopologyName, String sourceId, StormMappedMetric mappedMetric, long from, long to) {
-        Map<Long, Double> metrics = Collections.emptyMap();
-        if (timeSeriesQuerier != null) {
-            metrics = timeSeriesQuerier.getMetrics(stormTopologyName, sourceId, mappedMetric.getStormMetricName(),
-                    mappedMetric.getAggregateFunction(), from, to);
+    private Map<Long, Double> query(MetricQueryKey key, long from, long to) {
+        Map<Long, Double> metrics;
+        if (key.componentId == null) {
+            metrics = timeSeriesQuerier.getTopologyLevelMetrics(key.topologyName, key.metricName, key.aggrFunction, from, to);
+        } else {
+            metrics = timeSeriesQuerier.getMetrics(key.topologyName, key.componentId, key.metricName, key.aggrFunction, from, to);
         }
-        return new TreeMap<>(metrics);
+        return toSortedPoints(metrics);
     }
 
-    private Map<Long, Double> queryKafkaMetrics(String stormTopologyName, String sourceId, StormMappedMetric mappedMetric,
-                                                  String kafkaTopic, long from, long to) {
-        Map<Long, Double> metrics = Collections.emptyMap();
-        if (timeSeriesQuerier != null) {
-            metrics = timeSeriesQuerier.getMetrics(stormTopologyName, sourceId, String.format(mappedMetric.getStormMetricName(), kafkaTopic),
-                    mappedMetric.getAggregateFunction(), from, to);
+    private Map<MetricQueryKey, Map<Long, Double>> queryAtOnce(String stormTopologyName, String componentId,
+                                                               Collection<MetricQueryKey> keys, long from, long to) {
+        Map<String, TimeSeriesQuerier.AggregateFunction> metrics = new HashMap<>(keys.size());
+        for (MetricQueryKey key : keys) {
+            metrics.put(key.metricName, key.aggrFunction);
         }
-        return new TreeMap<>(metrics);
+        Map<String, Map<Long, Double>> pointsOfMetrics = componentId == null ?
+                timeSeriesQuerier.getTopologyLevelMetrics(stormTopologyName, metrics, from, to) :
+                timeSeriesQuerier.getMetrics(stormTopologyName, componentId, metrics, from, to);
+        return keys.stream().collect(toMap(k -> k, k -> toSortedPoints(pointsOfMetrics.get(k.metricName))));
     }
 
+    private Map<Long, Double> toSortedPoints(Map<Long, Double> metrics) {
+        return Collections.unmodifiableMap(metrics == null ? new TreeMap<>() : new TreeMap<>(metrics));
+    }
+
+    private static class MetricQueryKey {
+        private final String topologyName;
+        private final String componentId;
+        private final String metricName;
+        private final TimeSeriesQuerier.AggregateFunction aggrFunction;
+        private final long fromBucket;
+        private final long toBucket;
+
+        MetricQueryKey(String topologyName, String componentId, String metricName,
+                       TimeSeriesQuerier.AggregateFunction aggrFunction, long from, long to) {
+            this.topologyName = topologyName;
+            this.componentId = componentId;
+            this.metricName = metricName;
+            this.aggrFunction = aggrFunction;
+            this.fromBucket = from / METRICS_CACHE_TIME_BUCKET_MS;
+            this.toBucket = to / METRICS_CACHE_TIME_BUCKET_MS;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MetricQueryKey that = (MetricQueryKey) o;
+            return fromBucket == that.fromBucket &&
+                    toBucket == that.toBucket &&
+                    Objects.equals(topologyName, that.topologyName) &&
+                    Objects.equals(componentId, that.componentId) &&
+                    Objects.equals(metricName, that.metricName) &&
+                    aggrFunction == that.aggrFunction;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(topologyName, componentId, metricName, aggrFunction, fromBucket, toBucket);
+        }
+    }
 }
@@ -40,6 +40,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -264,6 +265,36 @@ public class StormTopologyTimeSeriesMetricsImplTest {
         assertEquals(expectedMetric, actual);
     }
 
+    @Test
+    public void testMetricsAreCachedByTimeBucket() throws Exception {
+        CountingTimeSeriesQuerier querier = new CountingTimeSeriesQuerier(false);
+        stormTopologyTimeSeriesMetrics.setTimeSeriesQuerier(querier);
+
+        stormTopologyTimeSeriesMetrics.getComponentStats(topology, component, 1000L, 2000L, null);
+        assertEquals(6, querier.queries.get());
+
+        // same time buckets
+        stormTopologyTimeSeriesMetrics.getComponentStats(topology, component, 1500L, 2500L, null);
+        assertEquals(6, querier.queries.get());
+
+        stormTopologyTimeSeriesMetrics.getComponentStats(topology, component, 1000L, 60000L, null);
+        assertEquals(12, querier.queries.get());
+    }
+
+    @Test
+    public void testMultiMetricQuery() throws Exception {
+        CountingTimeSeriesQuerier querier = new CountingTimeSeriesQuerier(true);
+        stormTopologyTimeSeriesMetrics.setTimeSeriesQuerier(querier);
+
+        TopologyTimeSeriesMetrics.TimeSeriesComponentMetric actual =
+                stormTopologyTimeSeriesMetrics.getComponentStats(topology, component, 1000L, 2000L, null);
+        assertEquals(1, querier.queries.get());
+        assertEquals(CountingTimeSeriesQuerier.points(StormMappedMetric.inputRecords.getStormMetricName()),
+                actual.getInputRecords());
+        assertEquals(CountingTimeSeriesQuerier.points(StormMappedMetric.recordsInWaitQueue.getStormMetricName()),
+                actual.getRecordsInWaitQueue());
+    }
+
     private TopologyLayout getTopologyLayoutForTest() throws IOException {
         Map<String, Object> configurations = buildTopologyConfigWithKafkaDataSource(TOPIC_NAME);
         return new TopologyLayout(1L, "topology", mapper.writeValueAsString(configurations), null);
@@ -304,4 +335,56 @@ public class StormTopologyTimeSeriesMetricsImplTest {
 
         return ret;
     }
-}
\ No newline at end of file
+
+    private static class CountingTimeSeriesQuerier implements TimeSeriesQuerier {
+        private final boolean multiMetricQueries;
+        private final AtomicInteger queries = new AtomicInteger();
+
+        CountingTimeSeriesQuerier(boolean multiMetricQueries) {
+            this.multiMetricQueries = multiMetricQueries;
+        }
+
+        static Map<Long, Double> points(String metricName) {
+            return Collections.singletonMap(1000L, (double) metricName.length());
+        }
+
+        @Override
+        public void init(Map<String, String> conf) {
+        }
+
+        @Override
+        public Map<Long, Double> getTopologyLevelMetrics(String topologyName, String metricName, AggregateFunction aggrFunction,
+                                                         long from, long to) {
+            queries.incrementAndGet();
+            return points(metricName);
+        }
+
+        @Override
+        public Map<Long, Double> getMetrics(String topologyName, String componentId, String metricName, AggregateFunction aggrFunction,
+                                            long from, long to) {
+            queries.incrementAndGet();
+            return points(metricName);
+        }
+
+        @Override
+        public Map<String, Map<Long, Double>> getMetrics(String topologyName, String componentId, Map<String, AggregateFunction> metrics,
+                                                         long from, long to) {
+            queries.incrementAndGet();
+            Map<String, Map<Long, Double>> ret = new HashMap<>();
+            for (String metricName : metrics.keySet()) {
+                ret.put(metricName, points(metricName));
+            }
+            return ret;
+        }
+
+        @Override
+        public boolean supportsMultiMetricQueries() {
+            return multiMetricQueries;
+        }
+
+        @Override
+        public Map<String, Map<Long, Double>> getRawMetrics(String metricName, String parameters, long from, long to) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
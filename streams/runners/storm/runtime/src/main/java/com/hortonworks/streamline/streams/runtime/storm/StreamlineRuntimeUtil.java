@@ -22,8 +22,15 @@ import java.util.Map;
 public class StreamlineRuntimeUtil {
 
     public static Object getFieldValue (StreamlineEvent streamlineEvent, String fieldName) {
+        return getFieldValue(streamlineEvent, fieldName.split(StreamlineEvent.NESTED_FIELD_SPLIT_REGEX));
+    }
+
+    /**
+     * Returns the value of a nested field given its already split keys, for the callers looking up the same field
+     * for every event.
+     */
+    public static Object getFieldValue(StreamlineEvent streamlineEvent, String[] nestedKeys) {
         Map fieldValues = streamlineEvent;
-        String[] nestedKeys = fieldName.split(StreamlineEvent.NESTED_FIELD_SPLIT_REGEX);
         for (int i = 0; i < (nestedKeys.length - 1); ++i) {
             if (fieldValues == null)
                 break;
@@ -36,7 +36,10 @@ public class StreamlineJdbcMapper implements JdbcMapper {
     private final String tableName;
     private final ConnectionProvider connectionProvider;
     private final List<String> fields;
-    private final Map<String, Column> fieldsToColumns = new HashMap<>();
+    // binding plan of the fields, resolved against the table schema on first use
+    private transient String[] columnNames;
+    private transient int[] columnSqlTypes;
+    private transient Class<?>[] columnJavaTypes;
 
     public StreamlineJdbcMapper(String tableName,
                                 ConnectionProvider connectionProvider,
@@ -51,30 +54,40 @@ public class StreamlineJdbcMapper implements JdbcMapper {
     @Override
     public List<Column> getColumns(ITuple tuple) {
         StreamlineEvent event = (StreamlineEvent) tuple.getValueByField(StreamlineEvent.STREAMLINE_EVENT);
-        List<Column> res = new ArrayList<>();
-        if (fieldsToColumns.isEmpty()) {
-            initFieldsToColumns();
+        if (columnNames == null) {
+            initBindingPlan();
         }
-        for(String field: fields) {
-            Column<?> column = getColumn(field);
-            String columnName = column.getColumnName();
-            Integer columnSqlType = column.getSqlType();
-            Object value = Util.getJavaType(columnSqlType).cast(event.get(field));
-            res.add(new Column<>(columnName, value, columnSqlType));
+        List<Column> res = new ArrayList<>(columnNames.length);
+        for (int i = 0; i < columnNames.length; i++) {
+            Object value = columnJavaTypes[i].cast(event.get(fields.get(i)));
+            res.add(new Column<>(columnNames[i], value, columnSqlTypes[i]));
         }
         return res;
     }
 
-    private void initFieldsToColumns() {
+    private void initBindingPlan() {
         connectionProvider.prepare();
         JdbcClient client = new JdbcClient(connectionProvider, 30);
+        Map<String, Column> fieldsToColumns = new HashMap<>();
         for (Column<?> column: client.getColumnSchema(tableName)) {
             fieldsToColumns.put(column.getColumnName().toUpperCase(), column);
         }
         LOG.info("fieldsToColumns {}", fieldsToColumns);
+        String[] names = new String[fields.size()];
+        int[] sqlTypes = new int[fields.size()];
+        Class<?>[] javaTypes = new Class<?>[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+            Column<?> column = getColumn(fieldsToColumns, fields.get(i));
+            names[i] = column.getColumnName();
+            sqlTypes[i] = column.getSqlType();
+            javaTypes[i] = Util.getJavaType(column.getSqlType());
+        }
+        columnSqlTypes = sqlTypes;
+        columnJavaTypes = javaTypes;
+        columnNames = names;
     }
 
-    private Column<?> getColumn(String fieldName) {
+    private Column<?> getColumn(Map<String, Column> fieldsToColumns, String fieldName) {
         Column<?> column = fieldsToColumns.get(fieldName.toUpperCase());
         if (column != null) {
             return column;
@@ -36,6 +36,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+/**
+ * Runs the events through a multilang processor. With a pipelined serializer such as
+ * {@link com.hortonworks.streamline.streams.common.utils.MessagePackMultilangSerializer} or a pool of subprocesses,
+ * several events are in flight and each tuple is acked or failed when the subprocess answers its event.
+ */
 public class StreamsShellBolt extends AbstractProcessorBolt {
 
     public static final Logger LOG = LoggerFactory.getLogger(StreamsShellBolt.class);
@@ -45,6 +50,11 @@ public class StreamsShellBolt extends AbstractProcessorBolt {
     private Random rand;
     private int processTimeoutInMs;
     Map<String, String> envMap = new HashMap<>();
+    private String serializer;
+    private Integer batchSize;
+    private Integer maxPending;
+    private Integer numProcesses;
+    private List<String> routingKeyFields;
 
     private MultiLangProcessorRuntime processorRuntime ;
 
@@ -65,6 +75,35 @@ public class StreamsShellBolt extends AbstractProcessorBolt {
         return this;
     }
 
+    public StreamsShellBolt withSerializer(String serializer) {
+        this.serializer = serializer;
+        return this;
+    }
+
+    public StreamsShellBolt withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public StreamsShellBolt withMaxPending(int maxPending) {
+        this.maxPending = maxPending;
+        return this;
+    }
+
+    public StreamsShellBolt withNumProcesses(int numProcesses) {
+        this.numProcesses = numProcesses;
+        return this;
+    }
+
+    /**
+     * Routes the events with the same values of these fields to the same subprocess of the pool, so that they are
+     * processed in order.
+     */
+    public StreamsShellBolt withRoutingKeyFields(List<String> routingKeyFields) {
+        this.routingKeyFields = routingKeyFields;
+        return this;
+    }
+
     public void prepare(Map stormConf, TopologyContext context,
                         final OutputCollector collector) {
         super.prepare(stormConf, context, collector);
@@ -79,6 +118,11 @@ public class StreamsShellBolt extends AbstractProcessorBolt {
         processConfigMap.put(MultiLangProcessorRuntime.OUTPUT_STREAMS, outputStreams);
         processConfigMap.put(MultiLangProcessorRuntime.PROCESS_TIMEOUT_MILLS, processTimeoutInMs);
         processConfigMap.put(MultiLangProcessorRuntime.SHELL_ENVIRONMENT, envMap);
+        processConfigMap.put(MultiLangProcessorRuntime.MULTILANG_SERIALIZER, serializer);
+        processConfigMap.put(MultiLangProcessorRuntime.BATCH_SIZE, batchSize);
+        processConfigMap.put(MultiLangProcessorRuntime.MAX_PENDING, maxPending);
+        processConfigMap.put(MultiLangProcessorRuntime.NUM_PROCESSES, numProcesses);
+        processConfigMap.put(MultiLangProcessorRuntime.ROUTING_KEY_FIELDS, routingKeyFields);
 
         processorRuntime = new MultiLangProcessorRuntime();
         processorRuntime.initialize(processConfigMap);
@@ -93,21 +137,62 @@ public class StreamsShellBolt extends AbstractProcessorBolt {
     }
 
     @Override
-    protected void process(Tuple input, StreamlineEvent event) {
-        //just need an id
-        String genId = Long.toString(rand.nextLong());
-        StreamlineEvent eventWithStream = getStreamlineEventWithStream(event, input, genId);
+    protected void process(Tuple tuple) {
+        if (!processorRuntime.isPipelined()) {
+            super.process(tuple);
+            return;
+        }
+        Object event = tuple.getValueByField(StreamlineEvent.STREAMLINE_EVENT);
+        if (!(event instanceof StreamlineEvent)) {
+            LOG.debug("Received invalid input tuple:[{}] with streamline event:[{}] and it is not processed.", tuple, event);
+            collector.ack(tuple);
+            return;
+        }
         try {
-            for (Result result : processorRuntime.process(eventWithStream)) {
-                for (StreamlineEvent e : result.events) {
-                    collector.emit(result.stream, input, new Values(e));
-                }
+            processorRuntime.processAsync(getStreamlineEventWithStream((StreamlineEvent) event, tuple, genId()))
+                    .whenComplete((results, error) -> complete(tuple, results, error));
+        } catch (Exception e) {
+            complete(tuple, null, e);
+        }
+    }
+
+    // called by the reader thread of the processor runtime in pipelined mode
+    private void complete(Tuple input, List<Result> results, Throwable error) {
+        synchronized (collector) {
+            if (error == null) {
+                emit(input, results);
+                collector.ack(input);
+            } else {
+                LOG.error("Error occurred while processing the tuple", error);
+                collector.fail(input);
+                collector.reportError(error);
             }
+        }
+    }
+
+    @Override
+    protected void process(Tuple input, StreamlineEvent event) {
+        StreamlineEvent eventWithStream = getStreamlineEventWithStream(event, input, genId());
+        try {
+            emit(input, processorRuntime.process(eventWithStream));
         } catch (ProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void emit(Tuple input, List<Result> results) {
+        for (Result result : results) {
+            for (StreamlineEvent e : result.events) {
+                collector.emit(result.stream, input, new Values(e));
+            }
+        }
+    }
+
+    //just need an id
+    private String genId() {
+        return Long.toString(rand.nextLong());
+    }
+
     private StreamlineEvent getStreamlineEventWithStream(StreamlineEvent event, Tuple tuple, String genId) {
         return new StreamlineEventImpl(event,
                 event.getDataSourceId(), genId,
@@ -1,23 +1,244 @@
 package com.hortonworks.streamline.streams.runtime.storm.bolt.jdbc;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.storm.Config;
 import org.apache.storm.jdbc.bolt.JdbcInsertBolt;
+import org.apache.storm.jdbc.common.Column;
 import org.apache.storm.jdbc.common.ConnectionProvider;
 import org.apache.storm.jdbc.mapper.JdbcMapper;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+/**
+ * Jdbc insert bolt writing the tuples in batches. The tuples are accumulated until the batch size is reached or the
+ * flush interval elapses, and each batch is written as a single jdbc batch in one transaction by a background
+ * thread while the next batch accumulates. Drivers supporting it, like mysql with rewriteBatchedStatements, send
+ * the jdbc batch as multi-row statements. The tuples of a batch are acked once the transaction is committed, or
+ * failed if the batch could not be written.
+ */
 public class StreamlineJdbcInsertBolt extends JdbcInsertBolt {
+    private static final Logger LOG = LoggerFactory.getLogger(StreamlineJdbcInsertBolt.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_FLUSH_INTERVAL_SECS = 1;
+
+    private final JdbcMapper jdbcMapper;
+    private String tableName;
+    private String insertQuery;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int flushIntervalSecs = DEFAULT_FLUSH_INTERVAL_SECS;
+
+    private transient List<Tuple> batchTuples;
+    private transient List<List<Column>> batchColumns;
+    private transient ExecutorService flusher;
+    // the batch being written by the flusher, at most one at a time so that the batches are written in order
+    private transient Future<?> pendingFlush;
+    private transient List<Tuple> pendingTuples;
+
     public StreamlineJdbcInsertBolt(ConnectionProvider connectionProvider, JdbcMapper jdbcMapper) {
         super(connectionProvider, jdbcMapper);
+        this.jdbcMapper = jdbcMapper;
+    }
+
+    @Override
+    public JdbcInsertBolt withTableName(String tableName) {
+        this.tableName = tableName;
+        return super.withTableName(tableName);
+    }
+
+    @Override
+    public JdbcInsertBolt withInsertQuery(String insertQuery) {
+        this.insertQuery = insertQuery;
+        return super.withInsertQuery(insertQuery);
+    }
+
+    public StreamlineJdbcInsertBolt withBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize should be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public StreamlineJdbcInsertBolt withFlushIntervalSecs(int flushIntervalSecs) {
+        if (flushIntervalSecs <= 0) {
+            throw new IllegalArgumentException("flushIntervalSecs should be positive: " + flushIntervalSecs);
+        }
+        this.flushIntervalSecs = flushIntervalSecs;
+        return this;
     }
 
     @Override
     public void prepare(Map map, TopologyContext topologyContext, OutputCollector collector) {
         avoidDeadlockFromHikariCP();
         super.prepare(map, topologyContext, collector);
+        batchTuples = new ArrayList<>(batchSize);
+        batchColumns = new ArrayList<>(batchSize);
+        flusher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "jdbc-insert-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    protected void process(Tuple tuple) {
+        List<Column> columns;
+        try {
+            columns = jdbcMapper.getColumns(tuple);
+        } catch (Exception e) {
+            collector.reportError(e);
+            collector.fail(tuple);
+            return;
+        }
+        batchTuples.add(tuple);
+        batchColumns.add(columns);
+        completePendingFlush(false);
+        if (batchTuples.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    @Override
+    protected void onTickTuple(Tuple tuple) {
+        completePendingFlush(false);
+        flush();
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        // tick tuples flush the batches that do not fill up within the flush interval
+        Config conf = new Config();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, flushIntervalSecs);
+        return conf;
+    }
+
+    @Override
+    public void cleanup() {
+        if (flusher != null) {
+            flush();
+            completePendingFlush(true);
+            flusher.shutdown();
+        }
+        super.cleanup();
+    }
+
+    /**
+     * Hands the current batch over to the flusher, once the batch it is writing, if any, is done.
+     */
+    private void flush() {
+        if (batchTuples.isEmpty()) {
+            return;
+        }
+        completePendingFlush(true);
+        List<List<Column>> columnLists = batchColumns;
+        pendingTuples = batchTuples;
+        pendingFlush = flusher.submit(() -> {
+            write(columnLists);
+            return null;
+        });
+        batchTuples = new ArrayList<>(batchSize);
+        batchColumns = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Writes the batch in one transaction, which is rolled back if any of its rows could not be written.
+     */
+    private void write(List<List<Column>> columnLists) throws SQLException {
+        String query = StringUtils.isBlank(insertQuery) ? buildInsertQuery(columnLists.get(0)) : insertQuery;
+        try (Connection connection = connectionProvider.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                if (queryTimeoutSecs > 0) {
+                    statement.setQueryTimeout(queryTimeoutSecs);
+                }
+                for (List<Column> columns : columnLists) {
+                    int index = 1;
+                    for (Column column : columns) {
+                        if (column.getVal() == null) {
+                            statement.setNull(index++, column.getSqlType());
+                        } else {
+                            statement.setObject(index++, column.getVal(), column.getSqlType());
+                        }
+                    }
+                    statement.addBatch();
+                }
+                for (int result : statement.executeBatch()) {
+                    if (result == Statement.EXECUTE_FAILED) {
+                        throw new SQLException("Failed to execute a row of the batch with query " + query);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private String buildInsertQuery(List<Column> columns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (Column column : columns) {
+            if (names.length() > 0) {
+                names.append(", ");
+                values.append(", ");
+            }
+            names.append(column.getColumnName());
+            values.append('?');
+        }
+        return "INSERT INTO " + tableName + " (" + names + ") VALUES (" + values + ")";
+    }
+
+    /**
+     * Acks or fails the tuples of the batch being written if it is done, or after waiting for it if wait is true.
+     * The tuples are only acked or failed from the executor thread.
+     */
+    private void completePendingFlush(boolean wait) {
+        if (pendingFlush == null || (!wait && !pendingFlush.isDone())) {
+            return;
+        }
+        try {
+            pendingFlush.get();
+            for (Tuple tuple : pendingTuples) {
+                collector.ack(tuple);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failPendingTuples(e);
+        } catch (ExecutionException e) {
+            failPendingTuples(e.getCause());
+        } finally {
+            pendingFlush = null;
+            pendingTuples = null;
+        }
+    }
+
+    private void failPendingTuples(Throwable cause) {
+        LOG.error("Failed to write a batch of {} tuples", pendingTuples.size(), cause);
+        collector.reportError(cause);
+        for (Tuple tuple : pendingTuples) {
+            collector.fail(tuple);
+        }
     }
 
     private static synchronized void avoidDeadlockFromHikariCP() {
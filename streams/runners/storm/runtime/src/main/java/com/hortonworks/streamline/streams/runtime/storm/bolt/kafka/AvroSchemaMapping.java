@@ -0,0 +1,112 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts the values of a {@link com.hortonworks.streamline.streams.StreamlineEvent} to the avro values of a
+ * schema. The positions of the fields of the records and the mappings of the nested schemas are resolved once per
+ * schema, the mappings of the nested schemas are created on first use so that recursive schemas are supported.
+ */
+final class AvroSchemaMapping {
+    private final Schema schema;
+    // RECORD schemas
+    private final Map<String, Integer> fieldPositions;
+    private final AvroSchemaMapping[] fieldMappings;
+    // ARRAY schemas
+    private AvroSchemaMapping elementMapping;
+
+    AvroSchemaMapping(Schema schema) {
+        this.schema = schema;
+        if (schema.getType() == Schema.Type.RECORD) {
+            List<Schema.Field> fields = schema.getFields();
+            fieldPositions = new HashMap<>(fields.size() * 2);
+            for (Schema.Field field : fields) {
+                fieldPositions.put(field.name(), field.pos());
+            }
+            fieldMappings = new AvroSchemaMapping[fields.size()];
+        } else {
+            fieldPositions = null;
+            fieldMappings = null;
+        }
+    }
+
+    Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Converts the fields of an event, or of a nested map, to a record of this schema.
+     */
+    GenericRecord toRecord(Map<String, Object> values) {
+        GenericRecord result = new GenericData.Record(schema);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Integer pos = fieldPositions.get(entry.getKey());
+            if (pos == null) {
+                throw new IllegalArgumentException("Field [" + entry.getKey() + "] is not in schema " + schema.getFullName());
+            }
+            result.put(pos, fieldMapping(pos).toAvroValue(entry.getValue()));
+        }
+        return result;
+    }
+
+    Object toAvroValue(Object input) {
+        if (input instanceof byte[] && Schema.Type.FIXED.equals(schema.getType())) {
+            return new GenericData.Fixed(schema, (byte[]) input);
+        } else if (input instanceof Map && !((Map) input).isEmpty()) {
+            return toRecord((Map<String, Object>) input);
+        } else if (input instanceof Collection && !((Collection) input).isEmpty()) {
+            // for array even though we(Schema in streamline registry) support different types of elements in an array, avro expects an array
+            // schema to have elements of same type. Hence, for now we will restrict array to have elements of same type.
+            AvroSchemaMapping elementMapping = elementMapping();
+            List<Object> values = new ArrayList<>(((Collection) input).size());
+            for (Object value : (Collection) input) {
+                values.add(elementMapping.toAvroValue(value));
+            }
+            return new GenericData.Array<Object>(schema, values);
+        } else {
+            return input;
+        }
+    }
+
+    // races only create the same mapping twice
+    private AvroSchemaMapping fieldMapping(int pos) {
+        AvroSchemaMapping mapping = fieldMappings[pos];
+        if (mapping == null) {
+            mapping = new AvroSchemaMapping(schema.getFields().get(pos).schema());
+            fieldMappings[pos] = mapping;
+        }
+        return mapping;
+    }
+
+    private AvroSchemaMapping elementMapping() {
+        AvroSchemaMapping mapping = elementMapping;
+        if (mapping == null) {
+            mapping = new AvroSchemaMapping(schema.getElementType());
+            elementMapping = mapping;
+        }
+        return mapping;
+    }
+}
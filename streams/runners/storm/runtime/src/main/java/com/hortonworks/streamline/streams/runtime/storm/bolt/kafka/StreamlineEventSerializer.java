@@ -15,14 +15,24 @@
  **/
 package com.hortonworks.streamline.streams.runtime.storm.bolt.kafka;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.hortonworks.registries.schemaregistry.SchemaIdVersion;
+import com.hortonworks.registries.schemaregistry.SchemaMetadataInfo;
 import com.hortonworks.registries.schemaregistry.SchemaVersionInfo;
 import com.hortonworks.registries.schemaregistry.SchemaVersionKey;
 import com.hortonworks.registries.schemaregistry.avro.AvroSchemaProvider;
 import com.hortonworks.registries.schemaregistry.client.SchemaRegistryClient;
 import com.hortonworks.registries.schemaregistry.errors.SchemaNotFoundException;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.kafka.common.serialization.Serializer;
 import com.hortonworks.registries.schemaregistry.SchemaMetadata;
 import com.hortonworks.registries.schemaregistry.serdes.avro.AvroSnapshotSerializer;
@@ -30,19 +40,41 @@ import com.hortonworks.streamline.streams.StreamlineEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Serializes {@link StreamlineEvent}s with the avro writer schema of the topic in the schema registry.
+ * <p>
+ * The writer schemas are cached per topic: they are refreshed in the background every
+ * {@code writer.schema.refresh.interval.ms} (one minute by default), and dropped if they couldn't be refreshed for
+ * {@code writer.schema.expiry.interval.ms} (ten minutes by default). The records are encoded with the encoder and the output buffer of the calling thread, after
+ * the header of the schema version written by the registry serializer.
+ * </p>
+ */
 public class StreamlineEventSerializer implements Serializer<StreamlineEvent> {
     protected static final Logger LOG = LoggerFactory.getLogger(StreamlineEventSerializer.class);
-    private final AvroSnapshotSerializer avroSnapshotSerializer;
+    public static final String WRITER_SCHEMA_VERSION = "writer.schema.version";
+    public static final String WRITER_SCHEMA_REFRESH_INTERVAL_MS = "writer.schema.refresh.interval.ms";
+    public static final String WRITER_SCHEMA_EXPIRY_INTERVAL_MS = "writer.schema.expiry.interval.ms";
+    public static final long DEFAULT_WRITER_SCHEMA_REFRESH_INTERVAL_MS = 60 * 1000;
+    public static final long DEFAULT_WRITER_SCHEMA_EXPIRY_INTERVAL_MS = 10 * 60 * 1000;
+
+    private final RegistrySerializer avroSnapshotSerializer;
+    private final ThreadLocal<EncodingBuffer> encodingBuffers = ThreadLocal.withInitial(EncodingBuffer::new);
     private SchemaRegistryClient schemaRegistryClient;
     private Integer writerSchemaVersion;
+    private ExecutorService refreshExecutor;
+    private LoadingCache<String, WriterSchema> writerSchemas;
 
     public StreamlineEventSerializer () {
-        avroSnapshotSerializer = new AvroSnapshotSerializer();
+        avroSnapshotSerializer = new RegistrySerializer();
     }
 
     @Override
@@ -50,44 +82,85 @@ public class StreamlineEventSerializer implements Serializer<StreamlineEvent> {
         // ignoring the isKey since this class is expected to be used only as a value serializer for now, value being StreamlineEvent
         avroSnapshotSerializer.init(configs);
         schemaRegistryClient = new SchemaRegistryClient(configs);
-        String writerSchemaVersion = (String) configs.get("writer.schema.version");
+        String writerSchemaVersion = (String) configs.get(WRITER_SCHEMA_VERSION);
         if (writerSchemaVersion != null && !writerSchemaVersion.isEmpty()) {
             this.writerSchemaVersion = Integer.parseInt(writerSchemaVersion);
         } else {
             this.writerSchemaVersion = null;
         }
+        long refreshInterval = getLong(configs, WRITER_SCHEMA_REFRESH_INTERVAL_MS, DEFAULT_WRITER_SCHEMA_REFRESH_INTERVAL_MS);
+        long expiryInterval = getLong(configs, WRITER_SCHEMA_EXPIRY_INTERVAL_MS, DEFAULT_WRITER_SCHEMA_EXPIRY_INTERVAL_MS);
+        refreshExecutor = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("writer-schema-refresh-%d").setDaemon(true).build());
+        writerSchemas = CacheBuilder.newBuilder()
+                .refreshAfterWrite(refreshInterval, TimeUnit.MILLISECONDS)
+                .expireAfterWrite(expiryInterval, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.asyncReloading(new CacheLoader<String, WriterSchema>() {
+                    @Override
+                    public WriterSchema load(String topic) throws Exception {
+                        return loadWriterSchema(topic);
+                    }
+
+                    @Override
+                    public ListenableFuture<WriterSchema> reload(String topic, WriterSchema oldValue) throws Exception {
+                        WriterSchema writerSchema = loadWriterSchema(topic);
+                        // keeps the mappings resolved for the current version
+                        return Futures.immediateFuture(writerSchema.isSameVersion(oldValue) ? oldValue : writerSchema);
+                    }
+                }, refreshExecutor));
     }
 
     @Override
     public byte[] serialize(String topic, StreamlineEvent streamlineEvent) {
-        SchemaMetadata schemaMetadata = getSchemaKey(topic, false);
-        SchemaVersionInfo schemaVersionInfo;
-        try {
-            schemaMetadata = schemaRegistryClient.getSchemaMetadataInfo(schemaMetadata.getName()).getSchemaMetadata();
-            if (writerSchemaVersion != null) {
-                schemaVersionInfo = schemaRegistryClient.getSchemaVersionInfo(new SchemaVersionKey(schemaMetadata.getName(), writerSchemaVersion));
-            } else {
-                schemaVersionInfo = schemaRegistryClient.getLatestSchemaVersionInfo(schemaMetadata.getName());
-            }
-        } catch (SchemaNotFoundException e) {
-            LOG.error("Exception occured while getting SchemaVersionInfo for " + schemaMetadata, e);
-            throw new RuntimeException(e);
-        }
+        WriterSchema writerSchema = getWriterSchema(topic);
         if (streamlineEvent == null || streamlineEvent.isEmpty()) {
             return null;
+        } else if (streamlineEvent.containsKey(StreamlineEvent.PRIMITIVE_PAYLOAD_FIELD)) {
+            return avroSnapshotSerializer.serialize(getAvroRecord(streamlineEvent, writerSchema.mapping.getSchema()), writerSchema.schemaIdVersion);
         } else {
-            return avroSnapshotSerializer.serialize(getAvroRecord(streamlineEvent, new Schema.Parser().parse(schemaVersionInfo.getSchemaText())),
-                    schemaMetadata);
+            return writerSchema.serialize(writerSchema.mapping.toRecord(streamlineEvent), encodingBuffers.get());
         }
     }
 
+    private WriterSchema getWriterSchema(String topic) {
+        try {
+            return writerSchemas.get(topic);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOG.error("Exception occured while getting SchemaVersionInfo for " + topic, e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // package level access for testing
+    WriterSchema loadWriterSchema(String topic) throws SchemaNotFoundException {
+        SchemaMetadata schemaMetadata = getSchemaKey(topic, false);
+        SchemaMetadataInfo schemaMetadataInfo = schemaRegistryClient.getSchemaMetadataInfo(schemaMetadata.getName());
+        SchemaVersionInfo schemaVersionInfo;
+        if (writerSchemaVersion != null) {
+            schemaVersionInfo = schemaRegistryClient.getSchemaVersionInfo(new SchemaVersionKey(schemaMetadata.getName(), writerSchemaVersion));
+        } else {
+            schemaVersionInfo = schemaRegistryClient.getLatestSchemaVersionInfo(schemaMetadata.getName());
+        }
+        LOG.debug("Loaded writer schema version {} of topic {}", schemaVersionInfo.getVersion(), topic);
+        return new WriterSchema(schemaMetadataInfo.getId(), schemaVersionInfo.getVersion(),
+                new Schema.Parser().parse(schemaVersionInfo.getSchemaText()));
+    }
+
     private SchemaMetadata getSchemaKey(String topic, boolean isKey) {
         String name = isKey ? topic+":k" : topic;
         return new SchemaMetadata.Builder(name).type(AvroSchemaProvider.TYPE).schemaGroup("kafka").build();
     }
 
+    private static long getLong(Map<String, ?> configs, String name, long defaultValue) {
+        Object value = configs.get(name);
+        return value != null && !value.toString().isEmpty() ? Long.parseLong(value.toString()) : defaultValue;
+    }
+
     @Override
     public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
         try {
             avroSnapshotSerializer.close();
         } catch (Exception e) {
@@ -103,36 +176,56 @@ public class StreamlineEventSerializer implements Serializer<StreamlineEvent> {
             }
             return streamlineEvent.get(StreamlineEvent.PRIMITIVE_PAYLOAD_FIELD);
         }
-        GenericRecord result;
-        result = new GenericData.Record(schema);
-        for (Map.Entry<String, Object> entry: streamlineEvent.entrySet()) {
-            result.put(entry.getKey(), getAvroValue(entry.getValue(), schema.getField(entry.getKey()).schema()));
-        }
-        return result;
+        return new AvroSchemaMapping(schema).toRecord(streamlineEvent);
     }
 
-    private static Object getAvroValue(Object input, Schema schema) {
-        if (input instanceof byte[] && Schema.Type.FIXED.equals(schema.getType())) {
-            return new GenericData.Fixed(schema, (byte[]) input);
-        } else if (input instanceof Map && !((Map) input).isEmpty()) {
-            GenericRecord result;
-            result = new GenericData.Record(schema);
-            for (Map.Entry<String, Object> entry: ((Map<String, Object>) input).entrySet()) {
-                result.put(entry.getKey(), getAvroValue(entry.getValue(), schema.getField(entry.getKey()).schema()));
-            }
-            return result;
-        } else if (input instanceof Collection && !((Collection) input).isEmpty()) {
-            // for array even though we(Schema in streamline registry) support different types of elements in an array, avro expects an array
-            // schema to have elements of same type. Hence, for now we will restrict array to have elements of same type. Other option is convert
-            // a  streamline Schema Array field to Record in avro. However, with that the issue is that avro Field constructor does not allow a
-            // null name. We could potentiall hack it by plugging in a dummy name like arrayfield, but seems hacky so not taking that path
-            List<Object> values = new ArrayList<>(((Collection) input).size());
-            for (Object value: (Collection) input) {
-                values.add(getAvroValue(value, schema.getElementType()));
+    /**
+     * A writer schema of a topic, with the header written before the records.
+     */
+    final class WriterSchema {
+        private final Long schemaMetadataId;
+        private final Integer version;
+        private final SchemaIdVersion schemaIdVersion;
+        private final AvroSchemaMapping mapping;
+        private final GenericDatumWriter<Object> datumWriter;
+        private final byte[] header;
+
+        WriterSchema(Long schemaMetadataId, Integer version, Schema schema) {
+            this.schemaMetadataId = schemaMetadataId;
+            this.version = version;
+            this.schemaIdVersion = new SchemaIdVersion(schemaMetadataId, version);
+            this.mapping = new AvroSchemaMapping(schema);
+            this.datumWriter = new GenericDatumWriter<>(schema);
+            // the registry serializer writes byte arrays as is after the header of the schema version
+            this.header = avroSnapshotSerializer.serialize(new byte[0], schemaIdVersion);
+        }
+
+        boolean isSameVersion(WriterSchema other) {
+            return other != null && Objects.equals(schemaMetadataId, other.schemaMetadataId) && Objects.equals(version, other.version);
+        }
+
+        byte[] serialize(Object record, EncodingBuffer buffer) {
+            buffer.output.reset();
+            buffer.output.write(header, 0, header.length);
+            buffer.encoder = EncoderFactory.get().binaryEncoder(buffer.output, buffer.encoder);
+            try {
+                datumWriter.write(record, buffer.encoder);
+                buffer.encoder.flush();
+            } catch (IOException e) {
+                throw new RuntimeException("Could not serialize record " + record, e);
             }
-            return new GenericData.Array<Object>(schema, values);
-        } else {
-            return input;
+            return buffer.output.toByteArray();
+        }
+    }
+
+    private static final class EncodingBuffer {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+        private BinaryEncoder encoder;
+    }
+
+    private static final class RegistrySerializer extends AvroSnapshotSerializer {
+        byte[] serialize(Object input, SchemaIdVersion schemaIdVersion) {
+            return doSerialize(input, schemaIdVersion);
         }
     }
 }
@@ -61,7 +61,12 @@ public class NormalizationBolt extends AbstractProcessorBolt {
             throw new RuntimeException("normalizationProcessor cannot be null");
         }
         normalizationProcessorRuntime = new NormalizationProcessorRuntime(normalizationProcessor);
-        normalizationProcessorRuntime.initialize(Collections.<String, Object>emptyMap());
+        Map<String, Object> config = Collections.emptyMap();
+        if (stormConf != null) {
+            config = Collections.singletonMap(NormalizationProcessorRuntime.COMPILED_BULK_SCRIPTS,
+                    stormConf.get(NormalizationProcessorRuntime.COMPILED_BULK_SCRIPTS));
+        }
+        normalizationProcessorRuntime.initialize(config);
     }
 
     public void process(Tuple inputTuple, StreamlineEvent event) throws Exception {
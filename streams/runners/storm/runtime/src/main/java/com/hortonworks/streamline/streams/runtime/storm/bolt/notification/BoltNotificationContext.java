@@ -28,7 +28,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Notification context implementation specific to Bolt that tracks and acks or fails
- * the tuple.
+ * the tuple. The notification service acks the notification only once it is durable in
+ * the notification store, so that the tuple is not acked before it has been stored.
  */
 public class BoltNotificationContext extends DefaultNotificationContext {
     private final OutputCollector collector;
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hortonworks.streamline.streams.runtime.storm.state.LocalKeyValueState;
+import com.hortonworks.streamline.streams.runtime.storm.state.LocalKeyValueStateProvider;
+import org.apache.storm.Config;
+import org.apache.storm.state.KeyValueState;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.base.BaseStatefulBolt;
+import org.apache.storm.tuple.Tuple;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Makes the retention windows of a {@link RealtimeJoinBolt} recoverable with the checkpoints of the Storm stateful
+ * bolts: the buffered tuples are mirrored in a {@link KeyValueState} and restored when the worker restarts or the
+ * topology rolls back to the last committed checkpoint.
+ * <p>
+ * Each checkpoint only writes the tuples added, matched or expired since the previous one, use a state provider that
+ * persists the changes of a commit incrementally, like the
+ * {@link com.hortonworks.streamline.streams.runtime.storm.state.LocalKeyValueStateProvider}.
+ * The acks of the buffered tuples are deferred until the checkpoint holding them is committed. The retention windows
+ * are kept on the heap, whatever join buffer the wrapped bolt is configured with.
+ * </p>
+ *
+ *    builder.setBolt("joiner", new CheckpointedJoinBolt(new RealtimeJoinBolt(StreamKind.STREAM)
+ *            .from("purchases", 1000, false)
+ *            .innerJoin("ads", 1000, false, Cmp.equal("ads:userId", "purchases:userId"))
+ *            .select("purchases:id, ads:product")), 2)
+ */
+public class CheckpointedJoinBolt extends BaseStatefulBolt<KeyValueState<String, StatefulJoinBuffer.BufferedTuple>> {
+    private final RealtimeJoinBolt joinBolt;
+    private String stateProviderConfig;
+
+    private Map stormConf;
+    private TopologyContext context;
+    private KeyValueState<String, StatefulJoinBuffer.BufferedTuple> state;
+    private boolean rolledBack = false;
+
+    public CheckpointedJoinBolt(RealtimeJoinBolt joinBolt) {
+        this.joinBolt = joinBolt;
+    }
+
+    /**
+     * Keeps the state of this bolt in {@link LocalKeyValueState}s stored in the state directory of storm.local.dir,
+     * whatever state provider the topology is configured with.
+     * @return
+     */
+    public CheckpointedJoinBolt withLocalState() {
+        stateProviderConfig = "";
+        return this;
+    }
+
+    /**
+     * Keeps the state of this bolt in {@link LocalKeyValueState}s stored in a local directory, whatever state provider
+     * the topology is configured with. The states are local to the host, they are not restored when the task is
+     * rescheduled on another supervisor unless the directory is shared by the supervisors.
+     * @param directory  local directory of the states
+     * @return
+     */
+    public CheckpointedJoinBolt withLocalState(String directory) {
+        try {
+            stateProviderConfig = new ObjectMapper().writeValueAsString(
+                    Collections.singletonMap(LocalKeyValueStateProvider.DIRECTORY, directory));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid state directory " + directory, e);
+        }
+        return this;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        this.stormConf = stormConf;
+        this.context = context;
+        joinBolt.prepare(stormConf, context, collector);
+    }
+
+    @Override
+    public void initState(KeyValueState<String, StatefulJoinBuffer.BufferedTuple> state) {
+        this.state = state;
+        joinBolt.initState(state, stormConf, context);
+        rolledBack = false;
+    }
+
+    @Override
+    public void preRollback() {
+        // the state is rolled back after this call, the buffers are restored from it before the next tuple
+        rolledBack = true;
+    }
+
+    @Override
+    public void execute(Tuple tuple) {
+        if (rolledBack) {
+            joinBolt.initState(state, stormConf, context);
+            rolledBack = false;
+        }
+        joinBolt.execute(tuple);
+    }
+
+    @Override
+    public void cleanup() {
+        joinBolt.cleanup();
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        joinBolt.declareOutputFields(declarer);
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        Map<String, Object> conf = joinBolt.getComponentConfiguration();
+        if (stateProviderConfig != null) {
+            conf.put(Config.TOPOLOGY_STATE_PROVIDER, LocalKeyValueStateProvider.class.getName());
+            conf.put(Config.TOPOLOGY_STATE_PROVIDER_CONFIG, stateProviderConfig);
+        }
+        return conf;
+    }
+}
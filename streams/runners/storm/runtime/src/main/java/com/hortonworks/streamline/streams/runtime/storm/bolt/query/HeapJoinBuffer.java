@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import com.google.common.collect.LinkedListMultimap;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tuples on the heap, in a linked multimap whose entries are in insertion order. This is the default
+ * buffer of the {@link RealtimeJoinBolt}.
+ */
+public class HeapJoinBuffer implements JoinBuffer {
+    public static final JoinBufferFactory FACTORY = new Factory();
+
+    private final LinkedListMultimap<JoinKey, TupleInfo> buffer;
+
+    public HeapJoinBuffer(int estimatedSize) {
+        this.buffer = LinkedListMultimap.create(estimatedSize);
+    }
+
+    @Override
+    public boolean isAnchoring() {
+        return true;
+    }
+
+    @Override
+    public void add(JoinKey key, Tuple tuple, boolean matched, long insertionTime) {
+        buffer.put(key, new TupleInfo(tuple, matched, insertionTime));
+    }
+
+    @Override
+    public List<TupleInfo> match(JoinKey key) {
+        List<TupleInfo> matches = buffer.get(key);
+        for (TupleInfo tupleInfo : matches) {
+            tupleInfo.matched = true;
+        }
+        return matches;
+    }
+
+    @Override
+    public TupleInfo removeAll(JoinKey key) {
+        List<TupleInfo> removed = buffer.removeAll(key);
+        return removed.isEmpty() ? null : removed.get(0);
+    }
+
+    @Override
+    public long oldestInsertionTime() {
+        return buffer.isEmpty() ? Long.MAX_VALUE : buffer.entries().iterator().next().getValue().insertionTime;
+    }
+
+    @Override
+    public TupleInfo removeOldest() {
+        if (buffer.isEmpty())
+            return null;
+        Iterator<Map.Entry<JoinKey, TupleInfo>> entries = buffer.entries().iterator();
+        TupleInfo oldest = entries.next().getValue();
+        entries.remove();
+        return oldest;
+    }
+
+    @Override
+    public int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public void close() {
+        buffer.clear();
+    }
+
+    private static class Factory implements JoinBufferFactory {
+        @Override
+        public JoinBuffer create(Map stormConf, TopologyContext context, int estimatedSize) {
+            return new HeapJoinBuffer(estimatedSize);
+        }
+    }
+}
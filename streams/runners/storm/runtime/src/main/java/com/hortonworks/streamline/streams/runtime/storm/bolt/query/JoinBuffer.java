@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import org.apache.storm.tuple.Tuple;
+
+import java.util.List;
+
+/**
+ * The retention window of one of the streams joined by a {@link RealtimeJoinBolt}: the tuples waiting for their
+ * matches, indexed by join key and ordered by insertion time so that the oldest one can be expired in constant time.
+ * <p>
+ * An anchoring buffer keeps the tuples themselves, they are acked when they leave the buffer and the join results
+ * are anchored to them. A non anchoring buffer stores a copy of the tuples (off heap for instance), so the bolt acks
+ * the tuples as soon as they are buffered. The tuples of the entries it returns are copies, the tuple of a matched
+ * entry returned by {@link #removeOldest()} can be null as it's neither emitted nor acked.
+ * </p>
+ * Buffers are used by the executor thread of the bolt only.
+ */
+public interface JoinBuffer {
+
+    /**
+     * Whether the buffered tuples are kept until they leave the buffer.
+     */
+    boolean isAnchoring();
+
+    /**
+     * Adds a tuple, as the newest entry of the buffer.
+     */
+    void add(JoinKey key, Tuple tuple, boolean matched, long insertionTime);
+
+    /**
+     * Flags the entries with this key as matched and returns them in insertion order, empty if there's no match.
+     */
+    List<TupleInfo> match(JoinKey key);
+
+    /**
+     * Removes the entries with this key, returns the oldest one or null if there was none.
+     */
+    TupleInfo removeAll(JoinKey key);
+
+    /**
+     * The insertion time of the oldest entry, {@link Long#MAX_VALUE} if the buffer is empty.
+     */
+    long oldestInsertionTime();
+
+    /**
+     * Removes the oldest entry, returns null if the buffer is empty.
+     */
+    TupleInfo removeOldest();
+
+    int size();
+
+    /**
+     * Releases the resources of the buffer.
+     */
+    void close();
+}
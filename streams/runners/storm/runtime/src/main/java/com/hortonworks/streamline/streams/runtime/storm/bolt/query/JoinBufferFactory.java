@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import org.apache.storm.task.TopologyContext;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Creates the {@link JoinBuffer}s of a {@link RealtimeJoinBolt} when it's prepared.
+ */
+public interface JoinBufferFactory extends Serializable {
+
+    /**
+     * @param stormConf     the configuration of the topology, can be null in tests
+     * @param context       the context of the bolt, can be null in tests
+     * @param estimatedSize the expected number of retained tuples
+     */
+    JoinBuffer create(Map stormConf, TopologyContext context, int estimatedSize);
+}
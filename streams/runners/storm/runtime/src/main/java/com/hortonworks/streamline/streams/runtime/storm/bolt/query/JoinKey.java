@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary composite key of a tuple in the join buffers. Each part is stored as the UTF-8 bytes of its string form
+ * prefixed by their length, so two keys are equal when their parts have equal string forms.
+ */
+public final class JoinKey {
+    private final byte[] bytes;
+    private final int hash;
+
+    JoinKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * The encoded key, must not be modified.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        JoinKey that = (JoinKey) o;
+        return hash == that.hash && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        int pos = 0;
+        while (pos < bytes.length) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[pos++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (result.length() > 0)
+                result.append('.');
+            result.append(new String(bytes, pos, length, StandardCharsets.UTF_8));
+            pos += length;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Encodes the parts of the keys in a reusable buffer, the bolt builds one key at a time.
+     */
+    static final class Builder {
+        private byte[] buffer = new byte[64];
+        private int size = 0;
+
+        Builder reset() {
+            size = 0;
+            return this;
+        }
+
+        Builder add(Object part) {
+            byte[] encoded = part.toString().getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(size + 5 + encoded.length);
+            int length = encoded.length;
+            while ((length & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            buffer[size++] = (byte) length;
+            System.arraycopy(encoded, 0, buffer, size, encoded.length);
+            size += encoded.length;
+            return this;
+        }
+
+        JoinKey build() {
+            return new JoinKey(Arrays.copyOf(buffer, size));
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
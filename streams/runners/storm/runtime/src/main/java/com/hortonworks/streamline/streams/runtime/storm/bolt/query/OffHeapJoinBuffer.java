@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import org.apache.storm.serialization.KryoValuesDeserializer;
+import org.apache.storm.serialization.KryoValuesSerializer;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tuples out of the heap, serialized with the kryo serializers of the topology in a log of fixed size
+ * segments, either direct byte buffers or memory mapped files of a local spill directory (whose pages the OS writes
+ * to disk under memory pressure).
+ * <p>
+ * The records are appended in insertion order, so expiring the oldest one just moves the head of the log and the
+ * segments behind the head are recycled. The records with the same key are chained from the newest to the oldest,
+ * the heap only holds one chain per distinct key. Removed records are flagged and skipped when the head reaches them.
+ * </p>
+ * <p>
+ * This buffer is not anchoring: the tuples read back are copies, without message id, built with the context of the
+ * bolt. It suits long retentions which would otherwise require a message timeout longer than the retention.
+ * </p>
+ */
+public class OffHeapJoinBuffer implements JoinBuffer {
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapJoinBuffer.class);
+
+    // layout of a record, followed by the key and the serialized values
+    private static final int LENGTH = 0;       // int, 0 pads the end of a segment
+    private static final int PREVIOUS = 4;     // long, address of the previous record with the same key
+    private static final int TIME = 12;        // long, insertion time
+    private static final int FLAGS = 20;       // byte
+    private static final int SOURCE_TASK = 21; // int
+    private static final int STREAM = 25;      // int, index in streamIds
+    private static final int KEY_LENGTH = 29;  // int
+    private static final int HEADER_SIZE = 33;
+
+    private static final byte MATCHED = 1;
+    private static final byte REMOVED = 2;
+    private static final int MAX_FREE_SEGMENTS = 2;
+
+    private final int segmentSize;
+    private final File spillDirectory;   // null for direct buffers
+    private final GeneralTopologyContext context;
+    private final KryoValuesSerializer serializer;
+    private final KryoValuesDeserializer deserializer;
+
+    // segments.get(i) holds the addresses [(firstSegment + i) * segmentSize, (firstSegment + i + 1) * segmentSize)
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final Deque<ByteBuffer> freeSegments = new ArrayDeque<>();
+    private long firstSegment = 0;
+    private long head = 0;   // address of the oldest record
+    private long tail = 0;   // address of the next record
+    private int size = 0;
+
+    private final Map<JoinKey, Chain> chains = new HashMap<>();
+    private final List<String> streamIds = new ArrayList<>();
+    private final Map<String, Integer> streamIndexes = new HashMap<>();
+
+    /**
+     * @param segmentSize    the size of the segments in bytes, a serialized tuple must fit in a segment
+     * @param spillDirectory the directory of the memory mapped segments, null to use direct buffers
+     * @param stormConf      the configuration of the kryo serializers
+     * @param context        the context of the tuples read from the buffer
+     */
+    public OffHeapJoinBuffer(int segmentSize, File spillDirectory, Map stormConf, GeneralTopologyContext context) {
+        if (segmentSize <= HEADER_SIZE)
+            throw new IllegalArgumentException("Segment size must be greater than " + HEADER_SIZE + " bytes");
+        this.segmentSize = segmentSize;
+        this.spillDirectory = spillDirectory;
+        this.context = context;
+        this.serializer = new KryoValuesSerializer(stormConf);
+        this.deserializer = new KryoValuesDeserializer(stormConf);
+    }
+
+    @Override
+    public boolean isAnchoring() {
+        return false;
+    }
+
+    @Override
+    public void add(JoinKey key, Tuple tuple, boolean matched, long insertionTime) {
+        byte[] values;
+        try {
+            values = serializer.serialize(tuple.getValues());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not serialize tuple " + tuple, e);
+        }
+        byte[] keyBytes = key.getBytes();
+        int length = HEADER_SIZE + keyBytes.length + values.length;
+        if (length > segmentSize)
+            throw new IllegalArgumentException("Tuple of " + length + " bytes doesn't fit in join buffer segments of "
+                    + segmentSize + " bytes");
+
+        int offset = offset(tail);
+        if (offset + length > segmentSize) {
+            if (offset + HEADER_SIZE <= segmentSize)
+                segment(tail).putInt(offset + LENGTH, 0);
+            tail += segmentSize - offset;
+            offset = 0;
+        }
+        while (tail / segmentSize >= firstSegment + segments.size()) {
+            segments.add(allocateSegment());
+        }
+
+        Chain chain = chains.get(key);
+        if (chain == null) {
+            chain = new Chain();
+            chains.put(key, chain);
+        }
+        ByteBuffer segment = segment(tail);
+        segment.putInt(offset + LENGTH, length);
+        segment.putLong(offset + PREVIOUS, chain.newest);
+        segment.putLong(offset + TIME, insertionTime);
+        segment.put(offset + FLAGS, matched ? MATCHED : 0);
+        segment.putInt(offset + SOURCE_TASK, tuple.getSourceTask());
+        segment.putInt(offset + STREAM, streamIndex(tuple.getSourceStreamId()));
+        segment.putInt(offset + KEY_LENGTH, keyBytes.length);
+        segment.position(offset + HEADER_SIZE);
+        segment.put(keyBytes);
+        segment.put(values);
+
+        chain.newest = tail;
+        chain.count++;
+        tail += length;
+        size++;
+    }
+
+    @Override
+    public List<TupleInfo> match(JoinKey key) {
+        Chain chain = chains.get(key);
+        if (chain == null)
+            return Collections.emptyList();
+        List<TupleInfo> matches = new ArrayList<>(chain.count);
+        long address = chain.newest;
+        for (int i = 0; i < chain.count; i++) {
+            ByteBuffer segment = segment(address);
+            int offset = offset(address);
+            segment.put(offset + FLAGS, (byte) (segment.get(offset + FLAGS) | MATCHED));
+            matches.add(new TupleInfo(readTuple(segment, offset), true, segment.getLong(offset + TIME)));
+            address = segment.getLong(offset + PREVIOUS);
+        }
+        Collections.reverse(matches);
+        return matches;
+    }
+
+    @Override
+    public TupleInfo removeAll(JoinKey key) {
+        Chain chain = chains.remove(key);
+        if (chain == null)
+            return null;
+        long address = chain.newest;
+        long oldest = address;
+        for (int i = 0; i < chain.count; i++) {
+            ByteBuffer segment = segment(address);
+            int offset = offset(address);
+            segment.put(offset + FLAGS, (byte) (segment.get(offset + FLAGS) | REMOVED));
+            oldest = address;
+            address = segment.getLong(offset + PREVIOUS);
+        }
+        size -= chain.count;
+        ByteBuffer segment = segment(oldest);
+        int offset = offset(oldest);
+        return new TupleInfo(readTuple(segment, offset), (segment.get(offset + FLAGS) & MATCHED) != 0,
+                segment.getLong(offset + TIME));
+    }
+
+    @Override
+    public long oldestInsertionTime() {
+        skipRemovedRecords();
+        return head == tail ? Long.MAX_VALUE : segment(head).getLong(offset(head) + TIME);
+    }
+
+    @Override
+    public TupleInfo removeOldest() {
+        skipRemovedRecords();
+        if (head == tail)
+            return null;
+        ByteBuffer segment = segment(head);
+        int offset = offset(head);
+        boolean matched = (segment.get(offset + FLAGS) & MATCHED) != 0;
+        TupleInfo oldest = new TupleInfo(matched ? null : readTuple(segment, offset), matched,
+                segment.getLong(offset + TIME));
+
+        byte[] key = new byte[segment.getInt(offset + KEY_LENGTH)];
+        segment.position(offset + HEADER_SIZE);
+        segment.get(key);
+        JoinKey joinKey = new JoinKey(key);
+        Chain chain = chains.get(joinKey);
+        if (--chain.count == 0)
+            chains.remove(joinKey);
+        size--;
+        moveHead(head + segment.getInt(offset + LENGTH));
+        return oldest;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        chains.clear();
+        segments.clear();
+        freeSegments.clear();
+        head = tail = firstSegment * segmentSize;
+        size = 0;
+    }
+
+    private void skipRemovedRecords() {
+        while (head < tail) {
+            ByteBuffer segment = segment(head);
+            int offset = offset(head);
+            if (offset + HEADER_SIZE > segmentSize || segment.getInt(offset + LENGTH) == 0) {
+                moveHead(head + segmentSize - offset);
+            } else if ((segment.get(offset + FLAGS) & REMOVED) != 0) {
+                moveHead(head + segment.getInt(offset + LENGTH));
+            } else {
+                return;
+            }
+        }
+    }
+
+    // recycles the segments behind the new head
+    private void moveHead(long address) {
+        head = address;
+        while (firstSegment < head / segmentSize) {
+            if (!segments.isEmpty()) {
+                ByteBuffer segment = segments.remove(0);
+                if (freeSegments.size() < MAX_FREE_SEGMENTS)
+                    freeSegments.push(segment);
+            }
+            firstSegment++;
+        }
+    }
+
+    private Tuple readTuple(ByteBuffer segment, int offset) {
+        int keyLength = segment.getInt(offset + KEY_LENGTH);
+        byte[] values = new byte[segment.getInt(offset + LENGTH) - HEADER_SIZE - keyLength];
+        segment.position(offset + HEADER_SIZE + keyLength);
+        segment.get(values);
+        try {
+            return new TupleImpl(context, deserializer.deserialize(values), segment.getInt(offset + SOURCE_TASK),
+                    streamIds.get(segment.getInt(offset + STREAM)));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not deserialize buffered tuple", e);
+        }
+    }
+
+    private int streamIndex(String streamId) {
+        Integer index = streamIndexes.get(streamId);
+        if (index == null) {
+            index = streamIds.size();
+            streamIds.add(streamId);
+            streamIndexes.put(streamId, index);
+        }
+        return index;
+    }
+
+    private ByteBuffer segment(long address) {
+        return segments.get((int) (address / segmentSize - firstSegment));
+    }
+
+    private int offset(long address) {
+        return (int) (address % segmentSize);
+    }
+
+    private ByteBuffer allocateSegment() {
+        if (!freeSegments.isEmpty())
+            return freeSegments.pop();
+        if (spillDirectory == null)
+            return ByteBuffer.allocateDirect(segmentSize);
+        try {
+            File file = File.createTempFile("join-buffer-", ".segment", spillDirectory);
+            try (RandomAccessFile segmentFile = new RandomAccessFile(file, "rw")) {
+                // the mapping remains valid once the file is closed and deleted
+                return segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            } finally {
+                if (!file.delete())
+                    file.deleteOnExit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create join buffer segment in " + spillDirectory, e);
+        }
+    }
+
+    // the records with the same key, the older records are reached with their PREVIOUS address
+    private static final class Chain {
+        long newest = -1;
+        int count = 0;
+    }
+
+    /**
+     * Creates off heap buffers with segments of segmentSize bytes, memory mapped in spillDirectory if not null.
+     */
+    public static class Factory implements JoinBufferFactory {
+        private final int segmentSize;
+        private final String spillDirectory;
+
+        public Factory(int segmentSize, String spillDirectory) {
+            this.segmentSize = segmentSize;
+            this.spillDirectory = spillDirectory;
+        }
+
+        @Override
+        public JoinBuffer create(Map stormConf, TopologyContext context, int estimatedSize) {
+            File directory = null;
+            if (spillDirectory != null) {
+                directory = new File(spillDirectory);
+                if (!directory.isDirectory() && !directory.mkdirs())
+                    throw new IllegalArgumentException("Could not create join buffer directory " + spillDirectory);
+            }
+            LOG.info("Creating off heap join buffer with segments of {} bytes in {}", segmentSize,
+                    directory != null ? directory : "direct memory");
+            return new OffHeapJoinBuffer(segmentSize, directory, stormConf != null ? stormConf : Utils.readDefaultConfig(),
+                    context);
+        }
+    }
+}
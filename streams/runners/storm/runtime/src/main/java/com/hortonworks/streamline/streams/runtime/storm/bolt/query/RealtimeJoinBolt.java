@@ -19,8 +19,8 @@
 package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.LinkedListMultimap;
 import org.apache.storm.Config;
+import org.apache.storm.state.KeyValueState;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -46,6 +46,8 @@ enum JoinType {INNER, LEFT, RIGHT, OUTER}
  *    - Inner/left/right/outer joins are supported.
  *    - Supports multikey joins
  *    - Custom join comparators can be provided
+ *    - The retention windows can be kept off heap (see withOffHeapBuffer() and withSpillingBuffer()), the tuples are then
+ *      acked as soon as they are buffered, which has to be accepted with withAckOnBuffer()
  *
  ****  Examples: ****
  *
@@ -83,6 +85,10 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
     private String fromStream = null;  // first stream
     private String joinStream = null;  // second stream being joined to first
 
+    private JoinBufferFactory bufferFactory = HeapJoinBuffer.FACTORY;
+    private boolean ackOnBuffer = false;
+    private JoinKey.Builder keyBuilder;
+
     public enum StreamKind {
         STREAM(0), SOURCE(1);
         int value;
@@ -125,6 +131,29 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
     @Override
     public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
         this.collector = collector;
+        this.keyBuilder = new JoinKey.Builder();
+        for (JoinInfo joinInfo : joinInfos) {
+            joinInfo.prepare(bufferFactory, stormConf, context);
+            if (!joinInfo.buffer.isAnchoring() && !ackOnBuffer)
+                throw new IllegalStateException("The join buffers of " + bufferFactory.getClass().getName()
+                        + " ack the tuples as soon as they are buffered, the retained tuples are lost if the worker dies."
+                        + " Call withAckOnBuffer() to accept it");
+        }
+    }
+
+    // Replaces the buffers with buffers mirrored in the state, holding the tuples of its last commit. See CheckpointedJoinBolt
+    void initState(KeyValueState<String, StatefulJoinBuffer.BufferedTuple> state, Map stormConf, TopologyContext context) {
+        for (int i = 0; i < joinInfos.length; i++) {
+            joinInfos[i].initState(i + ":", state, stormConf, context);
+        }
+    }
+
+    @Override
+    public void cleanup() {
+        for (JoinInfo joinInfo : joinInfos) {
+            if (joinInfo.buffer!=null)
+                joinInfo.buffer.close();
+        }
     }
 
     @Override
@@ -303,6 +332,55 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         return this;
     }
 
+    /**
+     * Keeps the retained tuples in the buffers created by this factory. They are kept on the heap by default.
+     * @param bufferFactory
+     * @return
+     */
+    public RealtimeJoinBolt withJoinBuffer(JoinBufferFactory bufferFactory) {
+        this.bufferFactory = bufferFactory;
+        return this;
+    }
+
+    /**
+     * Acks the tuples as soon as they are buffered, instead of once they leave the retention window. Required by the
+     * buffers that don't keep the tuples, like the off heap buffers: the join results are then anchored to the incoming
+     * tuples only and the retained tuples are lost if the worker dies.
+     * @return
+     */
+    public RealtimeJoinBolt withAckOnBuffer() {
+        this.ackOnBuffer = true;
+        return this;
+    }
+
+    /**
+     * Keeps the retained tuples serialized in direct memory segments. The tuples are acked as soon as they are buffered,
+     * the join results are anchored to the incoming tuples only, see {@link #withAckOnBuffer()}.
+     * @param segmentSizeMb  size of the segments, a serialized tuple must fit in a segment
+     * @return
+     */
+    public RealtimeJoinBolt withOffHeapBuffer(int segmentSizeMb) {
+        return withJoinBuffer(new OffHeapJoinBuffer.Factory(toBytes(segmentSizeMb), null));
+    }
+
+    /**
+     * Keeps the retained tuples serialized in memory mapped files of a local directory, which can grow beyond the memory
+     * of the worker. The tuples are acked as soon as they are buffered, the join results are anchored to the incoming
+     * tuples only, see {@link #withAckOnBuffer()}.
+     * @param directory      local directory of the segment files
+     * @param segmentSizeMb  size of the segments, a serialized tuple must fit in a segment
+     * @return
+     */
+    public RealtimeJoinBolt withSpillingBuffer(String directory, int segmentSizeMb) {
+        return withJoinBuffer(new OffHeapJoinBuffer.Factory(toBytes(segmentSizeMb), directory));
+    }
+
+    private static int toBytes(int segmentSizeMb) {
+        if (segmentSizeMb<=0 || segmentSizeMb>=2048)
+            throw new IllegalArgumentException("Segment size must be between 1 and 2047 MB");
+        return segmentSizeMb * 1024 * 1024;
+    }
+
     @VisibleForTesting
     public String[] getOutputFields() {
         String[] result = new String[outputFields.length];
@@ -338,7 +416,7 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
 
 
     private void processFromStreamTuple(Tuple tuple, long currTime) throws InvalidTuple {
-        String key = getFromStreamKey(tuple);
+        JoinKey key = getFromStreamKey(tuple);
 
         // 1- Remove older duplicate if 'unique' flag was set
         TupleInfo duplicate = null;
@@ -350,9 +428,8 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         boolean matchFound = false;
         if(duplicate==null) {
             List<TupleInfo> matches = joinInfos[1].findMatches(key); // match with joinStream
-            if (matches != null && !matches.isEmpty()) {  // match found
+            if (!matches.isEmpty()) {  // match found
                 for (TupleInfo tupleInfo : matches) {
-                    tupleInfo.matched = true;
                     List<Object> outputTuple = doProjection(tupleInfo.tuple, tuple);
                     emit(outputTuple, tuple, tupleInfo.tuple);
                 }
@@ -365,16 +442,18 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         // 3- Add to retention buffer
         Tuple expired = joinInfos[0].addTuple(key, tuple, matchFound, currTime); // emits unmatched expiring tuples depending on join type
 
-        // 4- ACK any expired tuples
+        // 4- ACK any expired tuples, or this tuple if the buffer doesn't keep it
         if (expired!=null)
             collector.ack(expired);
-        if (duplicate!=null)
+        if (duplicate!=null && joinInfos[0].buffer.isAnchoring())
             collector.ack(duplicate.tuple);
+        if (!joinInfos[0].buffer.isAnchoring())
+            collector.ack(tuple);
 
     }
 
     private void processJoinStreamTuple(Tuple tuple, long currTime) throws InvalidTuple {
-        String key = getJoinStreamKey(tuple);
+        JoinKey key = getJoinStreamKey(tuple);
 
         // 1- Remove older duplicate if 'unique' flag was set
         TupleInfo duplicate = null;
@@ -386,9 +465,8 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         boolean matchFound = false;
         if(duplicate==null) {
             List<TupleInfo> matches = joinInfos[0].findMatches(key); // match with fromStream
-            if (matches != null && !matches.isEmpty()) {  // match found
+            if (!matches.isEmpty()) {  // match found
                 for (TupleInfo tupleInfo : matches) {
-                    tupleInfo.matched = true;
                     List<Object> outputTuple = doProjection(tupleInfo.tuple, tuple);
                     emit(outputTuple, tuple, tupleInfo.tuple);
                 }
@@ -401,11 +479,13 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         // 3- Add to retention buffer
         Tuple expired = joinInfos[1].addTuple(key, tuple, matchFound, currTime); // emits unmatched expiring tuples depending on join type
 
-        // 4- ACK any expired tuples
+        // 4- ACK any expired tuples, or this tuple if the buffer doesn't keep it
         if (expired!=null)
             collector.ack(expired);
-        if (duplicate!=null)
+        if (duplicate!=null && joinInfos[1].buffer.isAnchoring())
             collector.ack(duplicate.tuple);
+        if (!joinInfos[1].buffer.isAnchoring())
+            collector.ack(tuple);
     }
 
 
@@ -415,17 +495,16 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
      * @return
      * @throws InvalidTuple
      */
-    private String getFromStreamKey(Tuple tuple) throws InvalidTuple {
-        StringBuilder key = new StringBuilder();
+    private JoinKey getFromStreamKey(Tuple tuple) throws InvalidTuple {
+        keyBuilder.reset();
         for (JoinComparator cmp : joinInfos[1].comparators) { // info always comes from the join stream as from stream doesnt have
             FieldSelector field = cmp.getFieldForFromStream();
             Object partialKey = field.findField(tuple);
             if (partialKey==null)
                 throw new InvalidTuple("'" + field + "' field is missing in the tuple", tuple);
-            key.append( partialKey.toString() );
-            key.append(".");
+            keyBuilder.add(partialKey);
         }
-        return key.toString();
+        return keyBuilder.build();
     }
 
 
@@ -435,17 +514,16 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
      * @return
      * @throws InvalidTuple
      */
-    private String getJoinStreamKey(Tuple tuple) throws InvalidTuple {
-        StringBuilder key = new StringBuilder();
+    private JoinKey getJoinStreamKey(Tuple tuple) throws InvalidTuple {
+        keyBuilder.reset();
         for (JoinComparator cmp : joinInfos[1].comparators) { // info always comes from the join stream as from stream doesnt have
             FieldSelector field = cmp.getFieldForJoinStream();
             Object partialKey = field.findField(tuple);
             if (partialKey==null)
                 throw new InvalidTuple("'" + field + "' field is missing in the tuple", tuple);
-            key.append( partialKey.toString() );
-            key.append(".");
+            keyBuilder.add(partialKey);
         }
-        return key.toString();
+        return keyBuilder.build();
     }
 
     private void emit(List<Object> outputTuple, Tuple anchor) {
@@ -497,7 +575,7 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
         final JoinComparator[] comparators;   // null for first stream defined via from()
         boolean emitUnmatchedTuples = false;
 
-        final LinkedListMultimap<String, TupleInfo> buffer;   // retention window. A [key->tuple] map.
+        JoinBuffer buffer;   // retention window, created in prepare()
 
         public JoinInfo(JoinType joinType, Long retentionTimeMs, Integer retentionCount, Boolean unique, JoinComparator... comparators) {
             if (retentionCount!=null && retentionTimeMs!=null)
@@ -507,71 +585,57 @@ public class RealtimeJoinBolt extends BaseRichBolt  {
             this.retentionCount = retentionCount;
             this.unique = unique;
             this.comparators = comparators;
+        }
+
+        void prepare(JoinBufferFactory bufferFactory, Map stormConf, TopologyContext context) {
+            int estimateWindowSz = retentionCount != null ? retentionCount : 100_000;
+            this.buffer = bufferFactory.create(stormConf, context, estimateWindowSz);
+        }
+
+        void initState(String prefix, KeyValueState<String, StatefulJoinBuffer.BufferedTuple> state, Map stormConf, TopologyContext context) {
+            if (buffer!=null)
+                buffer.close();
             int estimateWindowSz = retentionCount != null ? retentionCount : 100_000;
-//            this.timeTracker = (retentionTimeMs!=null) ?  new LinkedHashMap<String, Long>( estimateWindowSz ) : null;
-            this.buffer = LinkedListMultimap.create( estimateWindowSz );
+            this.buffer = new StatefulJoinBuffer(prefix, state, stormConf, context, estimateWindowSz);
         }
 
-        // returns null if no match
-        List<TupleInfo> findMatches(String tupleKey) throws InvalidTuple {
-            return buffer.get(tupleKey);
+        // returns an empty list if no match, the matches are flagged as matched
+        List<TupleInfo> findMatches(JoinKey tupleKey) throws InvalidTuple {
+            return buffer.match(tupleKey);
         }
 
         // Removes timedout entries from lookupBuffer & timeTracker. ACKs tuples being expired.
         public void expireAndAckTimedOutEntries(OutputCollector collector, long currTime) {
-            if(buffer.isEmpty() || retentionTime==null)
+            if(retentionTime==null || buffer.size()==0)
                 return;
             long expirationTime = currTime - retentionTime;
 
-            while ( !buffer.isEmpty() ) {
-                Map.Entry<String, TupleInfo> oldest = buffer.entries().get(0);
-                if ( expirationTime < oldest.getValue().insertionTime )
-                    break;
-
-                TupleInfo expired = buffer.entries().remove(0).getValue();
+            while ( buffer.oldestInsertionTime() <= expirationTime ) {
+                TupleInfo expired = buffer.removeOldest();
                 if (emitUnmatchedTuples)
                     emitIfUnMatchedTuple(expired);
-                collector.ack(expired.tuple);
+                if (buffer.isAnchoring())
+                    collector.ack(expired.tuple);
             }
         }
 
         // Adds a new tuple into buffer, and removes the oldest tuple if size limit is reached (for count based retention case) or null
-        // returns an expiring tuple (if any) or null
-        public  Tuple addTuple(String key, Tuple tuple, boolean matched, long insertionTime) {
-            buffer.put(key, new TupleInfo(tuple, matched, insertionTime) );
+        // returns an expiring tuple to ACK (if any) or null
+        public  Tuple addTuple(JoinKey key, Tuple tuple, boolean matched, long insertionTime) {
+            buffer.add(key, tuple, matched, insertionTime);
 
             if (retentionCount!=null && buffer.size() > retentionCount) {
-                TupleInfo expired = expireOldest();
+                TupleInfo expired = buffer.removeOldest();
                 if (emitUnmatchedTuples)
                     emitIfUnMatchedTuple(expired);
-                return expired.tuple;
+                return buffer.isAnchoring() ? expired.tuple : null;
             }
             return null;
         }
 
-        private TupleInfo expireOldest() {
-            return buffer.entries().remove(0).getValue();
-        }
-
         // remove the entry (if exsits) with this key and returns the removed entry or null
-        public TupleInfo remove(String key) {
-            List<TupleInfo> expired = buffer.removeAll(key);
-            if (expired==null || expired.isEmpty())
-                return null;
-            return expired.get(0); // 'expired' will have only one element due to dedup
+        public TupleInfo remove(JoinKey key) {
+            return buffer.removeAll(key); // there is only one entry per key due to dedup
         }
     } // class JoinInfo
 }
-
-
-class TupleInfo {
-    Tuple tuple;
-    boolean matched = false;
-    long insertionTime;
-
-    public TupleInfo(Tuple tuple, boolean matched, long insertionTime) {
-        this.tuple = tuple;
-        this.matched = matched;
-        this.insertionTime =insertionTime;
-    }
-}
\ No newline at end of file
@@ -70,6 +70,26 @@ public class SLRealtimeJoinBolt extends RealtimeJoinBolt {
         return (SLRealtimeJoinBolt) super.withOutputStream(streamName);
     }
 
+    @Override
+    public SLRealtimeJoinBolt withJoinBuffer(JoinBufferFactory bufferFactory) {
+        return (SLRealtimeJoinBolt) super.withJoinBuffer(bufferFactory);
+    }
+
+    @Override
+    public SLRealtimeJoinBolt withAckOnBuffer() {
+        return (SLRealtimeJoinBolt) super.withAckOnBuffer();
+    }
+
+    @Override
+    public SLRealtimeJoinBolt withOffHeapBuffer(int segmentSizeMb) {
+        return (SLRealtimeJoinBolt) super.withOffHeapBuffer(segmentSizeMb);
+    }
+
+    @Override
+    public SLRealtimeJoinBolt withSpillingBuffer(String directory, int segmentSizeMb) {
+        return (SLRealtimeJoinBolt) super.withSpillingBuffer(directory, segmentSizeMb);
+    }
+
     @Override
     public void declareOutputFields(OutputFieldsDeclarer declarer) {
         declarer.declareStream(this.outputStream, new Fields(StreamlineEvent.STREAMLINE_EVENT));
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import com.google.common.collect.LinkedListMultimap;
+import org.apache.storm.serialization.KryoValuesDeserializer;
+import org.apache.storm.serialization.KryoValuesSerializer;
+import org.apache.storm.state.KeyValueState;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tuples on the heap and mirrors each change of the buffer in a {@link KeyValueState}, with one state entry
+ * per buffered tuple. The checkpoints of the state only write the entries added, matched or removed since the
+ * previous checkpoint, and a buffer restored from the state holds the tuples of the last committed checkpoint.
+ * <p>
+ * This buffer is not anchoring: the bolt acks the tuples as soon as they are buffered, and the stateful bolt executor
+ * defers these acks until the checkpoint holding the tuples is committed. The tuples restored from the state are
+ * copies built with the context of the bolt.
+ * </p>
+ */
+public class StatefulJoinBuffer implements JoinBuffer {
+    private final String prefix;
+    private final KeyValueState<String, BufferedTuple> state;
+    private final KryoValuesSerializer serializer;
+    private final LinkedListMultimap<JoinKey, Entry> buffer;
+    private long nextId = 0;
+
+    /**
+     * Restores the entries of the state whose key starts with the prefix.
+     *
+     * @param prefix        the prefix of the state keys of this buffer
+     * @param state         the state of the bolt
+     * @param stormConf     the configuration of the kryo serializers
+     * @param context       the context of the restored tuples
+     * @param estimatedSize the expected number of retained tuples
+     */
+    public StatefulJoinBuffer(String prefix, KeyValueState<String, BufferedTuple> state, Map stormConf,
+                              GeneralTopologyContext context, int estimatedSize) {
+        this.prefix = prefix;
+        this.state = state;
+        this.serializer = new KryoValuesSerializer(stormConf);
+        this.buffer = LinkedListMultimap.create(estimatedSize);
+
+        List<Entry> restored = new ArrayList<>();
+        KryoValuesDeserializer deserializer = new KryoValuesDeserializer(stormConf);
+        for (Map.Entry<String, BufferedTuple> stateEntry : state) {
+            if (!stateEntry.getKey().startsWith(prefix))
+                continue;
+            long id = Long.parseLong(stateEntry.getKey().substring(prefix.length()));
+            BufferedTuple persisted = stateEntry.getValue();
+            Tuple tuple;
+            try {
+                tuple = new TupleImpl(context, deserializer.deserialize(persisted.values), persisted.sourceTask,
+                        persisted.streamId);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not deserialize checkpointed tuple " + stateEntry.getKey(), e);
+            }
+            restored.add(new Entry(id, new JoinKey(persisted.key), tuple, persisted));
+            nextId = Math.max(nextId, id + 1);
+        }
+        // the ids follow the insertion order
+        restored.sort((e1, e2) -> Long.compare(e1.id, e2.id));
+        for (Entry entry : restored) {
+            buffer.put(entry.key, entry);
+        }
+    }
+
+    @Override
+    public boolean isAnchoring() {
+        return false;
+    }
+
+    @Override
+    public void add(JoinKey key, Tuple tuple, boolean matched, long insertionTime) {
+        BufferedTuple persisted = new BufferedTuple();
+        persisted.key = key.getBytes();
+        persisted.streamId = tuple.getSourceStreamId();
+        persisted.sourceTask = tuple.getSourceTask();
+        try {
+            persisted.values = serializer.serialize(tuple.getValues());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not serialize tuple " + tuple, e);
+        }
+        persisted.insertionTime = insertionTime;
+        persisted.matched = matched;
+        Entry entry = new Entry(nextId++, key, tuple, persisted);
+        buffer.put(key, entry);
+        state.put(prefix + entry.id, persisted);
+    }
+
+    @Override
+    public List<TupleInfo> match(JoinKey key) {
+        List<Entry> matches = buffer.get(key);
+        for (Entry entry : matches) {
+            if (!entry.matched) {
+                entry.matched = true;
+                entry.persisted.matched = true;
+                state.put(prefix + entry.id, entry.persisted);
+            }
+        }
+        return Collections.<TupleInfo>unmodifiableList(matches);
+    }
+
+    @Override
+    public TupleInfo removeAll(JoinKey key) {
+        List<Entry> removed = buffer.removeAll(key);
+        for (Entry entry : removed) {
+            state.delete(prefix + entry.id);
+        }
+        return removed.isEmpty() ? null : removed.get(0);
+    }
+
+    @Override
+    public long oldestInsertionTime() {
+        return buffer.isEmpty() ? Long.MAX_VALUE : buffer.entries().iterator().next().getValue().insertionTime;
+    }
+
+    @Override
+    public TupleInfo removeOldest() {
+        if (buffer.isEmpty())
+            return null;
+        Iterator<Map.Entry<JoinKey, Entry>> entries = buffer.entries().iterator();
+        Entry oldest = entries.next().getValue();
+        entries.remove();
+        state.delete(prefix + oldest.id);
+        return oldest;
+    }
+
+    @Override
+    public int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public void close() {
+        // the state outlives the buffer
+        buffer.clear();
+    }
+
+    private static final class Entry extends TupleInfo {
+        private final long id;
+        private final JoinKey key;
+        private final BufferedTuple persisted;
+
+        private Entry(long id, JoinKey key, Tuple tuple, BufferedTuple persisted) {
+            super(tuple, persisted.matched, persisted.insertionTime);
+            this.id = id;
+            this.key = key;
+            this.persisted = persisted;
+        }
+    }
+
+    /**
+     * The state of a buffered tuple, its values are serialized with the kryo serializers of the topology.
+     */
+    public static class BufferedTuple implements Serializable {
+        byte[] key;
+        String streamId;
+        int sourceTask;
+        byte[] values;
+        long insertionTime;
+        boolean matched;
+
+        public BufferedTuple() {
+        }
+    }
+}
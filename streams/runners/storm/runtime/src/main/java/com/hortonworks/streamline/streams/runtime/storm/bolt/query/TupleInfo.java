@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import org.apache.storm.tuple.Tuple;
+
+/**
+ * A tuple retained in a {@link JoinBuffer}.
+ */
+public class TupleInfo {
+    Tuple tuple;
+    boolean matched = false;
+    long insertionTime;
+
+    public TupleInfo(Tuple tuple, boolean matched, long insertionTime) {
+        this.tuple = tuple;
+        this.matched = matched;
+        this.insertionTime =insertionTime;
+    }
+
+    public Tuple getTuple() {
+        return tuple;
+    }
+
+    public boolean isMatched() {
+        return matched;
+    }
+
+    public long getInsertionTime() {
+        return insertionTime;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt.rules;
+
+import com.hortonworks.streamline.common.util.Utils;
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.SchemaIndexedStreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.exception.ProcessingException;
+import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.runtime.processor.LocalAggregationRuntime;
+import com.hortonworks.streamline.streams.runtime.storm.bolt.BaseTickTupleAwareRichBolt;
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Aggregates the events of windowed rules partially in the tasks receiving them, ahead of the {@link WindowRulesBolt}
+ * merging the partial aggregates, see {@link LocalAggregation}. The tuples are held until the flush interval elapses
+ * or the max pending events are reached, then the partial aggregates are emitted on the input streams of the rules,
+ * each anchored to the tuples of its own rule and group only, and the tuples are acked.
+ */
+public class LocalAggregationBolt extends BaseTickTupleAwareRichBolt {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalAggregationBolt.class);
+
+    public static final int DEFAULT_FLUSH_INTERVAL_SECS = 1;
+    public static final int DEFAULT_MAX_PENDING_EVENTS = 1000;
+
+    private final RulesProcessor rulesProcessor;
+    private int flushIntervalSecs = DEFAULT_FLUSH_INTERVAL_SECS;
+    private int maxPendingEvents = DEFAULT_MAX_PENDING_EVENTS;
+    private LocalAggregationRuntime localAggregationRuntime;
+    private OutputCollector collector;
+    private transient List<Tuple> pendingTuples;
+    // the pending tuples of each partial aggregate, by rule and group
+    private transient Map<List<Object>, List<Tuple>> pendingGroups;
+
+    public LocalAggregationBolt(RulesProcessor rulesProcessor) {
+        this.rulesProcessor = rulesProcessor;
+    }
+
+    public LocalAggregationBolt(String rulesProcessorJson) {
+        this(Utils.createObjectFromJson(rulesProcessorJson, RulesProcessor.class));
+    }
+
+    public LocalAggregationBolt withFlushIntervalSecs(int flushIntervalSecs) {
+        if (flushIntervalSecs <= 0) {
+            throw new IllegalArgumentException("flushIntervalSecs should be positive: " + flushIntervalSecs);
+        }
+        this.flushIntervalSecs = flushIntervalSecs;
+        return this;
+    }
+
+    public LocalAggregationBolt withMaxPendingEvents(int maxPendingEvents) {
+        if (maxPendingEvents <= 0) {
+            throw new IllegalArgumentException("maxPendingEvents should be positive: " + maxPendingEvents);
+        }
+        this.maxPendingEvents = maxPendingEvents;
+        return this;
+    }
+
+    @Override
+    public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
+        if (this.rulesProcessor == null) {
+            throw new RuntimeException("rulesProcessor cannot be null");
+        }
+        this.collector = collector;
+        localAggregationRuntime = new LocalAggregationRuntime(rulesProcessor);
+        localAggregationRuntime.initialize(Collections.<String, Object>emptyMap());
+        pendingTuples = new ArrayList<>();
+        pendingGroups = new HashMap<>();
+    }
+
+    @Override
+    protected void process(Tuple input) {
+        Object event = input.getValueByField(StreamlineEvent.STREAMLINE_EVENT);
+        if (!(event instanceof StreamlineEvent)) {
+            LOG.debug("Received invalid input tuple:[{}] with streamline event:[{}] and it is not processed.", input, event);
+            collector.ack(input);
+            return;
+        }
+        StreamlineEvent eventWithStream = getStreamlineEventWithStream((StreamlineEvent) event, input);
+        try {
+            localAggregationRuntime.process(eventWithStream);
+        } catch (ProcessingException e) {
+            LOG.error("Error occurred while aggregating the tuple", e);
+            collector.fail(input);
+            collector.reportError(e);
+            return;
+        }
+        pendingTuples.add(input);
+        for (List<Object> key : localAggregationRuntime.getGroupKeys(eventWithStream)) {
+            List<Tuple> tuples = pendingGroups.get(key);
+            if (tuples == null) {
+                tuples = new ArrayList<>();
+                pendingGroups.put(key, tuples);
+            }
+            tuples.add(input);
+        }
+        if (pendingTuples.size() >= maxPendingEvents) {
+            flush();
+        }
+    }
+
+    @Override
+    protected void onTickTuple(Tuple tuple) {
+        flush();
+    }
+
+    private void flush() {
+        if (pendingTuples.isEmpty()) {
+            return;
+        }
+        try {
+            for (Result result : localAggregationRuntime.flush()) {
+                for (StreamlineEvent e : result.events) {
+                    List<Tuple> anchors = pendingGroups.get(localAggregationRuntime.getPartialAggregateKey(e));
+                    if (anchors == null) {
+                        LOG.debug("No pending tuples in the group of partial aggregate {}, anchoring it to all", e);
+                        anchors = pendingTuples;
+                    }
+                    collector.emit(result.stream, anchors, new Values(e));
+                }
+            }
+            for (Tuple tuple : pendingTuples) {
+                collector.ack(tuple);
+            }
+        } catch (ProcessingException e) {
+            LOG.error("Error occurred while flushing the partial aggregates", e);
+            for (Tuple tuple : pendingTuples) {
+                collector.fail(tuple);
+            }
+            collector.reportError(e);
+        }
+        pendingTuples.clear();
+        pendingGroups.clear();
+    }
+
+    private StreamlineEvent getStreamlineEventWithStream(StreamlineEvent event, Tuple tuple) {
+        if (event instanceof SchemaIndexedStreamlineEvent) {
+            return ((SchemaIndexedStreamlineEvent) event).withSourceStream(tuple.getSourceStreamId());
+        }
+        return new StreamlineEventImpl(event,
+                event.getDataSourceId(), event.getId(),
+                event.getHeader(), tuple.getSourceStreamId(), event.getAuxiliaryFieldsAndValues());
+    }
+
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        // tick tuples flush the partial aggregates when the max pending events are not reached within the flush interval
+        Config conf = new Config();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, flushIntervalSecs);
+        return conf;
+    }
+
+    @Override
+    public void declareOutputFields(OutputFieldsDeclarer declarer) {
+        if (this.rulesProcessor == null) {
+            throw new RuntimeException("rulesProcessor cannot be null");
+        }
+        Set<String> streams = new HashSet<>();
+        for (Rule rule : rulesProcessor.getRules()) {
+            streams.add(LocalAggregation.getPartialAggregateStream(rule));
+        }
+        for (String stream : streams) {
+            declarer.declareStream(stream, new Fields(StreamlineEvent.STREAMLINE_EVENT));
+        }
+    }
+}
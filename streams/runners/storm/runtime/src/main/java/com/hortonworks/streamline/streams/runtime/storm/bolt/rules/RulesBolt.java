@@ -21,12 +21,19 @@ import com.hortonworks.streamline.common.Constants;
 import com.hortonworks.streamline.common.util.Utils;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.common.SchemaIndexedStreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import com.hortonworks.streamline.streams.exception.ProcessingException;
 import com.hortonworks.streamline.streams.layout.component.Stream;
+import com.hortonworks.streamline.streams.layout.Transform;
 import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.layout.component.rule.action.Action;
+import com.hortonworks.streamline.streams.layout.component.rule.action.TransformAction;
+import com.hortonworks.streamline.streams.layout.component.rule.action.transform.EnrichmentTransform;
 import com.hortonworks.streamline.streams.runtime.processor.RuleProcessorRuntime;
 import com.hortonworks.streamline.streams.runtime.storm.bolt.AbstractProcessorBolt;
+import org.apache.storm.Config;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -40,15 +47,32 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
-
+/**
+ * Evaluates the rules of a {@link RulesProcessor} on each tuple.
+ * <p>
+ * When the rules have an {@link EnrichmentTransform}, the enrichment values missing from the cache are looked up in
+ * batches by {@link RuleProcessorRuntime#processAsync(StreamlineEvent, Executor)}. The lookup threads only queue the
+ * completed lookups, the events are enriched and the tuples emitted and acked on the executor thread, before the next
+ * tuple is processed or on the next tick, which also starts the lookups of the batch pending since the previous one.
+ * </p>
+ */
 public class RulesBolt extends AbstractProcessorBolt {
     private static final Logger LOG = LoggerFactory.getLogger(RulesBolt.class);
+    private static final int ENRICHMENT_FLUSH_INTERVAL_SECS = 1;
 
     private RuleProcessorRuntime ruleProcessorRuntime;
     private final RulesProcessor rulesProcessor;
     private final RuleProcessorRuntime.ScriptType scriptType;
+    private boolean asyncEnrichment;
+    // the completed lookups, run on the executor thread
+    private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
 
     public RulesBolt(RulesProcessor rulesProcessor, RuleProcessorRuntime.ScriptType scriptType) {
         this.rulesProcessor = rulesProcessor;
@@ -73,8 +97,69 @@ public class RulesBolt extends AbstractProcessorBolt {
             config = new HashMap<>();
             config.put(Constants.CATALOG_ROOT_URL, stormConf.get(Constants.CATALOG_ROOT_URL));
             config.put(Constants.LOCAL_FILES_PATH, stormConf.get(Constants.LOCAL_FILES_PATH));
+            config.put(RuleProcessorRuntime.GROOVY_COMPILED_CONDITIONS, stormConf.get(RuleProcessorRuntime.GROOVY_COMPILED_CONDITIONS));
+            config.put(RuleProcessorRuntime.SHARED_CONDITION_NETWORK, stormConf.get(RuleProcessorRuntime.SHARED_CONDITION_NETWORK));
         }
         ruleProcessorRuntime.initialize(config);
+        asyncEnrichment = hasEnrichment(rulesProcessor);
+    }
+
+    @Override
+    protected void process(Tuple input) {
+        if (!asyncEnrichment) {
+            super.process(input);
+            return;
+        }
+        runCallbacks();
+        Object event = input.getValueByField(StreamlineEvent.STREAMLINE_EVENT);
+        if (!(event instanceof StreamlineEvent)) {
+            LOG.debug("Received invalid input tuple:[{}] with streamline event:[{}] and it is not processed.", input, event);
+            collector.ack(input);
+            return;
+        }
+        StreamlineEvent eventWithStream = getStreamlineEventWithStream((StreamlineEvent) event, input);
+        LOG.debug("++++++++ Executing tuple [{}], StreamlineEvent [{}]", input, eventWithStream);
+        CompletableFuture<List<Result>> results;
+        try {
+            results = ruleProcessorRuntime.processAsync(eventWithStream, callbacks::add);
+        } catch (ProcessingException e) {
+            LOG.error("Error occurred while processing the tuple", e);
+            collector.fail(input);
+            collector.reportError(e);
+            return;
+        }
+        // the events whose values are cached are emitted right away, the others by the callbacks
+        results.whenComplete((res, error) -> complete(input, res, error));
+    }
+
+    @Override
+    protected void onTickTuple(Tuple tuple) {
+        if (asyncEnrichment) {
+            ruleProcessorRuntime.flush();
+            runCallbacks();
+        }
+    }
+
+    private void runCallbacks() {
+        Runnable callback;
+        while ((callback = callbacks.poll()) != null) {
+            callback.run();
+        }
+    }
+
+    private void complete(Tuple input, List<Result> results, Throwable error) {
+        if (error != null) {
+            LOG.error("Error occurred while processing the tuple", error);
+            collector.fail(input);
+            collector.reportError(error);
+            return;
+        }
+        for (Result result : results) {
+            for (StreamlineEvent e : result.events) {
+                collector.emit(result.stream, input, new Values(e));
+            }
+        }
+        collector.ack(input);
     }
 
     @Override
@@ -93,11 +178,47 @@ public class RulesBolt extends AbstractProcessorBolt {
     }
 
     private StreamlineEvent getStreamlineEventWithStream(StreamlineEvent event, Tuple tuple) {
+        // keep the schema indexed events as is, they can be re-streamed without copying the fields
+        if (event instanceof SchemaIndexedStreamlineEvent) {
+            return ((SchemaIndexedStreamlineEvent) event).withSourceStream(tuple.getSourceStreamId());
+        }
         return new StreamlineEventImpl(event,
                 event.getDataSourceId(), event.getId(),
                 event.getHeader(), tuple.getSourceStreamId(), event.getAuxiliaryFieldsAndValues());
     }
 
+    @Override
+    public Map<String, Object> getComponentConfiguration() {
+        if (!hasEnrichment(rulesProcessor)) {
+            return null;
+        }
+        // tick tuples start the pending lookups and emit the completed tuples when no tuple comes in
+        Config conf = new Config();
+        conf.put(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS, ENRICHMENT_FLUSH_INTERVAL_SECS);
+        return conf;
+    }
+
+    private static boolean hasEnrichment(RulesProcessor rulesProcessor) {
+        if (rulesProcessor == null || rulesProcessor.getRules() == null) {
+            return false;
+        }
+        for (Rule rule : rulesProcessor.getRules()) {
+            if (rule.getActions() == null) {
+                continue;
+            }
+            for (Action action : rule.getActions()) {
+                if (action instanceof TransformAction && ((TransformAction) action).getTransforms() != null) {
+                    for (Transform transform : ((TransformAction) action).getTransforms()) {
+                        if (transform instanceof EnrichmentTransform) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public void declareOutputFields(OutputFieldsDeclarer declarer) {
         if (this.rulesProcessor == null) {
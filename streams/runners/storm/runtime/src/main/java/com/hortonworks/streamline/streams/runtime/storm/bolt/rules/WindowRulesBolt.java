@@ -22,8 +22,10 @@ import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import com.hortonworks.streamline.streams.exception.ProcessingException;
 import com.hortonworks.streamline.streams.layout.component.Stream;
 import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
 import com.hortonworks.streamline.streams.runtime.processor.RuleProcessorRuntime;
+import com.hortonworks.streamline.streams.runtime.rule.PaneWindow;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -31,14 +33,20 @@ import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.windowing.TupleWindow;
+import com.hortonworks.streamline.streams.runtime.storm.bolt.StreamlineTimestampExtractor;
 import com.hortonworks.streamline.streams.runtime.storm.bolt.StreamlineWindowedBolt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,7 +56,25 @@ import static com.hortonworks.streamline.streams.runtime.transform.AddHeaderTran
 import static com.hortonworks.streamline.streams.runtime.transform.AddHeaderTransformRuntime.HEADER_FIELD_EVENT_IDS;
 
 /**
- * A windowed rules bolt
+ * A windowed rules bolt.
+ * <p>
+ * By default all the tuples of the window are evaluated again on each activation. When
+ * {@link RuleProcessorRuntime#INCREMENTAL_WINDOW_AGGREGATION} is set in the topology config, the aggregates are
+ * kept across the activations and only the tuples that entered or left the window since the last activation are
+ * evaluated.
+ * </p>
+ * <p>
+ * When the window is configured with {@link Window#isPaneAggregation()}, the bolt is activated for each pane of the
+ * window, see {@link PaneWindow}. The aggregates of the panes are kept by the rules, which emit the results of the
+ * whole window on each activation. The headers of the results then reference the events of the last pane. An empty
+ * pane of a time based window does not activate the bolt, so the panes that elapsed since the last activation are
+ * closed empty before the tuples of the new pane are processed.
+ * </p>
+ * <p>
+ * When the window is configured with {@link Window#isLocalAggregation()}, the bolt receives the partial aggregates of
+ * the events from a {@link LocalAggregationBolt} and merges them, see {@link LocalAggregation}. The headers of the
+ * results then reference the partial aggregates.
+ * </p>
  */
 public class WindowRulesBolt extends StreamlineWindowedBolt {
     private static final Logger LOG = LoggerFactory.getLogger(WindowRulesBolt.class);
@@ -58,6 +84,19 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
     private final RuleProcessorRuntime.ScriptType scriptType;
     private OutputCollector collector;
     private long windowId;
+    private boolean incrementalAggregation;
+    private boolean paneAggregation;
+    // length and number of the panes of a time based window, and the pane of the last activation
+    private long paneLengthMs;
+    private int numPanes;
+    private StreamlineTimestampExtractor paneTimestampExtractor;
+    private long lastPane = -1;
+    private long lastActivationMs;
+    // tuples in the window in arrival order, and ids of their events with their number of occurrences, with the
+    // incremental aggregation
+    private final Deque<Tuple> windowTuples = new ArrayDeque<>();
+    private final Map<String, Integer> windowEventIds = new HashMap<>();
+    private final Map<String, Integer> windowDataSourceIds = new HashMap<>();
 
     public WindowRulesBolt(RulesProcessor rulesProcessor, RuleProcessorRuntime.ScriptType scriptType) {
         this.rulesProcessor = rulesProcessor;
@@ -67,6 +106,19 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
     public WindowRulesBolt(String rulesProcessorJson, RuleProcessorRuntime.ScriptType scriptType) {
         this(Utils.createObjectFromJson(rulesProcessorJson, RulesProcessor.class), scriptType);
     }
+
+    @Override
+    public void withWindowConfig(Window windowConfig) throws IOException {
+        PaneWindow paneWindow = PaneWindow.of(windowConfig);
+        paneAggregation = paneWindow != null;
+        if (paneAggregation && paneWindow.getPaneWindow().getWindowLength() instanceof Window.Duration) {
+            paneLengthMs = ((Window.Duration) paneWindow.getPaneWindow().getWindowLength()).getDurationMs();
+            numPanes = paneWindow.getNumPanes();
+            String tsField = windowConfig.getTsField();
+            paneTimestampExtractor = tsField == null || tsField.isEmpty() ? null : new StreamlineTimestampExtractor(tsField);
+        }
+        super.withWindowConfig(paneAggregation ? paneWindow.getPaneWindow() : windowConfig);
+    }
     @Override
     public void prepare(Map stormConf, TopologyContext context, OutputCollector collector) {
         if (this.rulesProcessor == null) {
@@ -74,7 +126,10 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
         }
         this.collector = collector;
         ruleProcessorRuntime = new RuleProcessorRuntime(rulesProcessor, scriptType);
-        Map<String, Object> config = Collections.emptyMap();
+        incrementalAggregation = !paneAggregation && !LocalAggregation.isEnabled(rulesProcessor.getRules())
+                && Boolean.TRUE.equals(stormConf.get(RuleProcessorRuntime.INCREMENTAL_WINDOW_AGGREGATION));
+        Map<String, Object> config = new HashMap<>();
+        config.put(RuleProcessorRuntime.INCREMENTAL_WINDOW_AGGREGATION, incrementalAggregation);
         ruleProcessorRuntime.initialize(config);
     }
 
@@ -85,10 +140,17 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
      */
     @Override
     public void execute(TupleWindow inputWindow) {
+        if (incrementalAggregation) {
+            executeIncremental(inputWindow);
+            return;
+        }
         ++windowId;
         LOG.debug("Window activated, window id {}, number of tuples in window {}", windowId, inputWindow.get().size());
         List<Tuple> curGroup = new ArrayList<>();
         try {
+            if (paneLengthMs > 0) {
+                closeIdlePanes(inputWindow.get());
+            }
             StreamlineEvent event;
             for (Tuple input : inputWindow.get()) {
                 if ((event = getStreamlineEventFromTuple(input)) != null) {
@@ -105,8 +167,125 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
         }
     }
 
+    /*
+     * The aggregates span the activations, so the events keep the same window id. The expired events are removed
+     * from the aggregates before the new ones are added, then the results of all the groups are emitted.
+     *
+     * The window manager drops the expired tuples of a window that became empty without activating it, so the tuples
+     * that are no longer in the window are removed from the aggregates when the window is activated again.
+     */
+    private void executeIncremental(TupleWindow inputWindow) {
+        ++windowId;
+        LOG.debug("Window activated, window id {}, number of new tuples {}, number of expired tuples {}",
+                windowId, inputWindow.getNew().size(), inputWindow.getExpired().size());
+        try {
+            StreamlineEvent event;
+            for (Tuple input : inputWindow.getExpired()) {
+                if (windowTuples.removeFirstOccurrence(input)) {
+                    retract(input);
+                }
+            }
+            List<Tuple> tuples = inputWindow.get();
+            if (windowTuples.size() + inputWindow.getNew().size() != tuples.size()) {
+                retractMissingTuples(tuples);
+            }
+            for (Tuple input : inputWindow.getNew()) {
+                windowTuples.addLast(input);
+                if ((event = getStreamlineEventFromTuple(input)) != null) {
+                    LOG.debug("++++++++ Executing tuple [{}] which contains StreamlineEvent [{}]", input, event);
+                    addId(windowEventIds, event.getId());
+                    addId(windowDataSourceIds, event.getDataSourceId());
+                    emit(ruleProcessorRuntime.process(eventWithWindowId(event, 0L)));
+                }
+            }
+            emit(ruleProcessorRuntime.process(GROUP_BY_TRIGGER_EVENT));
+        } catch (Exception e) {
+            collector.reportError(e);
+            LOG.debug("", e);                        // useful to debug unit tests
+        }
+    }
+
+    /*
+     * The panes are numbered by their end, from the timestamps of their events with an event time window, or from the
+     * time elapsed since the last activation otherwise. The results of the empty panes are not emitted, closing as
+     * many panes as the window has is enough to drop all the panes of the last activation.
+     */
+    private void closeIdlePanes(List<Tuple> tuples) throws ProcessingException {
+        long pane;
+        if (paneTimestampExtractor != null) {
+            long maxTs = Long.MIN_VALUE;
+            for (Tuple tuple : tuples) {
+                maxTs = Math.max(maxTs, paneTimestampExtractor.extractTimestamp(tuple));
+            }
+            pane = Math.floorDiv(maxTs - 1, paneLengthMs);
+        } else {
+            long now = System.currentTimeMillis();
+            pane = lastPane + Math.max(1L, Math.round((now - lastActivationMs) / (double) paneLengthMs));
+            lastActivationMs = now;
+        }
+        if (lastPane >= 0) {
+            long idlePanes = Math.min(pane - lastPane - 1, numPanes - 1);
+            for (long i = 0; i < idlePanes; i++) {
+                ruleProcessorRuntime.process(GROUP_BY_TRIGGER_EVENT);
+            }
+            LOG.debug("Closed {} empty panes before pane {}, window id {}", Math.max(idlePanes, 0), pane, windowId);
+        }
+        lastPane = pane;
+    }
+
+    private void retractMissingTuples(List<Tuple> tuples) throws ProcessingException {
+        Set<Tuple> inWindow = Collections.newSetFromMap(new IdentityHashMap<Tuple, Boolean>());
+        inWindow.addAll(tuples);
+        int retracted = 0;
+        for (Iterator<Tuple> it = windowTuples.iterator(); it.hasNext(); ) {
+            Tuple input = it.next();
+            if (!inWindow.contains(input)) {
+                it.remove();
+                retract(input);
+                ++retracted;
+            }
+        }
+        LOG.debug("Retracted {} tuples which expired without activation, window id {}", retracted, windowId);
+    }
+
+    private void retract(Tuple input) throws ProcessingException {
+        StreamlineEvent event;
+        if ((event = getStreamlineEventFromTuple(input)) != null) {
+            ruleProcessorRuntime.retract(eventWithWindowId(event, 0L));
+            removeId(windowEventIds, event.getId());
+            removeId(windowDataSourceIds, event.getDataSourceId());
+        }
+    }
+
+    private void emit(List<Result> results) {
+        for (Result result : results) {
+            for (StreamlineEvent e : result.events) {
+                Map<String, Object> headers = new HashMap<>();
+                headers.put(HEADER_FIELD_EVENT_IDS, new ArrayList<>(windowEventIds.keySet()));
+                headers.put(HEADER_FIELD_DATASOURCE_IDS, new ArrayList<>(windowDataSourceIds.keySet()));
+                collector.emit(result.stream, new Values(e.addHeaders(headers)));
+            }
+        }
+    }
+
+    private static void addId(Map<String, Integer> ids, String id) {
+        Integer count = ids.get(id);
+        ids.put(id, count == null ? 1 : count + 1);
+    }
+
+    private static void removeId(Map<String, Integer> ids, String id) {
+        Integer count = ids.get(id);
+        if (count == null || count == 1) {
+            ids.remove(id);
+        } else {
+            ids.put(id, count - 1);
+        }
+    }
+
     private void processAndEmit(StreamlineEvent event, List<Tuple> curGroup) throws ProcessingException {
-        for (Result result : ruleProcessorRuntime.process(eventWithWindowId(event))) {
+        // the aggregates of the panes are merged across the activations
+        long id = paneAggregation ? 0L : windowId;
+        for (Result result : ruleProcessorRuntime.process(eventWithWindowId(event, id))) {
             for (StreamlineEvent e : result.events) {
                 // TODO: updateHeaders can be handled at ruleProcessorRuntime.process stage passing context info.
                 collector.emit(result.stream, new Values(updateHeaders(e, curGroup)));
@@ -173,7 +352,7 @@ public class WindowRulesBolt extends StreamlineWindowedBolt {
     }
 
 
-    private StreamlineEvent eventWithWindowId(final StreamlineEvent event) {
+    private StreamlineEvent eventWithWindowId(final StreamlineEvent event, long windowId) {
         if (event == GROUP_BY_TRIGGER_EVENT) {
             return event;
         }
@@ -0,0 +1,121 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.runtime.storm.StreamlineRuntimeUtil;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.grouping.CustomStreamGrouping;
+import org.apache.storm.task.WorkerTopologyContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base class of the groupings that route a streamline event according to the values of its grouping fields.
+ * Subclasses choose the target task from the hash of the grouping values, which is computed without copying
+ * the values and is the same as {@link Arrays#deepHashCode(Object[])} of the values.
+ */
+public abstract class AbstractFieldsGrouping implements CustomStreamGrouping {
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final List<String> groupingFields;
+    private final String[][] groupingFieldKeys;
+    // the singleton list of each target task, returned as is from chooseTasks
+    private List<List<Integer>> choices;
+
+    protected AbstractFieldsGrouping(List<String> groupingFields) {
+        this.groupingFields = Collections.unmodifiableList(groupingFields);
+        this.groupingFieldKeys = new String[groupingFields.size()][];
+        for (int i = 0; i < groupingFieldKeys.length; i++) {
+            groupingFieldKeys[i] = groupingFields.get(i).split(StreamlineEvent.NESTED_FIELD_SPLIT_REGEX);
+        }
+    }
+
+    @Override
+    public void prepare(WorkerTopologyContext context, GlobalStreamId stream, List<Integer> targetTasks) {
+        this.choices = new ArrayList<>(targetTasks.size());
+        for (Integer targetTask : targetTasks) {
+            choices.add(Collections.singletonList(targetTask));
+        }
+        prepare(targetTasks.size());
+    }
+
+    /**
+     * Prepares the grouping for the given number of target tasks, once they are known.
+     */
+    protected void prepare(int numTasks) {
+    }
+
+    @Override
+    public List<Integer> chooseTasks(int taskId, List<Object> values) {
+        return choices.get(chooseTaskIndex(keyHash((StreamlineEvent) values.get(0))));
+    }
+
+    /**
+     * @return the index, in the target tasks, of the task the event with the given key hash goes to
+     */
+    protected abstract int chooseTaskIndex(int keyHash);
+
+    public List<String> getGroupingFields() {
+        return groupingFields;
+    }
+
+    protected int getNumTasks() {
+        return choices.size();
+    }
+
+    private int keyHash(StreamlineEvent event) {
+        int hash = 1;
+        for (String[] keys : groupingFieldKeys) {
+            Object value = StreamlineRuntimeUtil.getFieldValue(event, keys);
+            int valueHash;
+            if (value == null) {
+                valueHash = 0;
+            } else if (value.getClass().isArray()) {
+                // deepHashCode of a single element array is 31 + the deep hash code of the element
+                valueHash = Arrays.deepHashCode(new Object[]{value}) - 31;
+            } else {
+                valueHash = value.hashCode();
+            }
+            hash = 31 * hash + valueHash;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a well mixed hash derived from the given hash, different for each seed
+     */
+    protected static int rehash(int hash, int seed) {
+        int h = hash + seed * GOLDEN_RATIO;
+        // murmur3 finalizer
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return the non negative index, lower than numTasks, of the given hash
+     */
+    protected static int index(int hash, int numTasks) {
+        return Math.floorMod(hash, numTasks);
+    }
+}
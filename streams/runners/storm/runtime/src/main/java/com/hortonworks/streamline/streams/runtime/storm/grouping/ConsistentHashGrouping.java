@@ -0,0 +1,79 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Groups events by the hash of their grouping fields on a consistent hash ring, where each target task owns a
+ * number of virtual nodes. Unlike the modulo of {@link FieldsGroupingAsCustomGrouping}, adding a task to n
+ * tasks, e.g. when the topology is redeployed with a higher parallelism, only moves about 1/(n+1) of the keys,
+ * all of them to the added task.
+ */
+public class ConsistentHashGrouping extends AbstractFieldsGrouping {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final int virtualNodes;
+    // the sorted positions of the virtual nodes on the ring and the index of the task owning each of them
+    private transient int[] ringPositions;
+    private transient int[] ringTasks;
+
+    public ConsistentHashGrouping(List<String> groupingFields) {
+        this(groupingFields, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashGrouping(List<String> groupingFields, int virtualNodes) {
+        super(groupingFields);
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes should be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    @Override
+    protected void prepare(int numTasks) {
+        // position in the high bits and task index in the low bits, so that sorting orders by position
+        long[] nodes = new long[numTasks * virtualNodes];
+        for (int task = 0; task < numTasks; task++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int position = rehash(rehash(task, 0), node + 1);
+                nodes[task * virtualNodes + node] = ((long) position << 32) | task;
+            }
+        }
+        Arrays.sort(nodes);
+        ringPositions = new int[nodes.length];
+        ringTasks = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            ringPositions[i] = (int) (nodes[i] >> 32);
+            ringTasks[i] = (int) nodes[i];
+        }
+    }
+
+    @Override
+    protected int chooseTaskIndex(int keyHash) {
+        int position = rehash(keyHash, 0);
+        int i = Arrays.binarySearch(ringPositions, position);
+        if (i < 0) {
+            // first virtual node after the position, wrapping around the ring
+            i = -i - 1;
+            if (i == ringPositions.length) {
+                i = 0;
+            }
+        }
+        return ringTasks[i];
+    }
+}
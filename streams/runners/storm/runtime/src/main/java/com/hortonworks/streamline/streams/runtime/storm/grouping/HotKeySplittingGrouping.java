@@ -0,0 +1,123 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import java.util.List;
+
+/**
+ * Fields grouping that detects the hot keys and splits them across tasks. Cold keys go to a single task, as with
+ * {@link FieldsGroupingAsCustomGrouping}, while a key whose share of the recent events exceeds the hot key
+ * threshold goes to the least loaded of the split factor tasks following its own task.
+ * <p>
+ * The key frequencies are estimated with a count-min sketch of the key hashes that is halved periodically, so
+ * that keys cool down when their traffic drops. The load of the tasks is the number of events this task has
+ * sent to each of them.
+ * </p>
+ * <p>
+ * Since the events of a hot key may reach several tasks, each of them computes a partial result for the key and the
+ * topology needs a stage downstream merging them. None of the streamline components does, including the windowed
+ * rules whose outputs are final, so this grouping is rejected for the links of a streamline topology and is only
+ * meant for topologies wired with such a merge stage.
+ * </p>
+ */
+public class HotKeySplittingGrouping extends AbstractFieldsGrouping {
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1024;
+    // the counts are halved every DECAY_INTERVAL events
+    private static final int DECAY_INTERVAL = 1 << 14;
+    // no key is hot before the sketch has seen MIN_EVENTS events
+    private static final int MIN_EVENTS = 1024;
+
+    private final int splitFactor;
+    private final double hotKeyThreshold;
+
+    private transient int[] sketch;
+    private transient long[] loads;
+    private transient int numEvents;
+    private transient int sinceDecay;
+    private transient int hotSplitFactor;
+    private transient double hotThreshold;
+
+    /**
+     * Splits the keys having more than half the fair share of a task over all the tasks.
+     */
+    public HotKeySplittingGrouping(List<String> groupingFields) {
+        this(groupingFields, 0, 0);
+    }
+
+    /**
+     * @param splitFactor     the number of tasks a hot key is split over, all the tasks if not positive
+     * @param hotKeyThreshold the share of the events above which a key is hot, half the fair share of a task if
+     *                        not positive
+     */
+    public HotKeySplittingGrouping(List<String> groupingFields, int splitFactor, double hotKeyThreshold) {
+        super(groupingFields);
+        if (hotKeyThreshold >= 1) {
+            throw new IllegalArgumentException("hotKeyThreshold should be lower than 1: " + hotKeyThreshold);
+        }
+        this.splitFactor = splitFactor;
+        this.hotKeyThreshold = hotKeyThreshold;
+    }
+
+    @Override
+    protected void prepare(int numTasks) {
+        sketch = new int[SKETCH_DEPTH * SKETCH_WIDTH];
+        loads = new long[numTasks];
+        hotSplitFactor = splitFactor > 0 ? Math.min(splitFactor, numTasks) : numTasks;
+        hotThreshold = hotKeyThreshold > 0 ? hotKeyThreshold : 0.5 / numTasks;
+    }
+
+    @Override
+    protected int chooseTaskIndex(int keyHash) {
+        int numTasks = getNumTasks();
+        int chosen = index(keyHash, numTasks);
+        if (hotSplitFactor > 1 && isHot(keyHash)) {
+            int first = chosen;
+            for (int i = 1; i < hotSplitFactor; i++) {
+                int candidate = (first + i) % numTasks;
+                if (loads[candidate] < loads[chosen]) {
+                    chosen = candidate;
+                }
+            }
+        }
+        loads[chosen]++;
+        return chosen;
+    }
+
+    /**
+     * Counts the key in the sketch and returns whether it is hot.
+     */
+    private boolean isHot(int keyHash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            int cell = row * SKETCH_WIDTH + (rehash(keyHash, row + 1) & (SKETCH_WIDTH - 1));
+            estimate = Math.min(estimate, ++sketch[cell]);
+        }
+        boolean hot = ++numEvents >= MIN_EVENTS && estimate > hotThreshold * numEvents;
+        if (++sinceDecay == DECAY_INTERVAL) {
+            decay();
+        }
+        return hot;
+    }
+
+    private void decay() {
+        for (int i = 0; i < sketch.length; i++) {
+            sketch[i] >>>= 1;
+        }
+        numEvents >>>= 1;
+        sinceDecay = 0;
+    }
+}
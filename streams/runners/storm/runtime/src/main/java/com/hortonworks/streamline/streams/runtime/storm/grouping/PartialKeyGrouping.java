@@ -0,0 +1,53 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import java.util.List;
+
+/**
+ * Partial key grouping: each key has two candidate tasks, derived from two independent hashes of the grouping
+ * values, and every event goes to the candidate this task has sent the fewer events to so far. A hot key is
+ * thus spread over two tasks instead of overloading one.
+ * <p>
+ * Since the events of a key may reach two tasks, each of them computes a partial result for the key and the
+ * topology needs a stage downstream merging them. None of the streamline components does, including the windowed
+ * rules whose outputs are final, so this grouping is rejected for the links of a streamline topology and is only
+ * meant for topologies wired with such a merge stage.
+ * </p>
+ */
+public class PartialKeyGrouping extends AbstractFieldsGrouping {
+    // events sent to each target task; updated without synchronization since it is only a load estimate
+    private transient long[] loads;
+
+    public PartialKeyGrouping(List<String> groupingFields) {
+        super(groupingFields);
+    }
+
+    @Override
+    protected void prepare(int numTasks) {
+        loads = new long[numTasks];
+    }
+
+    @Override
+    protected int chooseTaskIndex(int keyHash) {
+        int numTasks = getNumTasks();
+        int first = index(rehash(keyHash, 1), numTasks);
+        int second = index(rehash(keyHash, 2), numTasks);
+        int chosen = loads[second] < loads[first] ? second : first;
+        loads[chosen]++;
+        return chosen;
+    }
+}
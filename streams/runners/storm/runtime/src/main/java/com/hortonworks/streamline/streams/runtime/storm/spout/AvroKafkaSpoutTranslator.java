@@ -18,6 +18,7 @@ package com.hortonworks.streamline.streams.runtime.storm.spout;
 
 import com.hortonworks.registries.schemaregistry.client.SchemaRegistryClient;
 import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.SchemaIndexedStreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.storm.kafka.spout.KafkaTuple;
@@ -42,6 +43,7 @@ public class AvroKafkaSpoutTranslator implements RecordTranslator<Object, ByteBu
     private final String dataSourceId;
     private final String schemaRegistryUrl;
     private final Integer readerSchemaVersion;
+    private boolean schemaIndexedEvents;
     private transient volatile AvroStreamsSnapshotDeserializer avroStreamsSnapshotDeserializer;
 
     public AvroKafkaSpoutTranslator (String outputStream, String topic, String dataSourceId, String schemaRegistryUrl) {
@@ -60,12 +62,25 @@ public class AvroKafkaSpoutTranslator implements RecordTranslator<Object, ByteBu
     public List<Object> apply (ConsumerRecord<Object, ByteBuffer> consumerRecord) {
         Map < String, Object > keyValues = (Map<String, Object>) deserializer().deserialize(new ByteBufferInputStream(consumerRecord.value()),
                 readerSchemaVersion);
-        StreamlineEvent streamlineEvent = StreamlineEventImpl.builder().putAll(keyValues).dataSourceId(dataSourceId).build();
+        StreamlineEvent streamlineEvent;
+        if (keyValues instanceof SchemaIndexedStreamlineEvent) {
+            streamlineEvent = ((SchemaIndexedStreamlineEvent) keyValues).withDataSourceId(dataSourceId);
+        } else {
+            streamlineEvent = StreamlineEventImpl.builder().putAll(keyValues).dataSourceId(dataSourceId).build();
+        }
         KafkaTuple kafkaTuple = new KafkaTuple(streamlineEvent);
         kafkaTuple.routedTo(outputStream);
         return kafkaTuple;
     }
 
+    /**
+     * Emits {@link SchemaIndexedStreamlineEvent}s, which share the field layout of the record schema
+     * instead of carrying a map of their fields, when set to true.
+     */
+    public void withSchemaIndexedEvents(boolean schemaIndexedEvents) {
+        this.schemaIndexedEvents = schemaIndexedEvents;
+    }
+
     @Override
     public Fields getFieldsFor (String s) {
         return new Fields(StreamlineEvent.STREAMLINE_EVENT);
@@ -79,7 +94,7 @@ public class AvroKafkaSpoutTranslator implements RecordTranslator<Object, ByteBu
     private AvroStreamsSnapshotDeserializer deserializer () {
         //initializing deserializer here should be synchronized (using DCL pattern?) when single threaded nature of kafka spout does not hold true anymore
         if (avroStreamsSnapshotDeserializer == null) {
-            AvroStreamsSnapshotDeserializer deserializer = new AvroStreamsSnapshotDeserializer();
+            AvroStreamsSnapshotDeserializer deserializer = new AvroStreamsSnapshotDeserializer(schemaIndexedEvents);
             Map<String, Object> config = new HashMap<>();
             config.put(SchemaRegistryClient.Configuration.SCHEMA_REGISTRY_URL.name(), schemaRegistryUrl);
             deserializer.init(config);
@@ -22,6 +22,8 @@ import com.hortonworks.registries.schemaregistry.SchemaMetadata;
 import com.hortonworks.registries.schemaregistry.serde.SerDesException;
 import com.hortonworks.registries.schemaregistry.serdes.avro.AvroSnapshotDeserializer;
 import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.EventFieldLayout;
+import com.hortonworks.streamline.streams.common.SchemaIndexedStreamlineEvent;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
@@ -29,14 +31,30 @@ import org.apache.avro.generic.IndexedRecord;
 
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
  */
 public class AvroStreamsSnapshotDeserializer extends AvroSnapshotDeserializer {
+    private final boolean schemaIndexedEvents;
+    private final Map<Schema, EventFieldLayout> layouts = new ConcurrentHashMap<>();
+
+    public AvroStreamsSnapshotDeserializer() {
+        this(false);
+    }
+
+    /**
+     * @param schemaIndexedEvents if true, records are deserialized into {@link SchemaIndexedStreamlineEvent}s
+     *                            laid out according to the writer schema of the record, otherwise into maps.
+     */
+    public AvroStreamsSnapshotDeserializer(boolean schemaIndexedEvents) {
+        this.schemaIndexedEvents = schemaIndexedEvents;
+    }
 
     protected Object doDeserialize(InputStream payloadInputStream,
                                    byte protocolId,
@@ -45,6 +63,10 @@ public class AvroStreamsSnapshotDeserializer extends AvroSnapshotDeserializer {
                                    Integer readerSchemaVersion) throws SerDesException {
         Object deserializedObj = super.doDeserialize(payloadInputStream, protocolId, schemaMetadata, writerSchemaVersion, readerSchemaVersion);
 
+        if (schemaIndexedEvents && deserializedObj instanceof IndexedRecord) {
+            return toSchemaIndexedEvent((IndexedRecord) deserializedObj);
+        }
+
         ImmutableMap.Builder<String, Object> builder = ImmutableMap.builder();
         Object values = convertValue(deserializedObj);
         if (values instanceof Map) {
@@ -56,6 +78,25 @@ public class AvroStreamsSnapshotDeserializer extends AvroSnapshotDeserializer {
         return builder.build();
     }
 
+    private SchemaIndexedStreamlineEvent toSchemaIndexedEvent(IndexedRecord indexedRecord) {
+        Schema schema = indexedRecord.getSchema();
+        EventFieldLayout layout = layouts.computeIfAbsent(schema, this::layoutOf);
+        SchemaIndexedStreamlineEvent.Builder builder = SchemaIndexedStreamlineEvent.builder(layout);
+        // the layout follows the record's field order, so the field positions are the slots
+        for (Schema.Field field : schema.getFields()) {
+            builder.put(field.pos(), convertValue(indexedRecord.get(field.pos())));
+        }
+        return builder.build();
+    }
+
+    private EventFieldLayout layoutOf(Schema schema) {
+        List<String> fieldNames = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+            fieldNames.add(field.name());
+        }
+        return EventFieldLayout.of(fieldNames);
+    }
+
     private Object convertValue(Object deserializedObj) {
         Object value;
 
@@ -0,0 +1,342 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.state;
+
+import org.apache.storm.state.DefaultStateSerializer;
+import org.apache.storm.state.KeyValueState;
+import org.apache.storm.state.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link KeyValueState} persisted in a local directory, for the checkpointed bolts.
+ * <p>
+ * The state is kept in memory and each commit appends the keys changed since the previous commit to a log file, so
+ * the cost of a checkpoint is proportional to the changes rather than to the size of the state. The prepared changes
+ * are written to a separate file until they are committed. The log is rewritten as a snapshot of the state when it
+ * holds many more changes than the state has entries. The state is read back from the log when it's created or rolled
+ * back.
+ * </p>
+ * <p>
+ * Each batch of changes is written with its length and checksum. A batch partially written before a crash is cut off
+ * the log when it's read back, so that the next batches are appended after the last complete one.
+ * </p>
+ */
+public class LocalKeyValueState<K, V> implements KeyValueState<K, V> {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalKeyValueState.class);
+    private static final String LOG_FILE = "state.log";
+    private static final String PREPARED_FILE = "state.prepared";
+    private static final long NO_TXID = -1;
+    private static final int MIN_COMPACTION_CHANGES = 10_000;
+    // the length and the checksum of a batch
+    private static final int BATCH_HEADER_SIZE = 4 + 8;
+
+    private final File directory;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+    private final Map<K, V> state = new HashMap<>();
+    // changes since the last prepare, null values are deletions
+    private Map<K, V> pendingChanges = new HashMap<>();
+    private Map<K, V> preparedChanges;
+    private long preparedTxid = NO_TXID;
+    private long committedTxid = NO_TXID;
+    private long loggedChanges = 0;
+
+    public LocalKeyValueState(File directory) {
+        this(directory, new DefaultStateSerializer<K>(), new DefaultStateSerializer<V>());
+    }
+
+    public LocalKeyValueState(File directory, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.directory = directory;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create state directory " + directory);
+        }
+        load();
+    }
+
+    @Override
+    public void put(K key, V value) {
+        state.put(key, value);
+        pendingChanges.put(key, value);
+    }
+
+    @Override
+    public V get(K key) {
+        return state.get(key);
+    }
+
+    @Override
+    public V get(K key, V defaultValue) {
+        V value = state.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public V delete(K key) {
+        V value = state.remove(key);
+        pendingChanges.put(key, null);
+        return value;
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return Collections.unmodifiableMap(state).entrySet().iterator();
+    }
+
+    @Override
+    public void prepareCommit(long txid) {
+        if (preparedChanges != null) {
+            // the previous prepare was not committed, merge it with the new changes
+            preparedChanges.putAll(pendingChanges);
+        } else {
+            preparedChanges = pendingChanges;
+        }
+        pendingChanges = new HashMap<>();
+        preparedTxid = txid;
+        writeChanges(new File(directory, PREPARED_FILE), false, txid, preparedChanges);
+    }
+
+    @Override
+    public void commit(long txid) {
+        if (preparedChanges == null || preparedTxid != txid) {
+            LOG.debug("Nothing prepared to commit for txid {} in {}", txid, directory);
+            return;
+        }
+        writeChanges(new File(directory, LOG_FILE), true, txid, preparedChanges);
+        loggedChanges += preparedChanges.size();
+        committedTxid = txid;
+        preparedChanges = null;
+        preparedTxid = NO_TXID;
+        if (!new File(directory, PREPARED_FILE).delete()) {
+            LOG.warn("Could not delete the prepared changes of {}", directory);
+        }
+        if (loggedChanges > Math.max(MIN_COMPACTION_CHANGES, 2L * state.size())) {
+            compact();
+        }
+    }
+
+    @Override
+    public void commit() {
+        long txid = committedTxid + 1;
+        prepareCommit(txid);
+        commit(txid);
+    }
+
+    @Override
+    public void rollback() {
+        state.clear();
+        pendingChanges = new HashMap<>();
+        preparedChanges = null;
+        preparedTxid = NO_TXID;
+        File prepared = new File(directory, PREPARED_FILE);
+        if (prepared.exists() && !prepared.delete()) {
+            LOG.warn("Could not delete the prepared changes of {}", directory);
+        }
+        load();
+    }
+
+    private void load() {
+        loggedChanges = 0;
+        File log = new File(directory, LOG_FILE);
+        committedTxid = log.exists() ? replay(log, state) : NO_TXID;
+        // changes prepared by a previous worker, the next checkpoint commits or rolls them back
+        File prepared = new File(directory, PREPARED_FILE);
+        if (prepared.exists()) {
+            Map<K, V> changes = new HashMap<>();
+            try (DataInputStream in = openLog(prepared)) {
+                byte[] batch = readBatch(in, prepared.length());
+                preparedTxid = batch != null ? decodeBatch(batch, changes) : NO_TXID;
+            } catch (IOException e) {
+                LOG.warn("Ignoring the unreadable prepared changes of {}", directory, e);
+                preparedTxid = NO_TXID;
+            }
+            if (preparedTxid != NO_TXID) {
+                preparedChanges = changes;
+                apply(changes, state);
+            }
+        }
+        LOG.info("Loaded state of {} entries at txid {} from {}", state.size(), committedTxid, directory);
+    }
+
+    // applies the complete batches of a log to the target, cuts off the rest of the log, returns the txid of the last batch
+    private long replay(File file, Map<K, V> target) {
+        long lastTxid = NO_TXID;
+        long fileLength = file.length();
+        long validLength = 0;
+        Map<K, V> changes = new HashMap<>();
+        try (DataInputStream in = openLog(file)) {
+            byte[] batch;
+            while ((batch = readBatch(in, fileLength - validLength)) != null) {
+                lastTxid = decodeBatch(batch, changes);
+                apply(changes, target);
+                loggedChanges += changes.size();
+                validLength += BATCH_HEADER_SIZE + batch.length;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read state from " + file, e);
+        }
+        if (validLength < fileLength) {
+            // a batch partially written before a crash was not committed
+            LOG.warn("Truncating the incomplete batch at the end of {} from {} to {} bytes", file, fileLength, validLength);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not truncate state log " + file, e);
+            }
+        }
+        return lastTxid;
+    }
+
+    // reads the next batch out of the remaining bytes, returns null at the end or if the batch is incomplete or corrupted
+    private static byte[] readBatch(DataInputStream in, long remaining) throws IOException {
+        if (remaining < BATCH_HEADER_SIZE) {
+            return null;
+        }
+        int length = in.readInt();
+        long checksum = in.readLong();
+        if (length < 0 || length > remaining - BATCH_HEADER_SIZE) {
+            return null;
+        }
+        byte[] batch = new byte[length];
+        in.readFully(batch);
+        return checksum(batch) == checksum ? batch : null;
+    }
+
+    // reads the changes of a batch, returns its txid
+    private long decodeBatch(byte[] batch, Map<K, V> changes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+        long txid = in.readLong();
+        int count = in.readInt();
+        changes.clear();
+        for (int i = 0; i < count; i++) {
+            K key = keySerializer.deserialize(readBytes(in));
+            byte[] value = readBytes(in);
+            changes.put(key, value != null ? valueSerializer.deserialize(value) : null);
+        }
+        return txid;
+    }
+
+    private static <K, V> void apply(Map<K, V> changes, Map<K, V> target) {
+        for (Map.Entry<K, V> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                target.put(change.getKey(), change.getValue());
+            } else {
+                target.remove(change.getKey());
+            }
+        }
+    }
+
+    private void writeChanges(File file, boolean append, long txid, Map<K, V> changes) {
+        try (FileOutputStream fileOut = new FileOutputStream(file, append)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream batch = new DataOutputStream(bytes);
+            batch.writeLong(txid);
+            batch.writeInt(changes.size());
+            for (Map.Entry<K, V> change : changes.entrySet()) {
+                writeBytes(batch, keySerializer.serialize(change.getKey()));
+                writeBytes(batch, change.getValue() != null ? valueSerializer.serialize(change.getValue()) : null);
+            }
+            batch.flush();
+            byte[] batchBytes = bytes.toByteArray();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(batchBytes.length);
+            out.writeLong(checksum(batchBytes));
+            out.write(batchBytes);
+            out.flush();
+            fileOut.getFD().sync();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write state to " + file, e);
+        }
+    }
+
+    // rewrites the log as one batch with the committed state
+    private void compact() {
+        File log = new File(directory, LOG_FILE);
+        Map<K, V> committedState = new HashMap<>();
+        replay(log, committedState);
+        File snapshot = new File(directory, LOG_FILE + ".tmp");
+        writeChanges(snapshot, false, committedTxid, committedState);
+        try {
+            Files.move(snapshot.toPath(), log.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not compact state log of " + directory, e);
+        }
+        loggedChanges = committedState.size();
+        LOG.debug("Compacted state log of {} to {} entries", directory, loggedChanges);
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static DataInputStream openLog(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LocalKeyValueState{" +
+                "directory=" + directory +
+                ", size=" + state.size() +
+                ", committedTxid=" + committedTxid +
+                '}';
+    }
+}
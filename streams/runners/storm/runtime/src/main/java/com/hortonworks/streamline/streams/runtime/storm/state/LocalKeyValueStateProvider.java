@@ -0,0 +1,82 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.storm.Config;
+import org.apache.storm.state.State;
+import org.apache.storm.state.StateProvider;
+import org.apache.storm.task.TopologyContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Provides {@link LocalKeyValueState}s to the stateful bolts, set {@code topology.state.provider} to this class.
+ * <p>
+ * The states are stored in the "directory" of the JSON {@code topology.state.provider.config}, or in the state
+ * directory of {@code storm.local.dir}, with one sub directory per topology id (the topology name followed by the
+ * submission counter and time) holding one sub directory per namespace (component and task). A restarted worker
+ * restores the state of its topology, a topology submitted again starts with an empty state.
+ * </p>
+ * <p>
+ * The states are local to the host. A task rescheduled on another supervisor starts with an empty state, so the
+ * state is only recovered when the workers are restarted on the same hosts, e.g. with a shared directory mounted on
+ * all the supervisors.
+ * </p>
+ */
+public class LocalKeyValueStateProvider implements StateProvider {
+    public static final String DIRECTORY = "directory";
+
+    @Override
+    public State newState(String namespace, Map stormConf, TopologyContext context) {
+        return new LocalKeyValueState<>(new File(new File(getDirectory(stormConf), getTopologyId(stormConf, context)),
+                namespace));
+    }
+
+    // the id of a running topology, the name when there is no topology context
+    static String getTopologyId(Map stormConf, TopologyContext context) {
+        if (context != null && context.getStormId() != null) {
+            return context.getStormId();
+        }
+        Object topologyName = stormConf.get(Config.TOPOLOGY_NAME);
+        if (topologyName == null) {
+            throw new IllegalArgumentException("No topology id or " + Config.TOPOLOGY_NAME + " for the local state");
+        }
+        return topologyName.toString();
+    }
+
+    static String getDirectory(Map stormConf) {
+        Object providerConfig = stormConf.get(Config.TOPOLOGY_STATE_PROVIDER_CONFIG);
+        if (providerConfig != null && !providerConfig.toString().isEmpty()) {
+            try {
+                Map<String, Object> config = new ObjectMapper().readValue(providerConfig.toString(), Map.class);
+                if (config.get(DIRECTORY) != null) {
+                    return config.get(DIRECTORY).toString();
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid state provider config " + providerConfig, e);
+            }
+        }
+        Object localDir = stormConf.get(Config.STORM_LOCAL_DIR);
+        if (localDir == null) {
+            throw new IllegalArgumentException("No directory for the local state, set " + DIRECTORY + " in "
+                    + Config.TOPOLOGY_STATE_PROVIDER_CONFIG);
+        }
+        return new File(localDir.toString(), "state").getPath();
+    }
+}
@@ -0,0 +1,157 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt;
+
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.common.utils.JsonMultilangSerializer;
+import com.hortonworks.streamline.streams.common.utils.MessagePackMultilangSerializer;
+import com.hortonworks.streamline.streams.common.utils.ShellContext;
+import com.hortonworks.streamline.streams.runtime.processor.MultiLangProcessorRuntime;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a pool of python processors emitting the events they receive with their pid.
+ */
+public class MultiLangProcessorRuntimeTest {
+    private static final int NUM_KEYS = 10;
+    private static final int NUM_EVENTS = 200;
+
+    private File codeDir;
+    private MultiLangProcessorRuntime processorRuntime;
+
+    @Before
+    public void setup() throws Exception {
+        codeDir = Files.createTempDirectory("multilang").toFile();
+        for (String script : new String[]{"streamline.py", "pid.py"}) {
+            FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("/" + script), new File(codeDir, script));
+        }
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        if (processorRuntime != null) {
+            processorRuntime.cleanup();
+        }
+        FileUtils.deleteDirectory(codeDir);
+    }
+
+    @Test
+    public void testKeyAffinity() throws Exception {
+        processorRuntime = newProcessorRuntime(MessagePackMultilangSerializer.class.getName(), 4,
+                Collections.singletonList("key"));
+        assertKeyAffinity(4);
+    }
+
+    @Test
+    public void testKeyAffinityJson() throws Exception {
+        processorRuntime = newProcessorRuntime(JsonMultilangSerializer.class.getName(), 3,
+                Collections.singletonList("key"));
+        assertKeyAffinity(3);
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        processorRuntime = newProcessorRuntime(MessagePackMultilangSerializer.class.getName(), 2, null);
+        Set<Object> pids = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            pids.add(process(i).get(0).events.get(0).get("pid"));
+        }
+        assertEquals(2, pids.size());
+    }
+
+    private void assertKeyAffinity(int numProcesses) throws Exception {
+        List<CompletableFuture<List<Result>>> results = new ArrayList<>();
+        for (int i = 0; i < NUM_EVENTS; i++) {
+            Map<String, Object> fieldsAndValues = new HashMap<>();
+            fieldsAndValues.put("key", "key" + (i % NUM_KEYS));
+            fieldsAndValues.put("seq", i);
+            results.add(processorRuntime.processAsync(new StreamlineEventImpl(fieldsAndValues, "1", "id" + i)));
+        }
+        processorRuntime.flush();
+
+        Map<Object, Object> pidOfKeys = new HashMap<>();
+        // completion order of each key
+        Map<Object, List<Object>> sequences = new HashMap<>();
+        List<CompletableFuture<Void>> completions = new ArrayList<>();
+        for (CompletableFuture<List<Result>> result : results) {
+            completions.add(result.thenAccept(r -> {
+                StreamlineEvent event = r.get(0).events.get(0);
+                synchronized (sequences) {
+                    sequences.computeIfAbsent(event.get("key"), k -> new ArrayList<>()).add(event.get("seq"));
+                }
+            }));
+        }
+        CompletableFuture.allOf(completions.toArray(new CompletableFuture[completions.size()])).get(10, TimeUnit.SECONDS);
+        for (CompletableFuture<List<Result>> result : results) {
+            StreamlineEvent event = result.get().get(0).events.get(0);
+            Object pid = pidOfKeys.putIfAbsent(event.get("key"), event.get("pid"));
+            assertTrue(pid == null || pid.equals(event.get("pid")));
+        }
+        assertEquals(numProcesses, new HashSet<>(pidOfKeys.values()).size());
+        for (List<Object> sequence : sequences.values()) {
+            for (int i = 1; i < sequence.size(); i++) {
+                assertTrue(((Integer) sequence.get(i - 1)) < (Integer) sequence.get(i));
+            }
+        }
+    }
+
+    private List<Result> process(int seq) throws Exception {
+        Map<String, Object> fieldsAndValues = Collections.<String, Object>singletonMap("seq", seq);
+        return processorRuntime.process(new StreamlineEventImpl(fieldsAndValues, "1", "id" + seq));
+    }
+
+    private MultiLangProcessorRuntime newProcessorRuntime(String serializer, int numProcesses, List<String> keyFields) {
+        ShellContext shellContext = new ShellContext();
+        shellContext.setCodeDir(codeDir.getAbsolutePath());
+        shellContext.setPidDir(codeDir.getAbsolutePath());
+        shellContext.setComponentId("pid");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(MultiLangProcessorRuntime.COMMAND, new String[]{"python", "pid.py"});
+        config.put(MultiLangProcessorRuntime.PROCESS_CONFIG, new HashMap<String, Object>());
+        config.put(MultiLangProcessorRuntime.SHELL_CONTEXT, shellContext);
+        config.put(MultiLangProcessorRuntime.OUTPUT_STREAMS, Collections.singletonList("stream"));
+        config.put(MultiLangProcessorRuntime.PROCESS_TIMEOUT_MILLS, 60000);
+        config.put(MultiLangProcessorRuntime.SHELL_ENVIRONMENT, new HashMap<String, String>());
+        config.put(MultiLangProcessorRuntime.MULTILANG_SERIALIZER, serializer);
+        config.put(MultiLangProcessorRuntime.NUM_PROCESSES, numProcesses);
+        config.put(MultiLangProcessorRuntime.BATCH_SIZE, 8);
+        config.put(MultiLangProcessorRuntime.ROUTING_KEY_FIELDS, keyFields);
+        MultiLangProcessorRuntime runtime = new MultiLangProcessorRuntime();
+        runtime.initialize(config);
+        return runtime;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt;
+
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.common.utils.JsonMultilangSerializer;
+import com.hortonworks.streamline.streams.common.utils.MessagePackMultilangSerializer;
+import com.hortonworks.streamline.streams.common.utils.ShellContext;
+import com.hortonworks.streamline.streams.runtime.processor.MultiLangProcessorRuntime;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the events per millisecond going through a python identity processor, with the JSON serializer or the
+ * MessagePack serializer sending frames of one event or batches of events, and with one or several subprocesses.
+ * <p>
+ * Requires python in the path. Run with
+ * {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.storm.bolt.MultiLangSerializerBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiLangSerializerBenchmark {
+    private static final int NUM_FIELDS = 10;
+    private static final int EVENTS_PER_INVOCATION = 1000;
+
+    @Param({"json", "msgpack", "msgpack-pipelined"})
+    private String protocol;
+
+    @Param({"1", "4"})
+    private int numProcesses;
+
+    private File codeDir;
+    private MultiLangProcessorRuntime processorRuntime;
+    private Map<String, Object> fieldsAndValues;
+    private long nextId;
+
+    @Setup
+    public void setup() throws Exception {
+        codeDir = Files.createTempDirectory("multilang").toFile();
+        for (String script : new String[]{"streamline.py", "identity.py"}) {
+            FileUtils.copyInputStreamToFile(getClass().getResourceAsStream("/" + script), new File(codeDir, script));
+        }
+        ShellContext shellContext = new ShellContext();
+        shellContext.setCodeDir(codeDir.getAbsolutePath());
+        shellContext.setPidDir(codeDir.getAbsolutePath());
+        shellContext.setComponentId("identity");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(MultiLangProcessorRuntime.COMMAND, new String[]{"python", "identity.py"});
+        config.put(MultiLangProcessorRuntime.PROCESS_CONFIG, new HashMap<String, Object>());
+        config.put(MultiLangProcessorRuntime.SHELL_CONTEXT, shellContext);
+        config.put(MultiLangProcessorRuntime.OUTPUT_STREAMS, Collections.singletonList("stream"));
+        config.put(MultiLangProcessorRuntime.PROCESS_TIMEOUT_MILLS, 60000);
+        config.put(MultiLangProcessorRuntime.SHELL_ENVIRONMENT, new HashMap<String, String>());
+        config.put(MultiLangProcessorRuntime.MULTILANG_SERIALIZER, "json".equals(protocol) ?
+                JsonMultilangSerializer.class.getName() : MessagePackMultilangSerializer.class.getName());
+        config.put(MultiLangProcessorRuntime.NUM_PROCESSES, numProcesses);
+        if ("msgpack-pipelined".equals(protocol)) {
+            config.put(MultiLangProcessorRuntime.BATCH_SIZE, 100);
+        }
+        processorRuntime = new MultiLangProcessorRuntime();
+        processorRuntime.initialize(config);
+
+        fieldsAndValues = new HashMap<>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            fieldsAndValues.put("field" + i, i % 2 == 0 ? (Object) ("value" + i) : (Object) (long) i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        processorRuntime.cleanup();
+        FileUtils.deleteDirectory(codeDir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public Object process() throws Exception {
+        if (!processorRuntime.isPipelined()) {
+            Object results = null;
+            for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+                results = processorRuntime.process(nextEvent());
+            }
+            return results;
+        }
+        List<CompletableFuture<List<Result>>> results = new ArrayList<>(EVENTS_PER_INVOCATION);
+        for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+            results.add(processorRuntime.processAsync(nextEvent()));
+        }
+        processorRuntime.flush();
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()])).join();
+    }
+
+    private StreamlineEvent nextEvent() {
+        return new StreamlineEventImpl(fieldsAndValues, "1", Long.toString(nextId++), Collections.<String, Object>emptyMap(), "inputstream");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(MultiLangSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -16,6 +16,7 @@
 package com.hortonworks.streamline.streams.runtime.storm.bolt;
 
 import com.google.common.collect.ImmutableMap;
+import mockit.Delegate;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.Verifications;
@@ -28,6 +29,7 @@ import org.apache.storm.tuple.TupleImpl;
 import org.apache.storm.tuple.Values;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.common.utils.MessagePackMultilangSerializer;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,6 +44,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unit test for {@link StreamsShellBoltTest}
@@ -86,6 +90,50 @@ public class StreamsShellBoltTest {
         };
     }
 
+    @Test
+    public void testStreamsShellBoltMessagePack() throws Exception {
+        setUpExpectations();
+        copyFiles(readFile("/splitsentence.py") , new File("/tmp/splitsentence.py"));
+        copyFiles(readFile("/streamline.py"), new File("/tmp/streamline.py"));
+        String command = "python splitsentence.py";
+        StreamsShellBolt streamsShellBolt = new StreamsShellBolt(command, 60000)
+                .withOutputStreams(Arrays.asList("stream1"))
+                .withSerializer(MessagePackMultilangSerializer.class.getName())
+                .withBatchSize(2);
+
+        // the tuples are acked by the reader thread of the processor runtime
+        final CountDownLatch acked = new CountDownLatch(2);
+        new Expectations() {{
+            mockCollector.ack((Tuple) any);
+            result = new Delegate() {
+                void ack(Tuple tuple) {
+                    acked.countDown();
+                }
+            };
+        }};
+
+        streamsShellBolt.prepare(new HashMap(), mockContext, mockCollector);
+        final Tuple first = getNextTuple(1);
+        final Tuple second = getNextTuple(2);
+        streamsShellBolt.execute(first);
+        streamsShellBolt.execute(second);
+        Assert.assertTrue(acked.await(10, TimeUnit.SECONDS));
+        streamsShellBolt.cleanup();
+        new Verifications() {
+            {
+                List<Tuple> anchors = new ArrayList<>();
+                List<List<Object>> tuples = new ArrayList<>();
+                mockCollector.emit("stream", withCapture(anchors), withCapture(tuples));
+                Assert.assertEquals(8, tuples.size());
+                Assert.assertEquals("THIS", ((StreamlineEvent) tuples.get(0).get(0)).get("word"));
+                Assert.assertEquals("SENTENCE1", ((StreamlineEvent) tuples.get(3).get(0)).get("word"));
+                Assert.assertEquals(first, anchors.get(3));
+                Assert.assertEquals("SENTENCE2", ((StreamlineEvent) tuples.get(7).get(0)).get("word"));
+                Assert.assertEquals(second, anchors.get(7));
+            }
+        };
+    }
+
     private static void copyFiles(InputStream is, File dest) throws IOException {
         OutputStream os = null;
         try {
@@ -0,0 +1,210 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt.jdbc;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.runtime.storm.bolt.StreamlineJdbcMapper;
+import org.apache.storm.Config;
+import org.apache.storm.Constants;
+import org.apache.storm.jdbc.common.ConnectionProvider;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Tuple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamlineJdbcInsertBoltTest {
+    private static final String JDBC_URL = "jdbc:h2:mem:jdbcinsertbolt;DB_CLOSE_DELAY=-1";
+
+    private final List<Tuple> acked = new ArrayList<>();
+    private final List<Tuple> failed = new ArrayList<>();
+    private Connection connection;
+
+    @Before
+    public void setup() throws Exception {
+        connection = DriverManager.getConnection(JDBC_URL);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE DEVICES (ID INT PRIMARY KEY, NAME VARCHAR(32))");
+        }
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE DEVICES");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        StreamlineJdbcInsertBolt bolt = newBolt("INSERT INTO DEVICES (ID, NAME) VALUES (?, ?)", 3);
+        for (int i = 0; i < 3; i++) {
+            bolt.execute(newTuple(i));
+        }
+        // the full batch is written in the background, the next tuples wait for the next batch
+        bolt.execute(newTuple(3));
+        bolt.execute(newTuple(4));
+        bolt.cleanup();
+        assertEquals(5, acked.size());
+        assertTrue(failed.isEmpty());
+        assertEquals(5, countRows());
+    }
+
+    @Test
+    public void testFlushOnTick() throws Exception {
+        StreamlineJdbcInsertBolt bolt = newBolt("INSERT INTO DEVICES (ID, NAME) VALUES (?, ?)", 100);
+        bolt.execute(newTuple(0));
+        bolt.execute(newTuple(1));
+        assertEquals(0, countRows());
+        bolt.execute(newTickTuple());
+        bolt.cleanup();
+        assertEquals(2, acked.size());
+        assertEquals(2, countRows());
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception {
+        StreamlineJdbcInsertBolt bolt = newBolt("INSERT INTO DEVICES (ID, NAME) VALUES (?, ?)", 3);
+        // the duplicate key fails the whole batch, which is rolled back
+        bolt.execute(newTuple(0));
+        bolt.execute(newTuple(1));
+        bolt.execute(newTuple(0));
+        bolt.cleanup();
+        assertTrue(acked.isEmpty());
+        assertEquals(3, failed.size());
+        assertEquals(0, countRows());
+    }
+
+    private StreamlineJdbcInsertBolt newBolt(String insertQuery, int batchSize) {
+        ConnectionProvider connectionProvider = new H2ConnectionProvider();
+        StreamlineJdbcInsertBolt bolt = new StreamlineJdbcInsertBolt(connectionProvider,
+                new StreamlineJdbcMapper("DEVICES", connectionProvider, Arrays.asList("id", "name")));
+        bolt.withInsertQuery(insertQuery);
+        bolt.withBatchSize(batchSize);
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.TOPOLOGY_MESSAGE_TIMEOUT_SECS, 30);
+        bolt.prepare(conf, null, new OutputCollector(new RecordingOutputCollector()));
+        return bolt;
+    }
+
+    private int countRows() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM DEVICES")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static Tuple newTuple(int id) {
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        fieldsAndValues.put("id", id);
+        fieldsAndValues.put("name", "device" + id);
+        StreamlineEvent event = new StreamlineEventImpl(fieldsAndValues, "1");
+        return tuple("source", "default", event);
+    }
+
+    private static Tuple newTickTuple() {
+        return tuple(Constants.SYSTEM_COMPONENT_ID, Constants.SYSTEM_TICK_STREAM_ID, null);
+    }
+
+    private static Tuple tuple(String sourceComponent, String sourceStreamId, StreamlineEvent event) {
+        return (Tuple) Proxy.newProxyInstance(Tuple.class.getClassLoader(), new Class<?>[]{Tuple.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getSourceComponent":
+                            return sourceComponent;
+                        case "getSourceStreamId":
+                            return sourceStreamId;
+                        case "getValueByField":
+                            return event;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static class H2ConnectionProvider implements ConnectionProvider {
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Connection getConnection() {
+            try {
+                return DriverManager.getConnection(JDBC_URL);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+
+    private class RecordingOutputCollector implements IOutputCollector {
+        @Override
+        public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+        }
+
+        @Override
+        public void ack(Tuple input) {
+            acked.add(input);
+        }
+
+        @Override
+        public void fail(Tuple input) {
+            failed.add(input);
+        }
+
+        @Override
+        public void resetTimeout(Tuple input) {
+        }
+
+        @Override
+        public void reportError(Throwable error) {
+        }
+    }
+}
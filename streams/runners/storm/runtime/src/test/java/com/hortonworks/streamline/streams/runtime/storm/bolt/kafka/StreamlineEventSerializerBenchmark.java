@@ -0,0 +1,123 @@
+/**
+ * Copyright 2017 Hortonworks.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *   http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.bolt.kafka;
+
+import com.hortonworks.registries.schemaregistry.SchemaIdVersion;
+import com.hortonworks.registries.schemaregistry.client.SchemaRegistryClient;
+import com.hortonworks.registries.schemaregistry.serdes.avro.AvroSnapshotSerializer;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import org.apache.avro.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the records serialized per millisecond by one thread, with the writer schema cached by the
+ * {@link StreamlineEventSerializer} or parsed for each record as it used to be. The registry lookups which used to
+ * precede the parsing are not measured, the schema registry client is only used to write the schema version headers.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.storm.bolt.kafka.StreamlineEventSerializerBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamlineEventSerializerBenchmark {
+    private static final String TOPIC = "topic";
+    private static final int NUM_FIELDS = 20;
+
+    @Param({"cached", "parsed"})
+    private String writerSchema;
+
+    private Schema schema;
+    private String schemaText;
+    private StreamlineEventSerializer serializer;
+    private RegistrySerializer parsingSerializer;
+    private StreamlineEvent event;
+
+    @Setup
+    public void setup() {
+        List<Schema.Field> fields = new ArrayList<>();
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            Schema.Type type = i % 3 == 0 ? Schema.Type.STRING : i % 3 == 1 ? Schema.Type.LONG : Schema.Type.DOUBLE;
+            fields.add(new Schema.Field("field" + i, Schema.create(type), null, null));
+            values.put("field" + i, type == Schema.Type.STRING ? "value" + i : type == Schema.Type.LONG ? (Object) (long) i : (Object) (i / 2.0));
+        }
+        schema = Schema.createRecord("record", null, "benchmark", false);
+        schema.setFields(fields);
+        schemaText = schema.toString();
+        event = new StreamlineEventImpl(values, "dataSourceId");
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(SchemaRegistryClient.Configuration.SCHEMA_REGISTRY_URL.name(), "http://localhost:8080/api/v1");
+        configs.put("serdes.protocol.version", (byte) 1);
+        serializer = new StreamlineEventSerializer() {
+            @Override
+            WriterSchema loadWriterSchema(String topic) {
+                return new WriterSchema(1L, 1, new Schema.Parser().parse(schemaText));
+            }
+        };
+        serializer.configure(configs, false);
+        parsingSerializer = new RegistrySerializer();
+        parsingSerializer.init(configs);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        if ("cached".equals(writerSchema)) {
+            return serializer.serialize(TOPIC, event);
+        }
+        Schema parsed = new Schema.Parser().parse(schemaText);
+        return parsingSerializer.serialize(StreamlineEventSerializer.getAvroRecord(event, parsed), new SchemaIdVersion(1L, 1));
+    }
+
+    private static class RegistrySerializer extends AvroSnapshotSerializer {
+        byte[] serialize(Object input, SchemaIdVersion schemaIdVersion) {
+            return doSerialize(input, schemaIdVersion);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(StreamlineEventSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -15,8 +15,16 @@
  **/
 package com.hortonworks.streamline.streams.runtime.storm.bolt.kafka;
 
+import com.hortonworks.registries.schemaregistry.SchemaIdVersion;
+import com.hortonworks.registries.schemaregistry.SchemaMetadata;
+import com.hortonworks.registries.schemaregistry.SchemaMetadataInfo;
+import com.hortonworks.registries.schemaregistry.SchemaVersionInfo;
+import com.hortonworks.registries.schemaregistry.client.SchemaRegistryClient;
+import com.hortonworks.registries.schemaregistry.serdes.avro.AvroSnapshotSerializer;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import mockit.Expectations;
+import mockit.Mocked;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericRecord;
@@ -30,6 +38,9 @@ import java.util.Map;
 
 public class StreamlineEventSerializerTest {
 
+    @Mocked
+    SchemaRegistryClient mockSchemaRegistryClient;
+
     private static final Object[] PRIMITIVE_VALUES = { new Boolean(true), new String("STRINGVALUE"), new Integer(0), new Long(0l), new Double(0.0), "bytes"
             .getBytes() };
     private static final Schema.Type[] SCHEMA_TYPES = { Schema.Type.BOOLEAN, Schema.Type.STRING, Schema.Type.INT, Schema.Type.LONG, Schema.Type.DOUBLE,
@@ -77,10 +88,56 @@ public class StreamlineEventSerializerTest {
         Assert.assertEquals(expected, StreamlineEventSerializer.getAvroRecord(streamlineEvent, schema));
     }
 
+    @Test
+    public void testSerializeWithCachedWriterSchema () throws Exception {
+        // the avro datum writer expects ByteBuffers for the bytes fields
+        List<Schema.Field> fields = new ArrayList<>();
+        for (int i = 0; i < PRIMITIVE_VALUES.length - 1; ++i) {
+            fields.add(new Schema.Field(NAMES[i], Schema.create(SCHEMA_TYPES[i]), null, null));
+        }
+        Schema schema = Schema.createRecord("record", null, "test", false);
+        schema.setFields(fields);
+        SchemaMetadata schemaMetadata = new SchemaMetadata.Builder("topic").type("avro").schemaGroup("kafka").build();
+        new Expectations() {
+            {
+                mockSchemaRegistryClient.getSchemaMetadataInfo("topic");
+                result = new SchemaMetadataInfo(schemaMetadata);
+                times = 1;
+                mockSchemaRegistryClient.getLatestSchemaVersionInfo("topic");
+                result = new SchemaVersionInfo(1L, "topic", 1, schema.toString(), 1L, "description");
+                times = 1;
+            }
+        };
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(SchemaRegistryClient.Configuration.SCHEMA_REGISTRY_URL.name(), "http://localhost:8080/api/v1");
+        configs.put("serdes.protocol.version", (byte) 1);
+        StreamlineEventSerializer serializer = new StreamlineEventSerializer();
+        serializer.configure(configs, false);
+        CustomAvroSerializer expectedSerializer = new CustomAvroSerializer();
+        expectedSerializer.init(configs);
+
+        for (int i = 0; i < 3; ++i) {
+            Map<String, Object> data = new HashMap<>();
+            for (int j = 0; j < fields.size(); ++j) {
+                data.put(NAMES[j], j == 2 ? (Object) i : PRIMITIVE_VALUES[j]);
+            }
+            StreamlineEvent streamlineEvent = new StreamlineEventImpl(data, "dataSourceId");
+            byte[] expected = expectedSerializer.customSerialize(StreamlineEventSerializer.getAvroRecord(streamlineEvent, schema),
+                    new SchemaIdVersion(null, 1));
+            Assert.assertArrayEquals(expected, serializer.serialize("topic", streamlineEvent));
+        }
+        serializer.close();
+    }
+
     private void runPrimitiveTest (Map data, Schema schema, Object expectedValue) {
         StreamlineEvent streamlineEvent = new StreamlineEventImpl(data, "dataSourceId");
         Assert.assertEquals(expectedValue, StreamlineEventSerializer.getAvroRecord(streamlineEvent, schema));
     }
 
-
+    private static class CustomAvroSerializer extends AvroSnapshotSerializer {
+        public byte[] customSerialize(Object input, SchemaIdVersion schemaIdVersion) {
+            return doSerialize(input, schemaIdVersion);
+        }
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
+
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a realtime join retaining millions of tuples, with the retention windows on the heap
+ * or in off heap buffers. Each operation buffers a new ad, which expires the oldest one, and joins an order with
+ * one of the last ads. The heap used by the retained tuples is printed after the setup.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.storm.bolt.query.RealtimeJoinBoltBenchmark -prof gc}
+ * to compare the allocation rates and GC times.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-XX:MaxDirectMemorySize=3g"})
+public class RealtimeJoinBoltBenchmark {
+    private static final String[] AD_FIELDS = {"id", "userId", "product"};
+    private static final String[] ORDER_FIELDS = {"id", "userId", "product", "price"};
+    private static final String[] PRODUCTS = {"book", "watch", "chair", "tv", "camera", "mattress"};
+
+    // retained tuples of each stream
+    @Param({"1000000"})
+    private int retainedTuples;
+
+    @Param({"heap", "offheap", "spilling"})
+    private String buffer;
+
+    private TestRealtimeJoinBolt.MockTopologyContext context;
+    private RealtimeJoinBolt bolt;
+    private File spillDirectory;
+    private int nextId;
+
+    @Setup
+    public void setup() throws Exception {
+        RealtimeJoinBolt bolt = new RealtimeJoinBolt(RealtimeJoinBolt.StreamKind.STREAM)
+                .from("ads", retainedTuples, false)
+                .innerJoin("orders", retainedTuples, false, Cmp.equal("orders:userId", "ads:userId"))
+                .select("ads:id, orders:id, ads:userId, ads:product, orders:product, price");
+        if ("offheap".equals(buffer)) {
+            bolt.withOffHeapBuffer(64).withAckOnBuffer();
+        } else if ("spilling".equals(buffer)) {
+            spillDirectory = Files.createTempDirectory("join-buffer").toFile();
+            bolt.withSpillingBuffer(spillDirectory.getPath(), 64).withAckOnBuffer();
+        }
+        context = new TestRealtimeJoinBolt.MockTopologyContext();
+        context.streamFields.put("ads", new Fields(AD_FIELDS));
+        context.streamFields.put("orders", new Fields(ORDER_FIELDS));
+        bolt.prepare(Utils.readDefaultConfig(), context, new DiscardingCollector());
+        this.bolt = bolt;
+
+        // orders that don't match any ad
+        for (int i = 0; i < retainedTuples; i++) {
+            bolt.execute(order(i, -i - 1));
+        }
+        for (nextId = 0; nextId < retainedTuples; nextId++) {
+            bolt.execute(ad(nextId));
+        }
+        System.gc();
+        System.out.println();
+        System.out.println("Heap used with " + retainedTuples + " retained tuples per stream: "
+                + ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024) + " MB");
+    }
+
+    @TearDown
+    public void tearDown() {
+        bolt.cleanup();
+        if (spillDirectory != null) {
+            spillDirectory.delete();
+        }
+    }
+
+    @Benchmark
+    public void join() {
+        int id = nextId++;
+        bolt.execute(ad(id));
+        bolt.execute(order(id, id - (id % 1000)));
+    }
+
+    private Tuple ad(int id) {
+        return new TupleImpl(context, Arrays.<Object>asList(id, id, PRODUCTS[id % PRODUCTS.length]), 0, "ads");
+    }
+
+    private Tuple order(int id, int userId) {
+        return new TupleImpl(context, Arrays.<Object>asList(id, userId, PRODUCTS[id % PRODUCTS.length], id % 500), 0,
+                "orders");
+    }
+
+    private static class DiscardingCollector extends OutputCollector {
+        DiscardingCollector() {
+            super(null);
+        }
+
+        @Override
+        public List<Integer> emit(Collection<Tuple> anchors, List<Object> tuple) {
+            return null;
+        }
+
+        @Override
+        public List<Integer> emit(Tuple anchor, List<Object> tuple) {
+            return null;
+        }
+
+        @Override
+        public void ack(Tuple input) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RealtimeJoinBoltBenchmark.class.getSimpleName()).build()).run();
+    }
+}
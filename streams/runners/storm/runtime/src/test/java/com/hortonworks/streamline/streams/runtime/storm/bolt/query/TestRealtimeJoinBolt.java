@@ -21,14 +21,20 @@ package com.hortonworks.streamline.streams.runtime.storm.bolt.query;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import com.hortonworks.streamline.streams.runtime.storm.bolt.query.RealtimeJoinBolt.StreamKind;
+import com.hortonworks.streamline.streams.runtime.storm.state.LocalKeyValueState;
+import org.apache.commons.io.FileUtils;
 import org.apache.storm.Constants;
 import org.apache.storm.task.GeneralTopologyContext;
 import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.base.BaseWindowedBolt;
 import org.apache.storm.tuple.*;
+import org.apache.storm.utils.Utils;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -344,6 +350,163 @@ public class TestRealtimeJoinBolt {
         Assert.assertEquals( 3, collector.actualResults.size() );
     }
 
+    @Test
+    public void testSingleKey_OuterJoin_CountRetention_OffHeap() throws Exception {
+        ArrayList<Tuple> orderStream = makeStream("orders", orderFields, orders);
+        ArrayList<Tuple> adImpressionStream = makeStream("ads", adImpressionFields, adImpressions);
+
+        MockCollector expected = runJoin(new RealtimeJoinBolt(RealtimeJoinBolt.StreamKind.STREAM)
+                .from("ads", 2, false)
+                .outerJoin("orders", 3, false, Cmp.equal("orders:userId", "ads:userId"))
+                .select("ads:id, orders:id, ads:userId, ads:product, orders:product, price"), orderStream, adImpressionStream);
+        MockCollector actual = runJoin(new RealtimeJoinBolt(RealtimeJoinBolt.StreamKind.STREAM)
+                .from("ads", 2, false)
+                .outerJoin("orders", 3, false, Cmp.equal("orders:userId", "ads:userId"))
+                .select("ads:id, orders:id, ads:userId, ads:product, orders:product, price")
+                .withOffHeapBuffer(1)
+                .withAckOnBuffer(), orderStream, adImpressionStream);
+
+        printResults(actual);
+        Assert.assertEquals( expected.actualResults, actual.actualResults );
+        Assert.assertEquals( orderStream.size() + adImpressionStream.size(), actual.acked.size() );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOffHeap_WithoutAckOnBuffer() throws Exception {
+        ArrayList<Tuple> orderStream = makeStream("orders", orderFields, orders);
+        ArrayList<Tuple> adImpressionStream = makeStream("ads", adImpressionFields, adImpressions);
+
+        runJoin(new RealtimeJoinBolt(RealtimeJoinBolt.StreamKind.STREAM)
+                .from("ads", 2, false)
+                .outerJoin("orders", 3, false, Cmp.equal("orders:userId", "ads:userId"))
+                .select("ads:id, orders:id, ads:userId, ads:product, orders:product, price")
+                .withOffHeapBuffer(1), orderStream, adImpressionStream);
+    }
+
+    @Test
+    public void testStreamlineMultiKey_InnerJoin_CountRetention_Unique_Spilling() throws Exception {
+        Object[][] duplicateOrders = Arrays.copyOf(orders, orders.length + 2);
+        duplicateOrders[orders.length] = orders[1];
+        duplicateOrders[orders.length + 1] = orders[0];
+        ArrayList<Tuple> orderStream = makeStreamLineEventStream("orders", orderFields, duplicateOrders);
+        ArrayList<Tuple> adImpressionStream = makeStreamLineEventStream("ads", adImpressionFields, adImpressions);
+        File directory = Files.createTempDirectory("join-buffer").toFile();
+
+        try {
+            MockCollector expected = runJoin(new SLRealtimeJoinBolt()
+                    .from("orders", 4, true)
+                    .innerJoin("ads", 10, false, SLCmp.equal("orders:userId", "ads:userId")
+                                               , SLCmp.ignoreCase("ads:product","orders:product"))
+                    .select("orders:id,ads:userId,product,price"), orderStream, adImpressionStream, orderStream);
+            // segments holding a few tuples
+            MockCollector actual = runJoin(new SLRealtimeJoinBolt()
+                    .from("orders", 4, true)
+                    .innerJoin("ads", 10, false, SLCmp.equal("orders:userId", "ads:userId")
+                                               , SLCmp.ignoreCase("ads:product","orders:product"))
+                    .select("orders:id,ads:userId,product,price")
+                    .withJoinBuffer(new OffHeapJoinBuffer.Factory(1024, directory.getPath()))
+                    .withAckOnBuffer(), orderStream, adImpressionStream, orderStream);
+
+            printResults_StreamLine(actual);
+            Assert.assertEquals( 5, actual.actualResults.size() );
+            Assert.assertEquals( eventValues(expected), eventValues(actual) );
+        } finally {
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testSingleKey_OuterJoin_CountRetention_Checkpointed() throws Exception {
+        ArrayList<Tuple> orderStream = makeStream("orders", orderFields, orders);
+        ArrayList<Tuple> adImpressionStream = makeStream("ads", adImpressionFields, adImpressions);
+        MockCollector expected = runJoin(makeOuterJoin(), adImpressionStream, orderStream);
+        File directory = Files.createTempDirectory("join-state").toFile();
+
+        try {
+            Map conf = Utils.readDefaultConfig();
+            MockTopologyContext context = makeContext(adImpressionStream, orderStream);
+            MockCollector collector = new MockCollector(expected.outputFields);
+            LocalKeyValueState<String, StatefulJoinBuffer.BufferedTuple> state = new LocalKeyValueState<>(directory);
+            CheckpointedJoinBolt bolt = new CheckpointedJoinBolt(makeOuterJoin());
+            bolt.prepare(conf, context, collector);
+            bolt.initState(state);
+            for (Tuple tuple : adImpressionStream) {
+                bolt.execute(tuple);
+            }
+            state.prepareCommit(1);
+            state.commit(1);
+
+            // the first orders are rolled back, then replayed
+            int committedResults = collector.actualResults.size();
+            for (Tuple tuple : orderStream.subList(0, 3)) {
+                bolt.execute(tuple);
+            }
+            bolt.preRollback();
+            state.rollback();
+            collector.actualResults.subList(committedResults, collector.actualResults.size()).clear();
+            for (Tuple tuple : orderStream.subList(0, 3)) {
+                bolt.execute(tuple);
+            }
+            state.prepareCommit(2);
+            state.commit(2);
+            bolt.cleanup();
+
+            // the other orders are processed after a restart
+            state = new LocalKeyValueState<>(directory);
+            bolt = new CheckpointedJoinBolt(makeOuterJoin());
+            bolt.prepare(conf, context, collector);
+            bolt.initState(state);
+            for (Tuple tuple : orderStream.subList(3, orderStream.size())) {
+                bolt.execute(tuple);
+            }
+            bolt.cleanup();
+
+            printResults(collector);
+            Assert.assertEquals( expected.actualResults, collector.actualResults );
+        } finally {
+            FileUtils.deleteDirectory(directory);
+        }
+    }
+
+    private static RealtimeJoinBolt makeOuterJoin() {
+        return new RealtimeJoinBolt(RealtimeJoinBolt.StreamKind.STREAM)
+                .from("ads", 3, false)
+                .outerJoin("orders", 3, false, Cmp.equal("orders:userId", "ads:userId"))
+                .select("ads:id, orders:id, ads:userId, ads:product, orders:product, price");
+    }
+
+    // the events have unique ids
+    private static List<Map<String, Object>> eventValues(MockCollector collector) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (List<Object> rec : collector.actualResults) {
+            result.add(new HashMap<>((StreamlineEvent) rec.get(0)));
+        }
+        return result;
+    }
+
+    // runs the streams through the bolt, with the context required by the off heap buffers
+    private static MockCollector runJoin(RealtimeJoinBolt bolt, List<Tuple>... streams) {
+        MockCollector collector = new MockCollector(bolt.getOutputFields());
+        bolt.prepare(Utils.readDefaultConfig(), makeContext(streams), collector);
+        for (List<Tuple> stream : streams) {
+            for (Tuple tuple : stream) {
+                bolt.execute(tuple);
+            }
+        }
+        bolt.cleanup();
+        return collector;
+    }
+
+    private static MockTopologyContext makeContext(List<Tuple>... streams) {
+        MockTopologyContext context = new MockTopologyContext();
+        for (List<Tuple> stream : streams) {
+            for (Tuple tuple : stream) {
+                context.streamFields.put(tuple.getSourceStreamId(), tuple.getFields());
+            }
+        }
+        return context;
+    }
+
 
     private static ArrayList<Tuple> makeStream(String streamName, String[] fieldNames, Object[][] data) {
         ArrayList<Tuple> result = new ArrayList<>();
@@ -414,6 +577,7 @@ public class TestRealtimeJoinBolt {
         private final String[] outputFields;
 
         public ArrayList<List<Object>> actualResults = new ArrayList<>();
+        public ArrayList<Tuple> acked = new ArrayList<>();
 
         public MockCollector(String[] outputFields) {
             super(null);
@@ -435,10 +599,26 @@ public class TestRealtimeJoinBolt {
 
         @Override
         public void ack(Tuple input) {
-            // no-op
+            acked.add(input);
         }
     } // class MockCollector
 
+    static class MockTopologyContext extends TopologyContext {
+        final Map<String, Fields> streamFields = new HashMap<>();
+
+        public MockTopologyContext() {
+            super(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        public String getComponentId(int taskId) {
+            return "component";
+        }
+
+        public Fields getComponentOutputFields(String componentId, String streamId) {
+            return streamFields.get(streamId);
+        }
+    }
+
     static class MockContext extends GeneralTopologyContext {
 
         private final Fields fields;
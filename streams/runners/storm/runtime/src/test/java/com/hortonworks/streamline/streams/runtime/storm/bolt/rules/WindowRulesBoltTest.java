@@ -34,6 +34,7 @@ import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.TupleImpl;
 import org.apache.storm.tuple.Values;
 import org.apache.storm.windowing.TupleWindow;
+import org.apache.storm.windowing.TupleWindowImpl;
 import com.hortonworks.streamline.streams.runtime.processor.RuleProcessorRuntime;
 import org.junit.Assert;
 import org.junit.Before;
@@ -43,6 +44,8 @@ import org.junit.runner.RunWith;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -145,6 +148,137 @@ public class WindowRulesBoltTest {
         };
     }
 
+    @Test
+    public void testCountBasedWindowWithGroupbyIncremental() throws Exception {
+        Assert.assertTrue(doTest(readFile("/window-rule-count-withgroupby.json"), 2, this::getNextTuple,
+                Collections.<String, Object>singletonMap(RuleProcessorRuntime.INCREMENTAL_WINDOW_AGGREGATION, true)));
+        new Verifications() {
+            {
+                String streamId;
+                Collection<Tuple> anchors;
+                List<List<Object>> tuples = new ArrayList<>();
+                mockCollector.emit(streamId = withCapture(), anchors = withCapture(), withCapture(tuples));
+                Assert.assertEquals(6, tuples.size());
+                Map<String, Object> fieldsAndValues1 = ((StreamlineEvent) tuples.get(0).get(0));
+                Assert.assertEquals("count is 2, min salary is 30, max salary is 40", fieldsAndValues1.get("body"));
+                Map<String, Object> fieldsAndValues2 = ((StreamlineEvent) tuples.get(1).get(0));
+                Assert.assertEquals("count is 5, min salary is 50, max salary is 90", fieldsAndValues2.get("body"));
+                Map<String, Object> fieldsAndValues3 = ((StreamlineEvent) tuples.get(2).get(0));
+                Assert.assertEquals("count is 1, min salary is 100, max salary is 100", fieldsAndValues3.get("body"));
+                // the row of empid 10 expired, the group of deptid 2 keeps the rows of the second window only
+                Map<String, Object> fieldsAndValues4 = ((StreamlineEvent) tuples.get(3).get(0));
+                Assert.assertEquals("count is 4, min salary is 110, max salary is 140", fieldsAndValues4.get("body"));
+                Map<String, Object> fieldsAndValues5 = ((StreamlineEvent) tuples.get(4).get(0));
+                Assert.assertEquals("count is 5, min salary is 150, max salary is 190", fieldsAndValues5.get("body"));
+                Map<String, Object> fieldsAndValues6 = ((StreamlineEvent) tuples.get(5).get(0));
+                Assert.assertEquals("count is 1, min salary is 200, max salary is 200", fieldsAndValues6.get("body"));
+            }
+        };
+    }
+
+    @Test
+    public void testIncrementalWindowDrained() throws Exception {
+        String rulesJson = readFile("/window-rule-count-withgroupby.json");
+        WindowRulesBolt wb = new WindowRulesBolt(rulesJson, RuleProcessorRuntime.ScriptType.SQL);
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(RuleProcessorRuntime.INCREMENTAL_WINDOW_AGGREGATION, true);
+        wb.prepare(conf, mockContext, mockCollector);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            tuples.add(getNextTuple(i));
+        }
+        wb.execute(new TupleWindowImpl(tuples, tuples, Collections.<Tuple>emptyList()));
+        // the window became empty, the tuples expired without activation
+        List<Tuple> next = Collections.singletonList(getNextTuple(11));
+        wb.execute(new TupleWindowImpl(next, next, Collections.<Tuple>emptyList()));
+        new Verifications() {
+            {
+                String streamId;
+                Collection<Tuple> anchors;
+                List<List<Object>> tuples = new ArrayList<>();
+                mockCollector.emit(streamId = withCapture(), anchors = withCapture(), withCapture(tuples));
+                Assert.assertEquals(4, tuples.size());
+                Map<String, Object> fieldsAndValues = ((StreamlineEvent) tuples.get(3).get(0));
+                Assert.assertEquals("count is 1, min salary is 110, max salary is 110", fieldsAndValues.get("body"));
+            }
+        };
+    }
+
+    @Test
+    public void testCountBasedWindowWithPanes() throws Exception {
+        // window of 10 tuples sliding every 5 tuples, activated for each pane of 5 tuples
+        Assert.assertTrue(doTest(readFile("/window-rule-count-panes.json"), 4));
+        new Verifications() {
+            {
+                String streamId;
+                Collection<Tuple> anchors;
+                List<List<Object>> tuples = new ArrayList<>();
+                mockCollector.emit(streamId = withCapture(), anchors = withCapture(), withCapture(tuples));
+                String[] expected = {
+                        // empid 1 - 5
+                        "count is 2, min salary is 30, max salary is 40",
+                        "count is 1, min salary is 50, max salary is 50",
+                        // empid 1 - 10
+                        "count is 2, min salary is 30, max salary is 40",
+                        "count is 5, min salary is 50, max salary is 90",
+                        "count is 1, min salary is 100, max salary is 100",
+                        // empid 6 - 15
+                        "count is 4, min salary is 60, max salary is 90",
+                        "count is 5, min salary is 100, max salary is 140",
+                        "count is 1, min salary is 150, max salary is 150",
+                        // empid 11 - 20
+                        "count is 4, min salary is 110, max salary is 140",
+                        "count is 5, min salary is 150, max salary is 190",
+                        "count is 1, min salary is 200, max salary is 200"
+                };
+                Assert.assertEquals(expected.length, tuples.size());
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertEquals(expected[i], ((StreamlineEvent) tuples.get(i).get(0)).get("body"));
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testTimeBasedWindowWithIdlePanes() throws Exception {
+        // window of 10 secs sliding every 5 secs, the pane of the first tuples is out of the window after an idle pane
+        String rulesJson = readFile("/window-rule-time-panes.json");
+        RulesProcessor rulesProcessor = Utils.createObjectFromJson(rulesJson, RulesProcessor.class);
+        WindowRulesBolt wb = new WindowRulesBolt(rulesJson, RuleProcessorRuntime.ScriptType.SQL);
+        wb.withWindowConfig(rulesProcessor.getRules().get(0).getWindow());
+        wb.prepare(new HashMap<>(), mockContext, mockCollector);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            tuples.add(getTimedTuple(i, 1000L));
+        }
+        wb.execute(new TupleWindowImpl(tuples, tuples, Collections.<Tuple>emptyList()));
+        tuples = new ArrayList<>();
+        for (int i = 6; i <= 10; i++) {
+            tuples.add(getTimedTuple(i, 16000L));
+        }
+        wb.execute(new TupleWindowImpl(tuples, tuples, Collections.<Tuple>emptyList()));
+        new Verifications() {
+            {
+                String streamId;
+                Collection<Tuple> anchors;
+                List<List<Object>> tuples = new ArrayList<>();
+                mockCollector.emit(streamId = withCapture(), anchors = withCapture(), withCapture(tuples));
+                String[] expected = {
+                        // empid 1 - 5
+                        "count is 2, min salary is 30, max salary is 40",
+                        "count is 1, min salary is 50, max salary is 50",
+                        // empid 6 - 10
+                        "count is 4, min salary is 60, max salary is 90",
+                        "count is 1, min salary is 100, max salary is 100"
+                };
+                Assert.assertEquals(expected.length, tuples.size());
+                for (int i = 0; i < expected.length; i++) {
+                    Assert.assertEquals(expected[i], ((StreamlineEvent) tuples.get(i).get(0)).get("body"));
+                }
+            }
+        };
+    }
+
     @Test
     public void testCountBasedWindowWithGroupbyUnordered() throws Exception {
         String rulesJson = readFile("/window-rule-groupby-unordered.json");
@@ -231,6 +365,11 @@ public class WindowRulesBoltTest {
     }
 
     private boolean doTest(String rulesJson, int expectedExecuteCount, Function<Integer, Tuple> tupleGen) throws Exception {
+        return doTest(rulesJson, expectedExecuteCount, tupleGen, Collections.<String, Object>emptyMap());
+    }
+
+    private boolean doTest(String rulesJson, int expectedExecuteCount, Function<Integer, Tuple> tupleGen,
+                           Map<String, Object> topologyConf) throws Exception {
         RulesProcessor rulesProcessor = Utils.createObjectFromJson(rulesJson, RulesProcessor.class);
         Window windowConfig = rulesProcessor.getRules().get(0).getWindow();
         final CountDownLatch latch = new CountDownLatch(expectedExecuteCount);
@@ -245,6 +384,7 @@ public class WindowRulesBoltTest {
         WindowedBoltExecutor wbe = new WindowedBoltExecutor(wb);
         Map<String, Object> conf = wb.getComponentConfiguration();
         conf.put("topology.message.timeout.secs", 30);
+        conf.putAll(topologyConf);
         wbe.prepare(conf, mockContext, mockCollector);
         Thread.sleep(100);
         for (int i = 1; i <= 20; i++) {
@@ -263,6 +403,11 @@ public class WindowRulesBoltTest {
         return new TupleImpl(mockContext, new Values(event), 1, "inputstream");
     }
 
+    private Tuple getTimedTuple(int i, long ts) {
+        StreamlineEvent event = new StreamlineEventImpl(ImmutableMap.<String, Object>of("empid", i, "salary", i * 10, "deptid", i/5, "ts", ts), "dsrcid");
+        return new TupleImpl(mockContext, new Values(event), 1, "inputstream");
+    }
+
     private Tuple getTupleForSum(int i) {
         StreamlineEvent event = new StreamlineEventImpl(ImmutableMap.<String, Object>of("id", 1, "intField", i, "longField", (long) i, "doubleField", (double)i), "dsrcid");
         return new TupleImpl(mockContext, new Values(event), 1, "inputstream");
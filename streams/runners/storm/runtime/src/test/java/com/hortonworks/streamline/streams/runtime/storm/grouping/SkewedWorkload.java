@@ -0,0 +1,81 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import org.apache.storm.grouping.CustomStreamGrouping;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Events whose "deviceId" key follows a Zipf distribution, a few devices sending most of the events.
+ */
+class SkewedWorkload {
+    static final String KEY_FIELD = "deviceId";
+
+    private final StreamlineEvent[] events;
+
+    SkewedWorkload(int numKeys, double exponent, int numEvents, long seed) {
+        StreamlineEvent[] keyEvents = new StreamlineEvent[numKeys];
+        double[] cumulative = new double[numKeys];
+        double sum = 0;
+        for (int i = 0; i < numKeys; i++) {
+            keyEvents[i] = new StreamlineEventImpl(Collections.<String, Object>singletonMap(KEY_FIELD, "device" + i), "1");
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(seed);
+        events = new StreamlineEvent[numEvents];
+        for (int i = 0; i < numEvents; i++) {
+            int key = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            events[i] = keyEvents[key < 0 ? Math.min(-key - 1, numKeys - 1) : key];
+        }
+    }
+
+    StreamlineEvent[] getEvents() {
+        return events;
+    }
+
+    /**
+     * Routes all the events with the grouping and returns the number of events each target task received.
+     */
+    long[] route(CustomStreamGrouping grouping, List<Integer> targetTasks) {
+        long[] loads = new long[targetTasks.size()];
+        for (StreamlineEvent event : events) {
+            for (Integer task : grouping.chooseTasks(0, Collections.<Object>singletonList(event))) {
+                loads[targetTasks.indexOf(task)]++;
+            }
+        }
+        return loads;
+    }
+
+    /**
+     * @return the load of the most loaded task divided by the mean load
+     */
+    static double imbalance(long[] loads) {
+        long max = 0;
+        long total = 0;
+        for (long load : loads) {
+            max = Math.max(max, load);
+            total += load;
+        }
+        return (double) max * loads.length / total;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import org.apache.storm.grouping.CustomStreamGrouping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the events per millisecond routed by each grouping on a skewed workload, where the device ids follow a
+ * Zipf distribution, and prints the resulting load of each target task along with the load of the most loaded task
+ * relative to the mean load.
+ * <p>
+ * Run with
+ * {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.storm.grouping.StreamGroupingBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamGroupingBenchmark {
+    private static final int NUM_KEYS = 10000;
+    private static final int EVENTS_PER_INVOCATION = 100000;
+
+    @Param({"fields", "partialKey", "consistentHash", "hotKeySplit"})
+    private String grouping;
+
+    @Param({"8"})
+    private int numTasks;
+
+    @Param({"1.2"})
+    private double zipfExponent;
+
+    private CustomStreamGrouping customGrouping;
+    private List<Integer> targetTasks;
+    private List<List<Object>> values;
+    private long[] loads;
+
+    @Setup
+    public void setup() {
+        List<String> fields = Collections.singletonList(SkewedWorkload.KEY_FIELD);
+        switch (grouping) {
+            case "fields":
+                customGrouping = new FieldsGroupingAsCustomGrouping(fields);
+                break;
+            case "partialKey":
+                customGrouping = new PartialKeyGrouping(fields);
+                break;
+            case "consistentHash":
+                customGrouping = new ConsistentHashGrouping(fields);
+                break;
+            case "hotKeySplit":
+                customGrouping = new HotKeySplittingGrouping(fields);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown grouping " + grouping);
+        }
+        targetTasks = new ArrayList<>();
+        for (int i = 0; i < numTasks; i++) {
+            targetTasks.add(i);
+        }
+        customGrouping.prepare(null, null, targetTasks);
+        values = new ArrayList<>(EVENTS_PER_INVOCATION);
+        for (StreamlineEvent event : new SkewedWorkload(NUM_KEYS, zipfExponent, EVENTS_PER_INVOCATION, 42).getEvents()) {
+            values.add(Collections.<Object>singletonList(event));
+        }
+        loads = new long[numTasks];
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s grouping task loads %s, imbalance %.2f%n", grouping, Arrays.toString(loads),
+                SkewedWorkload.imbalance(loads));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public long route() {
+        for (List<Object> eventValues : values) {
+            // the target tasks are the task indexes
+            loads[customGrouping.chooseTasks(0, eventValues).get(0)]++;
+        }
+        return loads[0];
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(StreamGroupingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.storm.grouping;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import org.apache.storm.grouping.CustomStreamGrouping;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamGroupingsTest {
+    private static final List<String> KEY_FIELDS = Collections.singletonList(SkewedWorkload.KEY_FIELD);
+    private static final List<Integer> TARGET_TASKS = tasks(8);
+
+    private final SkewedWorkload workload = new SkewedWorkload(1000, 1.2, 100000, 42);
+
+    @Test
+    public void testFieldsGroupingNegativeHash() throws Exception {
+        FieldsGroupingAsCustomGrouping grouping = prepare(new FieldsGroupingAsCustomGrouping(KEY_FIELDS), TARGET_TASKS);
+        // "polygenelubricants".hashCode() is Integer.MIN_VALUE
+        StreamlineEvent event = new StreamlineEventImpl(
+                Collections.<String, Object>singletonMap(SkewedWorkload.KEY_FIELD, "polygenelubricants"), "1");
+        List<Integer> tasks = grouping.chooseTasks(0, Collections.<Object>singletonList(event));
+        assertEquals(1, tasks.size());
+        assertTrue(TARGET_TASKS.contains(tasks.get(0)));
+    }
+
+    @Test
+    public void testFieldsGroupingNestedFields() throws Exception {
+        FieldsGroupingAsCustomGrouping grouping = prepare(
+                new FieldsGroupingAsCustomGrouping(Arrays.asList("device.id", "device.type")), TARGET_TASKS);
+        Set<Integer> tasks = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> device = new HashMap<>();
+            device.put("id", "device1");
+            device.put("type", "nest");
+            device.put("seq", i);
+            StreamlineEvent event = new StreamlineEventImpl(Collections.<String, Object>singletonMap("device", device), "1");
+            tasks.addAll(grouping.chooseTasks(0, Collections.<Object>singletonList(event)));
+        }
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testKeyAffinity() throws Exception {
+        for (AbstractFieldsGrouping grouping : Arrays.asList(new FieldsGroupingAsCustomGrouping(KEY_FIELDS),
+                new ConsistentHashGrouping(KEY_FIELDS))) {
+            prepare(grouping, TARGET_TASKS);
+            Map<Object, List<Integer>> taskOfKeys = new HashMap<>();
+            for (StreamlineEvent event : workload.getEvents()) {
+                List<Integer> tasks = grouping.chooseTasks(0, Collections.<Object>singletonList(event));
+                List<Integer> previous = taskOfKeys.putIfAbsent(event.get(SkewedWorkload.KEY_FIELD), tasks);
+                assertTrue(previous == null || previous.equals(tasks));
+            }
+        }
+    }
+
+    @Test
+    public void testSkewedLoadSpread() throws Exception {
+        double fields = SkewedWorkload.imbalance(
+                workload.route(prepare(new FieldsGroupingAsCustomGrouping(KEY_FIELDS), TARGET_TASKS), TARGET_TASKS));
+        double partialKey = SkewedWorkload.imbalance(
+                workload.route(prepare(new PartialKeyGrouping(KEY_FIELDS), TARGET_TASKS), TARGET_TASKS));
+        double hotKeySplit = SkewedWorkload.imbalance(
+                workload.route(prepare(new HotKeySplittingGrouping(KEY_FIELDS), TARGET_TASKS), TARGET_TASKS));
+        // the hottest key alone gets about 23% of the events, nearly twice the fair share of a task
+        assertTrue("fields grouping imbalance " + fields, fields > 1.8);
+        assertTrue("partial key grouping imbalance " + partialKey, partialKey < fields);
+        assertTrue("hot key splitting grouping imbalance " + hotKeySplit, hotKeySplit < 1.1);
+    }
+
+    @Test
+    public void testHotKeySplittingKeepsColdKeysOnOneTask() throws Exception {
+        HotKeySplittingGrouping grouping = prepare(new HotKeySplittingGrouping(KEY_FIELDS), TARGET_TASKS);
+        Map<Object, Set<Integer>> tasksOfKeys = new HashMap<>();
+        for (StreamlineEvent event : workload.getEvents()) {
+            tasksOfKeys.computeIfAbsent(event.get(SkewedWorkload.KEY_FIELD), k -> new HashSet<>())
+                    .addAll(grouping.chooseTasks(0, Collections.<Object>singletonList(event)));
+        }
+        int splitKeys = 0;
+        for (Set<Integer> tasks : tasksOfKeys.values()) {
+            if (tasks.size() > 1) {
+                splitKeys++;
+            }
+        }
+        assertTrue("split keys " + splitKeys, splitKeys > 0 && splitKeys <= 10);
+    }
+
+    @Test
+    public void testConsistentHashMovesFewKeys() throws Exception {
+        ConsistentHashGrouping before = prepare(new ConsistentHashGrouping(KEY_FIELDS), tasks(8));
+        ConsistentHashGrouping after = prepare(new ConsistentHashGrouping(KEY_FIELDS), tasks(9));
+        FieldsGroupingAsCustomGrouping fieldsBefore = prepare(new FieldsGroupingAsCustomGrouping(KEY_FIELDS), tasks(8));
+        FieldsGroupingAsCustomGrouping fieldsAfter = prepare(new FieldsGroupingAsCustomGrouping(KEY_FIELDS), tasks(9));
+        int numKeys = 10000;
+        int moved = 0;
+        int fieldsMoved = 0;
+        for (int i = 0; i < numKeys; i++) {
+            List<Object> values = Collections.<Object>singletonList(new StreamlineEventImpl(
+                    Collections.<String, Object>singletonMap(SkewedWorkload.KEY_FIELD, "device" + i), "1"));
+            List<Integer> task = before.chooseTasks(0, values);
+            List<Integer> newTask = after.chooseTasks(0, values);
+            if (!task.equals(newTask)) {
+                moved++;
+                // keys only move to the added task
+                assertEquals(Collections.singletonList(9), newTask);
+            }
+            if (!fieldsBefore.chooseTasks(0, values).equals(fieldsAfter.chooseTasks(0, values))) {
+                fieldsMoved++;
+            }
+        }
+        // 1/9 of the keys is expected to move, against 8/9 with the modulo of the fields grouping
+        assertTrue("moved keys " + moved, moved < numKeys / 6);
+        assertTrue("moved keys with fields grouping " + fieldsMoved, fieldsMoved > numKeys / 2);
+    }
+
+    private static <T extends CustomStreamGrouping> T prepare(T grouping, List<Integer> targetTasks) {
+        grouping.prepare(null, null, targetTasks);
+        return grouping;
+    }
+
+    private static List<Integer> tasks(int numTasks) {
+        List<Integer> tasks = new ArrayList<>();
+        for (int i = 1; i <= numTasks; i++) {
+            tasks.add(i);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.runtime.storm.state;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.storm.Config;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LocalKeyValueStateTest {
+    private File directory;
+
+    @Before
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("local-state").toFile();
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testCommitAndReload() throws Exception {
+        LocalKeyValueState<String, Integer> state = new LocalKeyValueState<>(directory);
+        state.put("a", 1);
+        state.put("b", 2);
+        state.prepareCommit(1);
+        state.commit(1);
+        state.put("c", 3);
+        state.delete("a");
+        state.commit();
+        // not committed
+        state.put("d", 4);
+
+        LocalKeyValueState<String, Integer> reloaded = new LocalKeyValueState<>(directory);
+        Assert.assertNull(reloaded.get("a"));
+        Assert.assertEquals(2, (int) reloaded.get("b"));
+        Assert.assertEquals(3, (int) reloaded.get("c"));
+        Assert.assertEquals(-1, (int) reloaded.get("d", -1));
+    }
+
+    @Test
+    public void testRollback() throws Exception {
+        LocalKeyValueState<String, Integer> state = new LocalKeyValueState<>(directory);
+        state.put("a", 1);
+        state.commit();
+        state.put("a", 2);
+        state.put("b", 3);
+        state.prepareCommit(2);
+        state.delete("a");
+        state.rollback();
+
+        Assert.assertEquals(1, (int) state.get("a"));
+        Assert.assertNull(state.get("b"));
+        Assert.assertNull(new LocalKeyValueState<String, Integer>(directory).get("b"));
+    }
+
+    @Test
+    public void testPreparedChangesAfterRestart() throws Exception {
+        LocalKeyValueState<String, Integer> state = new LocalKeyValueState<>(directory);
+        state.put("a", 1);
+        state.prepareCommit(1);
+
+        // the restarted worker commits the prepared changes
+        LocalKeyValueState<String, Integer> restarted = new LocalKeyValueState<>(directory);
+        Assert.assertEquals(1, (int) restarted.get("a"));
+        restarted.commit(1);
+        Assert.assertEquals(1, (int) new LocalKeyValueState<String, Integer>(directory).get("a"));
+
+        // or rolls them back
+        restarted.put("b", 2);
+        restarted.prepareCommit(2);
+        restarted = new LocalKeyValueState<>(directory);
+        restarted.rollback();
+        Assert.assertNull(restarted.get("b"));
+        Assert.assertNull(new LocalKeyValueState<String, Integer>(directory).get("b"));
+    }
+
+    @Test
+    public void testIncompleteBatchAfterCrash() throws Exception {
+        LocalKeyValueState<String, Integer> state = new LocalKeyValueState<>(directory);
+        state.put("a", 1);
+        state.commit();
+        File log = new File(directory, "state.log");
+        long committedLength = log.length();
+        state.put("b", 2);
+        state.commit();
+        // the second batch was partially written before a crash
+        try (FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(committedLength + 10);
+        }
+
+        LocalKeyValueState<String, Integer> restarted = new LocalKeyValueState<>(directory);
+        Assert.assertEquals(committedLength, log.length());
+        Assert.assertEquals(1, (int) restarted.get("a"));
+        Assert.assertNull(restarted.get("b"));
+        restarted.put("c", 3);
+        restarted.commit();
+        // the last batch is corrupted
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write(new byte[]{0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 42});
+        }
+
+        LocalKeyValueState<String, Integer> reloaded = new LocalKeyValueState<>(directory);
+        Assert.assertEquals(1, (int) reloaded.get("a"));
+        Assert.assertEquals(3, (int) reloaded.get("c"));
+        reloaded.put("d", 4);
+        reloaded.commit();
+        Assert.assertEquals(4, (int) new LocalKeyValueState<String, Integer>(directory).get("d"));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        LocalKeyValueState<String, Integer> state = new LocalKeyValueState<>(directory);
+        long batchSize = 0;
+        for (int i = 0; i < 30_000; i++) {
+            state.put("key" + (i % 100), i);
+            if (i % 100 == 99) {
+                state.commit();
+                if (batchSize == 0) {
+                    batchSize = new File(directory, "state.log").length();
+                }
+            }
+        }
+        long logSize = new File(directory, "state.log").length();
+        LocalKeyValueState<String, Integer> reloaded = new LocalKeyValueState<>(directory);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(29_900 + i, (int) reloaded.get("key" + i));
+        }
+        // 300 batches of 100 changes, the log is compacted every 10000 changes
+        Assert.assertTrue("Log of " + logSize + " bytes", logSize < 150 * batchSize);
+    }
+
+    @Test
+    public void testProviderStatesPerTopology() throws Exception {
+        LocalKeyValueStateProvider provider = new LocalKeyValueStateProvider();
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(Config.STORM_LOCAL_DIR, directory.getPath());
+        conf.put(Config.TOPOLOGY_NAME, "first");
+        LocalKeyValueState<String, Integer> state = newState(provider, conf);
+        state.put("a", 1);
+        state.commit();
+
+        Assert.assertEquals(1, (int) newState(provider, conf).get("a"));
+        // same component and task in another topology
+        conf.put(Config.TOPOLOGY_NAME, "second");
+        Assert.assertNull(newState(provider, conf).get("a"));
+    }
+
+    private static LocalKeyValueState<String, Integer> newState(LocalKeyValueStateProvider provider, Map conf) {
+        return (LocalKeyValueState<String, Integer>) provider.newState("joiner-1", conf, null);
+    }
+}
@@ -25,6 +25,7 @@ import com.hortonworks.streamline.streams.layout.component.rule.action.Transform
 import com.hortonworks.streamline.streams.runtime.rule.action.AbstractActionRuntime;
 import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntime;
 import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntimeContext;
+import com.hortonworks.streamline.streams.runtime.transform.EnrichmentTransformRuntime;
 import com.hortonworks.streamline.streams.runtime.transform.IdentityTransformRuntime;
 import com.hortonworks.streamline.streams.runtime.transform.TransformRuntimeService;
 
@@ -32,6 +33,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * {@link ActionRuntime} instance for applying the given chain of {@link Transform}s.
@@ -84,6 +87,26 @@ public class TransformActionRuntime extends AbstractActionRuntime {
         return Collections.singletonList(new Result(stream, doTransform(input)));
     }
 
+    /**
+     * {@inheritDoc}
+     * The first {@link EnrichmentTransformRuntime} of the chain looks up its values asynchronously, the event is then
+     * enriched and the transforms after it are applied on the callback executor.
+     */
+    @Override
+    public CompletableFuture<List<Result>> executeAsync(StreamlineEvent input, Executor callbackExecutor) {
+        return doTransformAsync(input, 0, callbackExecutor)
+                .thenApply(events -> Collections.singletonList(new Result(stream, events)));
+    }
+
+    @Override
+    public void flush() {
+        for (TransformRuntime transformRuntime : transformRuntimes) {
+            if (transformRuntime instanceof EnrichmentTransformRuntime) {
+                ((EnrichmentTransformRuntime) transformRuntime).flush();
+            }
+        }
+    }
+
     /*
      * applies the transformation chain to the input and returns the transformed events
      */
@@ -115,6 +138,35 @@ public class TransformActionRuntime extends AbstractActionRuntime {
         return transformed;
     }
 
+    private CompletableFuture<List<StreamlineEvent>> doTransformAsync(StreamlineEvent inputEvent, int i,
+                                                                      Executor callbackExecutor) {
+        if (i >= transformRuntimes.size()) {
+            return CompletableFuture.completedFuture(Collections.singletonList(inputEvent));
+        }
+        TransformRuntime transformRuntime = transformRuntimes.get(i);
+        if (transformRuntime instanceof EnrichmentTransformRuntime) {
+            EnrichmentTransformRuntime enrichmentTransformRuntime = (EnrichmentTransformRuntime) transformRuntime;
+            return enrichmentTransformRuntime.executeAsync(inputEvent, callbackExecutor).thenApply(events -> {
+                List<StreamlineEvent> transformed = new ArrayList<>();
+                for (StreamlineEvent event : events) {
+                    transformed.addAll(doTransform(event, i + 1));
+                }
+                return transformed;
+            });
+        }
+        List<CompletableFuture<List<StreamlineEvent>>> transformed = new ArrayList<>();
+        for (StreamlineEvent event : transformRuntime.execute(inputEvent)) {
+            transformed.add(doTransformAsync(event, i + 1, callbackExecutor));
+        }
+        return CompletableFuture.allOf(transformed.toArray(new CompletableFuture[transformed.size()])).thenApply(ignored -> {
+            List<StreamlineEvent> events = new ArrayList<>();
+            for (CompletableFuture<List<StreamlineEvent>> future : transformed) {
+                events.addAll(future.join());
+            }
+            return events;
+        });
+    }
+
     @Override
     public Set<String> getOutputStreams() {
         return Collections.singleton(stream);
@@ -0,0 +1,183 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.normalization;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.BulkNormalizationConfig;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.MissingPropertyException;
+import groovy.lang.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Normalizes events with a bulk script like {@link BulkNormalizationRuntime}, but the script is compiled once into a
+ * class and each thread runs its own instance of that class with a {@link Binding} reused across the events.
+ * <p>
+ * The binding is a read-only view of the current event and of the {@link BulkNormalizationRuntime#INPUT_SCHEMA_BINDING}
+ * and {@link BulkNormalizationRuntime#OUTPUT_SCHEMA_BINDING} constants, the event fields are not copied into it.
+ * Variables assigned by the script are only visible while the event is normalized. Besides returning a map, the script
+ * can put the output fields in the {@link StreamlineEventImpl.Builder} bound to {@link #OUTPUT_BINDING}, which is used
+ * when the script returns it or returns null.
+ * </p>
+ */
+public class CompiledBulkNormalizationRuntime extends NormalizationRuntime {
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledBulkNormalizationRuntime.class);
+
+    public static final String OUTPUT_BINDING = "__output";
+
+    private final Class<? extends Script> scriptClass;
+    private final Map<String, Object> constants;
+    private final ThreadLocal<Script> scripts;
+
+    public CompiledBulkNormalizationRuntime(BulkNormalizationConfig bulkNormalizationConfig, Schema declaredOutputSchema) {
+        super(bulkNormalizationConfig);
+
+        String normalizationScript = bulkNormalizationConfig.normalizationScript;
+        if (normalizationScript != null && !normalizationScript.isEmpty()) {
+            scriptClass = new GroovyClassLoader(CompiledBulkNormalizationRuntime.class.getClassLoader()).parseClass(normalizationScript);
+            LOG.info("Compiled bulk normalization script [{}]", normalizationScript);
+        } else {
+            scriptClass = null;
+        }
+
+        Map<String, Object> constants = new HashMap<>();
+        // creating new instances to avoid modifying the actual schemas by script.
+        constants.put(BulkNormalizationRuntime.INPUT_SCHEMA_BINDING, Schema.of(normalizationConfig.getInputSchema().getFields()));
+        constants.put(BulkNormalizationRuntime.OUTPUT_SCHEMA_BINDING, Schema.of(declaredOutputSchema.getFields()));
+        this.constants = Collections.unmodifiableMap(constants);
+
+        scripts = new ThreadLocal<Script>() {
+            @Override
+            protected Script initialValue() {
+                try {
+                    Script script = scriptClass.newInstance();
+                    script.setBinding(new EventBinding(CompiledBulkNormalizationRuntime.this.constants));
+                    return script;
+                } catch (InstantiationException | IllegalAccessException e) {
+                    throw new RuntimeException("Could not instantiate the class compiled for bulk normalization script", e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> normalize(StreamlineEvent event) throws NormalizationException {
+        if (scriptClass == null) {
+            LOG.info("Nothing to normalize as normalization script is not configured");
+            return event;
+        }
+
+        Script script = scripts.get();
+        EventBinding binding = (EventBinding) script.getBinding();
+        binding.reset(event);
+        try {
+            Object result = script.run();
+            if (result == null || result == binding.output) {
+                return binding.output != null ? binding.output.build() : Collections.<String, Object>emptyMap();
+            } else if (result instanceof Map) {
+                return (Map<String, Object>) result;
+            }
+            throw new NormalizationException("Bulk normalization script returned neither a map nor the output builder: " + result);
+        } catch (MissingPropertyException e) {
+            throw new NormalizationException(e);
+        } finally {
+            binding.reset(null);
+        }
+    }
+
+    /**
+     * Binding resolving the variables from the ones assigned by the script, the constants and the current event.
+     */
+    private static class EventBinding extends Binding {
+        private final Map<String, Object> constants;
+        private StreamlineEvent event;
+        private Map<String, Object> assigned;
+        private StreamlineEventImpl.Builder output;
+
+        private EventBinding(Map<String, Object> constants) {
+            this.constants = constants;
+        }
+
+        private void reset(StreamlineEvent event) {
+            this.event = event;
+            assigned = null;
+            output = null;
+        }
+
+        @Override
+        public Object getVariable(String name) {
+            if (assigned != null && assigned.containsKey(name)) {
+                return assigned.get(name);
+            }
+            if (OUTPUT_BINDING.equals(name)) {
+                if (output == null) {
+                    output = StreamlineEventImpl.builder();
+                }
+                return output;
+            }
+            Object value = constants.get(name);
+            if (value == null && event != null) {
+                value = event.get(name);
+            }
+            if (value == null) {
+                throw new MissingPropertyException(name, getClass());
+            }
+            return value;
+        }
+
+        @Override
+        public void setVariable(String name, Object value) {
+            if (assigned == null) {
+                assigned = new HashMap<>();
+            }
+            assigned.put(name, value);
+        }
+
+        @Override
+        public boolean hasVariable(String name) {
+            return (assigned != null && assigned.containsKey(name)) || OUTPUT_BINDING.equals(name)
+                    || constants.containsKey(name) || (event != null && event.containsKey(name));
+        }
+
+        @Override
+        public Map getVariables() {
+            Map<String, Object> variables = new LinkedHashMap<>(constants);
+            if (event != null) {
+                variables.putAll(event);
+            }
+            if (assigned != null) {
+                variables.putAll(assigned);
+            }
+            return Collections.unmodifiableMap(variables);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledBulkNormalizationRuntime{" +
+                "normalizationConfig=" + normalizationConfig +
+                '}';
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.hortonworks.streamline.streams.runtime.normalization;
 
+import com.google.common.collect.ImmutableMap;
 import com.hortonworks.registries.common.Schema;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.layout.component.impl.normalization.FieldBasedNormalizationConfig;
@@ -27,14 +28,21 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * It represents runtime abstraction of NormalizationProcessor.
  * It involves running list of {@link TransformerRuntime}, filters {@link FieldBasedNormalizationConfig#fieldsToBeFiltered}
  * and list of {@link FieldValueGeneratorRuntime}.
- *
+ * <p>
+ * The transformers, filters and value generators are compiled when the runtime is built into a plan which writes the
+ * output fields of an event directly: the transformer outputs which are neither filtered nor replaced by a later
+ * transformer, the event fields which are neither transformed nor filtered and the generated fields which are not
+ * filtered, when the event does not already have them.
+ * </p>
  */
 public class FieldBasedNormalizationRuntime extends NormalizationRuntime {
 
@@ -45,6 +53,14 @@ public class FieldBasedNormalizationRuntime extends NormalizationRuntime {
     private final FieldBasedNormalizationConfig normalizationConfig;
     private final List<String> fieldsToBeFiltered;
 
+    // compiled plan
+    private final TransformerRuntime[] transformers;
+    private final String[] transformerOutputFields;
+    private final Set<String> skippedEventFields;
+    private final FieldValueGeneratorRuntime[] generators;
+    private final String[] generatorFields;
+    private final boolean[] generatorFieldSkipped;
+
     private FieldBasedNormalizationRuntime(Builder builder) {
         super(builder.normalizationConfig);
         this.transformerRuntimes = builder.transformerRuntimes;
@@ -52,61 +68,90 @@ public class FieldBasedNormalizationRuntime extends NormalizationRuntime {
         this.normalizationConfig = builder.normalizationConfig;
         final List<String> fieldsToBeFiltered = normalizationConfig.getFieldsToBeFiltered();
         this.fieldsToBeFiltered = fieldsToBeFiltered == null || fieldsToBeFiltered.isEmpty() ? builder.fieldsTobeFiltered : fieldsToBeFiltered;
+
+        // all the transformers run, in order, but only the last output of a field is written
+        Map<String, TransformerRuntime> transformerOutputs = new HashMap<>();
+        skippedEventFields = new HashSet<>(this.fieldsToBeFiltered);
+        for (TransformerRuntime transformerRuntime : transformerRuntimes) {
+            String inputField = transformerRuntime.getTransformer().getInputField().getName();
+            String outputField = transformerRuntime.getTransformer().getOutputField().getName();
+            transformerOutputs.remove(inputField);
+            transformerOutputs.put(outputField, transformerRuntime);
+            skippedEventFields.add(inputField);
+            skippedEventFields.add(outputField);
+        }
+        transformers = transformerRuntimes.toArray(new TransformerRuntime[transformerRuntimes.size()]);
+        transformerOutputFields = new String[transformers.length];
+        for (int i = 0; i < transformers.length; i++) {
+            String outputField = transformers[i].getTransformer().getOutputField().getName();
+            if (transformerOutputs.get(outputField) == transformers[i] && !this.fieldsToBeFiltered.contains(outputField)) {
+                transformerOutputFields[i] = outputField;
+            }
+        }
+
+        // a value is generated for a field only when neither a transformer nor the event provide it
+        List<FieldValueGeneratorRuntime> generators = new ArrayList<>();
+        Set<String> generatedFields = new HashSet<>();
+        for (FieldValueGeneratorRuntime fieldValueGeneratorRuntime : fieldValueGeneratorRuntimes) {
+            String name = fieldValueGeneratorRuntime.getField().getName();
+            if (!transformerOutputs.containsKey(name) && !this.fieldsToBeFiltered.contains(name) && generatedFields.add(name)) {
+                generators.add(fieldValueGeneratorRuntime);
+            }
+        }
+        this.generators = generators.toArray(new FieldValueGeneratorRuntime[generators.size()]);
+        generatorFields = new String[this.generators.length];
+        generatorFieldSkipped = new boolean[this.generators.length];
+        for (int i = 0; i < this.generators.length; i++) {
+            generatorFields[i] = this.generators[i].getField().getName();
+            generatorFieldSkipped[i] = skippedEventFields.contains(generatorFields[i]);
+        }
     }
 
     public Map<String, Object> normalize(StreamlineEvent event) throws NormalizationException {
-        Map<String, Object> outputFieldNameValuePairs = new HashMap<>(event);
-
         LOG.debug("Received streamline event {}", event);
 
+        ImmutableMap.Builder<String, Object> outputFieldNameValuePairs = ImmutableMap.builder();
+
         executeTransformers(event, outputFieldNameValuePairs);
 
-        executeOutputFieldValueGenerators(event, outputFieldNameValuePairs);
+        // transformed and filtered fields should not exist in the output event.
+        for (Map.Entry<String, Object> entry : event.entrySet()) {
+            if (!skippedEventFields.contains(entry.getKey())) {
+                outputFieldNameValuePairs.put(entry);
+            }
+        }
 
-        // filtered fields should not exist in the output event.
-        executeFilters(outputFieldNameValuePairs);
+        executeOutputFieldValueGenerators(event, outputFieldNameValuePairs);
 
-        return outputFieldNameValuePairs;
+        return outputFieldNameValuePairs.build();
     }
 
     /**
      * Executes output FieldValueGenerators which add new output fields generated from given fieldValueGenerators
      */
-    private void executeOutputFieldValueGenerators(StreamlineEvent event, Map<String, Object> outputFieldNameValuePairs)
+    private void executeOutputFieldValueGenerators(StreamlineEvent event, ImmutableMap.Builder<String, Object> outputFieldNameValuePairs)
             throws NormalizationException {
 
-        for (FieldValueGeneratorRuntime fieldValueGeneratorRuntime : fieldValueGeneratorRuntimes) {
-            String name = fieldValueGeneratorRuntime.getField().getName();
-            if (!outputFieldNameValuePairs.containsKey(name)) {
-                Object value = fieldValueGeneratorRuntime.generateValue(event);
-                outputFieldNameValuePairs.put(name, value);
+        for (int i = 0; i < generators.length; i++) {
+            if (generatorFieldSkipped[i] || !event.containsKey(generatorFields[i])) {
+                outputFieldNameValuePairs.put(generatorFields[i], generators[i].generateValue(event));
             } else {
-                LOG.debug("Default value for field [{}] is not generated as it exists in the received event [{}]", name, event);
+                LOG.debug("Default value for field [{}] is not generated as it exists in the received event [{}]", generatorFields[i], event);
             }
         }
     }
 
-    /**
-     * Executes filters which filters/removes the given fields from output field name/value pairs
-     */
-    private void executeFilters(Map<String, Object> outputFieldNameValuePairs) {
-        LOG.debug("Fields to be filtered: [{}] ", fieldsToBeFiltered);
-        for (String filterField : fieldsToBeFiltered) {
-            outputFieldNameValuePairs.remove(filterField);
-            LOG.debug("Removed filter field [{}] in [{}]", filterField, normalizationConfig);
-        }
-    }
-
     /**
      * Executes transformerRuntimes which transform an input schema field to an output schema field.
      */
-    private void executeTransformers(StreamlineEvent event, Map<String, Object> outputFieldNameValuePairs)
+    private void executeTransformers(StreamlineEvent event, ImmutableMap.Builder<String, Object> outputFieldNameValuePairs)
             throws NormalizationException {
 
-        for (TransformerRuntime transformerRuntime : transformerRuntimes) {
-            Object result = transformerRuntime.execute(event);
-            outputFieldNameValuePairs.remove(transformerRuntime.getTransformer().getInputField().getName());
-            outputFieldNameValuePairs.put(transformerRuntime.getTransformer().getOutputField().getName(), result);
+        for (int i = 0; i < transformers.length; i++) {
+            Object result = transformers[i].execute(event);
+            if (transformerOutputFields[i] != null) {
+                outputFieldNameValuePairs.put(transformerOutputFields[i], result);
+            }
         }
     }
 
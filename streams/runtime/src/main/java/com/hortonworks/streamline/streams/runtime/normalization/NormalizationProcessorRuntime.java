@@ -17,7 +17,6 @@
 package com.hortonworks.streamline.streams.runtime.normalization;
 
 import com.hortonworks.registries.common.Schema;
-import com.hortonworks.registries.common.exception.ParserException;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.Result;
 import com.hortonworks.streamline.streams.exception.ProcessingException;
@@ -40,6 +39,12 @@ import java.util.Map;
 public class NormalizationProcessorRuntime implements ProcessorRuntime {
     private static final Logger LOG = LoggerFactory.getLogger(NormalizationProcessorRuntime.class);
 
+    /**
+     * Config key to run the bulk normalization scripts with classes compiled once per script,
+     * see {@link CompiledBulkNormalizationRuntime}. Defaults to false.
+     */
+    public static final String COMPILED_BULK_SCRIPTS = "normalization.bulk.compiled.scripts";
+
     private Map<String, NormalizationRuntime> schemasWithNormalizationRuntime;
 
     final NormalizationProcessor normalizationProcessor;
@@ -84,9 +89,10 @@ public class NormalizationProcessorRuntime implements ProcessorRuntime {
         }
         Stream outputStream = iterator.next();
         NormalizationRuntime.Factory factory = new NormalizationRuntime.Factory();
+        boolean compiledBulkScripts = Boolean.TRUE.equals(config.get(COMPILED_BULK_SCRIPTS));
         Map<String, NormalizationRuntime> schemaRuntimes = new HashMap<>();
         for (Map.Entry<String, ? extends NormalizationConfig> entry : normalizationProcessor.getInputStreamsWithNormalizationConfig().entrySet()) {
-            schemaRuntimes.put(entry.getKey(), factory.create(entry.getValue(), outputStream.getSchema(), normalizationProcessor.getNormalizationProcessorType()));
+            schemaRuntimes.put(entry.getKey(), factory.create(entry.getValue(), outputStream.getSchema(), normalizationProcessor.getNormalizationProcessorType(), compiledBulkScripts));
         }
         schemasWithNormalizationRuntime = schemaRuntimes;
         schemaValidator = new SchemaValidator(outputStream.getSchema());
@@ -100,16 +106,20 @@ public class NormalizationProcessorRuntime implements ProcessorRuntime {
 
     /**
      * This class provides lenient validation of given field/values against a schema.
+     * <p>
+     * The type of each declared field is looked up by the field name, so validating a field is a map lookup and a type
+     * check of its value.
+     * </p>
      */
     private static class SchemaValidator {
         private static final Logger LOG = LoggerFactory.getLogger(SchemaValidator.class);
 
-        private final Map<String, Schema.Field> fields;
+        private final Map<String, Schema.Type> fieldTypes;
 
         private SchemaValidator(Schema schema) {
-            fields = new HashMap<>();
+            fieldTypes = new HashMap<>();
             for (Schema.Field field : schema.getFields()) {
-                fields.put(field.getName(), field);
+                fieldTypes.put(field.getName(), field.getType());
             }
         }
 
@@ -120,25 +130,19 @@ public class NormalizationProcessorRuntime implements ProcessorRuntime {
          * @throws NormalizationException throws when there are any parse errors or validation failures.
          */
         private void validate(Map<String, Object> fieldNameValuePairs) throws NormalizationException {
-            LOG.debug("Validating generated output field values: [{}] with [{}]", fieldNameValuePairs, fields);
+            LOG.debug("Validating generated output field values: [{}] with [{}]", fieldNameValuePairs, fieldTypes);
 
             for (Map.Entry<String, Object> entry : fieldNameValuePairs.entrySet()) {
-                try {
-                    if(!fields.containsKey(entry.getKey())) {
-                        LOG.error("Schema does not contain field with name [{}]", entry.getKey());
-                        throw new NormalizationException("Normalized payload does not conform to declared output schema.");
-                    }
-
-                    Object value = entry.getValue();
-                    if (value != null) {
-                        final Schema.Field field = new Schema.Field(entry.getKey(), Schema.fromJavaType(value));
-                        if (!fields.containsValue(field)) {
-                            LOG.error("Schema does not contain field with type [{}]", entry.getKey());
-                            throw new NormalizationException("Normalized payload does not conform to declared output schema.");
-                        }
-                    }
-                } catch (ParserException e) {
-                    throw new NormalizationException("Error occurred while validating normalized payload.", e);
+                final Schema.Type type = fieldTypes.get(entry.getKey());
+                if (type == null) {
+                    LOG.error("Schema does not contain field with name [{}]", entry.getKey());
+                    throw new NormalizationException("Normalized payload does not conform to declared output schema.");
+                }
+
+                Object value = entry.getValue();
+                if (value != null && !type.getJavaType().isInstance(value)) {
+                    LOG.error("Schema does not contain field with type [{}]", entry.getKey());
+                    throw new NormalizationException("Normalized payload does not conform to declared output schema.");
                 }
             }
         }
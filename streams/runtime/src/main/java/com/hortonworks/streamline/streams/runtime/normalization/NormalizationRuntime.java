@@ -48,13 +48,23 @@ public abstract class NormalizationRuntime {
 
     public static class Factory {
         public NormalizationRuntime create(NormalizationConfig normalizationConfig, Schema declaredOutputSchema, NormalizationProcessor.Type type) {
+            return create(normalizationConfig, declaredOutputSchema, type, false);
+        }
+
+        /**
+         * @param compiledBulkScripts whether bulk normalization scripts are run by a {@link CompiledBulkNormalizationRuntime}
+         */
+        public NormalizationRuntime create(NormalizationConfig normalizationConfig, Schema declaredOutputSchema, NormalizationProcessor.Type type,
+                                           boolean compiledBulkScripts) {
             NormalizationRuntime normalizationProcessorRuntime = null;
             switch(type) {
                 case fineGrained:
                     normalizationProcessorRuntime = new FieldBasedNormalizationRuntime.Builder((FieldBasedNormalizationConfig) normalizationConfig, declaredOutputSchema).build();
                     break;
                 case bulk:
-                    normalizationProcessorRuntime = new BulkNormalizationRuntime((BulkNormalizationConfig) normalizationConfig, declaredOutputSchema);
+                    normalizationProcessorRuntime = compiledBulkScripts
+                            ? new CompiledBulkNormalizationRuntime((BulkNormalizationConfig) normalizationConfig, declaredOutputSchema)
+                            : new BulkNormalizationRuntime((BulkNormalizationConfig) normalizationConfig, declaredOutputSchema);
                     break;
                 default:
                     throw new IllegalArgumentException("Unknown normalization config type: "+type);
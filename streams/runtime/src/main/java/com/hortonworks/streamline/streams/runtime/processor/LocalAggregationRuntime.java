@@ -0,0 +1,235 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.runtime.processor;
+
+import com.google.common.collect.ImmutableMap;
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.exception.ProcessingException;
+import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
+import com.hortonworks.streamline.streams.runtime.ProcessorRuntime;
+import com.hortonworks.streamline.streams.runtime.rule.sql.SqlEngine;
+import com.hortonworks.streamline.streams.runtime.rule.sql.SqlScript;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
+import com.hortonworks.streamline.streams.sql.runtime.Values;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.hortonworks.streamline.streams.common.StreamlineEventImpl.GROUP_BY_TRIGGER_EVENT;
+
+/**
+ * Aggregates the events of the windowed rules ahead of their window, see {@link LocalAggregation}.
+ * <p>
+ * The events are aggregated by the query of each rule compiled with {@link AggregationMode#PARTIAL}, they are not
+ * returned by {@link #process(StreamlineEvent)}. {@link #flush()} returns the partial aggregates of the groups since
+ * the previous flush, which the {@link RuleProcessorRuntime} of the windowed rules merges. An event and the partial
+ * aggregates it is aggregated in have the same {@link #getGroupKeys(StreamlineEvent) group keys}.
+ * </p>
+ */
+public class LocalAggregationRuntime implements Serializable, ProcessorRuntime {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalAggregationRuntime.class);
+
+    private final RulesProcessor rulesProcessor;
+    private final List<PartialAggregation> partialAggregations = new ArrayList<>();
+    private Map<String, List<PartialAggregation>> streamToPartialAggregations;
+    private Map<Long, PartialAggregation> ruleIdToPartialAggregations;
+
+    public LocalAggregationRuntime(RulesProcessor rulesProcessor) {
+        this.rulesProcessor = rulesProcessor;
+    }
+
+    @Override
+    public void initialize(Map<String, Object> config) {
+        Map<String, List<PartialAggregation>> map = new HashMap<>();
+        Map<Long, PartialAggregation> ruleIdMap = new HashMap<>();
+        for (Rule rule : rulesProcessor.getRules()) {
+            PartialAggregation partialAggregation = new PartialAggregation(rule);
+            partialAggregations.add(partialAggregation);
+            ruleIdMap.put(rule.getId(), partialAggregation);
+            for (String streamId : rule.getStreams()) {
+                List<PartialAggregation> list = map.get(streamId);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    map.put(streamId, list);
+                }
+                list.add(partialAggregation);
+            }
+        }
+        streamToPartialAggregations = ImmutableMap.copyOf(map);
+        ruleIdToPartialAggregations = ImmutableMap.copyOf(ruleIdMap);
+        LOG.info("partialAggregations [{}]", partialAggregations);
+    }
+
+    @Override
+    public List<Result> process(StreamlineEvent event) throws ProcessingException {
+        String inputStream = event.getSourceStream();
+        if (StringUtils.isEmpty(inputStream)) {
+            throw new ProcessingException("Event SourceStream is empty");
+        }
+        List<PartialAggregation> aggregations = streamToPartialAggregations.get(inputStream);
+        if (aggregations == null) {
+            LOG.debug("Could not find matching rules for input stream {}. Will not process event.", inputStream);
+            return Collections.emptyList();
+        }
+        // the window id is set by the windowed rules
+        StreamlineEvent eventWithWindowId = event.addFieldsAndValues(
+                Collections.<String, Object>singletonMap(Window.WINDOW_ID, 0L));
+        try {
+            for (PartialAggregation aggregation : aggregations) {
+                aggregation.script.evaluate(eventWithWindowId);
+            }
+        } catch (ScriptException e) {
+            throw new ProcessingException(String.format("Error aggregating event in rules processor with id: %s, error: %s",
+                    rulesProcessor.getId(), e.getMessage()), e);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the keys of the partial aggregates the event is aggregated in, one per rule of the event's stream: the id
+     * of the rule followed by the values of the group by fields. An event filtered out by the condition of a rule
+     * still gets the key of the rule's partial aggregate of its group.
+     */
+    public List<List<Object>> getGroupKeys(StreamlineEvent event) {
+        List<PartialAggregation> aggregations = streamToPartialAggregations.get(event.getSourceStream());
+        if (aggregations == null) {
+            return Collections.emptyList();
+        }
+        List<List<Object>> keys = new ArrayList<>(aggregations.size());
+        for (PartialAggregation aggregation : aggregations) {
+            keys.add(aggregation.getGroupKey(event));
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the key of a partial aggregate returned by {@link #flush()}, see {@link #getGroupKeys(StreamlineEvent)}.
+     */
+    public List<Object> getPartialAggregateKey(StreamlineEvent partialAggregate) {
+        Object ruleId = partialAggregate.getHeader().get(LocalAggregation.HEADER_RULE_ID);
+        PartialAggregation aggregation = ruleIdToPartialAggregations.get(ruleId);
+        if (aggregation == null) {
+            throw new IllegalArgumentException("Not a partial aggregate of rules processor with id: "
+                    + rulesProcessor.getId() + ", " + partialAggregate);
+        }
+        return aggregation.getGroupKey(partialAggregate);
+    }
+
+    /**
+     * Returns the partial aggregates of the events processed since the previous flush, and starts new ones.
+     */
+    public List<Result> flush() throws ProcessingException {
+        List<Result> results = new ArrayList<>();
+        try {
+            for (PartialAggregation aggregation : partialAggregations) {
+                List<StreamlineEvent> events = new ArrayList<>(aggregation.script.evaluate(GROUP_BY_TRIGGER_EVENT));
+                if (!events.isEmpty()) {
+                    results.add(new Result(aggregation.stream, events));
+                }
+            }
+        } catch (ScriptException e) {
+            throw new ProcessingException(String.format("Error flushing partial aggregates of rules processor with id: %s, error: %s",
+                    rulesProcessor.getId(), e.getMessage()), e);
+        }
+        return results;
+    }
+
+    @Override
+    public void cleanup() {
+
+    }
+
+    @Override
+    public String toString() {
+        return "LocalAggregationRuntime{" + rulesProcessor + ", " + partialAggregations + '}';
+    }
+
+    private static class PartialAggregation implements Serializable {
+        private final Long ruleId;
+        private final List<String> keyFields;
+        private final String stream;
+        private final SqlScript script;
+
+        PartialAggregation(Rule rule) {
+            ruleId = rule.getId();
+            keyFields = LocalAggregation.getGroupByFields(rule);
+            stream = LocalAggregation.getPartialAggregateStream(rule);
+            script = new SqlScript(RuleProcessorRuntime.createSqlExpression(rule), new SqlEngine(),
+                    new PartialAggregateConverter(ruleId, keyFields), AggregationMode.PARTIAL);
+        }
+
+        // the partial aggregates hold the group by fields under the same names as the events
+        List<Object> getGroupKey(StreamlineEvent event) {
+            List<Object> key = new ArrayList<>(keyFields.size() + 1);
+            key.add(ruleId);
+            for (String keyField : keyFields) {
+                key.add(event.get(keyField));
+            }
+            return key;
+        }
+
+        @Override
+        public String toString() {
+            return "PartialAggregation{stream=" + stream + ", script=" + script + '}';
+        }
+    }
+
+    /*
+     * The partial aggregates hold the group by fields, and carry the id of their rule and the accumulators of the
+     * aggregate functions in their header. The window id grouping them first is left out.
+     */
+    private static class PartialAggregateConverter implements SqlScript.ValuesConverter<StreamlineEvent> {
+        private final Long ruleId;
+        private final List<String> keyFields;
+
+        PartialAggregateConverter(Long ruleId, List<String> keyFields) {
+            this.ruleId = ruleId;
+            this.keyFields = keyFields;
+        }
+
+        @Override
+        public StreamlineEvent convert(Values input, StreamlineEvent inputEvent) {
+            StreamlineEventImpl.Builder builder = StreamlineEventImpl.builder();
+            for (int i = 0; i < keyFields.size(); i++) {
+                builder.put(keyFields.get(i), input.get(i + 1));
+            }
+            Map<String, Object> header = new HashMap<>();
+            header.put(LocalAggregation.HEADER_RULE_ID, ruleId);
+            header.put(LocalAggregation.HEADER_PARTIAL_AGGREGATES,
+                    new ArrayList<>(input.subList(keyFields.size() + 1, input.size())));
+            return builder.header(header).build();
+        }
+
+        @Override
+        public String toString() {
+            return "PartialAggregateConverter{ruleId=" + ruleId + ", keyFields=" + keyFields + '}';
+        }
+    }
+}
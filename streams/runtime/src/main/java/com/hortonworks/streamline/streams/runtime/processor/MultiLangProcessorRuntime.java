@@ -18,6 +18,7 @@
 package com.hortonworks.streamline.streams.runtime.processor;
 
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hortonworks.streamline.streams.Result;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
@@ -32,18 +33,42 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs the events through a pool of {@link #NUM_PROCESSES} multilang subprocesses.
+ * <p>
+ * The events are routed to the subprocesses by the hash of their {@link #ROUTING_KEY_FIELDS}, so the events of a key
+ * are processed in order by the same subprocess, or round robin when no key field is configured. Each subprocess has
+ * its own heartbeat.
+ * </p>
+ * <p>
+ * With a pipelined serializer (see {@link com.hortonworks.streamline.streams.common.utils.ISerializer#isPipelined()}),
+ * {@link #processAsync(StreamlineEvent)} sends the events in batches of {@link #BATCH_SIZE} events and a reader thread
+ * per subprocess completes the events as the subprocess answers them. Partial batches are sent after
+ * {@link #BATCH_TIMEOUT_MILLS} or when {@link #flush()} is called. Otherwise each subprocess of a pool is driven by its
+ * own thread, one event at a time. In both cases up to {@link #MAX_PENDING} events are in flight.
+ * </p>
+ */
 public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime {
 
     public static final Logger LOG = LoggerFactory.getLogger(MultiLangProcessorRuntime.class);
@@ -54,16 +79,29 @@ public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime
     public static final String OUTPUT_STREAMS = "outputStreams";
     public static final String SHELL_ENVIRONMENT = "environment";
     public static final String MULTILANG_SERIALIZER = "serializer";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String MAX_PENDING = "maxPending";
+    public static final String BATCH_TIMEOUT_MILLS = "batchTimeoutMills";
+    public static final String NUM_PROCESSES = "numProcesses";
+    public static final String ROUTING_KEY_FIELDS = "routingKeyFields";
+    public static final int DEFAULT_BATCH_SIZE = 1;
+    public static final int DEFAULT_MAX_PENDING = 1000;
+    public static final int DEFAULT_BATCH_TIMEOUT_MILLS = 10;
+    public static final int DEFAULT_NUM_PROCESSES = 1;
 
-    private ShellProcess shellProcess;
     private String[]  command;
     private volatile boolean running = true;
     private volatile Throwable exception;
 
     private int processTimeoutMills;
     private transient ScheduledExecutorService heartBeatExecutorService;
-    private AtomicLong lastHeartbeatTimestamp = new AtomicLong();
-    private AtomicBoolean waitingOnSubprocess = new AtomicBoolean(false);
+    private transient List<ShellWorker> workers;
+    private List<String> routingKeyFields;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    private boolean pipelined;
+    private int batchSize;
+    private transient Semaphore pendingPermits;
 
     @Override
     public void initialize(Map<String, Object> config) {
@@ -75,21 +113,47 @@ public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime
         List<String> outputStreams = (List<String>) config.get(OUTPUT_STREAMS);
         Map<String, String> envMap = (Map<String, String>) config.get(SHELL_ENVIRONMENT);
         String className = (String) config.get(MULTILANG_SERIALIZER);
+        int numProcesses = getInt(config, NUM_PROCESSES, DEFAULT_NUM_PROCESSES);
+        routingKeyFields = (List<String>) config.get(ROUTING_KEY_FIELDS);
+
+        heartBeatExecutorService = MoreExecutors.getExitingScheduledExecutorService(
+                new ScheduledThreadPoolExecutor(numProcesses + 1));
+        workers = new ArrayList<>(numProcesses);
+        for (int i = 0; i < numProcesses; i++) {
+            ShellProcess shellProcess = new ShellProcess(command);
+            if(className != null)
+                shellProcess.setSerializerClassName(className);
+            shellProcess.setEnv(envMap);
+
+            //subprocesses must send their pid first thing
+            Long subpid = shellProcess.launch(processorConfig, shellContext, outputStreams);
+            LOG.info("Launched subprocess with pid " + subpid);
+
+            LOG.info("Start checking heartbeat...");
+            ShellWorker worker = new ShellWorker(shellProcess);
+            worker.setHeartbeat();
+            workers.add(worker);
+            heartBeatExecutorService.scheduleAtFixedRate(new HeartbeatTimerTask(worker), 1, 1, TimeUnit.SECONDS);
+        }
 
-        shellProcess = new ShellProcess(command);
-        if(className != null)
-            shellProcess.setSerializerClassName(className);
-        shellProcess.setEnv(envMap);
-
-        //subprocesses must send their pid first thing
-        Long subpid = shellProcess.launch(processorConfig, shellContext, outputStreams);
-        LOG.info("Launched subprocess with pid " + subpid);
-
-        LOG.info("Start checking heartbeat...");
-        setHeartbeat();
+        pipelined = workers.get(0).shellProcess.isPipelined();
+        batchSize = pipelined ? getInt(config, BATCH_SIZE, DEFAULT_BATCH_SIZE) : 1;
+        if (isPipelined()) {
+            pendingPermits = new Semaphore(Math.max(getInt(config, MAX_PENDING, DEFAULT_MAX_PENDING), batchSize));
+            for (ShellWorker worker : workers) {
+                worker.start();
+            }
+        }
+        if (pipelined && batchSize > 1) {
+            long batchTimeoutMills = getInt(config, BATCH_TIMEOUT_MILLS, DEFAULT_BATCH_TIMEOUT_MILLS);
+            heartBeatExecutorService.scheduleWithFixedDelay(this::flushBatches, batchTimeoutMills, batchTimeoutMills,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
 
-        heartBeatExecutorService = MoreExecutors.getExitingScheduledExecutorService(new ScheduledThreadPoolExecutor(1));
-        heartBeatExecutorService.scheduleAtFixedRate(new HeartbeatTimerTask(this), 1, 1, TimeUnit.SECONDS);
+    private static int getInt(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        return value != null ? ((Number) value).intValue() : defaultValue;
     }
 
 
@@ -99,88 +163,121 @@ public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime
             throw new RuntimeException(exception);
         }
 
-        return processEvent(inputEvent);
+        if (isPipelined()) {
+            CompletableFuture<List<Result>> results = processAsync(inputEvent);
+            flush();
+            try {
+                return results.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ProcessingException) {
+                    throw (ProcessingException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return workers.get(0).processEvent(inputEvent);
     }
 
-    @Override
-    public void cleanup() {
-        heartBeatExecutorService.shutdownNow();
-        shellProcess.destroy();
-        running = false;
+    /**
+     * Whether several events can be in flight, because the events are sent in batches or to a pool of subprocesses.
+     */
+    public boolean isPipelined() {
+        return pipelined || workers.size() > 1;
     }
 
-    private void setHeartbeat() {
-        lastHeartbeatTimestamp.set(System.currentTimeMillis());
-    }
+    /**
+     * Queues the event, the returned future completes with the results once the subprocess has processed the event,
+     * or exceptionally if it reported an error. Blocks while {@link #MAX_PENDING} events are in flight.
+     */
+    public CompletableFuture<List<Result>> processAsync(StreamlineEvent inputEvent) throws ProcessingException {
+        if (exception != null) {
+            throw new RuntimeException(exception);
+        }
+        if (!isPipelined()) {
+            CompletableFuture<List<Result>> results = new CompletableFuture<>();
+            try {
+                results.complete(workers.get(0).processEvent(inputEvent));
+            } catch (RuntimeException e) {
+                results.completeExceptionally(e);
+            }
+            return results;
+        }
 
-    private long getLastHeartbeat() {
-        return lastHeartbeatTimestamp.get();
+        try {
+            pendingPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException(e);
+        }
+        return route(inputEvent).submit(inputEvent);
     }
 
-    private void markWaitingSubprocess() {
-        if(!waitingOnSubprocess.get())
-            setHeartbeat();
-        
-        waitingOnSubprocess.compareAndSet(false, true);
+    /**
+     * Sends the queued events to the subprocesses without waiting for the batches to be full.
+     */
+    public void flush() {
+        if (pipelined) {
+            for (ShellWorker worker : workers) {
+                worker.flush();
+            }
+        }
     }
 
-    private void completedWaitingSubprocess() {
-        waitingOnSubprocess.compareAndSet(true, false);
+    @Override
+    public void cleanup() {
+        running = false;
+        heartBeatExecutorService.shutdownNow();
+        for (ShellWorker worker : workers) {
+            worker.destroy();
+        }
     }
 
-    private List<Result> processEvent(StreamlineEvent inputEvent) {
-        List<Result> results = new LinkedList<>();
-
-        try {
-            markWaitingSubprocess();
-            ProcessorMsg processorMsg = createProcessorMessage(inputEvent);
-            shellProcess.writeProcessorMsg(processorMsg);
-
-            ShellMsg errorMsg = null;
-            Map<String, List<ShellMsg>> emitMsgMap =  new HashMap<>();
-            while (true) {
-                ShellMsg shellMsg = shellProcess.readShellMsg();
-                String command = shellMsg.getCommand();
-                if (command == null) {
-                    throw new IllegalArgumentException("Command not found in shell message: " + shellMsg);
-                }
-                setHeartbeat();
-
-                if (command.equals("sync")) {
-                    break;
-                } else if (command.equals("error")) {
-                    errorMsg = shellMsg;
-                } else if (command.equals("emit")) {
-                    String stream = shellMsg.getOutputStream();
-                    List<ShellMsg> eventList = emitMsgMap.get(stream);
-                    if(eventList == null) {
-                        eventList = new LinkedList<>();
-                        emitMsgMap.put(stream, eventList);
-                    }
-                    eventList.add(shellMsg);
-                } else {
-                    throw new RuntimeException("Unknown command received: " + command);
-                }
-            }
-
-            if (errorMsg != null) {
-                LOG.error(errorMsg.getMsg());
-                throw new ProcessingException(errorMsg.getMsg());
+    private ShellWorker route(StreamlineEvent event) {
+        if (workers.size() == 1) {
+            return workers.get(0);
+        }
+        int hash;
+        if (routingKeyFields != null && !routingKeyFields.isEmpty()) {
+            hash = 1;
+            for (String field : routingKeyFields) {
+                hash = 31 * hash + Objects.hashCode(event.get(field));
             }
+            // spreads the hashes of consecutive keys
+            hash ^= hash >>> 16;
+        } else {
+            hash = nextWorker.getAndIncrement();
+        }
+        return workers.get(Math.floorMod(hash, workers.size()));
+    }
 
-            for (Map.Entry<String, List<ShellMsg>> entry : emitMsgMap.entrySet())
-            {
-                results.add(convertShellMsg(entry.getKey(), entry.getValue(), inputEvent));
+    private void flushBatches() {
+        for (ShellWorker worker : workers) {
+            try {
+                worker.flush();
+            } catch (Throwable e) {
+                die(worker, e);
             }
+        }
+    }
 
-
-        } catch (IOException | ProcessingException e) {
-            String processInfo = shellProcess.getProcessInfoString() + shellProcess.getProcessTerminationInfoString();
-            throw new RuntimeException(processInfo, e);
-        } finally {
-            completedWaitingSubprocess();
+    private static void addEmitMsg(Map<String, List<ShellMsg>> emitMsgMap, ShellMsg shellMsg) {
+        String stream = shellMsg.getOutputStream();
+        List<ShellMsg> eventList = emitMsgMap.get(stream);
+        if(eventList == null) {
+            eventList = new LinkedList<>();
+            emitMsgMap.put(stream, eventList);
         }
+        eventList.add(shellMsg);
+    }
 
+    private List<Result> convertShellMsgs(Map<String, List<ShellMsg>> emitMsgMap, StreamlineEvent inputEvent) {
+        List<Result> results = new LinkedList<>();
+        for (Map.Entry<String, List<ShellMsg>> entry : emitMsgMap.entrySet())
+        {
+            results.add(convertShellMsg(entry.getKey(), entry.getValue(), inputEvent));
+        }
         return results;
     }
 
@@ -208,8 +305,8 @@ public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime
         return streamlineEvent;
     }
 
-    private void die(Throwable exception) {
-        String processInfo = shellProcess.getProcessInfoString() + shellProcess.getProcessTerminationInfoString();
+    private void die(ShellWorker worker, Throwable exception) {
+        String processInfo = worker.getProcessInfo();
         this.exception = new RuntimeException(processInfo, exception);
         String message = String.format("Halting process: Processor died. Command: %s, ProcessInfo %s",
                 Arrays.toString(command),
@@ -220,24 +317,257 @@ public class MultiLangProcessorRuntime implements Serializable, ProcessorRuntime
         }
     }
 
+    /**
+     * One subprocess of the pool, with the events in flight in it.
+     */
+    private class ShellWorker {
+        private final ShellProcess shellProcess;
+        private final AtomicLong lastHeartbeatTimestamp = new AtomicLong();
+        private final AtomicBoolean waitingOnSubprocess = new AtomicBoolean(false);
+        // pipelined mode
+        private final List<ProcessorMsg> batch = new ArrayList<>();
+        private final Map<String, PendingEvent> pendingEvents = new ConcurrentHashMap<>();
+        private Thread readerThread;
+        // pool of subprocesses with a non pipelined serializer
+        private ExecutorService executor;
+
+        private ShellWorker(ShellProcess shellProcess) {
+            this.shellProcess = shellProcess;
+        }
+
+        private void start() {
+            if (pipelined) {
+                readerThread = new Thread(this::readShellMsgs, "multilang-reader-" + shellProcess.getPid());
+                readerThread.setDaemon(true);
+                readerThread.start();
+            } else {
+                executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("multilang-worker-" + shellProcess.getPid()).build());
+            }
+        }
+
+        private CompletableFuture<List<Result>> submit(StreamlineEvent inputEvent) throws ProcessingException {
+            if (!pipelined) {
+                CompletableFuture<List<Result>> results = new CompletableFuture<>();
+                executor.execute(() -> {
+                    try {
+                        results.complete(processEvent(inputEvent));
+                    } catch (Throwable e) {
+                        results.completeExceptionally(e);
+                    } finally {
+                        pendingPermits.release();
+                    }
+                });
+                return results;
+            }
+
+            PendingEvent pendingEvent = new PendingEvent(inputEvent);
+            if (pendingEvents.isEmpty()) {
+                setHeartbeat();
+            }
+            if (pendingEvents.putIfAbsent(inputEvent.getId(), pendingEvent) != null) {
+                pendingPermits.release();
+                throw new ProcessingException("An event with id " + inputEvent.getId() + " is already being processed");
+            }
+            synchronized (batch) {
+                batch.add(createProcessorMessage(inputEvent));
+                if (batch.size() >= batchSize) {
+                    writeBatch();
+                }
+            }
+            return pendingEvent.results;
+        }
+
+        private void flush() {
+            synchronized (batch) {
+                writeBatch();
+            }
+        }
+
+        // the caller holds the lock of the batch, the events of the batch fail if it can't be written
+        private void writeBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                shellProcess.writeProcessorMsgs(batch);
+            } catch (IOException e) {
+                RuntimeException failure = new RuntimeException(getProcessInfo(), e);
+                for (ProcessorMsg processorMsg : batch) {
+                    PendingEvent pendingEvent = pendingEvents.remove(processorMsg.getId());
+                    if (pendingEvent != null) {
+                        pendingPermits.release();
+                        pendingEvent.results.completeExceptionally(failure);
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+
+        private void readShellMsgs() {
+            try {
+                while (running) {
+                    ShellMsg shellMsg = shellProcess.readShellMsg();
+                    String command = shellMsg.getCommand();
+                    if (command == null) {
+                        throw new IllegalArgumentException("Command not found in shell message: " + shellMsg);
+                    }
+                    setHeartbeat();
+
+                    PendingEvent pendingEvent = pendingEvents.get(shellMsg.getId());
+                    if (pendingEvent == null) {
+                        throw new IllegalArgumentException("Shell message for an unknown event: " + shellMsg);
+                    }
+                    if (command.equals("sync")) {
+                        pendingEvents.remove(shellMsg.getId());
+                        pendingPermits.release();
+                        pendingEvent.complete();
+                    } else if (command.equals("error")) {
+                        pendingEvent.errorMsg = shellMsg;
+                    } else if (command.equals("emit")) {
+                        pendingEvent.emit(shellMsg);
+                    } else {
+                        throw new RuntimeException("Unknown command received: " + command);
+                    }
+                }
+            } catch (Throwable e) {
+                RuntimeException failure = new RuntimeException(getProcessInfo(), e);
+                for (PendingEvent pendingEvent : pendingEvents.values()) {
+                    pendingEvent.results.completeExceptionally(failure);
+                }
+                pendingEvents.clear();
+                if (running) {
+                    die(this, e);
+                }
+            }
+        }
+
+        private List<Result> processEvent(StreamlineEvent inputEvent) {
+            List<Result> results;
+
+            try {
+                markWaitingSubprocess();
+                ProcessorMsg processorMsg = createProcessorMessage(inputEvent);
+                shellProcess.writeProcessorMsg(processorMsg);
+
+                ShellMsg errorMsg = null;
+                Map<String, List<ShellMsg>> emitMsgMap = new HashMap<>();
+                while (true) {
+                    ShellMsg shellMsg = shellProcess.readShellMsg();
+                    String command = shellMsg.getCommand();
+                    if (command == null) {
+                        throw new IllegalArgumentException("Command not found in shell message: " + shellMsg);
+                    }
+                    setHeartbeat();
+
+                    if (command.equals("sync")) {
+                        break;
+                    } else if (command.equals("error")) {
+                        errorMsg = shellMsg;
+                    } else if (command.equals("emit")) {
+                        addEmitMsg(emitMsgMap, shellMsg);
+                    } else {
+                        throw new RuntimeException("Unknown command received: " + command);
+                    }
+                }
+
+                if (errorMsg != null) {
+                    LOG.error(errorMsg.getMsg());
+                    throw new ProcessingException(errorMsg.getMsg());
+                }
+
+                results = convertShellMsgs(emitMsgMap, inputEvent);
+
+            } catch (IOException | ProcessingException e) {
+                throw new RuntimeException(getProcessInfo(), e);
+            } finally {
+                completedWaitingSubprocess();
+            }
+
+            return results;
+        }
+
+        private void setHeartbeat() {
+            lastHeartbeatTimestamp.set(System.currentTimeMillis());
+        }
+
+        private long getLastHeartbeat() {
+            return lastHeartbeatTimestamp.get();
+        }
+
+        private boolean isWaitingOnSubprocess() {
+            return waitingOnSubprocess.get() || !pendingEvents.isEmpty();
+        }
+
+        private void markWaitingSubprocess() {
+            if(!waitingOnSubprocess.get())
+                setHeartbeat();
+
+            waitingOnSubprocess.compareAndSet(false, true);
+        }
+
+        private void completedWaitingSubprocess() {
+            waitingOnSubprocess.compareAndSet(true, false);
+        }
+
+        private String getProcessInfo() {
+            return shellProcess.getProcessInfoString() + shellProcess.getProcessTerminationInfoString();
+        }
+
+        private void destroy() {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            shellProcess.destroy();
+        }
+    }
+
+    /**
+     * An event sent to the subprocess in pipelined mode, and the messages received for it so far.
+     */
+    private class PendingEvent {
+        private final StreamlineEvent inputEvent;
+        private final CompletableFuture<List<Result>> results = new CompletableFuture<>();
+        private final Map<String, List<ShellMsg>> emitMsgMap = new HashMap<>();
+        private ShellMsg errorMsg;
+
+        private PendingEvent(StreamlineEvent inputEvent) {
+            this.inputEvent = inputEvent;
+        }
+
+        private void emit(ShellMsg shellMsg) {
+            addEmitMsg(emitMsgMap, shellMsg);
+        }
+
+        private void complete() {
+            if (errorMsg != null) {
+                LOG.error(errorMsg.getMsg());
+                results.completeExceptionally(new ProcessingException(errorMsg.getMsg()));
+            } else {
+                results.complete(convertShellMsgs(emitMsgMap, inputEvent));
+            }
+        }
+    }
+
     private class HeartbeatTimerTask extends TimerTask {
-        private MultiLangProcessorRuntime processorRuntime;
+        private ShellWorker worker;
 
-        public HeartbeatTimerTask(MultiLangProcessorRuntime processorRuntime) {
-            this.processorRuntime = processorRuntime;
+        public HeartbeatTimerTask(ShellWorker worker) {
+            this.worker = worker;
         }
 
         @Override
         public void run() {
-            long lastHeartbeat = getLastHeartbeat();
+            long lastHeartbeat = worker.getLastHeartbeat();
             long currentTimestamp = System.currentTimeMillis();
-            boolean isWaitingOnSubprocess = waitingOnSubprocess.get();
+            boolean isWaitingOnSubprocess = worker.isWaitingOnSubprocess();
 
             LOG.debug("last heartbeat : {}, waiting subprocess now : {}, worker timeout (ms) : {}",
                     lastHeartbeat, isWaitingOnSubprocess, processTimeoutMills);
 
             if (isWaitingOnSubprocess && currentTimestamp - lastHeartbeat > processTimeoutMills) {
-                processorRuntime.die(new RuntimeException("subprocess heartbeat timeout"));
+                die(worker, new RuntimeException("subprocess heartbeat timeout"));
             }
         }
     }
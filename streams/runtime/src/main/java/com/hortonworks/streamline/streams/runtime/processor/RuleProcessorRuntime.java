@@ -24,35 +24,43 @@ import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.Result;
 import com.hortonworks.streamline.streams.exception.ProcessingException;
 import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
 import com.hortonworks.streamline.streams.layout.component.rule.Rule;
 import com.hortonworks.streamline.streams.layout.component.rule.action.Action;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.Expression;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.GroupBy;
 import com.hortonworks.streamline.streams.runtime.ProcessorRuntime;
+import com.hortonworks.streamline.streams.runtime.rule.PaneWindow;
 import com.hortonworks.streamline.streams.runtime.rule.RuleRuntime;
 import org.apache.commons.lang3.StringUtils;
 import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntime;
 import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntimeContext;
 import com.hortonworks.streamline.streams.runtime.rule.condition.expression.GroovyExpression;
 import com.hortonworks.streamline.streams.runtime.rule.condition.expression.StormSqlExpression;
+import com.hortonworks.streamline.streams.runtime.rule.network.RuleNetwork;
 import com.hortonworks.streamline.streams.runtime.rule.sql.SqlEngine;
 import com.hortonworks.streamline.streams.runtime.rule.sql.SqlScript;
+import com.hortonworks.streamline.streams.runtime.script.CompiledGroovyScript;
 import com.hortonworks.streamline.streams.runtime.script.GroovyScript;
 import com.hortonworks.streamline.streams.runtime.script.Script;
 import com.hortonworks.streamline.streams.runtime.script.engine.GroovyScriptEngine;
 import com.hortonworks.streamline.streams.runtime.transform.ActionRuntimeService;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.script.ScriptException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static com.hortonworks.streamline.streams.common.StreamlineEventImpl.GROUP_BY_TRIGGER_EVENT;
 import static com.hortonworks.streamline.streams.layout.component.rule.expression.Window.WINDOW_ID;
@@ -64,6 +72,24 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
     protected static final Logger LOG = LoggerFactory.getLogger(RuleProcessorRuntime.class);
     private static final GroupBy GROUP_BY_WINDOWID = new GroupBy(new FieldExpression(Schema.Field.of(WINDOW_ID, Schema.Type.LONG)));
 
+    /**
+     * Config key to evaluate the {@link ScriptType#GROOVY} conditions with classes compiled once per rule,
+     * see {@link CompiledGroovyScript}. Defaults to false.
+     */
+    public static final String GROOVY_COMPILED_CONDITIONS = "rules.groovy.compiled.conditions";
+
+    /**
+     * Config key to evaluate all the {@link ScriptType#GROOVY} conditions of an input stream together,
+     * see {@link RuleNetwork}. Defaults to false.
+     */
+    public static final String SHARED_CONDITION_NETWORK = "rules.shared.condition.network";
+
+    /**
+     * Config key to keep the aggregates of the windowed {@link ScriptType#SQL} rules across the window activations,
+     * the events expiring from the window are removed with {@link #retract(StreamlineEvent)}. Defaults to false.
+     */
+    public static final String INCREMENTAL_WINDOW_AGGREGATION = "rules.window.incremental.aggregation";
+
     public enum ScriptType {GROOVY, SQL}
 
     private final RulesProcessor rulesProcessor;
@@ -72,6 +98,11 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
     private Map<String, List<RuleRuntime>> streamToRuleRuntimes;
     private List<RuleRuntime> allRuleRuntimes;
     private boolean processAll = true;
+    private boolean compileGroovyConditions;
+    private boolean incrementalWindowAggregation;
+    private boolean localAggregation;
+    private Map<Object, List<RuleRuntime>> ruleIdToRuleRuntimes;
+    private Map<String, RuleNetwork> streamToRuleNetworks;
 
     public RuleProcessorRuntime(RulesProcessor rulesProcessor, ScriptType scriptType) {
         this.rulesProcessor = rulesProcessor;
@@ -80,8 +111,15 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
 
     @Override
     public void initialize(Map<String, Object> config) {
+        this.compileGroovyConditions = Boolean.TRUE.equals(config.get(GROOVY_COMPILED_CONDITIONS));
+        this.incrementalWindowAggregation = Boolean.TRUE.equals(config.get(INCREMENTAL_WINDOW_AGGREGATION));
+        this.localAggregation = ScriptType.SQL.equals(scriptType) && rulesProcessor.getRules() != null
+                && LocalAggregation.isEnabled(rulesProcessor.getRules());
         initializeRuleRuntimes(config);
         buildStreamToRulesRuntime();
+        if (ScriptType.GROOVY.equals(scriptType) && Boolean.TRUE.equals(config.get(SHARED_CONDITION_NETWORK))) {
+            buildStreamToRuleNetworks();
+        }
         this.processAll = this.rulesProcessor.getProcessAll();
     }
 
@@ -95,14 +133,54 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
     @Override
     public List<Result> process(StreamlineEvent event) throws ProcessingException {
         List<Result> results = new ArrayList<>();
+        for (List<Result> ruleResults : processRules(event, RuleRuntime::process)) {
+            results.addAll(ruleResults);
+        }
+        return results;
+    }
+
+    /**
+     * Processes the event like {@link #process(StreamlineEvent)}, the returned future completes once the results of all
+     * the matched rules are available. The work deferred by the actions is started by {@link #flush()} and completed
+     * on the callback executor.
+     */
+    public CompletableFuture<List<Result>> processAsync(StreamlineEvent event, Executor callbackExecutor)
+            throws ProcessingException {
+        List<CompletableFuture<List<Result>>> results = processRules(event,
+                (ruleRuntime, ruleEvent) -> ruleRuntime.processAsync(ruleEvent, callbackExecutor));
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()])).thenApply(ignored -> {
+            List<Result> allResults = new ArrayList<>();
+            for (CompletableFuture<List<Result>> ruleResults : results) {
+                allResults.addAll(ruleResults.join());
+            }
+            return allResults;
+        });
+    }
+
+    /*
+     * Selects the rules matching the event and returns what the rule processor returned for each of them.
+     */
+    private <T> List<T> processRules(StreamlineEvent event, RuleProcessor<T> ruleProcessor) throws ProcessingException {
+        List<T> results = new ArrayList<>();
         try {
             List<RuleRuntime> ruleRuntimes = getRulesRuntime(event);
             LOG.debug("Process event {}, rule runtimes {}", event, ruleRuntimes);
+            RuleNetwork ruleNetwork = getRuleNetwork(event);
+            if (ruleNetwork != null) {
+                BitSet matched = ruleNetwork.match(event);
+                for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                    results.add(ruleProcessor.process(ruleRuntimes.get(i), event));
+                    if (!processAll) {
+                        break;
+                    }
+                }
+                return results;
+            }
             for (RuleRuntime rr : ruleRuntimes) {
                 boolean succeeded = false;
                 for (StreamlineEvent result : rr.evaluate(event)) {
                     if (result != null) {
-                        results.addAll(rr.process(result));
+                        results.add(ruleProcessor.process(rr, result));
                         succeeded = true;
                     }
                 }
@@ -118,6 +196,32 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         return results;
     }
 
+    /**
+     * Starts the work deferred by the rules since the last flush, must be called by the thread calling
+     * {@link #processAsync(StreamlineEvent, Executor)}.
+     */
+    public void flush() {
+        for (RuleRuntime rr : allRuleRuntimes) {
+            rr.flush();
+        }
+    }
+
+    /**
+     * Removes an event processed before from the aggregates of the rules, see {@link #INCREMENTAL_WINDOW_AGGREGATION}.
+     */
+    public void retract(StreamlineEvent event) throws ProcessingException {
+        try {
+            for (RuleRuntime rr : getRulesRuntime(event)) {
+                rr.retract(event);
+            }
+        } catch (Exception e) {
+            String message = String.format("Error retracting event from rule processor with id: %s, error: %s",
+                    rulesProcessor.getId(), e.getMessage());
+            LOG.error(message, e);
+            throw new ProcessingException(message, e);
+        }
+    }
+
     @Override
     public String toString() {
         return "RuleProcessorRuntime{" + rulesProcessor + ", " + rulesRuntime + '}';
@@ -132,6 +236,12 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         if (event == GROUP_BY_TRIGGER_EVENT) {
             return allRuleRuntimes;
         }
+        // the partial aggregates are merged by their rule only
+        Object ruleId = event.getHeader().get(LocalAggregation.HEADER_RULE_ID);
+        if (ruleId != null) {
+            List<RuleRuntime> result = ruleIdToRuleRuntimes.get(ruleId);
+            return result != null ? result : Collections.<RuleRuntime>emptyList();
+        }
         String inputStream = event.getSourceStream();
         if (StringUtils.isEmpty(inputStream)) {
             throw new ProcessingException("Event SourceStream is empty");
@@ -144,6 +254,13 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         return result;
     }
 
+    private RuleNetwork getRuleNetwork(StreamlineEvent event) {
+        if (streamToRuleNetworks == null || event == GROUP_BY_TRIGGER_EVENT) {
+            return null;
+        }
+        return streamToRuleNetworks.get(event.getSourceStream());
+    }
+
     private void initializeRuleRuntimes(Map<String, Object> config) {
         List<Rule> rules = rulesProcessor.getRules();
         if (rules != null) {
@@ -183,6 +300,27 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
             builder.addAll(ruleRuntimes);
         }
         allRuleRuntimes = builder.build().asList();
+        Map<Object, List<RuleRuntime>> ruleIdMap = new HashMap<>();
+        for (RuleRuntime rr : allRuleRuntimes) {
+            if (rr.getRule().getId() != null) {
+                ruleIdMap.put(rr.getRule().getId(), Collections.singletonList(rr));
+            }
+        }
+        ruleIdToRuleRuntimes = ImmutableMap.copyOf(ruleIdMap);
+    }
+
+    // the rules of a network are in the same order as the rule runtimes of the stream
+    private void buildStreamToRuleNetworks() {
+        Map<String, RuleNetwork> map = new HashMap<>();
+        for (Map.Entry<String, List<RuleRuntime>> entry : streamToRuleRuntimes.entrySet()) {
+            List<Rule> rules = new ArrayList<>();
+            for (RuleRuntime rr : entry.getValue()) {
+                rules.add(rr.getRule());
+            }
+            map.put(entry.getKey(), new RuleNetwork(rules,
+                    groovyExpression -> createConditionScript(groovyExpression, new GroovyScriptEngine())));
+        }
+        streamToRuleNetworks = ImmutableMap.copyOf(map);
     }
 
     private List<ActionRuntime> createActionRuntimes(Rule rule) {
@@ -200,7 +338,7 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         LOG.info("Creating groovy execution script for rule {} ", rule);
         GroovyExpression groovyExpression = new GroovyExpression(rule.getCondition());
         GroovyScriptEngine groovyScriptEngine = new GroovyScriptEngine();
-        GroovyScript<Boolean> groovyScript = createHelperGroovyScript(groovyExpression, groovyScriptEngine);
+        GroovyScript<Boolean> groovyScript = createConditionScript(groovyExpression, groovyScriptEngine);
         GroovyScript<Collection<StreamlineEvent>> wrapper = new GroovyScript<Collection<StreamlineEvent>>(groovyExpression.asString(),
                 groovyScriptEngine) {
             @Override
@@ -215,6 +353,12 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         return wrapper;
     }
 
+    private GroovyScript<Boolean> createConditionScript(GroovyExpression groovyExpression, GroovyScriptEngine groovyScriptEngine) {
+        return compileGroovyConditions
+                ? new CompiledGroovyScript(groovyExpression.asString(), groovyExpression.getReferencedFields(), groovyScriptEngine)
+                : createHelperGroovyScript(groovyExpression, groovyScriptEngine);
+    }
+
     private GroovyScript<Boolean> createHelperGroovyScript(GroovyExpression groovyExpression, GroovyScriptEngine groovyScriptEngine) {
         return new GroovyScript<Boolean>(groovyExpression.asString(), groovyScriptEngine) {
             @Override
@@ -242,7 +386,7 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         SqlEngine sqlEngine = new SqlEngine();
         LOG.info("Built sqlEngine {}", sqlEngine);
         StormSqlExpression stormSqlExpression = createSqlExpression(rule);
-        SqlScript sqlScript = new SqlScript(stormSqlExpression, sqlEngine);
+        SqlScript sqlScript = new SqlScript(stormSqlExpression, sqlEngine, null, getAggregationMode(rule));
         LOG.info("Built SqlScript {}", sqlScript);
         SqlScript.ValuesToStreamlineEventConverter valuesConverter = new SqlScript.ValuesToStreamlineEventConverter(sqlScript.getOutputFields());
         sqlScript.setValuesConverter(valuesConverter);
@@ -250,7 +394,26 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         return sqlScript;
     }
 
-    private StormSqlExpression createSqlExpression(Rule rule) {
+    /*
+     * The pane aggregation configured in the window of the rule takes precedence over the incremental aggregation,
+     * which is not used with the local aggregation. With the local aggregation the rules merge the partial aggregates
+     * of the events, see LocalAggregationRuntime.
+     */
+    private AggregationMode getAggregationMode(Rule rule) {
+        if (rule.getWindow() == null) {
+            return AggregationMode.BATCH;
+        }
+        PaneWindow paneWindow = PaneWindow.of(rule.getWindow());
+        AggregationMode mode;
+        if (paneWindow != null) {
+            mode = AggregationMode.panes(paneWindow.getNumPanes());
+        } else {
+            mode = incrementalWindowAggregation && !localAggregation ? AggregationMode.INCREMENTAL : AggregationMode.BATCH;
+        }
+        return localAggregation ? mode.toFinal() : mode;
+    }
+
+    static StormSqlExpression createSqlExpression(Rule rule) {
         List<Expression> groupByExpressions = new ArrayList<>();
         if (rule.getWindow() != null) {
             groupByExpressions.addAll(GROUP_BY_WINDOWID.getExpressions());
@@ -265,5 +428,9 @@ public class RuleProcessorRuntime implements Serializable, ProcessorRuntime {
         LOG.info("Built stormSqlExpression {}", stormSqlExpression);
         return stormSqlExpression;
     }
-}
 
+    // processes an event matching a rule
+    private interface RuleProcessor<T> {
+        T process(RuleRuntime ruleRuntime, StreamlineEvent event) throws ProcessingException;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.rule;
+
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The panes of a sliding {@link Window} configured with {@link Window#isPaneAggregation()}.
+ * <p>
+ * The window is split in panes of the length of its sliding interval. The tuples are collected in a tumbling window
+ * of one pane and each pane keeps one partial aggregate per group, the results of the window are the merge of the
+ * partial aggregates of its last panes. The memory then depends on the number of panes and groups rather than on
+ * the number of tuples in the window.
+ * </p>
+ */
+public final class PaneWindow {
+    private static final Logger LOG = LoggerFactory.getLogger(PaneWindow.class);
+
+    private final Window paneWindow;
+    private final int numPanes;
+
+    private PaneWindow(Window paneWindow, int numPanes) {
+        this.paneWindow = paneWindow;
+        this.numPanes = numPanes;
+    }
+
+    /**
+     * Returns the panes of the window, or null if the window is not configured with pane aggregation or if its length
+     * is not a multiple of its sliding interval.
+     */
+    public static PaneWindow of(Window window) {
+        if (window == null || !window.isPaneAggregation()) {
+            return null;
+        }
+        Window.WindowParam length = window.getWindowLength();
+        Window.WindowParam slide = window.getSlidingInterval();
+        int lengthValue;
+        int slideValue;
+        if (length instanceof Window.Count && slide instanceof Window.Count) {
+            lengthValue = ((Window.Count) length).getCount();
+            slideValue = ((Window.Count) slide).getCount();
+        } else if (length instanceof Window.Duration && slide instanceof Window.Duration) {
+            lengthValue = ((Window.Duration) length).getDurationMs();
+            slideValue = ((Window.Duration) slide).getDurationMs();
+        } else {
+            LOG.warn("Pane aggregation needs a window length and a sliding interval of the same kind, ignoring it for {}", window);
+            return null;
+        }
+        if (slideValue <= 0 || slideValue >= lengthValue || lengthValue % slideValue != 0) {
+            LOG.warn("Pane aggregation needs a window length that is a multiple of the sliding interval, ignoring it for {}", window);
+            return null;
+        }
+        Window paneWindow = new Window(window);
+        paneWindow.setWindowLength(slide);
+        paneWindow.setSlidingInterval(slide);
+        return new PaneWindow(paneWindow, lengthValue / slideValue);
+    }
+
+    /**
+     * The tumbling window collecting the tuples of one pane.
+     */
+    public Window getPaneWindow() {
+        return paneWindow;
+    }
+
+    /**
+     * The number of panes in the window.
+     */
+    public int getNumPanes() {
+        return numPanes;
+    }
+
+    @Override
+    public String toString() {
+        return "PaneWindow{" +
+                "paneWindow=" + paneWindow +
+                ", numPanes=" + numPanes +
+                '}';
+    }
+}
@@ -34,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Represents a rule runtime
@@ -60,6 +62,15 @@ public class RuleRuntime implements Serializable, ProcessorRuntime {
         }
     }
 
+    public void retract(StreamlineEvent input) {
+        try {
+            LOG.debug("Retract {} with script {}", input, script);
+            script.retract(input);
+        } catch (ScriptException e) {
+            throw new ConditionEvaluationException("Exception occurred when retracting from rule condition. " + this, e);
+        }
+    }
+
     /**
      * Executes a {@link Rule}'s Action
      *
@@ -86,6 +97,45 @@ public class RuleRuntime implements Serializable, ProcessorRuntime {
         return allResults;
     }
 
+    /**
+     * Executes a {@link Rule}'s Action, the returned future completes once the results of all the actions are available.
+     *
+     * @param event runtime input to this rule
+     * @param callbackExecutor the executor completing the work deferred by the actions
+     */
+    public CompletableFuture<List<Result>> processAsync(StreamlineEvent event, Executor callbackExecutor)
+            throws ProcessingException {
+        LOG.debug("processAsync invoked with StreamlineEvent {}", event);
+        List<CompletableFuture<List<Result>>> actionResults = new ArrayList<>();
+        try {
+            for (ActionRuntime action : actions) {
+                actionResults.add(action.executeAsync(event, callbackExecutor));
+            }
+        } catch (Exception e) {
+            String message = "Error evaluating rule with id:" + rule.getId();
+            LOG.error(message);
+            throw new ProcessingException(message, e);
+        }
+        return CompletableFuture.allOf(actionResults.toArray(new CompletableFuture[actionResults.size()])).thenApply(ignored -> {
+            List<Result> allResults = new ArrayList<>();
+            for (CompletableFuture<List<Result>> results : actionResults) {
+                if (results.join() != null) {
+                    allResults.addAll(results.join());
+                }
+            }
+            return allResults;
+        });
+    }
+
+    /**
+     * Starts the work deferred by the actions since the last flush, see {@link ActionRuntime#flush()}.
+     */
+    public void flush() {
+        for (ActionRuntime action : actions) {
+            action.flush();
+        }
+    }
+
     @Override
     public void initialize(Map<String, Object> config) {
         for (ActionRuntime action : actions) {
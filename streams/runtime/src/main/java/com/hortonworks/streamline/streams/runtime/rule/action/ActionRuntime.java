@@ -24,6 +24,8 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Runtime abstraction for the action to be taken when a rule matches the condition
@@ -54,6 +56,24 @@ public interface ActionRuntime extends Serializable {
      */
     List<Result> execute(StreamlineEvent input);
 
+    /**
+     * Execute the current action, the returned future completes once the results are available. The actions that
+     * defer some of their work until {@link #flush()} complete it on the given executor, so that the events are only
+     * changed by the thread running the executor.
+     *
+     * @param input the input StreamlineEvent
+     * @param callbackExecutor the executor completing the deferred work
+     * @return the future of the results
+     */
+    default CompletableFuture<List<Result>> executeAsync(StreamlineEvent input, Executor callbackExecutor) {
+        return CompletableFuture.completedFuture(execute(input));
+    }
+
+    /**
+     * Starts the work deferred by {@link #executeAsync(StreamlineEvent, Executor)}, must be called by the thread calling it.
+     */
+    default void flush() {
+    }
 
     /**
      * The streams where the result of this action are sent out
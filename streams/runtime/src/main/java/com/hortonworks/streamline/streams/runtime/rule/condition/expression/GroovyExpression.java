@@ -17,20 +17,25 @@
 
 package com.hortonworks.streamline.streams.runtime.rule.condition.expression;
 
+import com.hortonworks.registries.common.Schema;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.Condition;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.ExpressionTranslator;
 import com.hortonworks.streamline.streams.layout.component.rule.expression.Operator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the expression of this {@link Condition} in Groovy language syntax
  **/
 public class GroovyExpression extends ExpressionRuntime {
     private static final Logger LOG = LoggerFactory.getLogger(GroovyExpression.class);
-
+    private List<Schema.Field> referencedFields;
 
     public GroovyExpression(Condition condition) {
         super(condition);
@@ -39,13 +44,34 @@ public class GroovyExpression extends ExpressionRuntime {
     @Override
     public String asString() {
         if (expression == null) {           // Builds and caches the expression string the first time it is called
-            GroovyExpressionTranslator expressionTranslator = new GroovyExpressionTranslator();
-            condition.getExpression().accept(expressionTranslator);
-            expression = expressionTranslator.getTranslatedExpression();
+            translate();
         }
         return expression;
     }
 
+    /**
+     * @return the distinct fields referenced by this {@link Condition}, in the order they first appear in the expression
+     */
+    public List<Schema.Field> getReferencedFields() {
+        if (referencedFields == null) {
+            translate();
+        }
+        return referencedFields;
+    }
+
+    private void translate() {
+        GroovyExpressionTranslator expressionTranslator = new GroovyExpressionTranslator();
+        condition.getExpression().accept(expressionTranslator);
+        Map<String, Schema.Field> fields = new LinkedHashMap<>();
+        for (Schema.Field field : expressionTranslator.getFields()) {
+            if (!fields.containsKey(field.getName())) {
+                fields.put(field.getName(), field);
+            }
+        }
+        referencedFields = new ArrayList<>(fields.values());
+        expression = expressionTranslator.getTranslatedExpression();
+    }
+
     private static class GroovyExpressionTranslator extends ExpressionTranslator {
         protected String getOperator(Operator operator) {
             switch (operator) {
@@ -0,0 +1,245 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.runtime.rule.network;
+
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Operator;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The comparisons of one field with literals, in a {@link RuleNetwork}.
+ * <p>
+ * Equality tests are looked up in hash maps. The thresholds of the range tests are sorted, so the tests satisfied by
+ * a value are a prefix or a suffix of the thresholds found with a binary search.
+ * </p>
+ */
+final class FieldIndex implements Serializable {
+    private static final int[] NO_CONJUNCTS = new int[0];
+
+    private final Map<Object, Integer> equalsTests;
+    private final Map<Object, Integer> notEqualsTests;
+    private final int[] notEqualsConjuncts;
+    private final RangeIndex greaterThanTests;
+    private final RangeIndex greaterThanEqualsTests;
+    private final RangeIndex lessThanTests;
+    private final RangeIndex lessThanEqualsTests;
+
+    private FieldIndex(Builder builder) {
+        equalsTests = builder.equalsTests;
+        notEqualsTests = builder.notEqualsTests;
+        notEqualsConjuncts = new int[notEqualsTests.size()];
+        int i = 0;
+        for (Integer conjunct : notEqualsTests.values()) {
+            notEqualsConjuncts[i++] = conjunct;
+        }
+        greaterThanTests = new RangeIndex(builder.greaterThanTests);
+        greaterThanEqualsTests = new RangeIndex(builder.greaterThanEqualsTests);
+        lessThanTests = new RangeIndex(builder.lessThanTests);
+        lessThanEqualsTests = new RangeIndex(builder.lessThanEqualsTests);
+    }
+
+    /**
+     * Reports the conjuncts satisfied by the non null value of the field.
+     */
+    void match(Object value, RuleNetwork.ConjunctCounter counter) {
+        Object key = normalize(value);
+        if (!equalsTests.isEmpty()) {
+            Integer conjunct = equalsTests.get(key);
+            if (conjunct != null) {
+                counter.satisfied(conjunct);
+            }
+        }
+        if (notEqualsConjuncts.length > 0) {
+            Integer excluded = notEqualsTests.get(key);
+            for (int conjunct : notEqualsConjuncts) {
+                if (excluded == null || excluded != conjunct) {
+                    counter.satisfied(conjunct);
+                }
+            }
+        }
+        if (value instanceof Number) {
+            // NaN and the infinities are not represented by BigDecimal, NaN is above all numbers as in Double.compare
+            BigDecimal number = key instanceof BigDecimal ? (BigDecimal) key : null;
+            int infinity = number != null ? 0 : ((Number) value).doubleValue() == Double.NEGATIVE_INFINITY ? -1 : 1;
+            greaterThanTests.satisfied(0, greaterThanTests.lowerBound(number, infinity), counter);
+            greaterThanEqualsTests.satisfied(0, greaterThanEqualsTests.upperBound(number, infinity), counter);
+            lessThanTests.satisfied(lessThanTests.upperBound(number, infinity), lessThanTests.size(), counter);
+            lessThanEqualsTests.satisfied(lessThanEqualsTests.lowerBound(number, infinity), lessThanEqualsTests.size(), counter);
+        }
+    }
+
+    /**
+     * Parses a literal of a condition, returns null if it's not a number, a quoted string or a boolean.
+     */
+    static Object parseLiteral(String literal) {
+        if (literal == null) {
+            return null;
+        }
+        String value = literal.trim();
+        if (value.length() >= 2 && value.indexOf('\\') < 0
+                && ((value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\'')
+                || (value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"' && value.indexOf('$') < 0))) {
+            String string = value.substring(1, value.length() - 1);
+            return string.indexOf(value.charAt(0)) < 0 ? string : null;
+        } else if ("true".equals(value) || "false".equals(value)) {
+            return Boolean.valueOf(value);
+        }
+        try {
+            return new BigDecimal(value).stripTrailingZeros();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean isNumber(Object literal) {
+        return literal instanceof BigDecimal;
+    }
+
+    // numbers are compared by value, whatever their type
+    private static Object normalize(Object value) {
+        if (value instanceof Number) {
+            BigDecimal number = toBigDecimal((Number) value);
+            return number != null ? number.stripTrailingZeros() : value;
+        }
+        return value;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return Double.isNaN(value) || Double.isInfinite(value) ? null : BigDecimal.valueOf(value);
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    /**
+     * The conjuncts of one range operator, sorted by threshold.
+     */
+    private static final class RangeIndex implements Serializable {
+        private final BigDecimal[] thresholds;
+        private final int[] conjuncts;
+
+        private RangeIndex(TreeMap<BigDecimal, Integer> tests) {
+            thresholds = tests.keySet().toArray(new BigDecimal[tests.size()]);
+            conjuncts = tests.isEmpty() ? NO_CONJUNCTS : new int[tests.size()];
+            int i = 0;
+            for (Integer conjunct : tests.values()) {
+                conjuncts[i++] = conjunct;
+            }
+        }
+
+        int size() {
+            return thresholds.length;
+        }
+
+        // index of the first threshold >= number
+        int lowerBound(BigDecimal number, int infinity) {
+            if (infinity != 0) {
+                return infinity < 0 ? 0 : thresholds.length;
+            }
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid].compareTo(number) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // index of the first threshold > number
+        int upperBound(BigDecimal number, int infinity) {
+            if (infinity != 0) {
+                return infinity < 0 ? 0 : thresholds.length;
+            }
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (thresholds[mid].compareTo(number) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        void satisfied(int from, int to, RuleNetwork.ConjunctCounter counter) {
+            for (int i = from; i < to; i++) {
+                counter.satisfied(conjuncts[i]);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(thresholds);
+        }
+    }
+
+    static final class Builder {
+        private final Map<Object, Integer> equalsTests = new HashMap<>();
+        private final Map<Object, Integer> notEqualsTests = new HashMap<>();
+        // BigDecimal.compareTo is consistent with equals for the stripped literals
+        private final TreeMap<BigDecimal, Integer> greaterThanTests = new TreeMap<>();
+        private final TreeMap<BigDecimal, Integer> greaterThanEqualsTests = new TreeMap<>();
+        private final TreeMap<BigDecimal, Integer> lessThanTests = new TreeMap<>();
+        private final TreeMap<BigDecimal, Integer> lessThanEqualsTests = new TreeMap<>();
+
+        void add(Operator operator, Object literal, int conjunct) {
+            switch (operator) {
+                case EQUALS:
+                    equalsTests.put(literal, conjunct);
+                    break;
+                case NOT_EQUAL:
+                    notEqualsTests.put(literal, conjunct);
+                    break;
+                case GREATER_THAN:
+                    greaterThanTests.put((BigDecimal) literal, conjunct);
+                    break;
+                case GREATER_THAN_EQUALS_TO:
+                    greaterThanEqualsTests.put((BigDecimal) literal, conjunct);
+                    break;
+                case LESS_THAN:
+                    lessThanTests.put((BigDecimal) literal, conjunct);
+                    break;
+                case LESS_THAN_EQUALS_TO:
+                    lessThanEqualsTests.put((BigDecimal) literal, conjunct);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Operator " + operator + " can't be indexed");
+            }
+        }
+
+        FieldIndex build() {
+            return new FieldIndex(this);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.runtime.rule.network;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.layout.component.rule.exception.ConditionEvaluationException;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.BinaryExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Condition;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Expression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Literal;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Operator;
+import com.hortonworks.streamline.streams.runtime.rule.condition.expression.GroovyExpression;
+import com.hortonworks.streamline.streams.runtime.script.GroovyScript;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Evaluates the conditions of a list of rules together, as a shared discrimination network.
+ * <p>
+ * Each condition is split in its top level conjuncts (the operands of the AND operators) and identical conjuncts are
+ * shared by all the rules. Comparisons of a field with a literal are indexed by field, equality tests with a hash
+ * map of the literals and range tests with sorted arrays of thresholds, so that all of them are resolved with one
+ * lookup per field. The other conjuncts (OR, functions, nested fields...) are evaluated once per event with a groovy
+ * script. A rule matches when all of its conjuncts are satisfied, so the cost of an event depends on the number of
+ * indexed fields and satisfied conjuncts rather than on the number of rules.
+ * </p>
+ * <p>
+ * As with the groovy scripts, a conjunct referencing a field that is missing in the event is not satisfied. A field
+ * value that doesn't have the type of the literal it's compared with doesn't satisfy the comparison.
+ * </p>
+ */
+public class RuleNetwork implements Serializable {
+    private static final Logger LOG = LoggerFactory.getLogger(RuleNetwork.class);
+
+    private final int numRules;
+    // rules without any conjunct, they always match
+    private final BitSet unconditionalRules = new BitSet();
+    // number of distinct conjuncts of each rule
+    private final int[] conjunctCounts;
+    // rules referencing each conjunct, indexed by conjunct id
+    private final int[][] conjunctRules;
+    private final Map<String, FieldIndex> fieldIndexes;
+    private final int[] scriptConjuncts;
+    private final List<GroovyScript<Boolean>> scripts;
+
+    /**
+     * @param rules         the rules, the index of a rule in this list is the index returned by {@link #match(StreamlineEvent)}
+     * @param scriptFactory creates the scripts evaluating the conjuncts that are not indexed
+     */
+    public RuleNetwork(List<Rule> rules, Function<GroovyExpression, GroovyScript<Boolean>> scriptFactory) {
+        numRules = rules.size();
+        conjunctCounts = new int[numRules];
+        Map<Object, Integer> conjunctIds = new HashMap<>();
+        List<List<Integer>> rulesOfConjuncts = new ArrayList<>();
+        Map<String, FieldIndex.Builder> fieldIndexBuilders = new LinkedHashMap<>();
+        Map<String, Integer> scriptConjunctIds = new LinkedHashMap<>();
+        Map<String, GroovyExpression> scriptExpressions = new HashMap<>();
+
+        for (int rule = 0; rule < numRules; rule++) {
+            Set<Integer> ruleConjuncts = new LinkedHashSet<>();
+            Condition condition = rules.get(rule).getCondition();
+            List<Expression> conjuncts = new ArrayList<>();
+            if (condition != null && condition.getExpression() != null) {
+                addConjuncts(condition.getExpression(), conjuncts);
+            }
+            for (Expression conjunct : conjuncts) {
+                FieldTest test = FieldTest.of(conjunct);
+                Object key;
+                if (test != null) {
+                    key = test;
+                } else {
+                    GroovyExpression groovyExpression = new GroovyExpression(new Condition(conjunct));
+                    key = groovyExpression.asString();
+                    scriptExpressions.put(groovyExpression.asString(), groovyExpression);
+                }
+                Integer id = conjunctIds.get(key);
+                if (id == null) {
+                    id = rulesOfConjuncts.size();
+                    conjunctIds.put(key, id);
+                    rulesOfConjuncts.add(new ArrayList<Integer>());
+                    if (test != null) {
+                        FieldIndex.Builder builder = fieldIndexBuilders.get(test.field);
+                        if (builder == null) {
+                            builder = new FieldIndex.Builder();
+                            fieldIndexBuilders.put(test.field, builder);
+                        }
+                        builder.add(test.operator, test.value, id);
+                    } else {
+                        scriptConjunctIds.put((String) key, id);
+                    }
+                }
+                if (ruleConjuncts.add(id)) {
+                    rulesOfConjuncts.get(id).add(rule);
+                }
+            }
+            conjunctCounts[rule] = ruleConjuncts.size();
+            if (ruleConjuncts.isEmpty()) {
+                unconditionalRules.set(rule);
+            }
+        }
+
+        conjunctRules = new int[rulesOfConjuncts.size()][];
+        for (int i = 0; i < conjunctRules.length; i++) {
+            conjunctRules[i] = toArray(rulesOfConjuncts.get(i));
+        }
+        fieldIndexes = new HashMap<>();
+        for (Map.Entry<String, FieldIndex.Builder> entry : fieldIndexBuilders.entrySet()) {
+            fieldIndexes.put(entry.getKey(), entry.getValue().build());
+        }
+        scriptConjuncts = new int[scriptConjunctIds.size()];
+        scripts = new ArrayList<>(scriptConjunctIds.size());
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : scriptConjunctIds.entrySet()) {
+            scriptConjuncts[i++] = entry.getValue();
+            scripts.add(scriptFactory.apply(scriptExpressions.get(entry.getKey())));
+        }
+        LOG.info("Built rule network of {} rules with {} distinct conjuncts, {} indexed fields and {} scripts",
+                numRules, conjunctRules.length, fieldIndexes.size(), scripts.size());
+    }
+
+    /**
+     * Returns the indexes of the rules whose condition is satisfied by the event.
+     */
+    public BitSet match(StreamlineEvent event) {
+        BitSet matched = (BitSet) unconditionalRules.clone();
+        int[] counts = new int[numRules];
+        ConjunctCounter counter = new ConjunctCounter(counts, matched);
+        for (Map.Entry<String, FieldIndex> entry : fieldIndexes.entrySet()) {
+            Object value = event.get(entry.getKey());
+            if (value != null) {
+                entry.getValue().match(value, counter);
+            }
+        }
+        for (int i = 0; i < scriptConjuncts.length; i++) {
+            boolean satisfied;
+            try {
+                satisfied = Boolean.TRUE.equals(scripts.get(i).evaluate(event));
+            } catch (ScriptException e) {
+                throw new ConditionEvaluationException("Exception occurred when evaluating rule condition. " + scripts.get(i), e);
+            }
+            if (satisfied) {
+                counter.satisfied(scriptConjuncts[i]);
+            }
+        }
+        return matched;
+    }
+
+    public int getNumRules() {
+        return numRules;
+    }
+
+    // flattens the AND operators
+    private static void addConjuncts(Expression expression, List<Expression> conjuncts) {
+        if (expression instanceof BinaryExpression && ((BinaryExpression) expression).getOperator() == Operator.AND) {
+            addConjuncts(((BinaryExpression) expression).getFirst(), conjuncts);
+            addConjuncts(((BinaryExpression) expression).getSecond(), conjuncts);
+        } else {
+            conjuncts.add(expression);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the satisfied conjuncts of each rule for one event.
+     */
+    final class ConjunctCounter {
+        private final int[] counts;
+        private final BitSet matched;
+
+        private ConjunctCounter(int[] counts, BitSet matched) {
+            this.counts = counts;
+            this.matched = matched;
+        }
+
+        void satisfied(int conjunct) {
+            for (int rule : conjunctRules[conjunct]) {
+                if (++counts[rule] == conjunctCounts[rule]) {
+                    matched.set(rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * A comparison of a top level field with a literal that can be indexed.
+     */
+    private static final class FieldTest {
+        private final String field;
+        private final Operator operator;
+        private final Object value;
+
+        private FieldTest(String field, Operator operator, Object value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        static FieldTest of(Expression expression) {
+            if (!(expression instanceof BinaryExpression)) {
+                return null;
+            }
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            Operator operator = binaryExpression.getOperator();
+            Expression first = binaryExpression.getFirst();
+            Expression second = binaryExpression.getSecond();
+            if (first instanceof Literal && second instanceof FieldExpression) {
+                first = second;
+                second = binaryExpression.getFirst();
+                operator = reverse(operator);
+            }
+            if (operator == null || !(first instanceof FieldExpression) || !(second instanceof Literal)) {
+                return null;
+            }
+            Object value = FieldIndex.parseLiteral(((Literal) second).getValue());
+            if (value == null || (!FieldIndex.isNumber(value) && operator != Operator.EQUALS && operator != Operator.NOT_EQUAL)) {
+                return null;
+            }
+            return new FieldTest(((FieldExpression) first).getValue().getName(), operator, value);
+        }
+
+        // the operator to use when swapping the operands, null if the operator is not a comparison
+        private static Operator reverse(Operator operator) {
+            switch (operator) {
+                case GREATER_THAN:
+                    return Operator.LESS_THAN;
+                case LESS_THAN:
+                    return Operator.GREATER_THAN;
+                case GREATER_THAN_EQUALS_TO:
+                    return Operator.LESS_THAN_EQUALS_TO;
+                case LESS_THAN_EQUALS_TO:
+                    return Operator.GREATER_THAN_EQUALS_TO;
+                case EQUALS:
+                case NOT_EQUAL:
+                    return operator;
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FieldTest that = (FieldTest) o;
+            return field.equals(that.field) && operator == that.operator && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = field.hashCode();
+            result = 31 * result + operator.hashCode();
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RuleNetwork{" +
+                "numRules=" + numRules +
+                ", fieldIndexes=" + fieldIndexes.keySet() +
+                ", scripts=" + scripts +
+                '}';
+    }
+}
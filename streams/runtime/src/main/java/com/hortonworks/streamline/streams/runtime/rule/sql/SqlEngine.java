@@ -19,8 +19,10 @@ package com.hortonworks.streamline.streams.runtime.rule.sql;
 
 
 import com.hortonworks.streamline.streams.runtime.script.engine.ScriptEngine;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
 import com.hortonworks.streamline.streams.sql.StreamlineSql;
 import com.hortonworks.streamline.streams.sql.runtime.ChannelContext;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
 import com.hortonworks.streamline.streams.sql.runtime.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,10 +48,18 @@ public class SqlEngine implements ScriptEngine<SqlEngine> {
     }
 
     public void compileQuery(List<String> statements) {
+        compileQuery(statements, AggregationMode.BATCH);
+    }
+
+    /**
+     * Compiles the query statements with the given {@link AggregationMode}. The aggregations of an incremental
+     * query keep their state when flushed and the inputs leaving them have to be removed with {@link #retract(Values)}.
+     */
+    public void compileQuery(List<String> statements, AggregationMode aggregationMode) {
         try {
-            LOG.info("Compiling query statements {}", statements);
+            LOG.info("Compiling query statements {} with aggregation mode {}", statements, aggregationMode);
             StreamlineSql streamlineSql = StreamlineSql.construct();
-            streamlineSql.execute(statements, channelHandler);
+            streamlineSql.execute(statements, channelHandler, aggregationMode);
             channelContext = RulesDataSourcesProvider.getDataSource().getChannelContext();
             LOG.info("Query statements successfully compiled, channelContext set to {}", channelContext);
         } catch (Exception e) {
@@ -57,6 +67,22 @@ public class SqlEngine implements ScriptEngine<SqlEngine> {
         }
     }
 
+    /**
+     * Compiles the query statements into a filter and projection that is evaluated without the channel pipeline.
+     * Returns null if the query can't be evaluated one row at a time, in which case
+     * {@link #compileQuery(List)} should be used.
+     */
+    public ExecutableFilterProject compileFilterProject(List<String> statements) {
+        try {
+            LOG.info("Compiling filter and projection of query statements {}", statements);
+            ExecutableFilterProject filterProject = StreamlineSql.construct().compileFilterProject(statements);
+            LOG.info("Query statements compiled to filter and projection {}", filterProject);
+            return filterProject;
+        } catch (Exception e) {
+            throw new RuntimeException(String.format("Error compiling query. Statements [%s]", statements), e);
+        }
+    }
+
     public List<Values> eval(Values input) {
         channelContext.emit(input);
         List<Values> res = channelHandler.getResult();
@@ -64,6 +90,13 @@ public class SqlEngine implements ScriptEngine<SqlEngine> {
         return res;
     }
 
+    /*
+     * removes an input evaluated before from the aggregations of an incremental query
+     */
+    public void retract(Values input) {
+        channelContext.retract(input);
+    }
+
     /*
      * force evaluation of pending results, for e.g. evaluate last group in case of group-by
      */
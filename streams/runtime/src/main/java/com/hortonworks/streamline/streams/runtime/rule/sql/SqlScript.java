@@ -22,11 +22,16 @@ import com.google.common.collect.Collections2;
 import com.hortonworks.registries.common.Schema;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
 import com.hortonworks.streamline.streams.layout.component.rule.exception.ConditionEvaluationException;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Expression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
 import com.hortonworks.streamline.streams.runtime.rule.condition.expression.ExpressionRuntime;
 import com.hortonworks.streamline.streams.runtime.rule.condition.expression.StormSqlExpression;
 import com.hortonworks.streamline.streams.runtime.script.Script;
 import com.hortonworks.streamline.streams.runtime.script.engine.ScriptEngine;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
 import com.hortonworks.streamline.streams.sql.runtime.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import javax.script.ScriptException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -43,7 +49,16 @@ import static com.hortonworks.streamline.streams.runtime.rule.condition.expressi
 import static com.hortonworks.streamline.streams.runtime.rule.condition.expression.StormSqlExpression.RULE_TABLE;
 
 /**
- * Evaluates the {@link ExpressionRuntime} for each {@code Input} using the provided {@code Storm} SQL Engine
+ * Evaluates the {@link ExpressionRuntime} for each {@code Input} using the provided {@code Storm} SQL Engine.
+ * <p>
+ * Rules without group by are compiled into an {@link ExecutableFilterProject} that is called directly for each
+ * event, the other rules are evaluated by pushing the events through the channels of the compiled query.
+ * </p>
+ * <p>
+ * With {@link AggregationMode#PARTIAL} the query emits the partial aggregates of its groups, and with a mode returned
+ * by {@link AggregationMode#toFinal()} it merges the partial aggregates of the events it receives, which hold the
+ * group by fields and carry the accumulators in their {@link LocalAggregation#HEADER_PARTIAL_AGGREGATES} header.
+ * </p>
  */
 public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEvent>, SqlEngine> {
     private static final Logger LOG = LoggerFactory.getLogger(SqlScript.class);
@@ -51,6 +66,9 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
     private final List<Schema.Field> stormSqlFields;
     private final List<String> projectedFields;
     private final List<String> outputFields;
+    private final ExecutableFilterProject filterProject;
+    // the names of the group by fields of the partial aggregates merged by the query, null if it aggregates the events
+    private final List<String> partialKeyFields;
     /*
      * when there are no references to input fields, we add a dummy field so that the
      * rule table is created with the dummy field and the values can be processed by storm-sql.
@@ -65,6 +83,16 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
     }
     public SqlScript(ExpressionRuntime expressionRuntime, ScriptEngine<SqlEngine> scriptEngine,
                      ValuesConverter<StreamlineEvent> valuesConverter) {
+        this(expressionRuntime, scriptEngine, valuesConverter, AggregationMode.BATCH);
+    }
+
+    /**
+     * @param aggregationMode what the groups keep after the {@code GROUP_BY_TRIGGER_EVENT}. With an incremental
+     *                        aggregation the events leaving them have to be removed with
+     *                        {@link #retract(StreamlineEvent)}, with panes each trigger closes a pane.
+     */
+    public SqlScript(ExpressionRuntime expressionRuntime, ScriptEngine<SqlEngine> scriptEngine,
+                     ValuesConverter<StreamlineEvent> valuesConverter, AggregationMode aggregationMode) {
         super(expressionRuntime.asString(), scriptEngine);
         this.valuesConverter = valuesConverter;
         StormSqlExpression stormSqlExpression;
@@ -84,9 +112,26 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
             stormSqlExpression.addStormSqlField(DUMMY_FIELD);
             stormSqlFields.add(DUMMY_FIELD);
         }
-        sqlEngine.compileQuery(createQuery(stormSqlExpression));
+        List<String> statements = createQuery(stormSqlExpression);
+        filterProject = stormSqlExpression.getGroupBy() == null ? sqlEngine.compileFilterProject(statements) : null;
+        if (filterProject == null) {
+            sqlEngine.compileQuery(statements, aggregationMode);
+        }
         projectedFields = stormSqlExpression.getProjectedFields();
         outputFields = stormSqlExpression.getOutputFields();
+        partialKeyFields = filterProject == null && aggregationMode.isMergingPartials()
+                ? getGroupByFields(stormSqlExpression) : null;
+    }
+
+    private static List<String> getGroupByFields(StormSqlExpression expression) {
+        List<String> fields = new ArrayList<>();
+        for (Expression groupBy : expression.getGroupBy().getExpressions()) {
+            if (!(groupBy instanceof FieldExpression)) {
+                throw new IllegalArgumentException("Partial aggregates can only be grouped by fields, not " + groupBy);
+            }
+            fields.add(((FieldExpression) groupBy).getValue().getName());
+        }
+        return fields;
     }
 
     private List<String> createQuery(StormSqlExpression expression) {
@@ -112,6 +157,9 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
                 return Collections.singletonList(event);
             }
         }
+        if (filterProject != null) {
+            return evaluateFilterProject(event);
+        }
         try {
             if (event == GROUP_BY_TRIGGER_EVENT) {
                 result = scriptEngine.flush();
@@ -127,23 +175,90 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
         return convert(result, event);
     }
 
+    @Override
+    public void retract(StreamlineEvent event) throws ScriptException {
+        if (filterProject != null || stormSqlFields.isEmpty() || event == GROUP_BY_TRIGGER_EVENT) {
+            return;
+        }
+        try {
+            scriptEngine.retract(createValues(event));
+        } catch (ConditionEvaluationException ex) {
+            // the event was not aggregated either
+            LOG.debug("Got exception {} while retracting StreamlineEvent {}", ex, event);
+        }
+    }
+
+    private Collection<StreamlineEvent> evaluateFilterProject(StreamlineEvent event) {
+        Object[] result = null;
+        if (event == GROUP_BY_TRIGGER_EVENT) {
+            return Collections.emptyList();
+        }
+        try {
+            if (event != null) {
+                result = filterProject.execute(createRow(event));
+            } else {
+                LOG.error("Cannot evaluate null event");
+            }
+        } catch (ConditionEvaluationException ex) {
+            LOG.error("Got exception {} while processing StreamlineEvent {}", ex, event);
+        }
+        LOG.debug("Result [{}]", result);
+        if (result == null) {
+            return Collections.emptyList();
+        } else if (valuesConverter == null) {
+            throw new IllegalArgumentException("valueConverter is null");
+        }
+        return Collections.singletonList(valuesConverter.convert(result, event));
+    }
+
     private Values createValues(StreamlineEvent event) {
+        if (partialKeyFields != null) {
+            return createPartialValues(event);
+        }
         Values values = new Values();
         for (Schema.Field field : stormSqlFields) {
-            Object value;
-            if (field == DUMMY_FIELD) {
-                value = DUMMY_FIELD_VALUE;
-            } else {
-                value = event.get(field.getName());
-                if (value == null) {
-                    throw new ConditionEvaluationException("Missing property " + field.getName());
-                }
+            values.add(getValue(field, event));
+        }
+        return values;
+    }
+
+    // the group by fields followed by the accumulators, as emitted by the query aggregating the events partially
+    private Values createPartialValues(StreamlineEvent event) {
+        Values values = new Values();
+        for (String field : partialKeyFields) {
+            Object value = event.get(field);
+            if (value == null) {
+                throw new ConditionEvaluationException("Missing property " + field);
             }
             values.add(value);
         }
+        List<?> accumulators = (List<?>) event.getHeader().get(LocalAggregation.HEADER_PARTIAL_AGGREGATES);
+        if (accumulators == null) {
+            throw new ConditionEvaluationException("Missing partial aggregates in " + event);
+        }
+        values.addAll(accumulators);
         return values;
     }
 
+    private Object[] createRow(StreamlineEvent event) {
+        Object[] row = new Object[stormSqlFields.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = getValue(stormSqlFields.get(i), event);
+        }
+        return row;
+    }
+
+    private Object getValue(Schema.Field field, StreamlineEvent event) {
+        if (field == DUMMY_FIELD) {
+            return DUMMY_FIELD_VALUE;
+        }
+        Object value = event.get(field.getName());
+        if (value == null) {
+            throw new ConditionEvaluationException("Missing property " + field.getName());
+        }
+        return value;
+    }
+
     private Collection<StreamlineEvent> convert(List<Values> result, final StreamlineEvent inputEvent) {
         Collection<StreamlineEvent> output = Collections.emptyList();
         if (result != null) {
@@ -173,6 +288,13 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
          * Converts the input Values to the specified output object
          */
         O convert(Values input, StreamlineEvent inputEvent);
+
+        /**
+         * Converts the values returned by an {@link ExecutableFilterProject} to the specified output object
+         */
+        default O convert(Object[] input, StreamlineEvent inputEvent) {
+            return convert(new Values(input), inputEvent);
+        }
     }
 
     public static class ValuesToStreamlineEventConverter implements ValuesConverter<StreamlineEvent> {
@@ -184,6 +306,15 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
 
         @Override
         public StreamlineEvent convert(Values input, StreamlineEvent inputEvent) {
+            return doConvert(input, inputEvent);
+        }
+
+        @Override
+        public StreamlineEvent convert(Object[] input, StreamlineEvent inputEvent) {
+            return doConvert(input != null ? Arrays.asList(input) : null, inputEvent);
+        }
+
+        private StreamlineEvent doConvert(List<Object> input, StreamlineEvent inputEvent) {
             StreamlineEvent result;
             if (input == null) {
                 result = null;
@@ -222,6 +353,8 @@ public class SqlScript extends Script<StreamlineEvent, Collection<StreamlineEven
                 ", stormSqlFields=" + stormSqlFields +
                 ", projectedFields=" + projectedFields +
                 ", outputFields=" + outputFields +
+                ", filterProject=" + filterProject +
+                ", partialKeyFields=" + partialKeyFields +
                 "} " + super.toString();
     }
 }
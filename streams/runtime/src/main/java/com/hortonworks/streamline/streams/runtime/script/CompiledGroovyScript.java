@@ -0,0 +1,203 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+
+package com.hortonworks.streamline.streams.runtime.script;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates a boolean Groovy condition with a class that is compiled once from the condition, instead of binding
+ * every field of every event to a {@link groovy.lang.Script}.
+ * <p>
+ * The generated class reads only the fields referenced by the condition, directly from the event. It is compiled
+ * with {@code @CompileStatic} using the declared types of the fields and falls back to dynamic Groovy for conditions
+ * that can't be statically compiled (e.g. nested map or array access). Events whose values don't match the declared
+ * types are evaluated with the regular {@link GroovyScript}.
+ * </p>
+ * <p>
+ * As with the dynamic script, a condition referencing a field that is missing in the event evaluates to false.
+ * </p>
+ */
+public class CompiledGroovyScript extends GroovyScript<Boolean> {
+    private static final Logger LOG = LoggerFactory.getLogger(CompiledGroovyScript.class);
+    private static final String CLASS_NAME = "CompiledGroovyCondition";
+    private static final String EVENT_PARAM = "__event";
+
+    /**
+     * Implemented by the classes generated from the conditions.
+     */
+    public interface CompiledCondition {
+        /**
+         * @return the result of the condition, or null if the event can't be evaluated by the compiled condition
+         */
+        Boolean evaluate(StreamlineEvent event);
+    }
+
+    // used when the condition can't be compiled, every event is then evaluated by the dynamic script
+    private static final CompiledCondition NOT_COMPILED = event -> null;
+
+    private final List<Schema.Field> fields;
+    // transient to avoid NotSerializableException, the generated class is compiled on the first evaluation
+    private transient volatile CompiledCondition compiledCondition;
+
+    public CompiledGroovyScript(String expression, List<Schema.Field> fields,
+                                com.hortonworks.streamline.streams.runtime.script.engine.ScriptEngine<ScriptEngine> scriptEngine) {
+        super(expression, scriptEngine);
+        this.fields = new ArrayList<>(fields);
+    }
+
+    @Override
+    public Boolean evaluate(StreamlineEvent event) throws ScriptException {
+        if (event == null) {
+            return null;
+        }
+        Boolean result = getCompiledCondition().evaluate(event);
+        return result != null ? result : evaluateDynamically(event);
+    }
+
+    private Boolean evaluateDynamically(StreamlineEvent event) throws ScriptException {
+        try {
+            return super.evaluate(event);
+        } catch (ScriptException e) {
+            if (e.getCause() instanceof groovy.lang.MissingPropertyException) {
+                LOG.debug("Missing property required to evaluate expression. {}", e.getCause().getMessage());
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private CompiledCondition getCompiledCondition() {
+        if (compiledCondition == null) {
+            synchronized (this) {
+                if (compiledCondition == null) {
+                    compiledCondition = compile();
+                }
+            }
+        }
+        return compiledCondition;
+    }
+
+    private CompiledCondition compile() {
+        for (boolean compileStatic : new boolean[]{true, false}) {
+            String source = generateSource(compileStatic);
+            try {
+                Class<?> clazz = new GroovyClassLoader(CompiledGroovyScript.class.getClassLoader()).parseClass(source);
+                LOG.info("Compiled expression [{}], statically typed: {}", expression, compileStatic);
+                return (CompiledCondition) clazz.newInstance();
+            } catch (CompilationFailedException e) {
+                LOG.debug("Could not compile expression [{}] with source [{}]", expression, source, e);
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new RuntimeException("Could not instantiate the class compiled for expression " + expression, e);
+            }
+        }
+        LOG.info("Expression [{}] will be evaluated as a script", expression);
+        return NOT_COMPILED;
+    }
+
+    /*
+     * For "speed > 80" and compileStatic the generated class is
+     *
+     * @groovy.transform.CompileStatic
+     * class CompiledGroovyCondition implements CompiledGroovyScript.CompiledCondition {
+     *     Boolean evaluate(StreamlineEvent __event) {
+     *         Object __value0 = __event.get('speed')
+     *         if (!(__value0 instanceof Number)) {
+     *             return __value0 == null && !__event.containsKey('speed') ? Boolean.FALSE : null
+     *         }
+     *         Number speed = (Number) __value0
+     *         return speed > 80
+     *     }
+     * }
+     */
+    String generateSource(boolean compileStatic) {
+        StringBuilder source = new StringBuilder();
+        if (compileStatic) {
+            source.append("@groovy.transform.CompileStatic\n");
+        }
+        source.append("class ").append(CLASS_NAME).append(" implements ")
+                .append(CompiledCondition.class.getCanonicalName()).append(" {\n")
+                .append("    Boolean evaluate(").append(StreamlineEvent.class.getName()).append(' ').append(EVENT_PARAM).append(") {\n");
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).getName();
+            String literal = "'" + name.replace("\\", "\\\\").replace("'", "\\'") + "'";
+            String value = "__value" + i;
+            source.append("        Object ").append(value).append(" = ").append(EVENT_PARAM).append(".get(").append(literal).append(")\n");
+            if (compileStatic) {
+                String type = groovyType(fields.get(i).getType());
+                source.append("        if (!(").append(value).append(" instanceof ").append(type).append(")) {\n")
+                        .append("            return ").append(value).append(" == null && !").append(EVENT_PARAM)
+                        .append(".containsKey(").append(literal).append(") ? Boolean.FALSE : null\n")
+                        .append("        }\n")
+                        .append("        ").append(type).append(' ').append(name).append(" = (").append(type).append(") ")
+                        .append(value).append('\n');
+            } else {
+                source.append("        if (").append(value).append(" == null && !").append(EVENT_PARAM)
+                        .append(".containsKey(").append(literal).append(")) {\n")
+                        .append("            return Boolean.FALSE\n")
+                        .append("        }\n")
+                        .append("        def ").append(name).append(" = ").append(value).append('\n');
+            }
+        }
+        source.append("        return ").append(expression).append('\n')
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    // numbers are typed as Number so that the Groovy semantics of mixed numeric types are preserved
+    private static String groovyType(Schema.Type type) {
+        if (type == null) {
+            return "Object";
+        }
+        switch (type) {
+            case BOOLEAN:
+                return "Boolean";
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                return "Number";
+            case STRING:
+                return "String";
+            case BINARY:
+                return "byte[]";
+            case NESTED:
+                return "Map";
+            case ARRAY:
+                return "List";
+            default:
+                return "Object";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledGroovyScript{" + expression + ", fields=" + fields + '}';
+    }
+}
@@ -43,6 +43,13 @@ public abstract class Script<I, O, E> implements Serializable {
 
     public abstract O evaluate(I input) throws ScriptException;
 
+    /**
+     * Removes an input evaluated before from the state of the script, e.g. when it expires from a window.
+     * Scripts that don't aggregate their inputs have no state and ignore it.
+     */
+    public void retract(I input) throws ScriptException {
+    }
+
     @Override
     public String toString() {
         return "Script{" + expression + ", scriptEngine=" + scriptEngine + '}';
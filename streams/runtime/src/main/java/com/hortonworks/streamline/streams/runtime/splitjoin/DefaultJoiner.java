@@ -22,11 +22,16 @@ import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Default implementation of {@link Joiner}
- *
+ * <p>
+ * The fields of the split events are merged in the order of their partition ids. Split events usually carry the same
+ * fields, so the fields of the first event are reused as they are and the merged fields are only copied once a split
+ * event adds or changes a field.
+ * </p>
  */
 public class DefaultJoiner implements Joiner {
 
@@ -35,16 +40,47 @@ public class DefaultJoiner implements Joiner {
 
     @Override
     public StreamlineEvent join(EventGroup eventGroup) {
-        Map<String, Object> fieldValues = new HashMap<>();
-        Map<String, Object> auxiliaryFieldValues = new HashMap<>();
+        MergedValues fieldValues = new MergedValues();
+        MergedValues auxiliaryFieldValues = new MergedValues();
         for (StreamlineEvent subEvent : eventGroup.getSplitEvents()) {
-            if(subEvent.getAuxiliaryFieldsAndValues() != null) {
-                auxiliaryFieldValues.putAll(subEvent.getAuxiliaryFieldsAndValues());
+            fieldValues.merge(subEvent);
+            auxiliaryFieldValues.merge(subEvent.getAuxiliaryFieldsAndValues());
+        }
+
+        return new StreamlineEventImpl(fieldValues.get(), eventGroup.getDataSourceId(),
+                UUID.randomUUID().toString(), Collections.<String, Object>emptyMap(), null, auxiliaryFieldValues.get());
+    }
+
+    /**
+     * Merged maps, which are the first merged map as long as the next ones do not add or change an entry.
+     */
+    private static final class MergedValues {
+        private Map<String, Object> values = Collections.emptyMap();
+        private boolean copied;
+
+        void merge(Map<String, Object> other) {
+            if (other == null || other.isEmpty()) {
+                return;
+            }
+            if (values.isEmpty()) {
+                values = other;
+                return;
+            }
+            for (Map.Entry<String, Object> entry : other.entrySet()) {
+                if (!copied) {
+                    Object value = values.get(entry.getKey());
+                    if (Objects.equals(value, entry.getValue()) && (value != null || values.containsKey(entry.getKey()))) {
+                        continue;
+                    }
+                    values = new HashMap<>(values);
+                    copied = true;
+                }
+                values.put(entry.getKey(), entry.getValue());
             }
-            fieldValues.putAll(subEvent);
         }
 
-        return new StreamlineEventImpl(fieldValues, eventGroup.getDataSourceId(),
-                UUID.randomUUID().toString(), Collections.<String, Object>emptyMap(), null, auxiliaryFieldValues);
+        Map<String, Object> get() {
+            return values;
+        }
     }
 }
@@ -13,45 +13,81 @@
   * See the License for the specific language governing permissions and
   * limitations under the License.
  **/
-
 package com.hortonworks.streamline.streams.runtime.splitjoin;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterables;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * This class stores all split events of a specific split group.
+ * <p>
+ * The split events are kept in an array indexed by their partition id, along with the time they were added at, and
+ * expire {@code eventExpiryInterval} milliseconds after they were added. Expired events are dropped when an event is
+ * added to the group or when the {@link ExpiryWheel} of the {@link JoinActionRuntime} holding the group reaches their
+ * deadline.
+ * </p>
  */
 public class EventGroup {
-    private final Cache<Integer, StreamlineEvent> splitEvents;
+    private static final StreamlineEvent[] NO_EVENTS = new StreamlineEvent[0];
+    private static final long[] NO_TIMES = new long[0];
+
     private final String groupId;
     private final String dataSourceId;
     private final long eventExpiryInterval;
+    private final long createdAt;
 
+    private StreamlineEvent[] splitEvents = NO_EVENTS;
+    private long[] addedAt = NO_TIMES;
+    private int size;
     private int totalPartitionEvents = -1;
 
+    // scheduling state of the group in the ExpiryWheel
+    long wheelDeadline = ExpiryWheel.NOT_SCHEDULED;
+    int wheelBucket;
+    EventGroup wheelPrev;
+    EventGroup wheelNext;
+
     public EventGroup(String groupId, String dataSourceId, long eventExpiryInterval) {
+        this(groupId, dataSourceId, eventExpiryInterval, System.currentTimeMillis());
+    }
+
+    EventGroup(String groupId, String dataSourceId, long eventExpiryInterval, long createdAt) {
         this.groupId = groupId;
         this.dataSourceId = dataSourceId;
         this.eventExpiryInterval = eventExpiryInterval;
-
-        splitEvents =
-                CacheBuilder.newBuilder()
-                .expireAfterWrite(eventExpiryInterval, TimeUnit.MILLISECONDS).build();
+        this.createdAt = createdAt;
     }
 
     public void addPartitionEvent(StreamlineEvent partitionedEvent) {
+        addPartitionEvent(partitionedEvent, System.currentTimeMillis());
+    }
+
+    void addPartitionEvent(StreamlineEvent partitionedEvent, long now) {
         final Map<String, Object> header = partitionedEvent.getHeader();
         if(header == null || !header.containsKey(SplitActionRuntime.SPLIT_PARTITION_ID)) {
             throw new IllegalArgumentException("Received event is not of partition event as it doe not contain header  with name: "+SplitActionRuntime.SPLIT_PARTITION_ID);
         }
+        final int partitionId = (Integer) header.get(SplitActionRuntime.SPLIT_PARTITION_ID);
+        if (partitionId < 0) {
+            throw new IllegalArgumentException("Received event has a negative partition id: " + partitionId);
+        }
+
+        expireEvents(now);
+        if (partitionId >= splitEvents.length) {
+            int capacity = Math.max(partitionId + 1, 2 * splitEvents.length);
+            splitEvents = Arrays.copyOf(splitEvents, capacity);
+            addedAt = Arrays.copyOf(addedAt, capacity);
+        }
+        if (splitEvents[partitionId] == null) {
+            size++;
+        }
+        splitEvents[partitionId] = partitionedEvent;
+        addedAt[partitionId] = now;
 
-        splitEvents.put((Integer) header.get(SplitActionRuntime.SPLIT_PARTITION_ID), partitionedEvent);
         if(header.get(SplitActionRuntime.SPLIT_TOTAL_PARTITIONS_ID) != null) {
             int x = (Integer) header.get(SplitActionRuntime.SPLIT_TOTAL_PARTITIONS_ID);
             if(totalPartitionEvents < x) {
@@ -61,8 +97,37 @@ public class EventGroup {
 
     }
 
+    /**
+     * Drops the split events added {@code eventExpiryInterval} milliseconds or more before {@code now}.
+     */
+    void expireEvents(long now) {
+        for (int i = 0; i < splitEvents.length && size > 0; i++) {
+            if (splitEvents[i] != null && now - addedAt[i] >= eventExpiryInterval) {
+                splitEvents[i] = null;
+                size--;
+            }
+        }
+    }
+
+    /**
+     * @return the time the earliest added split event expires at, {@link Long#MAX_VALUE} if there is none
+     */
+    long nextEventDeadline() {
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < splitEvents.length; i++) {
+            if (splitEvents[i] != null && addedAt[i] < earliest) {
+                earliest = addedAt[i];
+            }
+        }
+        return earliest == Long.MAX_VALUE ? Long.MAX_VALUE : JoinActionRuntime.deadline(earliest, eventExpiryInterval);
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
     public boolean isComplete() {
-        return splitEvents.size() == totalPartitionEvents;
+        return size == totalPartitionEvents;
     }
 
     public String getDataSourceId() {
@@ -73,14 +138,17 @@ public class EventGroup {
         return groupId;
     }
 
+    /**
+     * @return the split events of this group in the order of their partition ids
+     */
     public Iterable<StreamlineEvent> getSplitEvents() {
-        return Collections.unmodifiableCollection(splitEvents.asMap().values());
+        return Iterables.filter(Arrays.asList(splitEvents), Predicates.notNull());
     }
 
     @Override
     public String toString() {
         return "EventGroup{" +
-                "partitionedEvents=" + splitEvents +
+                "partitionedEvents=" + Arrays.toString(splitEvents) +
                 ", groupId='" + groupId + '\'' +
                 ", dataSourceId='" + dataSourceId + '\'' +
                 ", totalPartitionEvents=" + totalPartitionEvents +
@@ -0,0 +1,119 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.splitjoin;
+
+/**
+ * Hashed timer wheel expiring the {@link EventGroup}s of a {@link JoinActionRuntime}.
+ * <p>
+ * Each group is linked in the bucket of the tick of its deadline, so scheduling and cancelling take constant time and
+ * advancing the wheel only visits the buckets of the elapsed ticks. A group whose deadline is more than one rotation
+ * away stays in its bucket until the rotation it is due. The wheel is advanced by the thread executing the join
+ * action and is not thread safe.
+ * </p>
+ */
+final class ExpiryWheel {
+    static final long NOT_SCHEDULED = Long.MAX_VALUE;
+
+    interface ExpiryHandler {
+        /**
+         * Called with a group whose deadline is reached, the group is not scheduled anymore.
+         */
+        void expired(EventGroup eventGroup, long now);
+    }
+
+    private final EventGroup[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    private final ExpiryHandler expiryHandler;
+    private long currentTick;
+
+    /**
+     * @param wheelSize  number of buckets, a power of two
+     * @param tickMillis milliseconds covered by a bucket
+     */
+    ExpiryWheel(int wheelSize, long tickMillis, long now, ExpiryHandler expiryHandler) {
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        this.buckets = new EventGroup[wheelSize];
+        this.mask = wheelSize - 1;
+        this.tickMillis = tickMillis;
+        this.expiryHandler = expiryHandler;
+        this.currentTick = now / tickMillis;
+    }
+
+    /**
+     * Schedules the given group to expire at {@code deadline}, replacing its previous deadline. A deadline of
+     * {@link #NOT_SCHEDULED} only cancels the previous one.
+     */
+    void schedule(EventGroup eventGroup, long deadline) {
+        cancel(eventGroup);
+        if (deadline == NOT_SCHEDULED) {
+            return;
+        }
+        // the bucket of the current tick is already visited
+        int bucket = (int) (Math.max(deadline / tickMillis, currentTick + 1) & mask);
+        EventGroup head = buckets[bucket];
+        eventGroup.wheelDeadline = deadline;
+        eventGroup.wheelBucket = bucket;
+        eventGroup.wheelNext = head;
+        if (head != null) {
+            head.wheelPrev = eventGroup;
+        }
+        buckets[bucket] = eventGroup;
+    }
+
+    void cancel(EventGroup eventGroup) {
+        if (eventGroup.wheelDeadline == NOT_SCHEDULED) {
+            return;
+        }
+        if (eventGroup.wheelPrev != null) {
+            eventGroup.wheelPrev.wheelNext = eventGroup.wheelNext;
+        } else {
+            buckets[eventGroup.wheelBucket] = eventGroup.wheelNext;
+        }
+        if (eventGroup.wheelNext != null) {
+            eventGroup.wheelNext.wheelPrev = eventGroup.wheelPrev;
+        }
+        eventGroup.wheelPrev = null;
+        eventGroup.wheelNext = null;
+        eventGroup.wheelDeadline = NOT_SCHEDULED;
+    }
+
+    /**
+     * Visits the buckets of the ticks elapsed until {@code now} and hands the groups whose deadline is reached to the
+     * {@link ExpiryHandler}, which may schedule them again.
+     */
+    void advance(long now) {
+        long tick = now / tickMillis;
+        // a full rotation visits every bucket
+        for (long t = Math.max(currentTick + 1, tick - mask); t <= tick; t++) {
+            currentTick = t;
+            EventGroup eventGroup = buckets[(int) (t & mask)];
+            while (eventGroup != null) {
+                EventGroup next = eventGroup.wheelNext;
+                if (eventGroup.wheelDeadline <= now) {
+                    cancel(eventGroup);
+                    expiryHandler.expired(eventGroup, now);
+                }
+                eventGroup = next;
+            }
+        }
+    }
+}
@@ -16,8 +16,6 @@
 
 package com.hortonworks.streamline.streams.runtime.splitjoin;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.hortonworks.streamline.streams.StreamlineEvent;
 import com.hortonworks.streamline.streams.Result;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
@@ -28,16 +26,25 @@ import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntime;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 /**
  * {@link ActionRuntime} implementation for {@link JoinAction}
+ * <p>
+ * Incomplete groups are kept in a map by group id and a single {@link ExpiryWheel} expires both the groups and the
+ * split events they hold. A bucket of the wheel covers 1/32 of the shortest of the group and
+ * event expiry intervals, expired groups and events are also ignored as soon as they are looked up.
+ * </p>
  */
 public class JoinActionRuntime extends AbstractSplitJoinActionRuntime {
-    private Cache<String, EventGroup> groupedEvents;
+    private static final int WHEEL_SIZE = 512;
+    private static final int TICKS_PER_INTERVAL = 32;
+
+    private Map<String, EventGroup> groupedEvents;
+    private ExpiryWheel expiryWheel;
     private final JoinAction joinAction;
     private Joiner joiner;
 
@@ -56,9 +63,10 @@ public class JoinActionRuntime extends AbstractSplitJoinActionRuntime {
             joiner = new DefaultJoiner();
         }
 
-        groupedEvents = CacheBuilder.newBuilder()
-                .expireAfterWrite(joinAction.getGroupExpiryInterval(), TimeUnit.MILLISECONDS)
-                .build();
+        groupedEvents = new HashMap<>();
+        long expiryInterval = Math.min(joinAction.getGroupExpiryInterval(), joinAction.getEventExpiryInterval());
+        expiryWheel = new ExpiryWheel(WHEEL_SIZE, Math.max(1, expiryInterval / TICKS_PER_INTERVAL),
+                System.currentTimeMillis(), this::expire);
     }
 
     @Override
@@ -86,7 +94,8 @@ public class JoinActionRuntime extends AbstractSplitJoinActionRuntime {
         for (String stream : getOutputStreams()) {
             results.add(new Result(stream, Collections.singletonList(getStreamlineEvent(joinedEvent, stream))));
         }
-        groupedEvents.invalidate(eventGroup.getGroupId());
+        groupedEvents.remove(eventGroup.getGroupId());
+        expiryWheel.cancel(eventGroup);
 
         return results;
     }
@@ -97,12 +106,20 @@ public class JoinActionRuntime extends AbstractSplitJoinActionRuntime {
 
     protected EventGroup groupEvents(StreamlineEvent event) {
 
+        final long now = System.currentTimeMillis();
+        expiryWheel.advance(now);
+
         final Map<String, Object> header = event.getHeader();
         if (header != null && header.containsKey(SplitActionRuntime.SPLIT_GROUP_ID)) {
             final String groupId = (String) header.get(SplitActionRuntime.SPLIT_GROUP_ID);
             final String dataSourceId = event.getDataSourceId();
-            final EventGroup eventGroup = getEventGroup(groupId, dataSourceId);
-            eventGroup.addPartitionEvent(event);
+            final EventGroup eventGroup = getEventGroup(groupId, dataSourceId, now);
+            eventGroup.addPartitionEvent(event, now);
+            // the deadline only moves earlier when the group had no split event left
+            long deadline = getDeadline(eventGroup);
+            if (deadline < eventGroup.wheelDeadline) {
+                expiryWheel.schedule(eventGroup, deadline);
+            }
 
             return eventGroup;
         }
@@ -110,15 +127,44 @@ public class JoinActionRuntime extends AbstractSplitJoinActionRuntime {
         return null;
     }
 
-    private EventGroup getEventGroup(String groupId, String dataSourceId) {
-        EventGroup eventGroup = groupedEvents.getIfPresent(groupId);
+    private EventGroup getEventGroup(String groupId, String dataSourceId, long now) {
+        EventGroup eventGroup = groupedEvents.get(groupId);
+        if (eventGroup != null && isExpired(eventGroup, now)) {
+            expiryWheel.cancel(eventGroup);
+            eventGroup = null;
+        }
         if (eventGroup == null) {
-            eventGroup = new EventGroup(groupId, dataSourceId, joinAction.getEventExpiryInterval());
+            eventGroup = new EventGroup(groupId, dataSourceId, joinAction.getEventExpiryInterval(), now);
             groupedEvents.put(groupId, eventGroup);
         }
         return eventGroup;
     }
 
+    private boolean isExpired(EventGroup eventGroup, long now) {
+        return now - eventGroup.getCreatedAt() >= joinAction.getGroupExpiryInterval();
+    }
+
+    private long getDeadline(EventGroup eventGroup) {
+        return Math.min(deadline(eventGroup.getCreatedAt(), joinAction.getGroupExpiryInterval()),
+                eventGroup.nextEventDeadline());
+    }
+
+    private void expire(EventGroup eventGroup, long now) {
+        if (isExpired(eventGroup, now)) {
+            groupedEvents.remove(eventGroup.getGroupId());
+        } else {
+            eventGroup.expireEvents(now);
+            expiryWheel.schedule(eventGroup, getDeadline(eventGroup));
+        }
+    }
+
+    /**
+     * @return the time {@code interval} milliseconds after {@code time}, {@link Long#MAX_VALUE} if it overflows
+     */
+    static long deadline(long time, long interval) {
+        return interval > Long.MAX_VALUE - time ? Long.MAX_VALUE : time + interval;
+    }
+
     @Override
     public Set<String> getOutputStreams() {
         return joinAction.getOutputStreams();
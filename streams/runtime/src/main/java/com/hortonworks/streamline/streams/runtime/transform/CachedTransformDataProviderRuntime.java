@@ -19,23 +19,42 @@ package com.hortonworks.streamline.streams.runtime.transform;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
  * This class creates a loadable cache for given backing {@link TransformDataProviderRuntime} with caching configuration like maximum size, expiration interval
  * and refresh interval.
+ * <p>
+ * The entries are refreshed in the background by lookup threads, and {@link #getAllAsync(Collection)} looks up the
+ * missing keys of a batch with a single bulk lookup on these threads.
+ * </p>
  */
 public class CachedTransformDataProviderRuntime implements TransformDataProviderRuntime {
+    public static final int DEFAULT_LOOKUP_THREADS = 2;
 
     private final TransformDataProviderRuntime backedTransformDataProviderRuntime;
     private final long maxCacheSize;
     private final long entryExpirationInterval;
     private final long refreshInterval;
+    private final int lookupThreads;
 
     private LoadingCache<Object, Object> loadingCache;
+    private transient ExecutorService lookupExecutor;
+    // lookups in progress, shared by the batches requesting the same keys
+    private transient ConcurrentMap<Object, CompletableFuture<Object>> pendingLookups;
 
     /**
      * Creates CachedDataProvider.
@@ -46,26 +65,51 @@ public class CachedTransformDataProviderRuntime implements TransformDataProvider
      * @param entryRefreshInterval refresh interval in seconds for an entry
      */
     public CachedTransformDataProviderRuntime(TransformDataProviderRuntime backedTransformDataProviderRuntime, long maxCacheSize, long entryExpirationInterval, long entryRefreshInterval) {
+        this(backedTransformDataProviderRuntime, maxCacheSize, entryExpirationInterval, entryRefreshInterval, DEFAULT_LOOKUP_THREADS);
+    }
+
+    /**
+     * Creates CachedDataProvider.
+     *
+     * @param backedTransformDataProviderRuntime DataProvider to be facaded with caching
+     * @param maxCacheSize maximum cache size
+     * @param entryExpirationInterval expiration interval in seconds for each entry
+     * @param entryRefreshInterval refresh interval in seconds for an entry
+     * @param lookupThreads number of threads refreshing the entries and running the asynchronous lookups
+     */
+    public CachedTransformDataProviderRuntime(TransformDataProviderRuntime backedTransformDataProviderRuntime, long maxCacheSize, long entryExpirationInterval,
+                                              long entryRefreshInterval, int lookupThreads) {
         this.backedTransformDataProviderRuntime = backedTransformDataProviderRuntime;
         this.maxCacheSize = maxCacheSize;
         this.entryExpirationInterval = entryExpirationInterval;
         this.refreshInterval = entryRefreshInterval;
+        this.lookupThreads = lookupThreads;
     }
 
     @Override
     public void prepare() {
         backedTransformDataProviderRuntime.prepare();
+        lookupExecutor = Executors.newFixedThreadPool(lookupThreads,
+                new ThreadFactoryBuilder().setNameFormat("transform-data-lookup-%d").setDaemon(true).build());
+        pendingLookups = new ConcurrentHashMap<>();
         loadingCache =
                 CacheBuilder.newBuilder()
                         .maximumSize(maxCacheSize)
                         .refreshAfterWrite(refreshInterval, TimeUnit.SECONDS)
                         .expireAfterWrite(entryExpirationInterval, TimeUnit.SECONDS)
-                        .build(new CacheLoader<Object, Object>() {
+                        .build(CacheLoader.asyncReloading(new CacheLoader<Object, Object>() {
                             @Override
                             public Object load(Object key) throws Exception {
                                 return backedTransformDataProviderRuntime.get(key);
                             }
-                        });
+
+                            @Override
+                            public Map<Object, Object> loadAll(Iterable<?> keys) throws Exception {
+                                List<Object> keyList = new ArrayList<>();
+                                keys.forEach(keyList::add);
+                                return backedTransformDataProviderRuntime.getAll(keyList);
+                            }
+                        }, lookupExecutor));
 
     }
 
@@ -81,11 +125,104 @@ public class CachedTransformDataProviderRuntime implements TransformDataProvider
         }
     }
 
+    /**
+     * Returns the cached values of the given keys, the keys which are not cached are looked up with a single bulk
+     * lookup of the backing {@link TransformDataProviderRuntime}. The keys without a value are not in the returned map.
+     */
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        if (loadingCache == null) {
+            throw new NullPointerException("loadingCache is null");
+        }
+        Map<Object, Object> values = new HashMap<>(loadingCache.getAllPresent(keys));
+        if (values.size() < keys.size()) {
+            List<Object> misses = new ArrayList<>();
+            for (Object key : keys) {
+                if (!values.containsKey(key)) {
+                    misses.add(key);
+                }
+            }
+            Map<Object, Object> loaded = backedTransformDataProviderRuntime.getAll(misses);
+            loadingCache.putAll(loaded);
+            values.putAll(loaded);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the cached value of the key, or null without looking it up if it's not cached.
+     */
+    public Object getIfPresent(Object key) {
+        if (loadingCache == null) {
+            throw new NullPointerException("loadingCache is null");
+        }
+        return loadingCache.getIfPresent(key);
+    }
+
+    /**
+     * Returns a future of the value of each key, completed with null if the key has no value. The futures of the
+     * cached keys are already completed. The other keys are looked up with a single bulk lookup on the lookup threads,
+     * except the keys which are already being looked up for a previous call, whose futures are shared.
+     */
+    public Map<Object, CompletableFuture<Object>> getAllAsync(Collection<?> keys) {
+        if (loadingCache == null) {
+            throw new NullPointerException("loadingCache is null");
+        }
+        Map<Object, CompletableFuture<Object>> futures = new HashMap<>();
+        List<Object> misses = new ArrayList<>();
+        for (Object key : keys) {
+            Object value = loadingCache.getIfPresent(key);
+            if (value != null) {
+                futures.put(key, CompletableFuture.completedFuture(value));
+                continue;
+            }
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            CompletableFuture<Object> pending = pendingLookups.putIfAbsent(key, future);
+            if (pending != null) {
+                futures.put(key, pending);
+            } else {
+                futures.put(key, future);
+                misses.add(key);
+            }
+        }
+        if (!misses.isEmpty()) {
+            lookupExecutor.execute(() -> lookup(misses));
+        }
+        return futures;
+    }
+
+    private void lookup(List<Object> keys) {
+        Map<Object, Object> values = null;
+        Throwable failure = null;
+        try {
+            values = backedTransformDataProviderRuntime.getAll(keys);
+            loadingCache.putAll(values);
+        } catch (RuntimeException e) {
+            failure = e;
+        } catch (Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            // completed even on an error, the callers would wait forever otherwise
+            for (Object key : keys) {
+                CompletableFuture<Object> pending = pendingLookups.remove(key);
+                if (failure != null) {
+                    pending.completeExceptionally(failure);
+                } else {
+                    pending.complete(values.get(key));
+                }
+            }
+        }
+    }
+
     @Override
     public void cleanup() {
         if (loadingCache != null) {
             loadingCache.cleanUp();
         }
+        if (lookupExecutor != null) {
+            lookupExecutor.shutdownNow();
+        }
         backedTransformDataProviderRuntime.cleanup();
     }
 
@@ -25,10 +25,15 @@ import com.hortonworks.streamline.streams.runtime.TransformRuntime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Enrichment adds an extra enriched message of original message's fields.
@@ -40,6 +45,10 @@ public class EnrichmentTransformRuntime implements TransformRuntime {
 
     private final CachedTransformDataProviderRuntime cachedDataProvider;
 
+    // events waiting for the next flush and the values they need
+    private final List<PendingEvent> pendingEvents = new ArrayList<>();
+    private final Set<Object> pendingValues = new HashSet<>();
+
     public EnrichmentTransformRuntime(EnrichmentTransform enrichmentTransform) {
         this.enrichmentTransform = enrichmentTransform;
         final TransformDataProvider transformDataProvider = enrichmentTransform.getTransformDataProvider();
@@ -52,12 +61,7 @@ public class EnrichmentTransformRuntime implements TransformRuntime {
     @Override
     public List<StreamlineEvent> execute(StreamlineEvent event) {
         List<String> fieldsToBeEnriched = enrichmentTransform.getFieldsToBeEnriched();
-        Map<String, Object> auxiliaryFieldsAndValues = event.getAuxiliaryFieldsAndValues();
-        Map<String, Object> enrichments = (Map<String, Object>) auxiliaryFieldsAndValues.get(EnrichmentTransform.ENRICHMENTS_FIELD_NAME);
-        if (enrichments == null) {
-            enrichments = new HashMap<>();
-            event.addAuxiliaryFieldAndValue(EnrichmentTransform.ENRICHMENTS_FIELD_NAME, enrichments);
-        }
+        Map<String, Object> enrichments = getEnrichments(event);
 
         for (String fieldName : fieldsToBeEnriched) {
             Object value = event.get(fieldName);
@@ -72,6 +76,97 @@ public class EnrichmentTransformRuntime implements TransformRuntime {
         return Collections.singletonList(event);
     }
 
+    /**
+     * Enriches the event once the values of its fields are looked up. The lookups complete on the threads of the data
+     * provider, the event is then enriched and the returned future completed by the callback executor, so that the
+     * event is not changed concurrently with the thread running the executor.
+     * <p>
+     * The events whose values are cached are enriched right away. The lookups of the other events are deferred until
+     * {@link #flush()} is called or {@code lookupBatchSize} values are waiting, then the values missing from the cache
+     * are looked up with a single bulk lookup. The values already being looked up for a previous batch are not looked
+     * up again, so the events of a batch complete as soon as their own values are available.
+     * </p>
+     * This method and {@link #flush()} must be called by the same thread.
+     */
+    public CompletableFuture<List<StreamlineEvent>> executeAsync(StreamlineEvent event, Executor callbackExecutor) {
+        Map<String, Object> fieldValues = new HashMap<>();
+        boolean cached = true;
+        for (String fieldName : enrichmentTransform.getFieldsToBeEnriched()) {
+            Object value = event.get(fieldName);
+            if (value != null) {
+                fieldValues.put(fieldName, value);
+                cached = cached && cachedDataProvider.getIfPresent(value) != null;
+            } else {
+                log.warn("Value in input event for key [{}] is null", fieldName);
+            }
+        }
+        if (cached) {
+            return CompletableFuture.completedFuture(execute(event));
+        }
+
+        PendingEvent pendingEvent = new PendingEvent(event, fieldValues, callbackExecutor);
+        pendingEvents.add(pendingEvent);
+        pendingValues.addAll(fieldValues.values());
+        if (pendingValues.size() >= enrichmentTransform.getLookupBatchSize()) {
+            flush();
+        }
+        return pendingEvent.result;
+    }
+
+    /**
+     * Looks up the values of the events passed to {@link #executeAsync(StreamlineEvent, Executor)} since the previous flush.
+     */
+    public void flush() {
+        if (pendingEvents.isEmpty()) {
+            return;
+        }
+        log.debug("Looking up {} values of {} events", pendingValues.size(), pendingEvents.size());
+        Map<Object, CompletableFuture<Object>> lookups = cachedDataProvider.getAllAsync(pendingValues);
+        for (PendingEvent pendingEvent : pendingEvents) {
+            List<CompletableFuture<Object>> eventLookups = new ArrayList<>();
+            for (Object value : pendingEvent.fieldValues.values()) {
+                eventLookups.add(lookups.get(value));
+            }
+            CompletableFuture.allOf(eventLookups.toArray(new CompletableFuture[eventLookups.size()]))
+                    .whenCompleteAsync((ignored, error) -> {
+                        if (error != null) {
+                            pendingEvent.result.completeExceptionally(error);
+                        } else {
+                            Map<String, Object> enrichments = getEnrichments(pendingEvent.event);
+                            for (Map.Entry<String, Object> fieldValue : pendingEvent.fieldValues.entrySet()) {
+                                enrichments.put(fieldValue.getKey(), lookups.get(fieldValue.getValue()).join());
+                            }
+                            pendingEvent.result.complete(Collections.singletonList(pendingEvent.event));
+                        }
+                    }, pendingEvent.callbackExecutor);
+        }
+        pendingEvents.clear();
+        pendingValues.clear();
+    }
+
+    private Map<String, Object> getEnrichments(StreamlineEvent event) {
+        Map<String, Object> auxiliaryFieldsAndValues = event.getAuxiliaryFieldsAndValues();
+        Map<String, Object> enrichments = (Map<String, Object>) auxiliaryFieldsAndValues.get(EnrichmentTransform.ENRICHMENTS_FIELD_NAME);
+        if (enrichments == null) {
+            enrichments = new HashMap<>();
+            event.addAuxiliaryFieldAndValue(EnrichmentTransform.ENRICHMENTS_FIELD_NAME, enrichments);
+        }
+        return enrichments;
+    }
+
+    private static final class PendingEvent {
+        private final StreamlineEvent event;
+        private final Map<String, Object> fieldValues;
+        private final Executor callbackExecutor;
+        private final CompletableFuture<List<StreamlineEvent>> result = new CompletableFuture<>();
+
+        private PendingEvent(StreamlineEvent event, Map<String, Object> fieldValues, Executor callbackExecutor) {
+            this.event = event;
+            this.fieldValues = fieldValues;
+            this.callbackExecutor = callbackExecutor;
+        }
+    }
+
     public static class Factory implements RuntimeService.Factory<TransformRuntime, EnrichmentTransform> {
 
         @Override
@@ -17,11 +17,14 @@
 package com.hortonworks.streamline.streams.runtime.transform;
 
 import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.EventFieldLayout;
+import com.hortonworks.streamline.streams.common.SchemaIndexedStreamlineEvent;
 import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
 import com.hortonworks.streamline.streams.layout.component.rule.action.transform.ProjectionTransform;
 import com.hortonworks.streamline.streams.runtime.RuntimeService;
 import com.hortonworks.streamline.streams.runtime.TransformRuntime;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,6 +33,7 @@ import java.util.List;
  */
 public class ProjectionTransformRuntime implements TransformRuntime {
     private final ProjectionTransform projectionTransform;
+    private volatile EventFieldLayout projectionLayout;
 
     /**
      * Selects the fields from the event matching the input fields.
@@ -46,6 +50,9 @@ public class ProjectionTransformRuntime implements TransformRuntime {
     }
 
     private List<StreamlineEvent> doTransform(StreamlineEvent input) {
+        if (input instanceof SchemaIndexedStreamlineEvent) {
+            return Collections.<StreamlineEvent>singletonList(doIndexedTransform(input));
+        }
         StreamlineEventImpl.Builder builder = StreamlineEventImpl.builder();
         for (String field : projectionTransform.getProjectionFields()) {
             builder.put(field, input.get(field));
@@ -53,6 +60,21 @@ public class ProjectionTransformRuntime implements TransformRuntime {
         return Collections.<StreamlineEvent>singletonList(builder.dataSourceId(input.getDataSourceId()).build());
     }
 
+    /*
+     * Projects schema indexed events into schema indexed events laid out by the projection fields.
+     */
+    private StreamlineEvent doIndexedTransform(StreamlineEvent input) {
+        EventFieldLayout layout = projectionLayout;
+        if (layout == null) {
+            projectionLayout = layout = EventFieldLayout.of(new ArrayList<>(projectionTransform.getProjectionFields()));
+        }
+        SchemaIndexedStreamlineEvent.Builder builder = SchemaIndexedStreamlineEvent.builder(layout);
+        for (int i = 0; i < layout.size(); i++) {
+            builder.put(i, input.get(layout.fieldName(i)));
+        }
+        return builder.dataSourceId(input.getDataSourceId()).build();
+    }
+
     @Override
     public String toString() {
         return "ProjectionTransformRuntime{" +
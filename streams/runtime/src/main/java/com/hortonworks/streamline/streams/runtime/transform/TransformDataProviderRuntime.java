@@ -19,6 +19,9 @@ package com.hortonworks.streamline.streams.runtime.transform;
 import com.hortonworks.streamline.streams.layout.Transform;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Data provider for {@link Transform} which can be used for lookups.
@@ -37,6 +40,23 @@ public interface TransformDataProviderRuntime extends Serializable {
      */
     Object get(Object key);
 
+    /**
+     * Retrieves the values of the given keys from a data store, the keys without a value are not in the returned map.
+     * Data stores supporting bulk lookups should override this method, which calls {@link #get(Object)} for each key.
+     *
+     * @param keys
+     */
+    default Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> values = new HashMap<>();
+        for (Object key : keys) {
+            Object value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
     /**
      * cleanup any resources held by this instance.
      */
@@ -0,0 +1,92 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.normalization;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a normalization processor normalizing an event and validating the normalized event
+ * against the declared output schema. The event is normalized by transforming, filtering and generating its fields,
+ * by a bulk script evaluated with a new binding per event, or by a compiled bulk script returning a map or writing
+ * to the output builder.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.normalization.NormalizationProcessorRuntimeBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizationProcessorRuntimeBenchmark {
+    @Param({"fieldBased", "bulk", "compiledBulk", "compiledBulkOutputBuilder"})
+    private String normalization;
+
+    private NormalizationProcessorRuntime normalizationProcessorRuntime;
+    private StreamlineEvent event;
+
+    @Setup
+    public void setup() {
+        switch (normalization) {
+            case "bulk":
+                normalizationProcessorRuntime = NormalizationProcessorRuntimeTest.createBulkRuntime(NormalizationProcessorRuntimeTest.BULK_SCRIPT, false);
+                break;
+            case "compiledBulk":
+                normalizationProcessorRuntime = NormalizationProcessorRuntimeTest.createBulkRuntime(NormalizationProcessorRuntimeTest.BULK_SCRIPT, true);
+                break;
+            case "compiledBulkOutputBuilder":
+                normalizationProcessorRuntime = NormalizationProcessorRuntimeTest.createBulkRuntime(NormalizationProcessorRuntimeTest.OUTPUT_BUILDER_BULK_SCRIPT, true);
+                break;
+            default:
+                normalizationProcessorRuntime = NormalizationProcessorRuntimeTest.createRuntime(Collections.singletonList("foo"));
+        }
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        fieldsAndValues.put("temp", 104);
+        fieldsAndValues.put("foo", 100);
+        fieldsAndValues.put("humidity", "40h");
+        fieldsAndValues.put("illuminance", 70);
+        event = new StreamlineEventImpl(fieldsAndValues, "ds-1", Collections.<String, Object>emptyMap(), "1");
+    }
+
+    @Benchmark
+    public Object process() throws Exception {
+        return normalizationProcessorRuntime.process(event);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(NormalizationProcessorRuntimeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
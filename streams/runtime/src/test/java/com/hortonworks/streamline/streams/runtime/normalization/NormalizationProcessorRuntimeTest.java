@@ -0,0 +1,176 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.normalization;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.Stream;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.BulkNormalizationConfig;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.FieldBasedNormalizationConfig;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.FieldValueGenerator;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.NormalizationConfig;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.NormalizationProcessor;
+import com.hortonworks.streamline.streams.layout.component.impl.normalization.Transformer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class NormalizationProcessorRuntimeTest {
+    private static final String INPUT_STREAM_ID = "1";
+
+    // uses the binding as the bulk scripts written for the scripts evaluated with a new binding per event
+    static final String BULK_SCRIPT = "Map<String, Object> result = new HashMap<>();\n" +
+            "Map<String, Object> defaultValues = ['foo': 'bar', 'new-field': 'new value'];\n" +
+            "__outputSchema.getFields().each { field ->\n" +
+            "    String key = field.getName();\n" +
+            "    if (binding.hasVariable(key)) {\n" +
+            "        result.put(key, binding.getVariable(key));\n" +
+            "    } else if (defaultValues.containsKey(key)) {\n" +
+            "        result.put(key, defaultValues.get(key));\n" +
+            "    }\n" +
+            "};\n" +
+            "result.put('temperature', new Float((temp - 32) * 5 / 9f));\n" +
+            "return result;";
+
+    static final String OUTPUT_BUILDER_BULK_SCRIPT = "__output.put('temperature', new Float((temp - 32) * 5 / 9f))\n" +
+            "    .put('humidity', humidity)\n" +
+            "    .put('illuminance', illuminance)\n" +
+            "    .put('new-field', 'new value')";
+
+    private static final Schema OUTPUT_SCHEMA = Schema.of(
+            Schema.Field.of("temperature", Schema.Type.FLOAT),
+            Schema.Field.of("humidity", Schema.Type.STRING),
+            Schema.Field.optional("illuminance", Schema.Type.INTEGER),
+            Schema.Field.of("new-field", Schema.Type.STRING));
+
+    @Test
+    public void testFieldBasedNormalization() throws Exception {
+        NormalizationProcessorRuntime runtime = createRuntime(Collections.singletonList("foo"));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("temperature", 40f);
+        expected.put("humidity", "40h");
+        expected.put("illuminance", 70);
+        expected.put("new-field", "new value");
+        Assert.assertEquals(expected, process(runtime, event("40h")));
+
+        // the event value takes precedence over the generated one
+        Map<String, Object> fieldsAndValues = new HashMap<>(event("40h"));
+        fieldsAndValues.put("new-field", "event value");
+        expected.put("new-field", "event value");
+        Assert.assertEquals(expected, process(runtime, new StreamlineEventImpl(fieldsAndValues, "ds-1", Collections.<String, Object>emptyMap(), INPUT_STREAM_ID)));
+    }
+
+    @Test
+    public void testFilteredFieldsFromSchema() throws Exception {
+        // without filters, the input fields not in the output schema are filtered
+        NormalizationProcessorRuntime runtime = createRuntime(Collections.<String>emptyList());
+        Assert.assertFalse(process(runtime, event("40h")).containsKey("foo"));
+    }
+
+    @Test
+    public void testBulkNormalization() throws Exception {
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("temperature", 40f);
+        expected.put("humidity", "40h");
+        expected.put("illuminance", 70);
+        expected.put("new-field", "new value");
+        for (boolean compiled : new boolean[]{false, true}) {
+            Assert.assertEquals(expected, process(createBulkRuntime(BULK_SCRIPT, compiled), event("40h")));
+        }
+        NormalizationProcessorRuntime runtime = createBulkRuntime(OUTPUT_BUILDER_BULK_SCRIPT, true);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(expected, process(runtime, event("40h")));
+        }
+    }
+
+    @Test
+    public void testCompiledBulkNormalizationScriptVariables() throws Exception {
+        // a variable assigned by the script for an event is not visible to the next events
+        NormalizationProcessorRuntime runtime = createBulkRuntime("if (binding.hasVariable('seen')) { humidity = 'seen' }\n" +
+                "seen = true\n" +
+                "['humidity': humidity]", true);
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(Collections.singletonMap("humidity", "40h"), process(runtime, event("40h")));
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCompiledBulkNormalizationMissingField() throws Exception {
+        Map<String, Object> fieldsAndValues = new HashMap<>(event("40h"));
+        fieldsAndValues.remove("temp");
+        process(createBulkRuntime(OUTPUT_BUILDER_BULK_SCRIPT, true),
+                new StreamlineEventImpl(fieldsAndValues, "ds-1", Collections.<String, Object>emptyMap(), INPUT_STREAM_ID));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInvalidFieldType() throws Exception {
+        process(createRuntime(Collections.singletonList("foo")), event(40));
+    }
+
+    private static StreamlineEvent process(NormalizationProcessorRuntime runtime, StreamlineEvent event) throws Exception {
+        List<Result> results = runtime.process(event);
+        return results.get(0).events.get(0);
+    }
+
+    private static StreamlineEvent event(Object humidity) {
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        fieldsAndValues.put("temp", 104);
+        fieldsAndValues.put("foo", 100);
+        fieldsAndValues.put("humidity", humidity);
+        fieldsAndValues.put("illuminance", 70);
+        return new StreamlineEventImpl(fieldsAndValues, "ds-1", Collections.<String, Object>emptyMap(), INPUT_STREAM_ID);
+    }
+
+    static NormalizationProcessorRuntime createBulkRuntime(String script, boolean compiled) {
+        Schema inputSchema = Schema.of(Schema.Field.of("temp", Schema.Type.INTEGER), Schema.Field.of("foo", Schema.Type.INTEGER));
+        return createRuntime(new BulkNormalizationConfig(inputSchema, script), NormalizationProcessor.Type.bulk,
+                Collections.<String, Object>singletonMap(NormalizationProcessorRuntime.COMPILED_BULK_SCRIPTS, compiled));
+    }
+
+    static NormalizationProcessorRuntime createRuntime(List<String> filters) {
+        Schema.Field tempField = Schema.Field.of("temp", Schema.Type.INTEGER);
+        Schema inputSchema = Schema.of(tempField, Schema.Field.of("foo", Schema.Type.INTEGER));
+        Transformer transformer = new Transformer(tempField, Schema.Field.of("temperature", Schema.Type.FLOAT));
+        transformer.setConverterScript("new Float((temp-32)*5/9f)");
+        List<FieldValueGenerator> fieldValueGenerators = Arrays.asList(
+                new FieldValueGenerator(Schema.Field.of("new-field", Schema.Type.STRING), "new value"),
+                new FieldValueGenerator(Schema.Field.of("new-field", Schema.Type.STRING), "ignored value"));
+        FieldBasedNormalizationConfig normalizationConfig = new FieldBasedNormalizationConfig(inputSchema,
+                Collections.singletonList(transformer), filters, fieldValueGenerators);
+        return createRuntime(normalizationConfig, NormalizationProcessor.Type.fineGrained, Collections.<String, Object>emptyMap());
+    }
+
+    private static NormalizationProcessorRuntime createRuntime(NormalizationConfig normalizationConfig, NormalizationProcessor.Type type,
+                                                               Map<String, Object> config) {
+        Map<String, NormalizationConfig> inputStreamsWithConfig = new HashMap<>();
+        inputStreamsWithConfig.put(INPUT_STREAM_ID, normalizationConfig);
+        Stream outputStream = new Stream("normalized-output", OUTPUT_SCHEMA);
+        NormalizationProcessor normalizationProcessor = new NormalizationProcessor(inputStreamsWithConfig, outputStream, type);
+        normalizationProcessor.addOutputStream(outputStream);
+
+        NormalizationProcessorRuntime runtime = new NormalizationProcessorRuntime(normalizationProcessor);
+        runtime.initialize(config);
+        return runtime;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.processor;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+import com.hortonworks.streamline.common.util.Utils;
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.LocalAggregation;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.hortonworks.streamline.streams.common.StreamlineEventImpl.GROUP_BY_TRIGGER_EVENT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Aggregates the events partially in two {@link LocalAggregationRuntime}s and merges their partial aggregates in
+ * the {@link RuleProcessorRuntime} of the windowed rule.
+ */
+public class LocalAggregationRuntimeTest {
+    private RulesProcessor rulesProcessor;
+
+    @Before
+    public void setup() throws Exception {
+        String json = Resources.toString(getClass().getResource("/window-rule-local-aggregation.json"), StandardCharsets.UTF_8);
+        rulesProcessor = Utils.createObjectFromJson(json, RulesProcessor.class);
+        assertTrue(LocalAggregation.isEnabled(rulesProcessor.getRules()));
+    }
+
+    @Test
+    public void testMergePartialAggregates() throws Exception {
+        List<LocalAggregationRuntime> localRuntimes = Arrays.asList(newLocalRuntime(), newLocalRuntime());
+        for (int i = 1; i <= 20; i++) {
+            localRuntimes.get(i % 2).process(newEvent(i));
+        }
+        List<Result> partials = new ArrayList<>();
+        for (LocalAggregationRuntime localRuntime : localRuntimes) {
+            partials.addAll(localRuntime.flush());
+        }
+        // one partial aggregate per department and task
+        int numPartials = 0;
+        for (Result result : partials) {
+            assertEquals("inputstream", result.stream);
+            for (StreamlineEvent event : result.events) {
+                assertEquals(4L, event.getHeader().get(LocalAggregation.HEADER_RULE_ID));
+                numPartials++;
+            }
+        }
+        assertEquals(6, numPartials);
+
+        RuleProcessorRuntime ruleProcessorRuntime = new RuleProcessorRuntime(rulesProcessor, RuleProcessorRuntime.ScriptType.SQL);
+        ruleProcessorRuntime.initialize(Collections.<String, Object>emptyMap());
+        for (Result result : partials) {
+            for (StreamlineEvent event : result.events) {
+                assertTrue(ruleProcessorRuntime.process(withStreamAndWindowId(event, result.stream)).isEmpty());
+            }
+        }
+        Map<Object, List<Object>> minMaxOfDepts = new HashMap<>();
+        for (Result result : ruleProcessorRuntime.process(GROUP_BY_TRIGGER_EVENT)) {
+            assertEquals("outputstream", result.stream);
+            for (StreamlineEvent event : result.events) {
+                minMaxOfDepts.put(event.get("deptid"), Arrays.asList(event.get("salary_MIN"), event.get("salary_MAX")));
+            }
+        }
+        // the employees 1 and 2 are filtered out before the partial aggregation
+        assertEquals(ImmutableMap.of(
+                0, Arrays.<Object>asList(30, 180),
+                1, Arrays.<Object>asList(40, 190),
+                2, Arrays.<Object>asList(50, 200)), minMaxOfDepts);
+    }
+
+    @Test
+    public void testFlushStartsNewPartialAggregates() throws Exception {
+        LocalAggregationRuntime localRuntime = newLocalRuntime();
+        localRuntime.process(newEvent(3));
+        assertEquals(1, localRuntime.flush().size());
+        assertTrue(localRuntime.flush().isEmpty());
+    }
+
+    @Test
+    public void testGroupKeys() throws Exception {
+        LocalAggregationRuntime localRuntime = newLocalRuntime();
+        Set<List<Object>> eventKeys = new HashSet<>();
+        for (int i = 3; i <= 5; i++) {
+            StreamlineEvent event = newEvent(i);
+            localRuntime.process(event);
+            eventKeys.addAll(localRuntime.getGroupKeys(event));
+        }
+        assertEquals(3, eventKeys.size());
+        // one partial aggregate per department, with the key of the events of the department
+        Set<List<Object>> partialKeys = new HashSet<>();
+        for (Result result : localRuntime.flush()) {
+            for (StreamlineEvent event : result.events) {
+                partialKeys.add(localRuntime.getPartialAggregateKey(event));
+            }
+        }
+        assertEquals(eventKeys, partialKeys);
+    }
+
+    private LocalAggregationRuntime newLocalRuntime() {
+        LocalAggregationRuntime localRuntime = new LocalAggregationRuntime(rulesProcessor);
+        localRuntime.initialize(Collections.<String, Object>emptyMap());
+        return localRuntime;
+    }
+
+    private StreamlineEvent newEvent(int i) {
+        return new StreamlineEventImpl(ImmutableMap.<String, Object>of("empid", i, "salary", i * 10, "deptid", i % 3),
+                "dsrcid", "id" + i, Collections.<String, Object>emptyMap(), "inputstream");
+    }
+
+    // as received by the windowed rules
+    private StreamlineEvent withStreamAndWindowId(StreamlineEvent event, String stream) {
+        return new StreamlineEventImpl(event, event.getDataSourceId(), event.getId(), event.getHeader(), stream)
+                .addFieldsAndValues(Collections.<String, Object>singletonMap(Window.WINDOW_ID, 1L));
+    }
+}
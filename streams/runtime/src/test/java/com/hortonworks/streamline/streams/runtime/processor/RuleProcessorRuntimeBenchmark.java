@@ -0,0 +1,121 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.processor;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.Transform;
+import com.hortonworks.streamline.streams.layout.component.Stream;
+import com.hortonworks.streamline.streams.layout.component.impl.RulesProcessor;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.layout.component.rule.action.Action;
+import com.hortonworks.streamline.streams.layout.component.rule.action.TransformAction;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.BinaryExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Condition;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Literal;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Operator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a rules processor evaluating groovy rules on each event, with the conditions
+ * evaluated as scripts, as compiled classes or together with a shared condition network.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.processor.RuleProcessorRuntimeBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleProcessorRuntimeBenchmark {
+    private static final int NUM_FIELDS = 20;
+
+    @Param({"10", "100", "1000"})
+    private int numRules;
+
+    @Param({"script", "compiled", "network"})
+    private String conditions;
+
+    private RuleProcessorRuntime ruleProcessorRuntime;
+    private StreamlineEvent event;
+
+    @Setup
+    public void setup() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < numRules; i++) {
+            Schema.Field speed = Schema.Field.of("field" + (i % 10), Schema.Type.INTEGER);
+            Schema.Field distance = Schema.Field.of("field" + (10 + i % 10), Schema.Type.LONG);
+            Condition condition = new Condition(new BinaryExpression(Operator.AND,
+                    new BinaryExpression(Operator.GREATER_THAN, new FieldExpression(speed), new Literal(String.valueOf(i))),
+                    new BinaryExpression(Operator.LESS_THAN, new FieldExpression(distance), new Literal(String.valueOf(1000 - i)))));
+            Rule rule = new Rule();
+            rule.setId((long) i);
+            rule.setName("rule" + i);
+            rule.setCondition(condition);
+            rule.setActions(Collections.<Action>singletonList(
+                    new TransformAction(Collections.<Transform>emptyList(), Collections.singleton("outputstream"))));
+            rules.add(rule);
+        }
+        RulesProcessor rulesProcessor = new RulesProcessor();
+        rulesProcessor.setId("rp1");
+        rulesProcessor.addOutputStream(new Stream("outputstream", Collections.singletonList(Schema.Field.of("field0", Schema.Type.INTEGER))));
+        rulesProcessor.setRules(rules);
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(RuleProcessorRuntime.GROOVY_COMPILED_CONDITIONS, !"script".equals(conditions));
+        config.put(RuleProcessorRuntime.SHARED_CONDITION_NETWORK, "network".equals(conditions));
+        ruleProcessorRuntime = new RuleProcessorRuntime(rulesProcessor, RuleProcessorRuntime.ScriptType.GROOVY);
+        ruleProcessorRuntime.initialize(config);
+
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            fieldsAndValues.put("field" + i, i < 10 ? (Object) (i * 2) : (Object) (long) i);
+        }
+        event = new StreamlineEventImpl(fieldsAndValues, "1");
+    }
+
+    @Benchmark
+    public Object process() throws Exception {
+        return ruleProcessorRuntime.process(event);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RuleProcessorRuntimeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,56 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.rule;
+
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Window;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PaneWindowTest {
+
+    @Test
+    public void testPanes() throws Exception {
+        PaneWindow paneWindow = PaneWindow.of(window("Duration", "durationMs", 3600000, "Duration", "durationMs", 10000, true));
+        assertEquals(360, paneWindow.getNumPanes());
+        assertEquals(new Window.Duration(10000), paneWindow.getPaneWindow().getWindowLength());
+        assertEquals(new Window.Duration(10000), paneWindow.getPaneWindow().getSlidingInterval());
+        assertEquals("ts", paneWindow.getPaneWindow().getTsField());
+
+        paneWindow = PaneWindow.of(window("Count", "count", 100, "Count", "count", 20, true));
+        assertEquals(5, paneWindow.getNumPanes());
+        assertEquals(new Window.Count(20), paneWindow.getPaneWindow().getWindowLength());
+    }
+
+    @Test
+    public void testNoPanes() throws Exception {
+        assertNull(PaneWindow.of(window("Count", "count", 100, "Count", "count", 20, false)));
+        // tumbling window
+        assertNull(PaneWindow.of(window("Count", "count", 100, "Count", "count", 100, true)));
+        // length not a multiple of the sliding interval
+        assertNull(PaneWindow.of(window("Count", "count", 100, "Count", "count", 30, true)));
+        assertNull(PaneWindow.of(window("Duration", "durationMs", 1000, "Count", "count", 10, true)));
+    }
+
+    private static Window window(String lengthClass, String lengthField, int length,
+                                 String slideClass, String slideField, int slide, boolean panes) throws Exception {
+        return new Window(String.format("{\"windowLength\": {\"class\": \".Window$%s\", \"%s\": %d}, " +
+                        "\"slidingInterval\": {\"class\": \".Window$%s\", \"%s\": %d}, " +
+                        "\"tsField\": \"ts\", \"lagMs\": 0, \"paneAggregation\": %b}",
+                lengthClass, lengthField, length, slideClass, slideField, slide, panes));
+    }
+}
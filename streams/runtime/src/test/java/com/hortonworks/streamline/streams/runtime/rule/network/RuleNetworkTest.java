@@ -0,0 +1,173 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.rule.network;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.rule.Rule;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.BinaryExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Condition;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Expression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.FieldExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Literal;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.MapFieldExpression;
+import com.hortonworks.streamline.streams.layout.component.rule.expression.Operator;
+import com.hortonworks.streamline.streams.runtime.rule.condition.expression.GroovyExpression;
+import com.hortonworks.streamline.streams.runtime.script.CompiledGroovyScript;
+import com.hortonworks.streamline.streams.runtime.script.engine.GroovyScriptEngine;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class RuleNetworkTest {
+    private static final FieldExpression SPEED = new FieldExpression(Schema.Field.of("speed", Schema.Type.INTEGER));
+    private static final FieldExpression DRIVER_ID = new FieldExpression(Schema.Field.of("driverId", Schema.Type.LONG));
+    private static final FieldExpression EVENT_TYPE = new FieldExpression(Schema.Field.of("eventType", Schema.Type.STRING));
+    private static final FieldExpression LOCATION = new FieldExpression(Schema.Field.of("location", Schema.Type.NESTED));
+    private static final Operator[] COMPARISONS = {Operator.EQUALS, Operator.NOT_EQUAL, Operator.GREATER_THAN,
+            Operator.GREATER_THAN_EQUALS_TO, Operator.LESS_THAN, Operator.LESS_THAN_EQUALS_TO};
+
+    @Test
+    public void testIndexedConditions() throws Exception {
+        RuleNetwork network = network(
+                and(compare(SPEED, Operator.GREATER_THAN, "80"), compare(DRIVER_ID, Operator.EQUALS, "1")),
+                and(compare(SPEED, Operator.GREATER_THAN, "80"), compare(DRIVER_ID, Operator.EQUALS, "2")),
+                compare(new Literal("80"), Operator.GREATER_THAN_EQUALS_TO, SPEED),
+                compare(EVENT_TYPE, Operator.NOT_EQUAL, "'Normal'"),
+                compare(SPEED, Operator.EQUALS, "80.0"));
+
+        assertEquals(bits(0, 3), network.match(event(90, 1L, "Lane Departure")));
+        assertEquals(bits(1), network.match(event(90.5, 2, "Normal")));
+        assertEquals(bits(2, 4), network.match(event(80L, 2, "Normal")));
+        // missing fields never satisfy the conditions
+        assertEquals(bits(), network.match(new StreamlineEventImpl(Collections.<String, Object>singletonMap("speed", 100), "1")));
+    }
+
+    @Test
+    public void testSharedScriptConditions() throws Exception {
+        Expression or = new BinaryExpression(Operator.OR, compare(SPEED, Operator.LESS_THAN, "10"),
+                compare(EVENT_TYPE, Operator.EQUALS, "'Overspeed'"));
+        Expression nested = compare(new MapFieldExpression(LOCATION, "lat"), Operator.GREATER_THAN, "40");
+        RuleNetwork network = network(
+                and(or, compare(DRIVER_ID, Operator.EQUALS, "1")),
+                and(or, nested),
+                nested,
+                null);
+
+        Map<String, Object> location = new HashMap<>();
+        location.put("lat", 41);
+        Map<String, Object> values = new HashMap<>();
+        values.put("speed", 5);
+        values.put("driverId", 2);
+        values.put("eventType", "Normal");
+        values.put("location", location);
+        assertEquals(bits(1, 2, 3), network.match(new StreamlineEventImpl(values, "1")));
+        values.put("driverId", 1);
+        values.remove("location");
+        assertEquals(bits(0, 3), network.match(new StreamlineEventImpl(values, "1")));
+    }
+
+    @Test
+    public void testMatchesGroovyConditions() throws Exception {
+        Random random = new Random(42);
+        List<Expression> conditions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Expression condition = randomComparison(random);
+            for (int j = random.nextInt(3); j > 0; j--) {
+                condition = and(condition, randomComparison(random));
+            }
+            conditions.add(condition);
+        }
+        RuleNetwork network = network(conditions.toArray(new Expression[conditions.size()]));
+        List<CompiledGroovyScript> scripts = new ArrayList<>();
+        for (Expression condition : conditions) {
+            GroovyExpression groovyExpression = new GroovyExpression(new Condition(condition));
+            scripts.add(new CompiledGroovyScript(groovyExpression.asString(), groovyExpression.getReferencedFields(),
+                    new GroovyScriptEngine()));
+        }
+        for (int i = 0; i < 200; i++) {
+            Object speed = random.nextBoolean() ? (Object) random.nextInt(10) : (Object) (random.nextInt(20) / 2.0);
+            StreamlineEvent event = event(speed, (long) random.nextInt(5), random.nextBoolean() ? "Normal" : "Overspeed");
+            BitSet expected = new BitSet();
+            for (int rule = 0; rule < scripts.size(); rule++) {
+                if (scripts.get(rule).evaluate(event)) {
+                    expected.set(rule);
+                }
+            }
+            assertEquals("Event " + event, expected, network.match(event));
+        }
+    }
+
+    private static Expression randomComparison(Random random) {
+        Operator operator = COMPARISONS[random.nextInt(COMPARISONS.length)];
+        switch (random.nextInt(3)) {
+            case 0:
+                return compare(SPEED, operator, String.valueOf(random.nextInt(10)));
+            case 1:
+                return compare(DRIVER_ID, operator, random.nextBoolean() ? "2" : "2.5");
+            default:
+                return compare(EVENT_TYPE, random.nextBoolean() ? Operator.EQUALS : Operator.NOT_EQUAL, "'Normal'");
+        }
+    }
+
+    private static RuleNetwork network(Expression... conditions) {
+        List<Rule> rules = new ArrayList<>();
+        for (Expression condition : conditions) {
+            Rule rule = new Rule();
+            rule.setCondition(condition != null ? new Condition(condition) : null);
+            rules.add(rule);
+        }
+        return new RuleNetwork(rules, groovyExpression -> new CompiledGroovyScript(groovyExpression.asString(),
+                groovyExpression.getReferencedFields(), new GroovyScriptEngine()));
+    }
+
+    private static Expression and(Expression first, Expression second) {
+        return new BinaryExpression(Operator.AND, first, second);
+    }
+
+    private static Expression compare(Expression field, Operator operator, String literal) {
+        return new BinaryExpression(operator, field, new Literal(literal));
+    }
+
+    private static Expression compare(Expression first, Operator operator, Expression second) {
+        return new BinaryExpression(operator, first, second);
+    }
+
+    private static StreamlineEvent event(Object speed, Object driverId, String eventType) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("speed", speed);
+        values.put("driverId", driverId);
+        values.put("eventType", eventType);
+        return new StreamlineEventImpl(values, "1");
+    }
+
+    private static BitSet bits(int... rules) {
+        BitSet bits = new BitSet();
+        for (int rule : rules) {
+            bits.set(rule);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.script;
+
+import com.hortonworks.registries.common.Schema;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.runtime.script.engine.GroovyScriptEngine;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledGroovyScriptTest {
+
+    @Test
+    public void testEvaluate() throws Exception {
+        CompiledGroovyScript script = new CompiledGroovyScript("temperature > 10 && humidity < 30",
+                Arrays.asList(Schema.Field.of("temperature", Schema.Type.INTEGER), Schema.Field.of("humidity", Schema.Type.INTEGER)),
+                new GroovyScriptEngine());
+        assertTrue(script.evaluate(event("temperature", 20, "humidity", 10)));
+        assertFalse(script.evaluate(event("temperature", 5, "humidity", 10)));
+        // Integer and Long values are compared the same way
+        assertTrue(script.evaluate(event("temperature", 20L, "humidity", 10L)));
+        assertTrue(script.evaluate(event("temperature", 20.5, "humidity", 10)));
+    }
+
+    @Test
+    public void testMissingFieldEvaluatesToFalse() throws Exception {
+        CompiledGroovyScript script = new CompiledGroovyScript("temperature > 10 && humidity < 30",
+                Arrays.asList(Schema.Field.of("temperature", Schema.Type.INTEGER), Schema.Field.of("humidity", Schema.Type.INTEGER)),
+                new GroovyScriptEngine());
+        assertFalse(script.evaluate(event("temperature", 20, "no_related_field", 3)));
+    }
+
+    @Test
+    public void testTypeMismatchFallsBackToScript() throws Exception {
+        CompiledGroovyScript script = new CompiledGroovyScript("name == 'driver'",
+                Collections.singletonList(Schema.Field.of("name", Schema.Type.INTEGER)), new GroovyScriptEngine());
+        assertTrue(script.evaluate(event("name", "driver", "speed", 1)));
+        assertFalse(script.evaluate(event("name", "other", "speed", 1)));
+    }
+
+    @Test
+    public void testNestedExpression() throws Exception {
+        CompiledGroovyScript script = new CompiledGroovyScript("x < y['b']",
+                Arrays.asList(Schema.Field.of("x", Schema.Type.INTEGER), Schema.Field.of("y", Schema.Type.NESTED)),
+                new GroovyScriptEngine());
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("a", 5);
+        nested.put("b", 10);
+        assertTrue(script.evaluate(event("x", 2, "y", nested)));
+        assertFalse(script.evaluate(event("x", 20, "y", nested)));
+    }
+
+    private static StreamlineEvent event(String field1, Object value1, String field2, Object value2) {
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        fieldsAndValues.put(field1, value1);
+        fieldsAndValues.put(field2, value2);
+        return new StreamlineEventImpl(fieldsAndValues, "1");
+    }
+}
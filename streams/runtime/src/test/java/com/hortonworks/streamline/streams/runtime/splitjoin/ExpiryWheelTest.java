@@ -0,0 +1,106 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.splitjoin;
+
+import com.google.common.collect.Lists;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ExpiryWheelTest {
+    private final List<EventGroup> expired = new ArrayList<>();
+
+    @Test
+    public void testExpiry() {
+        ExpiryWheel expiryWheel = newExpiryWheel(1000);
+        EventGroup first = new EventGroup("first", "ds-1", Long.MAX_VALUE, 1000);
+        EventGroup second = new EventGroup("second", "ds-1", Long.MAX_VALUE, 1000);
+        EventGroup cancelled = new EventGroup("cancelled", "ds-1", Long.MAX_VALUE, 1000);
+        expiryWheel.schedule(first, 1050);
+        expiryWheel.schedule(second, 1200);
+        expiryWheel.schedule(cancelled, 1050);
+        expiryWheel.cancel(cancelled);
+
+        expiryWheel.advance(1049);
+        Assert.assertTrue(expired.isEmpty());
+        expiryWheel.advance(1100);
+        Assert.assertEquals(Collections.singletonList(first), expired);
+        // more than one rotation later
+        expiryWheel.advance(1000 + 100 * 10);
+        Assert.assertEquals(Lists.newArrayList(first, second), expired);
+        Assert.assertEquals(ExpiryWheel.NOT_SCHEDULED, second.wheelDeadline);
+    }
+
+    @Test
+    public void testDeadlineBeyondRotation() {
+        ExpiryWheel expiryWheel = newExpiryWheel(0);
+        EventGroup eventGroup = new EventGroup("group", "ds-1", Long.MAX_VALUE, 0);
+        // same bucket as tick 1 but one rotation later
+        expiryWheel.schedule(eventGroup, 10 * 8 + 15);
+        expiryWheel.advance(20);
+        Assert.assertTrue(expired.isEmpty());
+        expiryWheel.advance(100);
+        Assert.assertEquals(Collections.singletonList(eventGroup), expired);
+    }
+
+    @Test
+    public void testEventExpiry() {
+        EventGroup eventGroup = new EventGroup("group", "ds-1", 100, 0);
+        eventGroup.addPartitionEvent(partitionEvent(1, "a"), 0);
+        eventGroup.addPartitionEvent(partitionEvent(2, "b"), 50);
+        Assert.assertEquals(100, eventGroup.nextEventDeadline());
+
+        // the first partition event expired before the last one is added
+        eventGroup.addPartitionEvent(partitionEvent(3, "c"), 120);
+        Assert.assertFalse(eventGroup.isComplete());
+        Assert.assertEquals(150, eventGroup.nextEventDeadline());
+        eventGroup.addPartitionEvent(partitionEvent(1, "d"), 130);
+        Assert.assertTrue(eventGroup.isComplete());
+
+        StreamlineEvent joinedEvent = new DefaultJoiner().join(eventGroup);
+        Assert.assertEquals("c", joinedEvent.get("value"));
+        Assert.assertEquals("d", joinedEvent.get("first"));
+    }
+
+    private ExpiryWheel newExpiryWheel(long now) {
+        return new ExpiryWheel(8, 10, now, new ExpiryWheel.ExpiryHandler() {
+            @Override
+            public void expired(EventGroup eventGroup, long now) {
+                expired.add(eventGroup);
+            }
+        });
+    }
+
+    private static StreamlineEvent partitionEvent(int partitionId, String value) {
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        fieldsAndValues.put("value", value);
+        if (partitionId == 1) {
+            fieldsAndValues.put("first", value);
+        }
+        Map<String, Object> header = new HashMap<>();
+        header.put(SplitActionRuntime.SPLIT_GROUP_ID, "group");
+        header.put(SplitActionRuntime.SPLIT_PARTITION_ID, partitionId);
+        header.put(SplitActionRuntime.SPLIT_TOTAL_PARTITIONS_ID, 3);
+        return new StreamlineEventImpl(fieldsAndValues, "ds-1", header);
+    }
+}
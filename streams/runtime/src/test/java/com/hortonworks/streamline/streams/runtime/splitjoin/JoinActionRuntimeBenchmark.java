@@ -0,0 +1,110 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.splitjoin;
+
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.component.impl.splitjoin.JoinAction;
+import com.hortonworks.streamline.streams.runtime.rule.action.ActionRuntimeContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the joins per millisecond of a join action holding 100k incomplete split groups. Each benchmark invocation
+ * completes the oldest group with its last partition event and starts a new group with the other partition events, so
+ * the number of groups in flight stays the same.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.runtime.splitjoin.JoinActionRuntimeBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JoinActionRuntimeBenchmark {
+    private static final int NUM_GROUPS = 100000;
+    private static final int NUM_PARTITIONS = 3;
+    private static final int NUM_FIELDS = 10;
+    private static final long EXPIRY_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private JoinActionRuntime joinActionRuntime;
+    // partition events of each group, the group ids are reused once the group is joined
+    private StreamlineEvent[][] partitionEvents;
+    private int nextGroup;
+
+    @Setup
+    public void setup() {
+        JoinAction joinAction = new JoinAction(null, null, EXPIRY_INTERVAL, EXPIRY_INTERVAL);
+        joinAction.setOutputStreams(Collections.singleton("output-stream"));
+        joinActionRuntime = new JoinActionRuntime(joinAction);
+        joinActionRuntime.setActionRuntimeContext(new ActionRuntimeContext(null, joinAction));
+        joinActionRuntime.initialize(Collections.<String, Object>emptyMap());
+
+        Map<String, Object> fieldsAndValues = new HashMap<>();
+        for (int i = 0; i < NUM_FIELDS; i++) {
+            fieldsAndValues.put("field" + i, i % 2 == 0 ? (Object) ("value" + i) : (Object) (long) i);
+        }
+        StreamlineEvent event = new StreamlineEventImpl(fieldsAndValues, "1");
+        partitionEvents = new StreamlineEvent[NUM_GROUPS][NUM_PARTITIONS];
+        for (int i = 0; i < NUM_GROUPS; i++) {
+            for (int j = 0; j < NUM_PARTITIONS; j++) {
+                Map<String, Object> header = new HashMap<>();
+                header.put(SplitActionRuntime.SPLIT_GROUP_ID, "group-" + i);
+                header.put(SplitActionRuntime.SPLIT_PARTITION_ID, j + 1);
+                header.put(SplitActionRuntime.SPLIT_TOTAL_PARTITIONS_ID, NUM_PARTITIONS);
+                partitionEvents[i][j] = new StreamlineEventImpl(event, "1", "id-" + i + "-" + j, header,
+                        "stream-" + j, Collections.<String, Object>emptyMap());
+            }
+            startGroup(partitionEvents[i]);
+        }
+    }
+
+    @Benchmark
+    public Object join() {
+        StreamlineEvent[] events = partitionEvents[nextGroup];
+        nextGroup = (nextGroup + 1) % NUM_GROUPS;
+        Object results = joinActionRuntime.execute(events[NUM_PARTITIONS - 1]);
+        startGroup(events);
+        return results;
+    }
+
+    private void startGroup(StreamlineEvent[] events) {
+        for (int j = 0; j < NUM_PARTITIONS - 1; j++) {
+            joinActionRuntime.execute(events[j]);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JoinActionRuntimeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,146 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.transform;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link CachedTransformDataProviderRuntime}
+ */
+public class CachedTransformDataProviderRuntimeTest {
+    private BulkDataProviderRuntime dataProvider;
+    private CachedTransformDataProviderRuntime cachedDataProvider;
+
+    @Before
+    public void setup() {
+        dataProvider = new BulkDataProviderRuntime();
+        cachedDataProvider = new CachedTransformDataProviderRuntime(dataProvider, 100, 60, 60);
+        cachedDataProvider.prepare();
+    }
+
+    @After
+    public void cleanup() {
+        dataProvider.latch.countDown();
+        cachedDataProvider.cleanup();
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        dataProvider.latch.countDown();
+        assertEquals("A", cachedDataProvider.get("a"));
+
+        Map<Object, Object> values = cachedDataProvider.getAll(Arrays.asList("a", "b", "c", "missing"));
+        assertEquals(3, values.size());
+        assertEquals("C", values.get("c"));
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Arrays.asList("b", "c", "missing")), dataProvider.lookups);
+    }
+
+    @Test
+    public void testGetAllAsyncCoalescesLookups() throws Exception {
+        Map<Object, CompletableFuture<Object>> first = cachedDataProvider.getAllAsync(Arrays.asList("a", "b"));
+        Map<Object, CompletableFuture<Object>> second = cachedDataProvider.getAllAsync(Arrays.asList("b", "c", "missing"));
+        assertSame(first.get("b"), second.get("b"));
+        assertFalse(first.get("a").isDone());
+
+        dataProvider.latch.countDown();
+        assertEquals("A", first.get("a").get(10, TimeUnit.SECONDS));
+        assertEquals("B", second.get("b").get(10, TimeUnit.SECONDS));
+        assertEquals("C", second.get("c").get(10, TimeUnit.SECONDS));
+        assertNull(second.get("missing").get(10, TimeUnit.SECONDS));
+        assertEquals(2, dataProvider.lookups.size());
+        assertTrue(dataProvider.lookups.contains(Arrays.asList("c", "missing")));
+
+        // cached
+        assertTrue(cachedDataProvider.getAllAsync(Collections.singletonList("c")).get("c").isDone());
+        assertEquals(2, dataProvider.lookups.size());
+    }
+
+    @Test
+    public void testGetAllAsyncError() throws Exception {
+        dataProvider.latch.countDown();
+        CompletableFuture<Object> future = cachedDataProvider.getAllAsync(Arrays.asList("a", "error")).get("a");
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("the lookup should have failed");
+        } catch (ExecutionException e) {
+            assertEquals("lookup error", e.getCause().getMessage());
+        }
+        // looked up again
+        assertEquals("A", cachedDataProvider.getAllAsync(Collections.singletonList("a")).get("a").get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Upper cases the keys, except "missing", fails on "error" and waits for the latch before each lookup.
+     */
+    private static class BulkDataProviderRuntime implements TransformDataProviderRuntime {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final List<List<Object>> lookups = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Object get(Object key) {
+            return getAll(Collections.singletonList(key)).get(key);
+        }
+
+        @Override
+        public Map<Object, Object> getAll(Collection<?> keys) {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (keys.contains("error")) {
+                throw new Error("lookup error");
+            }
+            lookups.add(new ArrayList<>(keys));
+            Map<Object, Object> values = new HashMap<>();
+            for (Object key : keys) {
+                if (!"missing".equals(key)) {
+                    values.put(key, key.toString().toUpperCase());
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void cleanup() {
+        }
+    }
+}
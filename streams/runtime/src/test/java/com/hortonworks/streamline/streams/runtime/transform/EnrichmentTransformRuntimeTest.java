@@ -0,0 +1,115 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.runtime.transform;
+
+import com.hortonworks.streamline.streams.Result;
+import com.hortonworks.streamline.streams.StreamlineEvent;
+import com.hortonworks.streamline.streams.common.StreamlineEventImpl;
+import com.hortonworks.streamline.streams.layout.Transform;
+import com.hortonworks.streamline.streams.layout.component.rule.action.TransformAction;
+import com.hortonworks.streamline.streams.layout.component.rule.action.transform.EnrichmentTransform;
+import com.hortonworks.streamline.streams.layout.component.rule.action.transform.InmemoryTransformDataProvider;
+import com.hortonworks.streamline.streams.runtime.TransformActionRuntime;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link EnrichmentTransformRuntime}
+ */
+public class EnrichmentTransformRuntimeTest {
+    // the completed lookups, run by the test thread
+    private final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+
+    @Test
+    public void testExecuteAsync() throws Exception {
+        Map<Object, Object> data = new HashMap<>();
+        data.put("1", "one");
+        data.put("2", "two");
+        data.put("3", "three");
+        EnrichmentTransform enrichmentTransform = new EnrichmentTransform("enricher", Collections.singletonList("id"),
+                new InmemoryTransformDataProvider(data));
+        enrichmentTransform.withLookupBatchSize(2);
+        EnrichmentTransformRuntime runtime = new EnrichmentTransformRuntime(enrichmentTransform);
+
+        CompletableFuture<List<StreamlineEvent>> first = runtime.executeAsync(event("1"), callbacks::add);
+        CompletableFuture<List<StreamlineEvent>> second = runtime.executeAsync(event("1"), callbacks::add);
+        assertFalse(first.isDone());
+        // the batch of 2 values is looked up
+        CompletableFuture<List<StreamlineEvent>> third = runtime.executeAsync(event("2"), callbacks::add);
+        // the events are enriched by the callbacks only
+        Runnable callback = callbacks.poll(10, TimeUnit.SECONDS);
+        assertFalse(first.isDone() || second.isDone() || third.isDone());
+        callback.run();
+        runCallbacks(2);
+        assertEquals("one", enrichment(first.get(10, TimeUnit.SECONDS)));
+        assertEquals("one", enrichment(second.get(10, TimeUnit.SECONDS)));
+        assertEquals("two", enrichment(third.get(10, TimeUnit.SECONDS)));
+
+        CompletableFuture<List<StreamlineEvent>> fourth = runtime.executeAsync(event("3"), callbacks::add);
+        // cached
+        CompletableFuture<List<StreamlineEvent>> fifth = runtime.executeAsync(event("2"), callbacks::add);
+        assertTrue(fifth.isDone());
+        assertEquals("two", enrichment(fifth.get()));
+        runtime.flush();
+        runCallbacks(1);
+        assertEquals("three", enrichment(fourth.get(10, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testTransformActionExecuteAsync() throws Exception {
+        EnrichmentTransform enrichmentTransform = new EnrichmentTransform("enricher", Collections.singletonList("id"),
+                new InmemoryTransformDataProvider(Collections.<Object, Object>singletonMap("1", "one")));
+        TransformActionRuntime actionRuntime = new TransformActionRuntime(new TransformAction(
+                Collections.<Transform>singletonList(enrichmentTransform), Collections.singleton("outputstream")));
+
+        CompletableFuture<List<Result>> results = actionRuntime.executeAsync(event("1"), callbacks::add);
+        assertFalse(results.isDone());
+        actionRuntime.flush();
+        runCallbacks(1);
+        List<Result> result = results.get(10, TimeUnit.SECONDS);
+        assertEquals(1, result.size());
+        assertEquals("outputstream", result.get(0).stream);
+        assertEquals("one", enrichment(result.get(0).events));
+    }
+
+    private void runCallbacks(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            callbacks.poll(10, TimeUnit.SECONDS).run();
+        }
+    }
+
+    private static StreamlineEvent event(String id) {
+        return new StreamlineEventImpl(Collections.<String, Object>singletonMap("id", id), "dsrcid");
+    }
+
+    private static Object enrichment(List<StreamlineEvent> events) {
+        assertEquals(1, events.size());
+        Map<?, ?> enrichments = (Map<?, ?>) events.get(0).getAuxiliaryFieldsAndValues().get(EnrichmentTransform.ENRICHMENTS_FIELD_NAME);
+        return enrichments.get("id");
+    }
+}
@@ -0,0 +1,42 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.rule;
+
+/**
+ * <p>
+ * A {@link UDAF} whose partial aggregates can be merged, e.g. the aggregates of the panes of a sliding window.
+ * </p>
+ * Merging the aggregates of two groups of values should produce an aggregate equivalent to the one obtained
+ * by adding all the values to one aggregate:
+ * <pre>
+ *   A aggregate = udafObj.merge(udafObj.merge(udafObj.init(), aggregate1), aggregate2);
+ * </pre>
+ * The first aggregate may be updated and returned, the second one must be left unchanged.
+ *
+ * @param <A> the aggregate type
+ * @param <V> the value type
+ * @param <R> the result type
+ */
+public interface MergeableUDAF<A, V, R> extends UDAF<A, V, R> {
+    /**
+     * Return a new aggregate by merging the other aggregate into the current one.
+     *
+     * @param aggregate the current aggregate
+     * @param other     the aggregate to merge, left unchanged
+     * @return the new aggregate
+     */
+    A merge(A aggregate, A other);
+}
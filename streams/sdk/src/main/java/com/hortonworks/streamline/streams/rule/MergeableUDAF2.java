@@ -0,0 +1,37 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.rule;
+
+/**
+ * <p>
+ * A {@link UDAF2} whose partial aggregates can be merged, see {@link MergeableUDAF}.
+ * </p>
+ *
+ * @param <A> the aggregate type
+ * @param <V1> the value type of first argument
+ * @param <V2> the value type of second argument
+ * @param <R> the result type
+ */
+public interface MergeableUDAF2<A, V1, V2, R> extends UDAF2<A, V1, V2, R> {
+    /**
+     * Return a new aggregate by merging the other aggregate into the current one.
+     *
+     * @param aggregate the current aggregate
+     * @param other     the aggregate to merge, left unchanged
+     * @return the new aggregate
+     */
+    A merge(A aggregate, A other);
+}
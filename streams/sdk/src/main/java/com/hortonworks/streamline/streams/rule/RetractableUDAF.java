@@ -0,0 +1,43 @@
+/**
+  * Copyright 2017 Hortonworks.
+  *
+  * Licensed under the Apache License, Version 2.0 (the "License");
+  * you may not use this file except in compliance with the License.
+  * You may obtain a copy of the License at
+
+  *   http://www.apache.org/licenses/LICENSE-2.0
+
+  * Unless required by applicable law or agreed to in writing, software
+  * distributed under the License is distributed on an "AS IS" BASIS,
+  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  * See the License for the specific language governing permissions and
+  * limitations under the License.
+ **/
+package com.hortonworks.streamline.streams.rule;
+
+/**
+ * <p>
+ * A {@link UDAF} whose values can be removed from the aggregate, e.g. when they expire from a sliding window.
+ * </p>
+ * Removing a value that was added to the aggregate should produce an aggregate equivalent to the one obtained
+ * by adding all the other values:
+ * <pre>
+ *   aggregate = udafObj.add(aggregate, value);
+ *   // ... other values
+ *   aggregate = udafObj.retract(aggregate, value);
+ * </pre>
+ *
+ * @param <A> the aggregate type
+ * @param <V> the value type
+ * @param <R> the result type
+ */
+public interface RetractableUDAF<A, V, R> extends UDAF<A, V, R> {
+    /**
+     * Return a new aggregate by removing a value that was added before from the accumulated value.
+     *
+     * @param aggregate the current aggregate
+     * @param val       the value to remove
+     * @return the new aggregate
+     */
+    A retract(A aggregate, V val);
+}
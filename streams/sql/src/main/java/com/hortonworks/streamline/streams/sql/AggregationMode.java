@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql;
+
+import java.io.Serializable;
+
+/**
+ * How the aggregations of a query handle their state when they are flushed.
+ * <ul>
+ *   <li>{@link #BATCH}: the groups are emitted and cleared.</li>
+ *   <li>{@link #INCREMENTAL}: the groups are kept, the rows leaving them are retracted with
+ *   {@link com.hortonworks.streamline.streams.sql.runtime.ChannelContext#retract}.</li>
+ *   <li>{@link #panes(int)}: each flush closes a pane, the partial aggregates of the last panes are merged
+ *   and emitted.</li>
+ *   <li>{@link #PARTIAL}: the groups are emitted and cleared, the rows emitted hold the group values followed by the
+ *   accumulators of the aggregate calls instead of their results.</li>
+ * </ul>
+ * The aggregations of a {@link #toFinal()} mode receive the rows emitted by a partial aggregation of the same query,
+ * which are merged into their groups, rather than the rows of the query tables.
+ */
+public final class AggregationMode implements Serializable {
+  public static final AggregationMode BATCH = new AggregationMode(false, 1);
+  public static final AggregationMode INCREMENTAL = new AggregationMode(true, 1);
+  public static final AggregationMode PARTIAL = new AggregationMode(false, 1, true, false);
+
+  private final boolean incremental;
+  private final int numPanes;
+  private final boolean partial;
+  private final boolean mergingPartials;
+
+  private AggregationMode(boolean incremental, int numPanes) {
+    this(incremental, numPanes, false, false);
+  }
+
+  private AggregationMode(boolean incremental, int numPanes, boolean partial, boolean mergingPartials) {
+    this.incremental = incremental;
+    this.numPanes = numPanes;
+    this.partial = partial;
+    this.mergingPartials = mergingPartials;
+  }
+
+  /**
+   * The aggregations emit the merge of the rows received since the last numPanes flushes.
+   */
+  public static AggregationMode panes(int numPanes) {
+    if (numPanes < 1) {
+      throw new IllegalArgumentException("Invalid number of panes " + numPanes);
+    }
+    return numPanes == 1 ? BATCH : new AggregationMode(false, numPanes);
+  }
+
+  /**
+   * The same mode for aggregations receiving the rows emitted by a {@link #PARTIAL} aggregation. The partial
+   * aggregates can't be retracted, so the incremental mode has no final mode.
+   */
+  public AggregationMode toFinal() {
+    if (incremental || partial) {
+      throw new IllegalStateException("No final aggregation mode for " + this);
+    }
+    return new AggregationMode(false, numPanes, false, true);
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public boolean isPaned() {
+    return numPanes > 1;
+  }
+
+  public int getNumPanes() {
+    return numPanes;
+  }
+
+  public boolean isPartial() {
+    return partial;
+  }
+
+  public boolean isMergingPartials() {
+    return mergingPartials;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    AggregationMode that = (AggregationMode) o;
+    return incremental == that.incremental && numPanes == that.numPanes && partial == that.partial
+        && mergingPartials == that.mergingPartials;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = 31 * (incremental ? 1 : 0) + numPanes;
+    result = 31 * result + (partial ? 1 : 0);
+    return 31 * result + (mergingPartials ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    if (partial) {
+      return "PARTIAL";
+    }
+    String mode = incremental ? "INCREMENTAL" : isPaned() ? "PANES(" + numPanes + ")" : "BATCH";
+    return mergingPartials ? "FINAL " + mode : mode;
+  }
+}
@@ -18,6 +18,7 @@
 package com.hortonworks.streamline.streams.sql;
 
 import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
 
 /**
  * The StreamlineSql class provides standalone, interactive interfaces to execute
@@ -32,8 +33,24 @@ public abstract class StreamlineSql {
    * Execute the SQL statements in stand-alone mode. The user can retrieve the result by passing in an instance
    * of {@see ChannelHandler}.
    */
+  public void execute(Iterable<String> statements,
+                      ChannelHandler handler) throws Exception {
+    execute(statements, handler, AggregationMode.BATCH);
+  }
+
+  /**
+   * Execute the SQL statements in stand-alone mode, the aggregations handle their state according to the
+   * {@link AggregationMode}.
+   */
   public abstract void execute(Iterable<String> statements,
-                               ChannelHandler handler) throws Exception;
+                               ChannelHandler handler, AggregationMode aggregationMode) throws Exception;
+
+  /**
+   * Compile the SQL statements into an {@link ExecutableFilterProject} that evaluates the query one row at a time.
+   * Returns null if the query is not a filter and projection over a single table, e.g. if it has aggregations,
+   * in which case the statements should be executed with {@link #execute(Iterable, ChannelHandler)}.
+   */
+  public abstract ExecutableFilterProject compileFilterProject(Iterable<String> statements) throws Exception;
 
   public static StreamlineSql construct() {
     return new StreamlineSqlImpl();
@@ -18,6 +18,7 @@
 package com.hortonworks.streamline.streams.sql;
 
 import com.hortonworks.streamline.streams.sql.compiler.CompilerUtil;
+import com.hortonworks.streamline.streams.sql.compiler.FilterProjectCompiler;
 import com.hortonworks.streamline.streams.sql.compiler.PlanCompiler;
 
 import com.hortonworks.streamline.streams.sql.compiler.StreamlineSqlTypeFactoryImpl;
@@ -29,6 +30,7 @@ import com.hortonworks.streamline.streams.sql.parser.StreamlineParser;
 import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;
 import com.hortonworks.streamline.streams.sql.runtime.DataSource;
 import com.hortonworks.streamline.streams.sql.runtime.DataSourcesRegistry;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
 import com.hortonworks.streamline.streams.sql.runtime.FieldInfo;
 import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;
 
@@ -66,7 +68,7 @@ class StreamlineSqlImpl extends StreamlineSql {
 
   @Override
   public void execute(
-      Iterable<String> statements, ChannelHandler result)
+      Iterable<String> statements, ChannelHandler result, AggregationMode aggregationMode)
       throws Exception {
     Map<String, DataSource> dataSources = new HashMap<>();
     for (String sql : statements) {
@@ -77,18 +79,44 @@ class StreamlineSqlImpl extends StreamlineSql {
       } else if (node instanceof SqlCreateFunction) {
         handleCreateFunction((SqlCreateFunction) node);
       } else {
-        FrameworkConfig config = buildFrameWorkConfig();
-        Planner planner = Frameworks.getPlanner(config);
-        SqlNode parse = planner.parse(sql);
-        SqlNode validate = planner.validate(parse);
-        RelNode tree = planner.convert(validate);
-        PlanCompiler compiler = new PlanCompiler(typeFactory);
-        AbstractValuesProcessor proc = compiler.compile(tree);
+        PlanCompiler compiler = new PlanCompiler(typeFactory, aggregationMode);
+        AbstractValuesProcessor proc = compiler.compile(buildPlan(sql));
         proc.initialize(dataSources, result);
       }
     }
   }
 
+  @Override
+  public ExecutableFilterProject compileFilterProject(Iterable<String> statements) throws Exception {
+    Map<String, DataSource> dataSources = new HashMap<>();
+    ExecutableFilterProject filterProject = null;
+    for (String sql : statements) {
+      StreamlineParser parser = new StreamlineParser(sql);
+      SqlNode node = parser.impl().parseSqlStmtEof();
+      if (node instanceof SqlCreateTable) {
+        handleCreateTable((SqlCreateTable) node, dataSources);
+      } else if (node instanceof SqlCreateFunction) {
+        handleCreateFunction((SqlCreateFunction) node);
+      } else if (filterProject == null) {
+        filterProject = new FilterProjectCompiler(typeFactory).compile(buildPlan(sql));
+        if (filterProject == null) {
+          return null;
+        }
+      } else {
+        throw new IllegalArgumentException("Only one query can be compiled into a filter and projection");
+      }
+    }
+    return filterProject;
+  }
+
+  private RelNode buildPlan(String sql) throws Exception {
+    FrameworkConfig config = buildFrameWorkConfig();
+    Planner planner = Frameworks.getPlanner(config);
+    SqlNode parse = planner.parse(sql);
+    SqlNode validate = planner.validate(parse);
+    return planner.convert(validate);
+  }
+
   private void handleCreateTable(
           SqlCreateTable n, Map<String, DataSource> dataSources) {
     List<FieldInfo> fields = updateSchema(n);
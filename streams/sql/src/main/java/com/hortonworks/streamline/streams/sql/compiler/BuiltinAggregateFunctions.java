@@ -29,6 +29,9 @@ import java.util.Map;
  * Built-in implementations for some of the standard aggregation operations.
  * Aggregations can be implemented as a class with the following methods viz. init, add and result.
  * The class could contain only static methods, only non-static methods or be generic.
+ * An optional retract method, with the same parameters as add, removes a value from the accumulator.
+ * An optional merge method, with two accumulator parameters, returns the merge of the second accumulator
+ * into the first one. It may update the first accumulator but not the second one.
  */
 public class BuiltinAggregateFunctions {
     // binds the type information and the class implementing the aggregation
@@ -60,6 +63,14 @@ public class BuiltinAggregateFunctions {
             return (byte) (accumulator + val);
         }
 
+        public static Byte retract(Byte accumulator, Byte val) {
+            return (byte) (accumulator - val);
+        }
+
+        public static Byte merge(Byte accumulator, Byte other) {
+            return (byte) (accumulator + other);
+        }
+
         public static Byte result(Byte accumulator) {
             return accumulator;
         }
@@ -74,6 +85,14 @@ public class BuiltinAggregateFunctions {
             return (short) (accumulator + val);
         }
 
+        public static Short retract(Short accumulator, Short val) {
+            return (short) (accumulator - val);
+        }
+
+        public static Short merge(Short accumulator, Short other) {
+            return (short) (accumulator + other);
+        }
+
         public static Short result(Short accumulator) {
             return accumulator;
         }
@@ -88,6 +107,14 @@ public class BuiltinAggregateFunctions {
             return accumulator + val;
         }
 
+        public static Integer retract(Integer accumulator, Integer val) {
+            return accumulator - val;
+        }
+
+        public static Integer merge(Integer accumulator, Integer other) {
+            return accumulator + other;
+        }
+
         public static Integer result(Integer accumulator) {
             return accumulator;
         }
@@ -102,6 +129,14 @@ public class BuiltinAggregateFunctions {
             return accumulator + val;
         }
 
+        public static Long retract(Long accumulator, Long val) {
+            return accumulator - val;
+        }
+
+        public static Long merge(Long accumulator, Long other) {
+            return accumulator + other;
+        }
+
         public static Long result(Long accumulator) {
             return accumulator;
         }
@@ -116,6 +151,14 @@ public class BuiltinAggregateFunctions {
             return accumulator + val;
         }
 
+        public static Float retract(Float accumulator, Float val) {
+            return accumulator - val;
+        }
+
+        public static Float merge(Float accumulator, Float other) {
+            return accumulator + other;
+        }
+
         public static Float result(Float accumulator) {
             return accumulator;
         }
@@ -130,6 +173,14 @@ public class BuiltinAggregateFunctions {
             return accumulator + val;
         }
 
+        public static Double retract(Double accumulator, Double val) {
+            return accumulator - val;
+        }
+
+        public static Double merge(Double accumulator, Double other) {
+            return accumulator + other;
+        }
+
         public static Double result(Double accumulator) {
             return accumulator;
         }
@@ -144,6 +195,10 @@ public class BuiltinAggregateFunctions {
             return (accumulator == null || accumulator.compareTo(val) < 0) ? val : accumulator;
         }
 
+        public T merge(T accumulator, T other) {
+            return other == null ? accumulator : add(accumulator, other);
+        }
+
         public T result(T accumulator) {
             return accumulator;
         }
@@ -158,46 +213,70 @@ public class BuiltinAggregateFunctions {
             return (accumulator == null || accumulator.compareTo(val) > 0) ? val : accumulator;
         }
 
+        public T merge(T accumulator, T other) {
+            return other == null ? accumulator : add(accumulator, other);
+        }
+
         public T result(T accumulator) {
             return accumulator;
         }
     }
 
+    // the accumulator holds the sum and the count of the values
     public static class IntAvg {
-        private int count;
+        public static long[] init() {
+            return new long[2];
+        }
 
-        public Integer init() {
-            return 0;
+        public static long[] add(long[] accumulator, Integer val) {
+            accumulator[0] += val;
+            ++accumulator[1];
+            return accumulator;
         }
 
-        public Integer add(Integer accumulator, Integer val) {
-            ++count;
-            return accumulator + val;
+        public static long[] retract(long[] accumulator, Integer val) {
+            accumulator[0] -= val;
+            --accumulator[1];
+            return accumulator;
+        }
+
+        public static long[] merge(long[] accumulator, long[] other) {
+            accumulator[0] += other[0];
+            accumulator[1] += other[1];
+            return accumulator;
         }
 
-        public Integer result(Integer accumulator) {
-            Integer result = accumulator / count;
-            count = 0;
-            return result;
+        public static Integer result(long[] accumulator) {
+            return (int) (accumulator[0] / accumulator[1]);
         }
     }
 
+    // the accumulator holds the sum and the count of the values
     public static class DoubleAvg {
-        private int count;
+        public static double[] init() {
+            return new double[2];
+        }
 
-        public Double init() {
-            return 0.0;
+        public static double[] add(double[] accumulator, Double val) {
+            accumulator[0] += val;
+            ++accumulator[1];
+            return accumulator;
         }
 
-        public Double add(Double accumulator, Double val) {
-            ++count;
-            return accumulator + val;
+        public static double[] retract(double[] accumulator, Double val) {
+            accumulator[0] -= val;
+            --accumulator[1];
+            return accumulator;
+        }
+
+        public static double[] merge(double[] accumulator, double[] other) {
+            accumulator[0] += other[0];
+            accumulator[1] += other[1];
+            return accumulator;
         }
 
-        public Double result(Double accumulator) {
-            Double result = accumulator / count;
-            count = 0;
-            return result;
+        public static Double result(double[] accumulator) {
+            return accumulator[0] / accumulator[1];
         }
     }
 
@@ -215,6 +294,14 @@ public class BuiltinAggregateFunctions {
             return accumulator + 1;
         }
 
+        public static Long retract(Long accumulator, Values vals) {
+            return accumulator - add(0L, vals);
+        }
+
+        public static Long merge(Long accumulator, Long other) {
+            return accumulator + other;
+        }
+
         public static Long result(Long accumulator) {
             return accumulator;
         }
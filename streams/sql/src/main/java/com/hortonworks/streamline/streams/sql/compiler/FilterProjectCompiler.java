@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql.compiler;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.hortonworks.streamline.streams.sql.compiler.javac.CompilingClassLoader;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.stream.Delta;
+import org.apache.calcite.rex.RexBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Compiles a plan made of an optional filter and an optional projection over a single table scan
+ * into an {@link ExecutableFilterProject}, so that rows can be evaluated without the channels
+ * generated by the {@link PlanCompiler}.
+ */
+public class FilterProjectCompiler {
+  private static final Logger LOG = LoggerFactory.getLogger(FilterProjectCompiler.class);
+
+  private static final Joiner NEW_LINE_JOINER = Joiner.on("\n");
+  private static final String PACKAGE_NAME = "com.hortonworks.streamline.stream.sql.generated";
+  private static final String CLASS_NAME = "FilterProject";
+  private static final String PROLOGUE = NEW_LINE_JOINER.join(
+      "// GENERATED CODE", "package " + PACKAGE_NAME + ";", "",
+      "import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;",
+      "import com.hortonworks.streamline.streams.sql.runtime.StreamlineDataContext;",
+      "import org.apache.calcite.interpreter.Context;",
+      "import org.apache.calcite.interpreter.StreamlineContext;",
+      "import org.apache.calcite.DataContext;",
+      "public final class " + CLASS_NAME + " implements ExecutableFilterProject {",
+      "  public final static DataContext dataContext = new StreamlineDataContext();",
+      "",
+      "  @Override",
+      "  public Object[] execute(Object[] row) {",
+      "    Context context = new StreamlineContext(dataContext);",
+      "    context.values = row;",
+      "    Object[] outputValues;",
+      "");
+  private static final String EPILOGUE = NEW_LINE_JOINER.join(
+      "  }",
+      "}",
+      "");
+
+  private final RexNodeToJavaCodeCompiler rexCompiler;
+
+  public FilterProjectCompiler(JavaTypeFactory typeFactory) {
+    this.rexCompiler = new RexNodeToJavaCodeCompiler(new RexBuilder(typeFactory));
+  }
+
+  /**
+   * Returns the compiled filter and projection of the plan, or null if the plan has other
+   * relational operators (aggregates, joins etc.) and needs to be compiled by the {@link PlanCompiler}.
+   */
+  public ExecutableFilterProject compile(RelNode plan) throws Exception {
+    Project project = null;
+    Filter filter = null;
+    RelNode node = skipDelta(plan);
+    if (node instanceof Project) {
+      project = (Project) node;
+      node = skipDelta(project.getInput());
+    }
+    if (node instanceof Filter) {
+      filter = (Filter) node;
+      node = skipDelta(filter.getInput());
+    }
+    if (!(node instanceof TableScan)) {
+      LOG.debug("Plan {} is not a filter and projection over a table scan", plan);
+      return null;
+    }
+    String javaCode = generateJavaSource(filter, project);
+    LOG.debug("Compiling... source code {}", javaCode);
+    ClassLoader cl = new CompilingClassLoader(getClass().getClassLoader(),
+                                              PACKAGE_NAME + "." + CLASS_NAME,
+                                              javaCode, null);
+    return (ExecutableFilterProject) cl.loadClass(PACKAGE_NAME + "." + CLASS_NAME).newInstance();
+  }
+
+  private static RelNode skipDelta(RelNode node) {
+    while (node instanceof Delta) {
+      node = ((Delta) node).getInput();
+    }
+    return node;
+  }
+
+  private String generateJavaSource(Filter filter, Project project) {
+    StringWriter sw = new StringWriter();
+    try (PrintWriter pw = new PrintWriter(sw)) {
+      pw.print(PROLOGUE);
+      if (filter != null) {
+        pw.print("    outputValues = new Object[1];\n");
+        pw.write(rexCompiler.compileToBlock(ImmutableList.of(filter.getCondition()),
+                                            filter.getInput().getRowType()).toString());
+        String r = "((Boolean) outputValues[0])";
+        if (filter.getCondition().getType().isNullable()) {
+          pw.print(String.format("    if (%s == null || !%s) { return null; }\n", r, r));
+        } else {
+          pw.print(String.format("    if (!%s) { return null; }\n", r));
+        }
+      }
+      if (project != null) {
+        pw.print(String.format("    outputValues = new Object[%d];\n", project.getRowType().getFieldCount()));
+        pw.write(rexCompiler.compileToBlock(project.getChildExps(), project.getInput().getRowType()).toString());
+        pw.print("    return outputValues;\n");
+      } else {
+        pw.print("    return row;\n");
+      }
+      pw.print(EPILOGUE);
+    }
+    return sw.toString();
+  }
+}
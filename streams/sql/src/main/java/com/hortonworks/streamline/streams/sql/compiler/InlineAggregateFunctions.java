@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inline implementations of the {@link BuiltinAggregateFunctions}, with accumulators held in primitive fields of the
+ * generated groups rather than in boxed or array accumulators. They compute the same results as the functions they
+ * replace.
+ * <p>
+ * The statements are format strings of the name of the accumulator ({@code %1$s}) and of the value added or
+ * retracted, or of the group merged ({@code %2$s}).
+ * </p>
+ */
+class InlineAggregateFunctions {
+    static class InlineAggregateFunction {
+        final String[] fields;
+        final String add;
+        final String retract;
+        final String merge;
+        final String reset;
+        final String result;
+        // whether the rows with a null value are not added
+        final boolean skipsNulls;
+
+        private InlineAggregateFunction(String[] fields, String add, String retract, String merge, String reset,
+                                        String result, boolean skipsNulls) {
+            this.fields = fields;
+            this.add = add;
+            this.retract = retract;
+            this.merge = merge;
+            this.reset = reset;
+            this.result = result;
+            this.skipsNulls = skipsNulls;
+        }
+    }
+
+    private static final Map<Class<?>, InlineAggregateFunction> FUNCTIONS = new HashMap<>();
+
+    static {
+        FUNCTIONS.put(BuiltinAggregateFunctions.Count.class, new InlineAggregateFunction(
+                new String[] {"long %1$s"}, "%1$s++;", "%1$s--;", "%1$s += %2$s.%1$s;", "%1$s = 0;", "%1$s", true));
+        FUNCTIONS.put(BuiltinAggregateFunctions.ByteSum.class, sum("byte"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.ShortSum.class, sum("short"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.IntSum.class, sum("int"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.LongSum.class, sum("long"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.FloatSum.class, sum("float"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.DoubleSum.class, sum("double"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.IntAvg.class, avg("long", "(int) (%1$s_sum / %1$s_count)"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.DoubleAvg.class, avg("double", "%1$s_sum / %1$s_count"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.Max.class, extremum("<"));
+        FUNCTIONS.put(BuiltinAggregateFunctions.Min.class, extremum(">"));
+    }
+
+    // the compound assignments narrow the sums of bytes and shorts as the boxed sums do
+    private static InlineAggregateFunction sum(String type) {
+        return new InlineAggregateFunction(new String[] {type + " %1$s"}, "%1$s += %2$s;", "%1$s -= %2$s;",
+                "%1$s += %2$s.%1$s;", "%1$s = 0;", "%1$s", false);
+    }
+
+    private static InlineAggregateFunction avg(String sumType, String result) {
+        return new InlineAggregateFunction(new String[] {sumType + " %1$s_sum", "long %1$s_count"},
+                "%1$s_sum += %2$s; %1$s_count++;", "%1$s_sum -= %2$s; %1$s_count--;",
+                "%1$s_sum += %2$s.%1$s_sum; %1$s_count += %2$s.%1$s_count;", "%1$s_sum = 0; %1$s_count = 0;",
+                result, false);
+    }
+
+    // the extremum can't be retracted, it is recomputed from the remaining rows
+    private static InlineAggregateFunction extremum(String comparison) {
+        return new InlineAggregateFunction(new String[] {"Comparable %1$s"},
+                "if (%1$s == null || %1$s.compareTo(%2$s) " + comparison + " 0) { %1$s = %2$s; }", null,
+                "if (%2$s.%1$s != null && (%1$s == null || %1$s.compareTo(%2$s.%1$s) " + comparison + " 0)) "
+                        + "{ %1$s = %2$s.%1$s; }",
+                "%1$s = null;", "%1$s", false);
+    }
+
+    /**
+     * Returns the inline implementation of an aggregate function class, or null if it has none.
+     */
+    static InlineAggregateFunction get(Class<?> aggregateClass) {
+        return FUNCTIONS.get(aggregateClass);
+    }
+
+    private InlineAggregateFunctions() {
+    }
+}
@@ -18,17 +18,21 @@
 package com.hortonworks.streamline.streams.sql.compiler;
 
 import com.google.common.base.Joiner;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
 import com.hortonworks.streamline.streams.sql.compiler.javac.CompilingClassLoader;
 import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.core.Aggregate;
 import org.apache.calcite.rel.core.TableScan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class PlanCompiler {
@@ -41,11 +45,14 @@ public class PlanCompiler {
       "import java.util.Iterator;", "import java.util.Map;", "import java.util.HashMap;",
       "import java.util.List;", "import java.util.ArrayList;",
       "import java.util.LinkedHashMap;",
+      "import java.util.ArrayDeque;",
       "import com.hortonworks.streamline.streams.sql.runtime.AbstractChannelHandler;",
+      "import com.hortonworks.streamline.streams.sql.runtime.AggregateGroup;",
       "import com.hortonworks.streamline.streams.sql.runtime.Channels;",
       "import com.hortonworks.streamline.streams.sql.runtime.ChannelContext;",
       "import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;",
       "import com.hortonworks.streamline.streams.sql.runtime.DataSource;",
+      "import com.hortonworks.streamline.streams.sql.runtime.GroupTable;",
       "import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;",
       "import com.hortonworks.streamline.streams.sql.runtime.Values;",
       "import com.hortonworks.streamline.streams.sql.runtime.StreamlineDataContext;",
@@ -66,15 +73,24 @@ public class PlanCompiler {
   );
 
   private final JavaTypeFactory typeFactory;
+  private final AggregationMode aggregationMode;
 
   public PlanCompiler(JavaTypeFactory typeFactory) {
+    this(typeFactory, AggregationMode.BATCH);
+  }
+
+  /**
+   * @param aggregationMode how the aggregations handle their state when flushed, see {@link RelNodeCompiler}
+   */
+  public PlanCompiler(JavaTypeFactory typeFactory, AggregationMode aggregationMode) {
     this.typeFactory = typeFactory;
+    this.aggregationMode = aggregationMode;
   }
 
   private String generateJavaSource(RelNode root) throws Exception {
     StringWriter sw = new StringWriter();
     try (PrintWriter pw = new PrintWriter(sw)) {
-      RelNodeCompiler compiler = new RelNodeCompiler(pw, typeFactory);
+      RelNodeCompiler compiler = new RelNodeCompiler(pw, typeFactory, aggregationMode);
       printPrologue(pw);
       compiler.traverse(root);
       printMain(pw, root);
@@ -83,10 +99,18 @@ public class PlanCompiler {
     return sw.toString();
   }
 
+  /*
+   * The stages following the aggregation of a partial plan are skipped, the results are its partial aggregates.
+   * The rows of the tables of a final plan are the partial aggregates, they are sent to its aggregation.
+   */
   private void printMain(PrintWriter pw, RelNode root) {
     Set<TableScan> tables = new HashSet<>();
     pw.print(INITIALIZER_PROLOGUE);
-    chainOperators(pw, root, tables);
+    Aggregate aggregate = null;
+    if (aggregationMode.isPartial() || aggregationMode.isMergingPartials()) {
+      aggregate = findAggregate(root);
+    }
+    chainOperators(pw, aggregationMode.isPartial() ? aggregate : root, tables);
     for (TableScan n : tables) {
       String escaped = CompilerUtil.escapeJavaString(
           Joiner.on('.').join(n.getTable().getQualifiedName()), true);
@@ -95,11 +119,29 @@ public class PlanCompiler {
           "      throw new RuntimeException(\"Cannot find table \" + %1$s);",
           "  data.get(%1$s).open(CTX_%2$d);",
           "");
-      pw.print(String.format(r, escaped, n.getId()));
+      pw.print(String.format(r, escaped, aggregationMode.isMergingPartials() ? aggregate.getId() : n.getId()));
     }
     pw.print("  }\n");
   }
 
+  private static Aggregate findAggregate(RelNode root) {
+    List<Aggregate> aggregates = new ArrayList<>();
+    collectAggregates(root, aggregates);
+    if (aggregates.size() != 1) {
+      throw new UnsupportedOperationException("Partial aggregation needs a query with one aggregation");
+    }
+    return aggregates.get(0);
+  }
+
+  private static void collectAggregates(RelNode node, List<Aggregate> aggregates) {
+    if (node instanceof Aggregate) {
+      aggregates.add((Aggregate) node);
+    }
+    for (RelNode input : node.getInputs()) {
+      collectAggregates(input, aggregates);
+    }
+  }
+
   private void chainOperators(PrintWriter pw, RelNode root, Set<TableScan> tables) {
     doChainOperators(pw, root, tables, "r");
   }
@@ -18,6 +18,9 @@
 package com.hortonworks.streamline.streams.sql.compiler;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSet;
+import com.hortonworks.streamline.streams.sql.AggregationMode;
+import com.hortonworks.streamline.streams.sql.compiler.InlineAggregateFunctions.InlineAggregateFunction;
 import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.plan.RelOptUtil;
 import org.apache.calcite.rel.RelNode;
@@ -46,9 +49,32 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Compile RelNodes into individual functions.
+ * <p>
+ * The aggregations keep their groups in a {@link com.hortonworks.streamline.streams.sql.runtime.GroupTable}, the
+ * groups are instances of a class generated for the aggregation with the group values and the accumulators of the
+ * aggregate calls as fields. The builtin aggregate functions are inlined with primitive accumulators, see
+ * {@link InlineAggregateFunctions}.
+ * </p>
+ * <p>
+ * The aggregations of an incremental plan keep their state when they are flushed, the rows leaving the
+ * aggregation are retracted with {@link com.hortonworks.streamline.streams.sql.runtime.ChannelContext#retract}.
+ * The aggregate functions with a retract method are updated in place, the other ones are recomputed at the next
+ * flush from the remaining rows of the groups they were retracted from.
+ * </p>
+ * <p>
+ * The aggregations of a paned plan keep one partial aggregate per group for each of the last panes, a flush closes
+ * the current pane and emits the merge of the partial aggregates of the groups. The aggregate functions with a merge
+ * method are merged, the rows of the other ones are kept in the panes and added again to the merged aggregates.
+ * </p>
+ * <p>
+ * The aggregations of a partial plan emit the group values followed by the accumulator fields of their groups. A
+ * final plan receives these rows in its aggregation rather than in its table scans and merges them into its groups,
+ * then evaluates the stages following the aggregation as usual. Both need aggregate functions with a merge method.
+ * </p>
  */
 public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
   public static Joiner NEW_LINE_JOINER = Joiner.on('\n');
@@ -56,6 +82,7 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
   private final PrintWriter pw;
   private final JavaTypeFactory typeFactory;
   private final RexNodeToJavaCodeCompiler rexCompiler;
+  private final AggregationMode aggregationMode;
 
   private static final String STAGE_PROLOGUE = NEW_LINE_JOINER.join(
     "  private static final ChannelHandler %1$s = ",
@@ -69,36 +96,78 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
           "  private static final ChannelHandler %1$s = ",
           "    new AbstractChannelHandler() {",
           "    private final Values EMPTY_VALUES = new Values();",
-          "    private final Map<List<Object>, Map<String, Object>> state = new LinkedHashMap<>();",
-          "    private final int[] groupIndices = new int[] {%2$s};",
-          "    private List<Object> getGroupValues(Values _data) {",
-          "      List<Object> res = new ArrayList<>();",
-          "      for (int i: groupIndices) {",
-          "        res.add(_data.get(i));",
-          "      }",
-          "      return res;",
+          "%2$s",
+          "    private GroupTable<Group> state = new GroupTable<>();",
+          "    private int groupHash(Values _data) {",
+          "      int hash = 1;",
+          "%3$s",
+          "      return hash;",
           "    }",
           "",
           "    @Override",
           "    public void flush(ChannelContext ctx) {",
           "      emitAggregateResults(ctx);",
           "      super.flush(ctx);",
-          "      state.clear();",
+          "      %4$s",
           "    }",
           "",
           "    private void emitAggregateResults(ChannelContext ctx) {",
-          "        for (Map.Entry<List<Object>, Map<String, Object>> entry: state.entrySet()) {",
-          "          List<Object> groupValues = entry.getKey();",
-          "          Map<String, Object> accumulators = entry.getValue();",
-          "          %3$s",
+          "        for (Group group : %6$s) {",
+          "          ctx.emit(group.result());",
           "        }",
           "    }",
           "",
+          "%5$s",
           "    @Override",
           "    public void dataReceived(ChannelContext ctx, Values _data) {",
           ""
   );
 
+  private static final String AGGREGATE_STAGE_RETRACTION = NEW_LINE_JOINER.join(
+          "    @Override",
+          "    public void dataRetracted(ChannelContext ctx, Values _data) {",
+          "        Group group = state.get(_data, groupHash(_data));",
+          "        if (group == null) {",
+          "          return;",
+          "        }",
+          "        if (--group._rows == 0) {",
+          "          state.remove(group);",
+          "          return;",
+          "        }",
+          "        group.retract(_data);",
+          "    }",
+          ""
+  );
+
+  private static final String AGGREGATE_STAGE_PANES = NEW_LINE_JOINER.join(
+          "    private final ArrayDeque<GroupTable<Group>> panes = new ArrayDeque<>();",
+          "    private GroupTable<Group> mergePanes() {",
+          "        GroupTable<Group> merged = new GroupTable<>();",
+          "        List<GroupTable<Group>> allPanes = new ArrayList<>(panes);",
+          "        allPanes.add(state);",
+          "        for (GroupTable<Group> pane : allPanes) {",
+          "          for (Group paneGroup : pane) {",
+          "            Group group = merged.get(paneGroup);",
+          "            if (group == null) {",
+          "              group = new Group(paneGroup);",
+          "              merged.put(group);",
+          "            }",
+          "            group.merge(paneGroup);",
+          "          }",
+          "        }",
+          "        return merged;",
+          "    }",
+          ""
+  );
+
+  private static final String AGGREGATE_STAGE_NO_RETRACTION = NEW_LINE_JOINER.join(
+          "    @Override",
+          "    public void dataRetracted(ChannelContext ctx, Values _data) {",
+          "      throw new UnsupportedOperationException(\"Retractions are only supported by incremental aggregations\");",
+          "    }",
+          ""
+  );
+
   private static final String JOIN_STAGE_PROLOGUE = NEW_LINE_JOINER.join(
           "  private static final ChannelHandler %1$s = ",
           "    new AbstractChannelHandler() {",
@@ -145,6 +214,11 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
           "    }",
           "",
           "    @Override",
+          "    public void dataRetracted(ChannelContext ctx, Values _data) {",
+          "      throw new UnsupportedOperationException(\"Retractions are not supported by joins\");",
+          "    }",
+          "",
+          "    @Override",
           "    public void flush(ChannelContext ctx) {",
           "        if (source == left) {",
           "            leftDone = true;",
@@ -193,13 +267,21 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
           "  };",
           "");
 
+  private static final Set<String> PRIMITIVE_TYPES = ImmutableSet.of(
+      "byte", "short", "int", "long", "float", "double");
+
   private int nameCount;
   private Map<AggregateCall, String> aggregateCallVarNames = new HashMap<>();
 
   public RelNodeCompiler(PrintWriter pw, JavaTypeFactory typeFactory) {
+    this(pw, typeFactory, AggregationMode.BATCH);
+  }
+
+  public RelNodeCompiler(PrintWriter pw, JavaTypeFactory typeFactory, AggregationMode aggregationMode) {
     this.pw = pw;
     this.typeFactory = typeFactory;
     this.rexCompiler = new RexNodeToJavaCodeCompiler(new RexBuilder(typeFactory));
+    this.aggregationMode = aggregationMode;
   }
 
   @Override
@@ -265,14 +347,13 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
   public Void visitAggregate(Aggregate aggregate, List<Void> inputStreams) throws Exception {
     beginAggregateStage(aggregate);
     pw.println("        if (_data != null) {");
-    pw.println("        List<Object> curGroupValues = getGroupValues(_data);");
-    pw.println("        if (!state.containsKey(curGroupValues)) {");
-    pw.println("          state.put(curGroupValues, new HashMap<String, Object>());");
+    pw.println("        int hash = groupHash(_data);");
+    pw.println("        Group group = state.get(_data, hash);");
+    pw.println("        if (group == null) {");
+    pw.println("          group = new Group(_data, hash);");
+    pw.println("          state.put(group);");
     pw.println("        }");
-    pw.println("        Map<String, Object> accumulators = state.get(curGroupValues);");
-    for (AggregateCall call : aggregate.getAggCallList()) {
-      aggregate(call);
-    }
+    pw.println(aggregationMode.isMergingPartials() ? "        group.mergePartial(_data);" : "        group.add(_data);");
     pw.println("        }");
     endStage();
     return null;
@@ -290,73 +371,242 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
     return null;
   }
 
-  private String groupValueEmitStr(String var, int n) {
-    int count = 0;
-    StringBuilder sb = new StringBuilder();
-    for (int i = 0; i < n; i++) {
-      if (++count > 1) {
-        sb.append(", ");
+  // the group of the rows holds their group values and the accumulators of the aggregate calls in typed fields
+  private String emitGroupClass(Aggregate aggregate) {
+    StringWriter sw = new StringWriter();
+    PrintWriter pw = new PrintWriter(sw);
+    List<Integer> groupIndices = aggregate.getGroupSet().asList();
+    List<Integer> keyColumns = getKeyColumns(aggregate);
+    List<AggregateCall> nonRetractableCalls = getNonRetractableCalls(aggregate);
+    List<AggregateCall> nonMergeableCalls = getNonMergeableCalls(aggregate);
+    if ((aggregationMode.isPartial() || aggregationMode.isMergingPartials()) && !nonMergeableCalls.isEmpty()) {
+      throw new UnsupportedOperationException("Partial aggregation needs aggregate functions with a merge method, "
+          + "can't merge " + nonMergeableCalls);
+    }
+    pw.println("    final class Group extends AggregateGroup {");
+    for (int i = 0; i < groupIndices.size(); i++) {
+      pw.println(String.format("      final Object k%d;", i));
+    }
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      declareAccumulator(call, pw);
+    }
+    if (aggregationMode.isIncremental()) {
+      pw.println("      int _rows;");
+      if (!nonRetractableCalls.isEmpty()) {
+        pw.println("      boolean _dirty;");
+      }
+    }
+    if (keepsRows(aggregate)) {
+      pw.println("      ArrayDeque<Values> _values;");
+    }
+    pw.println("      Group(Values _data, int hash) {");
+    pw.println("        super(hash);");
+    for (int i = 0; i < groupIndices.size(); i++) {
+      pw.println(String.format("        k%d = _data.get(%d);", i, keyColumns.get(i)));
+    }
+    if (keepsRows(aggregate)) {
+      pw.println("        _values = new ArrayDeque<>();");
+    }
+    pw.println("      }");
+    if (aggregationMode.isPaned() || aggregationMode.isMergingPartials()) {
+      pw.println("      Group(Group other) {");
+      pw.println("        super(other.hash);");
+      for (int i = 0; i < groupIndices.size(); i++) {
+        pw.println(String.format("        k%1$d = other.k%1$d;", i));
+      }
+      pw.println("      }");
+    }
+    pw.println("      @Override");
+    pw.println("      protected boolean matches(Values _data) {");
+    pw.println(String.format("        return %s;", keyComparison(keyColumns, "_data.get(%2$d)")));
+    pw.println("      }");
+    pw.println("      @Override");
+    pw.println("      protected boolean sameKey(AggregateGroup group) {");
+    pw.println("        Group other = (Group) group;");
+    pw.println(String.format("        return %s;", keyComparison(groupIndices, "other.k%1$d")));
+    pw.println("      }");
+
+    if (aggregationMode.isMergingPartials()) {
+      emitMergeStmts(aggregate, pw);
+      emitMergePartialStmts(aggregate, pw);
+    } else {
+      emitAddStmts(aggregate, pw);
+    }
+    if (aggregationMode.isIncremental()) {
+      emitRetractStmts(aggregate, pw);
+    } else if (aggregationMode.isPaned() && !aggregationMode.isMergingPartials()) {
+      emitMergeStmts(aggregate, pw);
+    }
+
+    pw.println("      Values result() {");
+    if (aggregationMode.isIncremental() && !nonRetractableCalls.isEmpty()) {
+      pw.println("        if (_dirty) {");
+      pw.println("          recompute();");
+      pw.println("        }");
+    }
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < groupIndices.size(); i++) {
+      values.add("k" + i);
+    }
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      if (aggregationMode.isPartial()) {
+        for (String[] field : getAccumulatorFields(call)) {
+          values.add(field[1]);
+        }
+      } else {
+        values.add(aggregateResult(call));
       }
-      sb.append(var).append(".").append("get(").append(i).append(")");
     }
-    return sb.toString();
+    pw.println(String.format("        return new Values(%s);", Joiner.on(", ").join(values)));
+    pw.println("      }");
+    pw.println("    }");
+    pw.flush();
+    return sw.toString();
   }
 
-  private String emitAggregateStmts(Aggregate aggregate) {
-    List<String> res = new ArrayList<>();
-    StringWriter sw = new StringWriter();
+  private void emitAddStmts(Aggregate aggregate, PrintWriter pw) {
+    pw.println("      void add(Values _data) {");
+    if (aggregationMode.isIncremental()) {
+      pw.println("        _rows++;");
+    }
+    if (keepsRows(aggregate)) {
+      pw.println("        _values.add(_data);");
+    }
+    // the aggregates that can't be merged are computed from the rows of the panes
+    List<AggregateCall> calls = new ArrayList<>(aggregate.getAggCallList());
+    if (aggregationMode.isPaned()) {
+      calls.removeAll(getNonMergeableCalls(aggregate));
+    }
+    for (AggregateCall call : calls) {
+      aggregate(call, pw);
+    }
+    pw.println("      }");
+  }
+
+  // the group values of the rows of a final plan are followed by the accumulator fields of the partial aggregates
+  private void emitMergePartialStmts(Aggregate aggregate, PrintWriter pw) {
+    pw.println("      void mergePartial(Values _data) {");
+    pw.println("        Group partial = new Group(this);");
+    int column = aggregate.getGroupCount();
     for (AggregateCall call : aggregate.getAggCallList()) {
-      res.add(aggregateResult(call, new PrintWriter(sw)));
+      for (String[] field : getAccumulatorFields(call)) {
+        pw.println(String.format("        partial.%s = %s;", field[1], unboxValue(field[0], column++)));
+      }
     }
-    return NEW_LINE_JOINER.join(sw.toString(),
-                                String.format("          ctx.emit(new Values(%s, %s));",
-                                              groupValueEmitStr("groupValues", aggregate.getGroupSet().cardinality()),
-                                              Joiner.on(", ").join(res)));
+    pw.println("        merge(partial);");
+    pw.println("      }");
   }
 
-  private String aggregateResult(AggregateCall call, PrintWriter pw) {
-    SqlAggFunction aggFunction = call.getAggregation();
-    String aggregationName = call.getAggregation().getName();
-    Type ty = typeFactory.getJavaClass(call.getType());
-    String result;
-    if (aggFunction instanceof SqlUserDefinedAggFunction) {
-      AggregateFunction aggregateFunction = ((SqlUserDefinedAggFunction) aggFunction).function;
-      result = doAggregateResult((AggregateFunctionImpl) aggregateFunction, reserveAggVarName(call), ty, pw);
-    } else {
-      List<BuiltinAggregateFunctions.TypeClass> typeClasses = BuiltinAggregateFunctions.TABLE.get(aggregationName);
-      if (typeClasses == null) {
-        throw new UnsupportedOperationException(aggregationName + " Not implemented");
+  private static String unboxValue(String type, int column) {
+    String value = String.format("_data.get(%d)", column);
+    if (PRIMITIVE_TYPES.contains(type)) {
+      return String.format("((Number) %s).%sValue()", value, type);
+    }
+    return String.format("(%s) %s", type, value);
+  }
+
+  // the columns of the group values, the partial aggregates of a final plan start with them
+  private List<Integer> getKeyColumns(Aggregate aggregate) {
+    if (!aggregationMode.isMergingPartials()) {
+      return aggregate.getGroupSet().asList();
+    }
+    List<Integer> res = new ArrayList<>();
+    for (int i = 0; i < aggregate.getGroupCount(); i++) {
+      res.add(i);
+    }
+    return res;
+  }
+
+  // the type and the name of the fields holding the accumulator of an aggregate call in the groups
+  private List<String[]> getAccumulatorFields(AggregateCall call) {
+    AggregateFunctionImpl aggFn = getAggregateFunction(call);
+    String varName = reserveAggVarName(call);
+    InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+    List<String[]> res = new ArrayList<>();
+    if (inlineFn != null) {
+      for (String field : inlineFn.fields) {
+        res.add(String.format(field, varName).split(" ", 2));
       }
-      result = doAggregateResult(AggregateFunctionImpl.create(findMatchingClass(aggregationName, typeClasses, ty)),
-                                 reserveAggVarName(call), ty, pw);
+    } else {
+      res.add(new String[] {aggFn.accumulatorType.getCanonicalName(), varName});
     }
-    return result;
+    return res;
   }
 
-  private String doAggregateResult(AggregateFunctionImpl aggFn, String varName, Type ty, PrintWriter pw) {
-    String resultName = varName + "_result";
-    Class<?> accumulatorType = aggFn.accumulatorType;
-    Class<?> resultType = aggFn.resultType;
+  // compares the group values with the values formatted from their index (%1$d) and their column index (%2$d)
+  private static String keyComparison(List<Integer> groupIndices, String valueFormat) {
+    if (groupIndices.isEmpty()) {
+      return "true";
+    }
+    List<String> res = new ArrayList<>();
+    for (int i = 0; i < groupIndices.size(); i++) {
+      res.add(String.format("eq(k%1$d, " + valueFormat + ")", i, groupIndices.get(i)));
+    }
+    return Joiner.on(" && ").join(res);
+  }
+
+  // the hash of the group values of a row, the same as the one of the group values of its group
+  private String emitGroupHashStmts(Aggregate aggregate) {
+    List<String> res = new ArrayList<>();
+    for (int i : getKeyColumns(aggregate)) {
+      res.add(String.format("      hash = AggregateGroup.hash(hash, _data.get(%d));", i));
+    }
+    return NEW_LINE_JOINER.join(res);
+  }
+
+  private void declareAccumulator(AggregateCall call, PrintWriter pw) {
+    AggregateFunctionImpl aggFn = getAggregateFunction(call);
+    String varName = reserveAggVarName(call);
+    InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+    if (inlineFn != null) {
+      for (String field : inlineFn.fields) {
+        pw.println(String.format("      " + field + ";", varName));
+      }
+      return;
+    }
     List<String> args = new ArrayList<>();
     if (!aggFn.isStatic) {
       String aggObjName = String.format("%s_obj", varName);
       String aggObjClassName = aggFn.initMethod.getDeclaringClass().getCanonicalName();
-      pw.println("          @SuppressWarnings(\"unchecked\")");
-      pw.println(String.format("          final %1$s %2$s = (%1$s) accumulators.get(\"%2$s\");", aggObjClassName,
-              aggObjName));
+      pw.println(String.format("      %1$s %2$s = new %1$s();", aggObjClassName, aggObjName));
       args.add(aggObjName);
     }
-    args.add(String.format("(%s)accumulators.get(\"%s\")", accumulatorType.getCanonicalName(), varName));
-    pw.println(String.format("          final %s %s = %s;", resultType.getCanonicalName(),
-                             resultName, printMethodCall(aggFn.resultMethod, args)));
+    // the accumulators that can't be null are initialized with the group, the other ones when they are first added to
+    Class<?> accumulatorType = aggFn.accumulatorType;
+    if (accumulatorType.isPrimitive()) {
+      pw.println(String.format("      %s %s = %s;", accumulatorType.getCanonicalName(), varName,
+                               printMethodCall(aggFn.initMethod, args)));
+    } else {
+      pw.println(String.format("      %s %s;", accumulatorType.getCanonicalName(), varName));
+    }
+  }
 
-    return resultName;
+  // the aggregate function object and the accumulator arguments of the methods of an aggregate function
+  private List<String> accumulatorArgs(AggregateFunctionImpl aggFn, String varName, boolean initialized) {
+    List<String> args = new ArrayList<>();
+    if (!aggFn.isStatic) {
+      args.add(String.format("%s_obj", varName));
+    }
+    if (initialized && !aggFn.accumulatorType.isPrimitive()) {
+      args.add(String.format("%1$s == null ? %2$s : %1$s", varName, printMethodCall(aggFn.initMethod, args)));
+    } else {
+      args.add(varName);
+    }
+    return args;
   }
 
-  private void aggregate(AggregateCall call) {
-    SqlAggFunction aggFunction = call.getAggregation();
+  private String aggregateResult(AggregateCall call) {
+    AggregateFunctionImpl aggFn = getAggregateFunction(call);
+    String varName = reserveAggVarName(call);
+    InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+    if (inlineFn != null) {
+      return String.format(inlineFn.result, varName);
+    }
+    return printMethodCall(aggFn.resultMethod, accumulatorArgs(aggFn, varName, false));
+  }
+
+  private void aggregate(AggregateCall call, PrintWriter pw) {
     String aggregationName = call.getAggregation().getName();
-    Type ty = typeFactory.getJavaClass(call.getType());
     if (call.getArgList().size() != 1) {
       if (aggregationName.equals("COUNT")) {
         if (call.getArgList().size() != 0) {
@@ -364,46 +614,215 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
         }
       }
     }
+    AggregateFunctionImpl aggFn = getAggregateFunction(call);
+    String varName = reserveAggVarName(call);
+    InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+    if (inlineFn != null) {
+      printInlineStmt(aggFn, inlineFn, inlineFn.add, varName, call.getArgList(), pw);
+    } else {
+      List<String> args = accumulatorArgs(aggFn, varName, true);
+      addValueArgs(aggFn, call.getArgList(), args);
+      pw.println(String.format("        %s = %s;", varName, printMethodCall(aggFn.addMethod, args)));
+    }
+  }
+
+  private void printInlineStmt(AggregateFunctionImpl aggFn, InlineAggregateFunction inlineFn, String stmt,
+                               String varName, List<Integer> argList, PrintWriter pw) {
+    if (inlineFn.skipsNulls) {
+      List<String> conditions = new ArrayList<>();
+      for (int i : argList) {
+        conditions.add(String.format("_data.get(%d) != null", i));
+      }
+      if (conditions.isEmpty()) {
+        pw.println(String.format("        " + stmt, varName));
+      } else {
+        pw.println(String.format("        if (%s) {", Joiner.on(" && ").join(conditions)));
+        pw.println(String.format("          " + stmt, varName));
+        pw.println("        }");
+      }
+    } else {
+      List<String> values = new ArrayList<>();
+      addValueArgs(aggFn, argList, values);
+      pw.println(String.format("        " + stmt, varName, values.get(0)));
+    }
+  }
+
+  private AggregateFunctionImpl getAggregateFunction(AggregateCall call) {
+    SqlAggFunction aggFunction = call.getAggregation();
+    String aggregationName = call.getAggregation().getName();
+    Type ty = typeFactory.getJavaClass(call.getType());
     if (aggFunction instanceof SqlUserDefinedAggFunction) {
       AggregateFunction aggregateFunction = ((SqlUserDefinedAggFunction) aggFunction).function;
-      doAggregate((AggregateFunctionImpl) aggregateFunction, reserveAggVarName(call), ty, call.getArgList());
+      return (AggregateFunctionImpl) aggregateFunction;
     } else {
       List<BuiltinAggregateFunctions.TypeClass> typeClasses = BuiltinAggregateFunctions.TABLE.get(aggregationName);
       if (typeClasses == null) {
         throw new UnsupportedOperationException(aggregationName + " Not implemented");
       }
-      doAggregate(AggregateFunctionImpl.create(findMatchingClass(aggregationName, typeClasses, ty)),
-                  reserveAggVarName(call), ty, call.getArgList());
+      return AggregateFunctionImpl.create(findMatchingClass(aggregationName, typeClasses, ty));
     }
   }
 
-  private Class<?> findMatchingClass(String aggregationName, List<BuiltinAggregateFunctions.TypeClass> typeClasses, Type ty) {
-    for (BuiltinAggregateFunctions.TypeClass typeClass : typeClasses) {
-      if (typeClass.ty.equals(BuiltinAggregateFunctions.TypeClass.GenericType.class) || typeClass.ty.equals(ty)) {
-        return typeClass.clazz;
+  // the retract method has the same parameters as the add method, returns null if the function has none
+  private static Method getRetractMethod(AggregateFunctionImpl aggFn) {
+    try {
+      Method method = aggFn.declaringClass.getMethod("retract", aggFn.addMethod.getParameterTypes());
+      return Modifier.isStatic(method.getModifiers()) == aggFn.isStatic ? method : null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private List<AggregateCall> getNonRetractableCalls(Aggregate aggregate) {
+    List<AggregateCall> res = new ArrayList<>();
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      if (getRetractMethod(getAggregateFunction(call)) == null) {
+        res.add(call);
       }
     }
-    throw new UnsupportedOperationException(aggregationName + " Not implemeted for type '" + ty + "'");
+    return res;
+  }
+
+  // the merge method merges the second accumulator into the first one, returns null if the function has none
+  private static Method getMergeMethod(AggregateFunctionImpl aggFn) {
+    Class<?> accumulatorType = aggFn.addMethod.getParameterTypes()[0];
+    try {
+      Method method = aggFn.declaringClass.getMethod("merge", accumulatorType, accumulatorType);
+      return Modifier.isStatic(method.getModifiers()) == aggFn.isStatic ? method : null;
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private List<AggregateCall> getNonMergeableCalls(Aggregate aggregate) {
+    List<AggregateCall> res = new ArrayList<>();
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      if (getMergeMethod(getAggregateFunction(call)) == null) {
+        res.add(call);
+      }
+    }
+    return res;
+  }
+
+  // whether the rows of the groups are kept to recompute the aggregates that can't be retracted or merged
+  private boolean keepsRows(Aggregate aggregate) {
+    return (aggregationMode.isIncremental() && !getNonRetractableCalls(aggregate).isEmpty())
+        || (aggregationMode.isPaned() && !getNonMergeableCalls(aggregate).isEmpty());
+  }
+
+  private String emitFlushStmts() {
+    if (aggregationMode.isIncremental()) {
+      return "";
+    } else if (aggregationMode.isPaned()) {
+      return NEW_LINE_JOINER.join(
+          "panes.addLast(state);",
+          String.format("      if (panes.size() >= %d) {", aggregationMode.getNumPanes()),
+          "        panes.removeFirst();",
+          "      }",
+          "      state = new GroupTable<>();");
+    }
+    return "state.clear();";
+  }
+
+  // the partial aggregates of the panes are merged in the groups of a new table, so that the panes are left unchanged
+  private void emitMergeStmts(Aggregate aggregate, PrintWriter pw) {
+    List<AggregateCall> nonMergeableCalls = getNonMergeableCalls(aggregate);
+    pw.println("      void merge(Group pane) {");
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      AggregateFunctionImpl aggFn = getAggregateFunction(call);
+      Method mergeMethod = getMergeMethod(aggFn);
+      if (mergeMethod == null) {
+        continue;
+      }
+      String varName = reserveAggVarName(call);
+      InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+      if (inlineFn != null) {
+        pw.println(String.format("        " + inlineFn.merge, varName, "pane"));
+      } else {
+        List<String> args = accumulatorArgs(aggFn, varName, true);
+        args.add("pane." + varName);
+        pw.println(String.format("        %s = %s;", varName, printMethodCall(mergeMethod, args)));
+      }
+    }
+    if (!nonMergeableCalls.isEmpty()) {
+      pw.println("        for (Values _data : pane._values) {");
+      for (AggregateCall call : nonMergeableCalls) {
+        aggregate(call, pw);
+      }
+      pw.println("        }");
+    }
+    pw.println("      }");
+  }
+
+  private void emitRetractStmts(Aggregate aggregate, PrintWriter pw) {
+    List<AggregateCall> nonRetractableCalls = getNonRetractableCalls(aggregate);
+    pw.println("      void retract(Values _data) {");
+    if (!nonRetractableCalls.isEmpty()) {
+      pw.println("        _values.removeFirstOccurrence(_data);");
+      pw.println("        _dirty = true;");
+    }
+    for (AggregateCall call : aggregate.getAggCallList()) {
+      AggregateFunctionImpl aggFn = getAggregateFunction(call);
+      Method retractMethod = getRetractMethod(aggFn);
+      if (retractMethod == null) {
+        continue;
+      }
+      String varName = reserveAggVarName(call);
+      InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+      if (inlineFn != null) {
+        printInlineStmt(aggFn, inlineFn, inlineFn.retract, varName, call.getArgList(), pw);
+      } else {
+        List<String> args = accumulatorArgs(aggFn, varName, false);
+        addValueArgs(aggFn, call.getArgList(), args);
+        pw.println(String.format("        %s = %s;", varName, printMethodCall(retractMethod, args)));
+      }
+    }
+    pw.println("      }");
+    if (!nonRetractableCalls.isEmpty()) {
+      // the aggregates are initialized again before the remaining rows are added
+      pw.println("      void recompute() {");
+      pw.println("        _dirty = false;");
+      for (AggregateCall call : nonRetractableCalls) {
+        resetAccumulator(call, pw);
+      }
+      pw.println("        for (Values _data : _values) {");
+      for (AggregateCall call : nonRetractableCalls) {
+        aggregate(call, pw);
+      }
+      pw.println("        }");
+      pw.println("      }");
+    }
   }
 
-  private void doAggregate(AggregateFunctionImpl aggFn, String varName, Type ty, List<Integer> argList) {
+  private void resetAccumulator(AggregateCall call, PrintWriter pw) {
+    AggregateFunctionImpl aggFn = getAggregateFunction(call);
+    String varName = reserveAggVarName(call);
+    InlineAggregateFunction inlineFn = InlineAggregateFunctions.get(aggFn.declaringClass);
+    if (inlineFn != null) {
+      pw.println(String.format("        " + inlineFn.reset, varName));
+      return;
+    }
     List<String> args = new ArrayList<>();
-    Class<?> accumulatorType = aggFn.accumulatorType;
     if (!aggFn.isStatic) {
       String aggObjName = String.format("%s_obj", varName);
-      String aggObjClassName = aggFn.initMethod.getDeclaringClass().getCanonicalName();
-      pw.println(String.format("          if (!accumulators.containsKey(\"%s\")) { ", aggObjName));
-      pw.println(String.format("            accumulators.put(\"%s\", new %s());", aggObjName, aggObjClassName));
-      pw.println("          }");
-      pw.println("          @SuppressWarnings(\"unchecked\")");
-      pw.println(String.format("          final %1$s %2$s = (%1$s) accumulators.get(\"%2$s\");", aggObjClassName,
-              aggObjName));
+      pw.println(String.format("        %s = new %s();", aggObjName,
+                               aggFn.initMethod.getDeclaringClass().getCanonicalName()));
       args.add(aggObjName);
     }
-    args.add(String.format("%1$s == null ? %2$s : (%3$s) %1$s",
-                           "accumulators.get(\"" + varName + "\")",
-                           printMethodCall(aggFn.initMethod, args),
-                           accumulatorType.getCanonicalName()));
+    pw.println(String.format("        %s = %s;", varName,
+                             aggFn.accumulatorType.isPrimitive() ? printMethodCall(aggFn.initMethod, args) : "null"));
+  }
+
+  private Class<?> findMatchingClass(String aggregationName, List<BuiltinAggregateFunctions.TypeClass> typeClasses, Type ty) {
+    for (BuiltinAggregateFunctions.TypeClass typeClass : typeClasses) {
+      if (typeClass.ty.equals(BuiltinAggregateFunctions.TypeClass.GenericType.class) || typeClass.ty.equals(ty)) {
+        return typeClass.clazz;
+      }
+    }
+    throw new UnsupportedOperationException(aggregationName + " Not implemeted for type '" + ty + "'");
+  }
+
+  private void addValueArgs(AggregateFunctionImpl aggFn, List<Integer> argList, List<String> args) {
     if (argList.isEmpty()) {
       args.add("EMPTY_VALUES");
     } else {
@@ -411,9 +830,6 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
         args.add(String.format("(%s) %s", aggFn.valueTypes.get(i).getCanonicalName(), "_data.get(" + argList.get(i) + ")"));
       }
     }
-    pw.print(String.format("          accumulators.put(\"%s\", %s);\n",
-                           varName,
-                           printMethodCall(aggFn.addMethod, args)));
   }
 
   private String reserveAggVarName(AggregateCall call) {
@@ -430,7 +846,17 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
   }
 
   private void beginAggregateStage(Aggregate n) {
-    pw.print(String.format(AGGREGATE_STAGE_PROLOGUE, getStageName(n), getGroupByIndices(n), emitAggregateStmts(n)));
+    pw.print(String.format(AGGREGATE_STAGE_PROLOGUE, getStageName(n), emitGroupClass(n), emitGroupHashStmts(n),
+                           emitFlushStmts(), emitRetractionStmts() + emitPaneStmts(),
+                           aggregationMode.isPaned() ? "mergePanes()" : "state"));
+  }
+
+  private String emitRetractionStmts() {
+    return aggregationMode.isIncremental() ? AGGREGATE_STAGE_RETRACTION : AGGREGATE_STAGE_NO_RETRACTION;
+  }
+
+  private String emitPaneStmts() {
+    return aggregationMode.isPaned() ? AGGREGATE_STAGE_PANES : "";
   }
 
   private void beginJoinStage(Join join) {
@@ -454,18 +880,6 @@ public class RelNodeCompiler extends PostOrderRelNodeVisitor<Void> {
     return n.getClass().getSimpleName().toUpperCase() + "_" + n.getId();
   }
 
-  private String getGroupByIndices(Aggregate n) {
-    StringBuilder res = new StringBuilder();
-    int count = 0;
-    for (int i : n.getGroupSet()) {
-      if (++count > 1) {
-        res.append(", ");
-      }
-      res.append(i);
-    }
-    return res.toString();
-  }
-
   public static String printMethodCall(Method method, List<String> args) {
     return printMethodCall(method.getDeclaringClass(), method.getName(),
             Modifier.isStatic(method.getModifiers()), args);
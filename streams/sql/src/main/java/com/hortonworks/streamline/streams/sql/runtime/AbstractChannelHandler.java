@@ -21,6 +21,15 @@ public abstract class AbstractChannelHandler implements ChannelHandler {
   @Override
   public abstract void dataReceived(ChannelContext ctx, Values data);
 
+  /**
+   * Processes the retracted row as any other row, the rows emitted for it are retracted from the next stage.
+   * This is correct for the stateless stages, the stateful stages have to override it.
+   */
+  @Override
+  public void dataRetracted(ChannelContext ctx, Values data) {
+    dataReceived(Channels.retracting(ctx), data);
+  }
+
   @Override
   public void channelInactive(ChannelContext ctx) {
 
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql.runtime;
+
+/**
+ * A group of an aggregation, the generated aggregations extend it with the values of the group by columns
+ * and the accumulators of the aggregate functions. The hash of the group values is computed once, with
+ * {@link #hash(int, Object)}, when the group is created.
+ */
+public abstract class AggregateGroup {
+    protected final int hash;
+    // the index of the group in the insertion order of its table
+    int position;
+
+    protected AggregateGroup(int hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Returns whether the group values of the row are the values of this group.
+     */
+    protected abstract boolean matches(Values data);
+
+    /**
+     * Returns whether the other group, of the same aggregation, has the values of this group.
+     */
+    protected abstract boolean sameKey(AggregateGroup other);
+
+    /**
+     * Adds a group value to the hash of the previous values, the hash of the values is the hash of their list.
+     */
+    public static int hash(int hash, Object value) {
+        return 31 * hash + (value == null ? 0 : value.hashCode());
+    }
+
+    protected static boolean eq(Object value, Object other) {
+        return value == null ? other == null : value.equals(other);
+    }
+}
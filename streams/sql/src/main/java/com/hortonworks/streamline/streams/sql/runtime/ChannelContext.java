@@ -22,6 +22,11 @@ public interface ChannelContext {
    * Emit data to the next stage of the data pipeline.
    */
   void emit(Values data);
+
+  /**
+   * Retract data emitted before to the next stage of the data pipeline.
+   */
+  void retract(Values data);
   void fireChannelInactive();
   void flush();
   void setSource(Object source);
@@ -24,6 +24,16 @@ package com.hortonworks.streamline.streams.sql.runtime;
 public interface ChannelHandler {
   void dataReceived(ChannelContext ctx, Values data);
 
+  /**
+   * The producer of the data has retracted a row it emitted before, e.g. because
+   * it left a sliding window. Only incremental aggregations support retractions.
+   * @param ctx
+   * @param data the row that was received before
+   */
+  default void dataRetracted(ChannelContext ctx, Values data) {
+    throw new UnsupportedOperationException("Retractions are not supported by " + this);
+  }
+
   /**
    * The producer of the data has indicated that the channel is no longer
    * active.
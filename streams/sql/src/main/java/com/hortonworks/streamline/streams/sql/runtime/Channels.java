@@ -22,6 +22,9 @@ public class Channels {
     @Override
     public void emit(Values data) {}
 
+    @Override
+    public void retract(Values data) {}
+
     @Override
     public void fireChannelInactive() {}
 
@@ -51,6 +54,11 @@ public class Channels {
       handler.dataReceived(next, data);
     }
 
+    @Override
+    public void retract(Values data) {
+      handler.dataRetracted(next, data);
+    }
+
     @Override
     public void fireChannelInactive() {
       handler.channelInactive(next);
@@ -69,7 +77,7 @@ public class Channels {
   }
 
   private static class ForwardingChannelContext implements ChannelContext {
-    private final ChannelContext next;
+    protected final ChannelContext next;
 
     public ForwardingChannelContext(ChannelContext next) {
       this.next = next;
@@ -80,6 +88,11 @@ public class Channels {
       next.emit(data);
     }
 
+    @Override
+    public void retract(Values data) {
+      next.retract(data);
+    }
+
     @Override
     public void fireChannelInactive() {
       next.fireChannelInactive();
@@ -96,11 +109,32 @@ public class Channels {
     }
   }
 
+  // emitting to this context retracts the data from the next one
+  private static class RetractingChannelContext extends ForwardingChannelContext {
+    public RetractingChannelContext(ChannelContext next) {
+      super(next);
+    }
+
+    @Override
+    public void emit(Values data) {
+      next.retract(data);
+    }
+
+    @Override
+    public void retract(Values data) {
+      throw new UnsupportedOperationException("Cannot retract a retraction");
+    }
+  }
+
   public static ChannelContext chain(
       ChannelContext next, ChannelHandler handler) {
     return new ChannelContextAdapter(next, handler);
   }
 
+  public static ChannelContext retracting(ChannelContext next) {
+    return new RetractingChannelContext(next);
+  }
+
   public static ChannelContext voidContext() {
     return VOID_CTX;
   }
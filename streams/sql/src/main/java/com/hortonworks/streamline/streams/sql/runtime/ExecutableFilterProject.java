@@ -0,0 +1,31 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hortonworks.streamline.streams.sql.runtime;
+
+/**
+ * Compiled filter and projection of a query without aggregations or joins. Each row is evaluated
+ * with a direct call, without going through the {@link ChannelContext} of a query processor.
+ */
+public interface ExecutableFilterProject {
+    /**
+     * Returns the projected values of the given row, or null if the row does not satisfy the filter.
+     * The row itself is returned when the query does not project its fields.
+     */
+    Object[] execute(Object[] row);
+}
@@ -0,0 +1,194 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql.runtime;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The groups of an aggregation, looked up by the precomputed hash of their group values.
+ * <p>
+ * The groups are kept in an open addressing table with linear probing, so that looking up the group of a row
+ * neither allocates a key nor follows the entries of a bucket. The groups are iterated in insertion order.
+ * </p>
+ */
+public final class GroupTable<G extends AggregateGroup> implements Iterable<G> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the groups in insertion order, the removed ones are null until the groups are compacted
+    private AggregateGroup[] groups;
+    // twice as large as groups, so that the table is at most half full
+    private AggregateGroup[] slots;
+    private int count;
+    private int size;
+
+    public GroupTable() {
+        groups = new AggregateGroup[INITIAL_CAPACITY];
+        slots = new AggregateGroup[2 * INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the group of the row, or null if it has no group yet.
+     *
+     * @param data the row
+     * @param hash the hash of the group values of the row
+     */
+    @SuppressWarnings("unchecked")
+    public G get(Values data, int hash) {
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; slots[i] != null; i = (i + 1) & mask) {
+            AggregateGroup group = slots[i];
+            if (group.hash == hash && group.matches(data)) {
+                return (G) group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the group with the group values of the group of another table, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public G get(G other) {
+        int mask = slots.length - 1;
+        for (int i = spread(other.hash) & mask; slots[i] != null; i = (i + 1) & mask) {
+            AggregateGroup group = slots[i];
+            if (group.hash == other.hash && group.sameKey(other)) {
+                return (G) group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a group, that must not be in the table yet.
+     */
+    public void put(G group) {
+        if (count == groups.length) {
+            resize();
+        }
+        group.position = count;
+        groups[count++] = group;
+        size++;
+        insert(group);
+    }
+
+    /**
+     * Removes a group of the table.
+     */
+    public void remove(G group) {
+        groups[group.position] = null;
+        size--;
+        int mask = slots.length - 1;
+        int i = spread(group.hash) & mask;
+        while (slots[i] != group) {
+            i = (i + 1) & mask;
+        }
+        // moves back the following groups of the run that would no longer be found
+        for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+            int home = spread(slots[j].hash) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        slots[i] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(groups, 0, count, null);
+        Arrays.fill(slots, null);
+        count = 0;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<G> iterator() {
+        return new Iterator<G>() {
+            private int next = skipRemoved(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public G next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                G group = (G) groups[next];
+                next = skipRemoved(next + 1);
+                return group;
+            }
+        };
+    }
+
+    private int skipRemoved(int i) {
+        while (i < count && groups[i] == null) {
+            i++;
+        }
+        return i;
+    }
+
+    // compacts the groups, and doubles the capacity if more than half of them are still there
+    private void resize() {
+        int capacity = size > groups.length / 2 ? 2 * groups.length : groups.length;
+        AggregateGroup[] compacted = new AggregateGroup[capacity];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (groups[i] != null) {
+                groups[i].position = n;
+                compacted[n++] = groups[i];
+            }
+        }
+        groups = compacted;
+        count = n;
+        if (capacity != slots.length / 2) {
+            slots = new AggregateGroup[2 * capacity];
+            for (int i = 0; i < count; i++) {
+                insert(groups[i]);
+            }
+        }
+    }
+
+    private void insert(AggregateGroup group) {
+        int mask = slots.length - 1;
+        int i = spread(group.hash) & mask;
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = group;
+    }
+
+    // the hashes of lists of similar values are close to each other, they are mixed so that they don't end up in
+    // the same run of slots
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
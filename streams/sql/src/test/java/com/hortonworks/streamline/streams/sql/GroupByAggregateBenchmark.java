@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql;
+
+import com.hortonworks.streamline.streams.sql.compiler.PlanCompiler;
+import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;
+import com.hortonworks.streamline.streams.sql.runtime.ChannelContext;
+import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;
+import com.hortonworks.streamline.streams.sql.runtime.DataSource;
+import com.hortonworks.streamline.streams.sql.runtime.Values;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rows per millisecond aggregated by a group by query with several aggregates, for a few or many
+ * groups, with the window aggregated at once (batch) or in panes.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.sql.GroupByAggregateBenchmark},
+ * add {@code -prof gc} to the arguments of the runner to compare the allocation rates.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupByAggregateBenchmark {
+  private static final int ROWS_PER_WINDOW = 100000;
+  private static final int NUM_PANES = 4;
+
+  @Param({"10", "1000", "100000"})
+  private int numGroups;
+
+  @Param({"batch", "panes"})
+  private String aggregation;
+
+  private ChannelContext ctx;
+  private List<Values> results;
+  private Values[] window;
+
+  @Setup
+  public void setup() throws Exception {
+    String sql = "SELECT NAME, ADDR, COUNT(*), SUM(ID), MIN(ID), MAX(ID), AVG(ID) FROM FOO GROUP BY NAME, ADDR";
+    JavaTypeFactory typeFactory = new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    AggregationMode mode = "panes".equals(aggregation) ? AggregationMode.panes(NUM_PANES) : AggregationMode.BATCH;
+    AbstractValuesProcessor proc = new PlanCompiler(typeFactory, mode)
+        .compile(TestCompilerUtils.sqlOverDummyTable(sql).tree());
+    final ChannelContext[] context = new ChannelContext[1];
+    Map<String, DataSource> data = new HashMap<>();
+    data.put("FOO", new DataSource() {
+      @Override
+      public void open(ChannelContext channelContext) {
+        context[0] = channelContext;
+      }
+    });
+    results = new ArrayList<>();
+    ChannelHandler handler = new TestUtils.CollectDataChannelHandler(results);
+    proc.initialize(data, handler);
+    ctx = context[0];
+    window = new Values[ROWS_PER_WINDOW];
+    for (int i = 0; i < window.length; i++) {
+      int group = i % numGroups;
+      window[i] = new Values(i, "name" + group % 100, "addr" + group / 100);
+    }
+  }
+
+  /**
+   * All the rows of a window aggregated and flushed, the paned aggregation flushes one pane of the window at a time.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS_PER_WINDOW)
+  public Object window() {
+    results.clear();
+    int rowsPerFlush = "panes".equals(aggregation) ? ROWS_PER_WINDOW / NUM_PANES : ROWS_PER_WINDOW;
+    for (int i = 0; i < window.length; i++) {
+      ctx.emit(window[i]);
+      if ((i + 1) % rowsPerFlush == 0) {
+        ctx.flush();
+      }
+    }
+    return results;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(GroupByAggregateBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql;
+
+import com.hortonworks.streamline.streams.sql.compiler.PlanCompiler;
+import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;
+import com.hortonworks.streamline.streams.sql.runtime.ChannelContext;
+import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;
+import com.hortonworks.streamline.streams.sql.runtime.DataSource;
+import com.hortonworks.streamline.streams.sql.runtime.Values;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the slides of a sliding window aggregated by a group by query, with the whole window
+ * aggregated again on each slide (batch) or with one partial aggregate per slide (panes).
+ * <p>
+ * Run with {@code java -cp <test classpath> com.hortonworks.streamline.streams.sql.PanedAggregateBenchmark}
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PanedAggregateBenchmark {
+  private static final int ROWS_PER_SLIDE = 100;
+  private static final int NUM_GROUPS = 10;
+
+  // e.g. a 1 hour window sliding every 10 seconds has 360 slides
+  @Param({"6", "60", "360"})
+  private int slidesPerWindow;
+
+  @Param({"batch", "panes"})
+  private String aggregation;
+
+  private ChannelContext ctx;
+  private List<Values> results;
+  private Values[] window;
+  private int next;
+
+  @Setup
+  public void setup() throws Exception {
+    String sql = "SELECT NAME, COUNT(*), SUM(ID), MAX(ID), AVG(ID) FROM FOO GROUP BY NAME";
+    JavaTypeFactory typeFactory = new JavaTypeFactoryImpl(RelDataTypeSystem.DEFAULT);
+    AggregationMode mode = "panes".equals(aggregation) ? AggregationMode.panes(slidesPerWindow) : AggregationMode.BATCH;
+    AbstractValuesProcessor proc = new PlanCompiler(typeFactory, mode)
+        .compile(TestCompilerUtils.sqlOverDummyTable(sql).tree());
+    final ChannelContext[] context = new ChannelContext[1];
+    Map<String, DataSource> data = new HashMap<>();
+    data.put("FOO", new DataSource() {
+      @Override
+      public void open(ChannelContext channelContext) {
+        context[0] = channelContext;
+      }
+    });
+    results = new ArrayList<>();
+    ChannelHandler handler = new TestUtils.CollectDataChannelHandler(results);
+    proc.initialize(data, handler);
+    ctx = context[0];
+    window = new Values[slidesPerWindow * ROWS_PER_SLIDE];
+    for (int i = 0; i < window.length; i++) {
+      window[i] = new Values(i, "name" + (i % NUM_GROUPS), "addr");
+    }
+  }
+
+  /**
+   * One slide of the window, the batch aggregation evaluates all the rows of the window and the paned one only
+   * the rows of the slide.
+   */
+  @Benchmark
+  public Object slide() {
+    results.clear();
+    if ("panes".equals(aggregation)) {
+      for (int i = 0; i < ROWS_PER_SLIDE; i++) {
+        ctx.emit(window[next + i]);
+      }
+      next = (next + ROWS_PER_SLIDE) % window.length;
+    } else {
+      for (Values row : window) {
+        ctx.emit(row);
+      }
+    }
+    ctx.flush();
+    return results;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PanedAggregateBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.calcite.rel.type.RelDataTypeSystem;
 import org.apache.calcite.schema.SchemaPlus;
 import org.apache.calcite.schema.StreamableTable;
 import org.apache.calcite.schema.Table;
+import org.apache.calcite.schema.impl.AggregateFunctionImpl;
 import org.apache.calcite.schema.impl.ScalarFunctionImpl;
 import org.apache.calcite.sql.SqlExplainLevel;
 import org.apache.calcite.sql.SqlNode;
@@ -91,6 +92,7 @@ public class TestCompilerUtils {
         schema.add("FOO", table);
         schema.add("BAR", table);
         schema.add("MYPLUS", ScalarFunctionImpl.create(MyPlus.class, "eval"));
+        schema.add("MYSUM", AggregateFunctionImpl.create(MySumFunction.class));
 
         List<SqlOperatorTable> sqlOperatorTables = new ArrayList<>();
         sqlOperatorTables.add(SqlStdOperatorTable.instance());
@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql;
+
+import com.google.common.collect.ImmutableMap;
+import com.hortonworks.streamline.streams.sql.compiler.FilterProjectCompiler;
+import com.hortonworks.streamline.streams.sql.runtime.ExecutableFilterProject;
+import org.apache.calcite.adapter.java.JavaTypeFactory;
+import org.apache.calcite.jdbc.JavaTypeFactoryImpl;
+import org.apache.calcite.rel.type.RelDataTypeSystem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class TestFilterProjectCompiler {
+  private final JavaTypeFactory typeFactory = new JavaTypeFactoryImpl(
+      RelDataTypeSystem.DEFAULT);
+
+  @Test
+  public void testCompile() throws Exception {
+    String sql = "SELECT ID + 1, NAME FROM FOO WHERE ID > 2";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    ExecutableFilterProject filterProject = new FilterProjectCompiler(typeFactory).compile(state.tree());
+    Assert.assertNull(filterProject.execute(new Object[] {2, "x", "y"}));
+    Assert.assertArrayEquals(new Object[] {4, "x"}, filterProject.execute(new Object[] {3, "x", "y"}));
+  }
+
+  @Test
+  public void testNoProjection() throws Exception {
+    String sql = "SELECT * FROM FOO WHERE ID > 0 AND ID < 2";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    ExecutableFilterProject filterProject = new FilterProjectCompiler(typeFactory).compile(state.tree());
+    Object[] row = new Object[] {1, "x", "y"};
+    Assert.assertArrayEquals(row, filterProject.execute(row));
+    Assert.assertNull(filterProject.execute(new Object[] {2, "x", "y"}));
+  }
+
+  @Test
+  public void testNoFilter() throws Exception {
+    String sql = "SELECT MYPLUS(ID, 3) FROM FOO";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    ExecutableFilterProject filterProject = new FilterProjectCompiler(typeFactory).compile(state.tree());
+    Assert.assertArrayEquals(new Object[] {5}, filterProject.execute(new Object[] {2, "x", "y"}));
+  }
+
+  @Test
+  public void testNested() throws Exception {
+    String sql = "SELECT ID, MAPFIELD['c'] FROM FOO WHERE NESTEDMAPFIELD['a']['b'] = 2 AND ARRAYFIELD[2] = 200";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverNestedTable(sql);
+    ExecutableFilterProject filterProject = new FilterProjectCompiler(typeFactory).compile(state.tree());
+    Object[] row = new Object[] {2, ImmutableMap.of("b", 2, "c", 4),
+        ImmutableMap.of("a", ImmutableMap.of("b", 2, "c", 4)), Arrays.asList(100, 200, 300)};
+    Assert.assertArrayEquals(new Object[] {2, 4}, filterProject.execute(row));
+  }
+
+  @Test
+  public void testAggregateIsNotCompiled() throws Exception {
+    String sql = "SELECT ID, COUNT(*) FROM FOO GROUP BY ID";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    Assert.assertNull(new FilterProjectCompiler(typeFactory).compile(state.tree()));
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hortonworks.streamline.streams.sql;
+
+import com.hortonworks.streamline.streams.sql.runtime.AggregateGroup;
+import com.hortonworks.streamline.streams.sql.runtime.GroupTable;
+import com.hortonworks.streamline.streams.sql.runtime.Values;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestGroupTable {
+  private static class KeyGroup extends AggregateGroup {
+    final Object key;
+
+    KeyGroup(Object key, int hash) {
+      super(hash);
+      this.key = key;
+    }
+
+    @Override
+    protected boolean matches(Values data) {
+      return eq(key, data.get(0));
+    }
+
+    @Override
+    protected boolean sameKey(AggregateGroup other) {
+      return eq(key, ((KeyGroup) other).key);
+    }
+  }
+
+  @Test
+  public void testPutGetRemove() {
+    GroupTable<KeyGroup> table = new GroupTable<>();
+    Map<Integer, KeyGroup> expected = new LinkedHashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      // few hash values so that the groups collide
+      int key = random.nextInt(2000);
+      Values row = new Values(key);
+      KeyGroup group = table.get(row, hash(key));
+      Assert.assertSame(expected.get(key), group);
+      if (group == null) {
+        group = new KeyGroup(key, hash(key));
+        table.put(group);
+        expected.put(key, group);
+      } else if (random.nextBoolean()) {
+        table.remove(group);
+        expected.remove(key);
+      }
+      Assert.assertEquals(expected.size(), table.size());
+    }
+    List<KeyGroup> groups = new ArrayList<>();
+    for (KeyGroup group : table) {
+      groups.add(group);
+      Assert.assertSame(group, table.get(new KeyGroup(group.key, hash(group.key))));
+    }
+    Assert.assertEquals(new ArrayList<>(expected.values()), groups);
+  }
+
+  @Test
+  public void testNullGroupValue() {
+    GroupTable<KeyGroup> table = new GroupTable<>();
+    Values row = new Values((Object) null);
+    int hash = AggregateGroup.hash(1, null);
+    Assert.assertNull(table.get(row, hash));
+    KeyGroup group = new KeyGroup(null, hash);
+    table.put(group);
+    Assert.assertSame(group, table.get(row, hash));
+    table.clear();
+    Assert.assertNull(table.get(row, hash));
+    Assert.assertFalse(table.iterator().hasNext());
+  }
+
+  private static int hash(Object key) {
+    return AggregateGroup.hash(1, ((Integer) key) % 100);
+  }
+}
@@ -20,6 +20,7 @@ package com.hortonworks.streamline.streams.sql;
 import com.google.common.collect.ImmutableMap;
 import com.hortonworks.streamline.streams.sql.compiler.PlanCompiler;
 import com.hortonworks.streamline.streams.sql.runtime.AbstractValuesProcessor;
+import com.hortonworks.streamline.streams.sql.runtime.ChannelContext;
 import com.hortonworks.streamline.streams.sql.runtime.ChannelHandler;
 import com.hortonworks.streamline.streams.sql.runtime.DataSource;
 import com.hortonworks.streamline.streams.sql.runtime.Values;
@@ -101,4 +102,129 @@ public class TestPlanCompiler {
     proc.initialize(data, h);
     Assert.assertEquals(new Values(5), values.get(0));
   }
+
+  @Test
+  public void testIncrementalAggregate() throws Exception {
+    String sql = "SELECT NAME, COUNT(*), SUM(ID), MAX(ID), AVG(ID) FROM FOO WHERE ID > 1 GROUP BY NAME";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    PlanCompiler compiler = new PlanCompiler(typeFactory, AggregationMode.INCREMENTAL);
+    AbstractValuesProcessor proc = compiler.compile(state.tree());
+    final ChannelContext[] ctx = new ChannelContext[1];
+    Map<String, DataSource> data = new HashMap<>();
+    data.put("FOO", new DataSource() {
+      @Override
+      public void open(ChannelContext channelContext) {
+        ctx[0] = channelContext;
+      }
+    });
+    List<Values> values = new ArrayList<>();
+    ChannelHandler h = new TestUtils.CollectDataChannelHandler(values);
+    proc.initialize(data, h);
+    ctx[0].emit(new Values(1, "a", "x"));
+    ctx[0].emit(new Values(2, "a", "x"));
+    ctx[0].emit(new Values(6, "a", "x"));
+    ctx[0].emit(new Values(3, "b", "x"));
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 2L, 8, 6, 4), new Values("b", 1L, 3, 3, 3)), values);
+
+    values.clear();
+    ctx[0].retract(new Values(1, "a", "x"));
+    ctx[0].retract(new Values(6, "a", "x"));
+    ctx[0].retract(new Values(3, "b", "x"));
+    ctx[0].emit(new Values(4, "a", "x"));
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 2L, 6, 4, 3)), values);
+
+    values.clear();
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 2L, 6, 4, 3)), values);
+  }
+
+  @Test
+  public void testPanedAggregate() throws Exception {
+    // MYSUM can't be merged, it's computed from the rows of the panes
+    String sql = "SELECT NAME, COUNT(*), SUM(ID), MAX(ID), AVG(ID), MYSUM(ID) FROM FOO WHERE ID > 1 GROUP BY NAME";
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    PlanCompiler compiler = new PlanCompiler(typeFactory, AggregationMode.panes(2));
+    AbstractValuesProcessor proc = compiler.compile(state.tree());
+    final ChannelContext[] ctx = new ChannelContext[1];
+    Map<String, DataSource> data = new HashMap<>();
+    data.put("FOO", new DataSource() {
+      @Override
+      public void open(ChannelContext channelContext) {
+        ctx[0] = channelContext;
+      }
+    });
+    List<Values> values = new ArrayList<>();
+    ChannelHandler h = new TestUtils.CollectDataChannelHandler(values);
+    proc.initialize(data, h);
+    ctx[0].emit(new Values(1, "a", "x"));
+    ctx[0].emit(new Values(2, "a", "x"));
+    ctx[0].emit(new Values(6, "a", "x"));
+    ctx[0].emit(new Values(3, "b", "x"));
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 2L, 8, 6, 4, 8L), new Values("b", 1L, 3, 3, 3, 3L)), values);
+
+    values.clear();
+    ctx[0].emit(new Values(4, "a", "x"));
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 3L, 12, 6, 4, 12L), new Values("b", 1L, 3, 3, 3, 3L)), values);
+
+    // the first pane leaves the window
+    values.clear();
+    ctx[0].emit(new Values(5, "b", "x"));
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 1L, 4, 4, 4, 4L), new Values("b", 1L, 5, 5, 5, 5L)), values);
+
+    values.clear();
+    ctx[0].flush();
+    Assert.assertEquals(Arrays.asList(new Values("b", 1L, 5, 5, 5, 5L)), values);
+  }
+
+  @Test
+  public void testPartialAggregate() throws Exception {
+    String sql = "SELECT NAME, COUNT(*), SUM(ID), MAX(ID), AVG(ID) FROM FOO WHERE ID > 1 GROUP BY NAME HAVING SUM(ID) > 3";
+    List<Values> partials = new ArrayList<>();
+    ChannelContext partial1 = compileAggregate(sql, AggregationMode.PARTIAL, partials);
+    ChannelContext partial2 = compileAggregate(sql, AggregationMode.PARTIAL, partials);
+    partial1.emit(new Values(1, "a", "x"));
+    partial1.emit(new Values(2, "a", "x"));
+    partial1.emit(new Values(3, "b", "x"));
+    partial2.emit(new Values(6, "a", "x"));
+    partial1.flush();
+    partial2.flush();
+    // the group values are followed by the count, the sum, the maximum, and the sum and count of the average
+    Assert.assertEquals(Arrays.asList(new Values("a", 1L, 2, 2, 2L, 1L), new Values("b", 1L, 3, 3, 3L, 1L),
+                                      new Values("a", 1L, 6, 6, 6L, 1L)), partials);
+
+    List<Values> values = new ArrayList<>();
+    ChannelContext merged = compileAggregate(sql, AggregationMode.BATCH.toFinal(), values);
+    for (Values partial : partials) {
+      merged.emit(partial);
+    }
+    merged.flush();
+    Assert.assertEquals(Arrays.asList(new Values("a", 2L, 8, 6, 4)), values);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testPartialAggregateNotMergeable() throws Exception {
+    compileAggregate("SELECT NAME, MYSUM(ID) FROM FOO GROUP BY NAME", AggregationMode.PARTIAL, new ArrayList<Values>());
+  }
+
+  private ChannelContext compileAggregate(String sql, AggregationMode aggregationMode, List<Values> values)
+      throws Exception {
+    TestCompilerUtils.CalciteState state = TestCompilerUtils.sqlOverDummyTable(sql);
+    PlanCompiler compiler = new PlanCompiler(typeFactory, aggregationMode);
+    AbstractValuesProcessor proc = compiler.compile(state.tree());
+    final ChannelContext[] ctx = new ChannelContext[1];
+    Map<String, DataSource> data = new HashMap<>();
+    data.put("FOO", new DataSource() {
+      @Override
+      public void open(ChannelContext channelContext) {
+        ctx[0] = channelContext;
+      }
+    });
+    proc.initialize(data, new TestUtils.CollectDataChannelHandler(values));
+    return ctx[0];
+  }
 }
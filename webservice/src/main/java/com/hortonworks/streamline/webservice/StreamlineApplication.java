@@ -30,6 +30,7 @@ import com.hortonworks.streamline.storage.Storable;
 import com.hortonworks.streamline.storage.StorableKey;
 import com.hortonworks.streamline.storage.StorageManager;
 import com.hortonworks.streamline.storage.StorageManagerAware;
+import com.hortonworks.streamline.storage.cache.QueryCache;
 import com.hortonworks.streamline.storage.cache.impl.GuavaCache;
 import com.hortonworks.streamline.storage.cache.writer.StorageWriteThrough;
 import com.hortonworks.streamline.storage.cache.writer.StorageWriter;
@@ -42,6 +43,7 @@ import com.hortonworks.streamline.streams.security.service.SecurityCatalogServic
 import com.hortonworks.streamline.streams.service.GenericExceptionMapper;
 import com.hortonworks.streamline.webservice.configurations.AuthorizerConfiguration;
 import com.hortonworks.streamline.webservice.configurations.LoginConfiguration;
+import com.hortonworks.streamline.webservice.configurations.StorageCacheConfiguration;
 import com.hortonworks.streamline.webservice.configurations.StorageProviderConfiguration;
 import com.hortonworks.streamline.webservice.configurations.StreamlineConfiguration;
 import com.hortonworks.streamline.webservice.configurations.ModuleConfiguration;
@@ -187,7 +189,10 @@ public class StreamlineApplication extends Application<StreamlineConfiguration>
         final Cache<StorableKey, Storable> cache = getCache(dao, cacheBuilder);
         final StorageWriter storageWriter = getStorageWriter(dao);
 
-        return doGetCacheBackedDao(cache, storageWriter);
+        final StorageCacheConfiguration cacheConfiguration = configuration.getStorageCacheConfiguration() != null
+                ? configuration.getStorageCacheConfiguration() : new StorageCacheConfiguration();
+
+        return doGetCacheBackedDao(cache, storageWriter, cacheConfiguration);
     }
 
     private StorageManager getStorageManager(StorageProviderConfiguration storageProviderConfiguration) {
@@ -207,8 +212,13 @@ public class StreamlineApplication extends Application<StreamlineConfiguration>
         return new StorageWriteThrough(dao);
     }
 
-    private StorageManager doGetCacheBackedDao(Cache<StorableKey, Storable> cache, StorageWriter writer) {
-        return new CacheBackedStorageManager(cache, writer);
+    private StorageManager doGetCacheBackedDao(Cache<StorableKey, Storable> cache, StorageWriter writer,
+                                               StorageCacheConfiguration cacheConfiguration) {
+        // the queries are invalidated once the write through writer has written to the storage layer
+        final QueryCache queryCache = cacheConfiguration.getMaxQueries() > 0
+                ? new QueryCache(cacheConfiguration.getMaxQueries(), cacheConfiguration.getQueryExpiryInSecs())
+                : null;
+        return new CacheBackedStorageManager(cache, writer, queryCache);
     }
 
     private Cache<StorableKey, Storable> getCache(StorageManager dao, CacheBuilder guavaCacheBuilder) {
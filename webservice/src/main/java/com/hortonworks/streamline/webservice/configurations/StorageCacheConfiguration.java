@@ -0,0 +1,43 @@
+/**
+ * Copyright 2017 Hortonworks.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+
+ *   http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+package com.hortonworks.streamline.webservice.configurations;
+
+/**
+ * The configuration of the cache of the storage layer.
+ */
+public class StorageCacheConfiguration {
+    // maximum number of cached find and list results, 0 to not cache them
+    private long maxQueries = 1000;
+
+    // the cached find and list results expire after this, so that the writes of other instances sharing the storage are read
+    private long queryExpiryInSecs = 60;
+
+    public long getMaxQueries() {
+        return maxQueries;
+    }
+
+    public void setMaxQueries(long maxQueries) {
+        this.maxQueries = maxQueries;
+    }
+
+    public long getQueryExpiryInSecs() {
+        return queryExpiryInSecs;
+    }
+
+    public void setQueryExpiryInSecs(long queryExpiryInSecs) {
+        this.queryExpiryInSecs = queryExpiryInSecs;
+    }
+}
@@ -45,6 +45,8 @@ public class StreamlineConfiguration extends Configuration {
     @NotNull
     private StorageProviderConfiguration storageProviderConfiguration;
 
+    private StorageCacheConfiguration storageCacheConfiguration = new StorageCacheConfiguration();
+
     @NotNull
     private DashboardConfiguration dashboardConfiguration;
 
@@ -133,6 +135,14 @@ public class StreamlineConfiguration extends Configuration {
         this.trustStorePassword = trustStorePassword;
     }
 
+    public StorageCacheConfiguration getStorageCacheConfiguration() {
+        return storageCacheConfiguration;
+    }
+
+    public void setStorageCacheConfiguration(StorageCacheConfiguration storageCacheConfiguration) {
+        this.storageCacheConfiguration = storageCacheConfiguration;
+    }
+
     public DashboardConfiguration getDashboardConfiguration() {
         return dashboardConfiguration;
     }
@@ -72,6 +72,9 @@ export default class EdgeConfigContainer extends Component {
         }, {
           value: "FIELDS",
           label: "FIELDS"
+        }, {
+          value: "CONSISTENT_HASH",
+          label: "CONSISTENT_HASH"
         }
       ],
       groupingFieldsArr: [],
@@ -252,6 +255,9 @@ export default class EdgeConfigContainer extends Component {
       this.setState({streamId: '', streamFields: ''});
     }
   }
+  isFieldsGrouping(grouping) {
+    return ['FIELDS', 'PARTIAL_KEY', 'CONSISTENT_HASH', 'HOT_KEY_SPLIT'].indexOf(grouping) !== -1;
+  }
   handleGroupingChange(obj) {
     if (obj) {
       this.setState({grouping: obj.value});
@@ -314,7 +320,7 @@ export default class EdgeConfigContainer extends Component {
     if (showRules && rules.length === 0) {
       validDataFlag = false;
     }
-    if (grouping === 'FIELDS' && groupingFields === '') {
+    if (this.isFieldsGrouping(grouping) && groupingFields === '') {
       validDataFlag = false;
     }
     if (!validDataFlag){
@@ -347,7 +353,7 @@ export default class EdgeConfigContainer extends Component {
         }
       ]
     };
-    if (grouping === "FIELDS") {
+    if (this.isFieldsGrouping(grouping)) {
       edgeData.streamGroupings[0].fields = groupingFields;
     }
     if (nodeType === 'window' || nodeType === 'rule' || nodeType === 'branch') {
@@ -543,7 +549,7 @@ export default class EdgeConfigContainer extends Component {
             <Select value={grouping} name='grouping' options={groupingsArr} onChange={this.handleGroupingChange.bind(this)} clearable={false} required={true}/>
           </div>
         </div>
-        {grouping === 'FIELDS'
+        {this.isFieldsGrouping(grouping)
           ? <div className="form-group">
               <label>Select Fields
                 <span className="text-danger">*</span>